@@ -1,8 +1,12 @@
 package mil.nga.bundler;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +24,14 @@ import mil.nga.util.HostNameUtils;
  * 
  * <prefix>_<hostname>_<random chars>
  * 
+ * If the date-bucketed layout is enabled the staging directory is nested
+ * beneath a date bucket identifying the day (UTC) on which it was created:
+ * 
+ * yyyy/MM/dd/<prefix>_<hostname>_<random chars>
+ * 
+ * This keeps the number of entries in the staging root small and allows 
+ * the cleanup process to expire an entire day with a single decision.
+ * 
  * The output archive file created will also have a simple pattern:
  * 
  * <prefix>_data_archive
@@ -47,6 +59,33 @@ public class FileNameGenerator
      */
     private String _pathSeparator = null;
     
+    /**
+     * True if output directories are nested beneath date buckets.
+     */
+    private boolean _dateBuckets = false;
+    
+    /**
+     * Regular expression matching the year component of a date bucket.
+     */
+    private static final String YEAR_REGEX = "[1-9][0-9]{3}";
+    
+    /**
+     * Regular expression matching the month or day component of a date 
+     * bucket.  Combinations that are not valid dates (e.g. 02/30) still
+     * match and must be rejected by the caller.
+     */
+    private static final String MONTH_DAY_REGEX = "(0[1-9]|[12][0-9]|3[01])";
+    
+    /**
+     * Pattern matching the year component of a date bucket.
+     */
+    private static final Pattern YEAR_BUCKET = Pattern.compile(YEAR_REGEX);
+    
+    /**
+     * Pattern matching the month or day component of a date bucket.
+     */
+    private static final Pattern MONTH_DAY_BUCKET = 
+            Pattern.compile(MONTH_DAY_REGEX);
     
     /**
      * Default constructor
@@ -56,6 +95,7 @@ public class FileNameGenerator
         try {
             _pathSeparator = System.getProperty("file.separator");
             setStagingDirectory(getProperty(STAGING_DIRECTORY_PROPERTY));
+            setDateBuckets(getProperty(DATE_BUCKETED_STAGING_PROPERTY));
         }
         catch (PropertiesNotLoadedException pnle) {
             LOGGER.warn("An unexpected PropertiesNotLoadedException " 
@@ -87,6 +127,9 @@ public class FileNameGenerator
      * Calculate the name for a directory that will be used to store the 
      * output archive files.  Important note:  This method will return a 
      * different value for the archive directory every time it's called.
+     * If the date-bucketed layout is enabled, the directory is created 
+     * beneath the bucket for the current day (which is created if it 
+     * does not already exist).
      *   
      * @return A full path to an output directory.
      */
@@ -99,6 +142,22 @@ public class FileNameGenerator
         if (!sb.toString().endsWith(_pathSeparator)) {
             sb.append(_pathSeparator);
         }
+        if (isDateBuckets()) {
+            // Create the year, month and day buckets one level at a time
+            // so that every level gets the wide open permissions.
+            for (String level : getDateBucket(System.currentTimeMillis())
+                    .split(Pattern.quote(_pathSeparator))) {
+                sb.append(level);
+                File bucket = new File(sb.toString());
+                if (!bucket.exists()) {
+                    bucket.mkdir();
+                    bucket.setExecutable(true, false);
+                    bucket.setReadable(true, false);
+                    bucket.setWritable(true, false);
+                }
+                sb.append(_pathSeparator);
+            }
+        }
         sb.append(DEFAULT_FILENAME_PREFIX);
         sb.append("_");
         sb.append(HostNameUtils.getHostName());
@@ -127,6 +186,85 @@ public class FileNameGenerator
         return sb.toString();
     }
     
+    /**
+     * Calculate the relative path of the date bucket (i.e. 
+     * <code>yyyy/MM/dd</code>) associated with the input time.  Buckets are 
+     * always calculated in UTC so that every host in the cluster agrees on 
+     * the bucket boundaries.
+     * 
+     * @param time The time of interest.
+     * @return The relative path to the date bucket.
+     */
+    public String getDateBucket(long time) {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.setTimeInMillis(time);
+        return String.format("%04d%s%02d%s%02d", 
+                cal.get(Calendar.YEAR),
+                _pathSeparator,
+                cal.get(Calendar.MONTH) + 1,
+                _pathSeparator,
+                cal.get(Calendar.DAY_OF_MONTH));
+    }
+    
+    /**
+     * Determine whether the input path is the year component of a date
+     * bucket (i.e. a four digit directory name).  A match does not 
+     * guarantee that the directories beneath it form valid dates.
+     * 
+     * @param p The path to test.
+     * @return True if the last element of the path is a year bucket.
+     */
+    public static boolean isYearBucket(Path p) {
+        return (p != null) 
+                && (p.getFileName() != null)
+                && YEAR_BUCKET.matcher(p.getFileName().toString()).matches();
+    }
+    
+    /**
+     * Determine whether the input path is the month or day component of a 
+     * date bucket (i.e. a two digit directory name between 01 and 31).
+     * 
+     * @param p The path to test.
+     * @return True if the last element of the path is a month or day 
+     * bucket.
+     */
+    public static boolean isMonthDayBucket(Path p) {
+        return (p != null) 
+                && (p.getFileName() != null)
+                && MONTH_DAY_BUCKET.matcher(
+                        p.getFileName().toString()).matches();
+    }
+    
+    /**
+     * Determine whether the input path is a complete date bucket (i.e. it
+     * ends with <code>yyyy/MM/dd</code>).
+     * 
+     * @param p The path to test.
+     * @return True if the path is a day bucket.
+     */
+    public static boolean isDateBucket(Path p) {
+        return isMonthDayBucket(p)
+                && isMonthDayBucket(p.getParent())
+                && isYearBucket(p.getParent().getParent());
+    }
+    
+    /**
+     * Calculate the staging directory in which the input directory resides.
+     * If the input directory is a date bucket the bucket components are 
+     * removed, otherwise the input directory is returned unchanged.  This 
+     * allows callers to identify the owning staging directory regardless of
+     * the layout in use.
+     * 
+     * @param dir The parent directory of a bundle directory.
+     * @return The staging directory.
+     */
+    public static Path getStagingRoot(Path dir) {
+        if (isDateBucket(dir)) {
+            return dir.getParent().getParent().getParent();
+        }
+        return dir;
+    }
+    
     /**
      * Get the default name of the archive file to use.
      * 
@@ -218,7 +356,10 @@ public class FileNameGenerator
     
     /**
      * Calculate a regular expression that can be used to search for 
-     * bundler staging directories.  
+     * bundler staging directories.  The list contains expressions for the 
+     * flat layout followed by the same expressions prefixed with the date
+     * bucket (relative to the staging directory).  Both are always returned 
+     * because directories created under either layout may be present.
      * 
      * @return A REGEX used to search for staging directories.
      */
@@ -244,9 +385,40 @@ public class FileNameGenerator
         sb.append(4*UNIQUE_TOKEN_LENGTH);
         sb.append("}+");
         regexes.add(sb.toString());
+        
+        String separator = Pattern.quote(File.separator);
+        String bucket    = YEAR_REGEX + separator 
+                + MONTH_DAY_REGEX + separator 
+                + MONTH_DAY_REGEX + separator;
+        for (String regex : new ArrayList<String>(regexes)) {
+            regexes.add(bucket + regex);
+        }
         return regexes;
     }
     
+    /**
+     * Getter method determining whether output directories are nested 
+     * beneath date buckets.
+     * 
+     * @return True if the date-bucketed layout is enabled.
+     */
+    public boolean isDateBuckets() {
+        return _dateBuckets;
+    }
+    
+    /**
+     * Setter method enabling the date-bucketed layout.  The layout is 
+     * disabled unless the input value is <code>true</code>.
+     * 
+     * @param value The value of the date bucket property.
+     */
+    public void setDateBuckets(String value) {
+        _dateBuckets = (value != null) && Boolean.parseBoolean(value.trim());
+        if (_dateBuckets) {
+            LOGGER.info("Date-bucketed staging layout enabled.");
+        }
+    }
+    
     /**
      * Getter method for the target staging directory.
      * 
@@ -0,0 +1,201 @@
+package mil.nga.bundler;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+/**
+ * Class responsible for converting the local path of a staged file into
+ * the externally accessible URL.  The conversion follows the same rules
+ * used by the bundler: the portion of the path identified by the
+ * <code>bundler.staging_directory_base</code> property is replaced with
+ * the value of the <code>bundler.base_url</code> property.
+ *
+ * @author L. Craig Carpenter
+ */
+public class UrlGenerator
+        extends PropertyLoader
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    static final Logger LOGGER = LoggerFactory.getLogger(
+            UrlGenerator.class);
+
+    /**
+     * The base URL replacing the staging directory base.
+     */
+    private String baseURL = null;
+
+    /**
+     * The staging directory base.
+     */
+    private Path stagingBase = null;
+
+    /**
+     * Default constructor
+     */
+    private UrlGenerator() {
+        super(PROPERTY_FILE_NAME);
+        try {
+            setBaseURL(getProperty(BASE_URL_PROPERTY));
+            setStagingBase(getProperty(STAGING_DIRECTORY_BASE_PROPERTY));
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.warn("An unexpected PropertiesNotLoadedException "
+                    + "was encountered.  Please ensure the application "
+                    + "is properly configured.  Exception message [ "
+                    + pnle.getMessage()
+                    + " ].");
+        }
+    }
+
+    /**
+     * Return a singleton instance to the UrlGenerator object.
+     * @return The UrlGenerator
+     */
+    public static UrlGenerator getInstance() {
+        return UrlGeneratorHolder.getFactorySingleton();
+    }
+
+    /**
+     * Getter method for the base URL.
+     * @return The base URL.
+     */
+    public String getBaseURL() {
+        return baseURL;
+    }
+
+    /**
+     * Getter method for the staging directory base.
+     * @return The staging directory base.
+     */
+    public Path getStagingBase() {
+        return stagingBase;
+    }
+
+    /**
+     * Determine whether the input path resides beneath the staging
+     * directory base (i.e. whether it can be served via the base URL).
+     *
+     * @param p The local path.
+     * @return True if the path resides beneath the staging base.
+     */
+    public boolean isServable(Path p) {
+        return ((p != null)
+                && (getStagingBase() != null)
+                && (getBaseURL() != null)
+                && (p.normalize().startsWith(getStagingBase())));
+    }
+
+    /**
+     * Convert the local path of a staged file into an externally
+     * accessible URL.
+     *
+     * @param localPath The local path to the staged file.
+     * @return The URL, or null if the path does not reside beneath the
+     * staging directory base.
+     */
+    public String getURL(String localPath) {
+
+        String url = null;
+
+        if ((localPath != null) && (!localPath.isEmpty())) {
+            try {
+                Path p = Paths.get(localPath).normalize();
+                if (isServable(p)) {
+                    StringBuilder sb = new StringBuilder();
+                    sb.append(getBaseURL());
+                    Path relative = getStagingBase().relativize(p);
+                    for (int i = 0; i < relative.getNameCount(); i++) {
+                        if ((sb.length() > 0)
+                                && (sb.charAt(sb.length() - 1) != '/')) {
+                            sb.append("/");
+                        }
+                        sb.append(relative.getName(i).toString());
+                    }
+                    url = sb.toString();
+                }
+                else {
+                    LOGGER.warn("Path [ "
+                            + localPath
+                            + " ] does not reside beneath the staging "
+                            + "directory base [ "
+                            + getStagingBase()
+                            + " ].  Unable to generate a URL.");
+                }
+            }
+            catch (InvalidPathException ipe) {
+                LOGGER.warn("Invalid path [ "
+                        + localPath
+                        + " ].  Exception message [ "
+                        + ipe.getMessage()
+                        + " ].");
+            }
+        }
+        return url;
+    }
+
+    /**
+     * Setter method for the base URL.
+     * @param value The base URL.
+     */
+    private void setBaseURL(String value) {
+        if ((value == null) || (value.trim().isEmpty())) {
+            LOGGER.warn("Application property [ "
+                    + BASE_URL_PROPERTY
+                    + " ] is not defined.");
+        }
+        else {
+            baseURL = value.trim();
+        }
+    }
+
+    /**
+     * Setter method for the staging directory base.
+     * @param value The staging directory base.
+     */
+    private void setStagingBase(String value) {
+        if ((value == null) || (value.trim().isEmpty())) {
+            LOGGER.warn("Application property [ "
+                    + STAGING_DIRECTORY_BASE_PROPERTY
+                    + " ] is not defined.");
+        }
+        else {
+            stagingBase = Paths.get(value.trim()).normalize();
+        }
+    }
+
+    /**
+     * Static inner class used to construct the factory singleton.  This
+     * class exploits that fact that inner classes are not loaded until they
+     * referenced therefore enforcing thread safety without the performance
+     * hit imposed by the use of the "synchronized" keyword.
+     *
+     * @author L. Craig Carpenter
+     */
+    public static class UrlGeneratorHolder {
+
+        /**
+         * Reference to the Singleton instance of the factory
+         */
+        private static UrlGenerator _factory = new UrlGenerator();
+
+        /**
+         * Accessor method for the singleton instance of the factory object.
+         *
+         * @return The singleton instance of the factory.
+         */
+        public static UrlGenerator getFactorySingleton() {
+            return _factory;
+        }
+    }
+}
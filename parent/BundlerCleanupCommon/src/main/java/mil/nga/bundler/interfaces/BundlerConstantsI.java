@@ -122,6 +122,215 @@ public interface BundlerConstantsI {
     public static final String STAGING_DIRECTORY_BASE_PROPERTY = 
             "bundler.staging_directory_base";
     
+    /**
+     * Comma-separated list of glob patterns (relative to the directory
+     * identified by <code>bundler.staging_directory_base</code>) used to
+     * discover additional staging directories that should be managed by the
+     * cleanup process (e.g. <code>*&#47;data_bundles</code>).
+     */
+    public static final String STAGING_DIRECTORY_PATTERNS_PROPERTY =
+            "bundler.staging_directory_patterns";
+
+    /**
+     * Property enabling the date-bucketed staging layout.  When true, output
+     * directories are created beneath <code>yyyy/MM/dd</code> (UTC) date 
+     * buckets within the staging directory rather than directly within it, 
+     * and the cleanup expires whole buckets.  Defaults to false.
+     */
+    public static final String DATE_BUCKETED_STAGING_PROPERTY =
+            "bundler.staging_date_buckets";
+
+    /**
+     * Property defining the maximum number of concurrent cleanup threads
+     * that will be run against any single file store (i.e. mount point).
+     */
+    public static final String MAX_THREADS_PER_FILE_STORE_PROPERTY =
+            "bundler.cleanup.max_threads_per_file_store";
+
+    /**
+     * Default maximum number of concurrent cleanup threads that will be run
+     * against any single file store.
+     */
+    public static final int DEFAULT_MAX_THREADS_PER_FILE_STORE = 2;
+
+    /**
+     * Property defining the maximum number of file attribute reads (stat 
+     * calls) performed when estimating the size of a cleanup root for 
+     * capacity reporting.  Roots that fit within the budget are measured 
+     * exactly.
+     */
+    public static final String SIZE_ESTIMATE_BUDGET_PROPERTY =
+            "bundler.cleanup.size_estimate_budget";
+
+    /**
+     * Default maximum number of file attribute reads performed when 
+     * estimating the size of a cleanup root.
+     */
+    public static final long DEFAULT_SIZE_ESTIMATE_BUDGET = 10000L;
+
+    /**
+     * Property enabling per-entry logging of every file and directory 
+     * removed by the disk cleanup.  By default deletions are aggregated 
+     * into periodic summary records.  Defaults to false.
+     */
+    public static final String CLEANUP_VERBOSE_PROPERTY =
+            "bundler.cleanup.verbose";
+
+    /**
+     * Property defining the maximum number of orphaned FILE_ENTRY or 
+     * ARCHIVE_JOBS rows removed by a single delete statement (and 
+     * transaction) during the datasource cleanup.  The chunk size adapts 
+     * below this maximum based on the observed statement latency.
+     */
+    public static final String ORPHAN_CHUNK_SIZE_PROPERTY =
+            "bundler.cleanup.orphan_chunk_size";
+
+    /**
+     * Default maximum number of orphaned rows removed per transaction.
+     */
+    public static final int DEFAULT_ORPHAN_CHUNK_SIZE = 5000;
+
+    /**
+     * Property defining the time (in ms) to pause between the chunks of a 
+     * bulk delete so that concurrent bundler inserts are not blocked.
+     */
+    public static final String DELETE_CHUNK_PAUSE_PROPERTY =
+            "bundler.cleanup.delete_chunk_pause_ms";
+
+    /**
+     * Default time (in ms) to pause between the chunks of a bulk delete.
+     */
+    public static final long DEFAULT_DELETE_CHUNK_PAUSE = 100L;
+
+    /**
+     * Property defining the target time (in ms) for a single chunk of a 
+     * bulk delete.  Slower chunks shrink the chunk size, faster chunks 
+     * grow it.
+     */
+    public static final String DELETE_CHUNK_TARGET_LATENCY_PROPERTY =
+            "bundler.cleanup.delete_chunk_target_ms";
+
+    /**
+     * Default target time (in ms) for a single chunk of a bulk delete.
+     */
+    public static final long DEFAULT_DELETE_CHUNK_TARGET_LATENCY = 1000L;
+
+    /**
+     * Property selecting how orphaned FILE_ENTRY and ARCHIVE_JOBS records 
+     * are detected.  Either <code>ORPHAN_DETECTION_ANTI_JOIN</code> 
+     * (default) or <code>ORPHAN_DETECTION_MERGE</code>.
+     */
+    public static final String ORPHAN_DETECTION_PROPERTY =
+            "bundler.cleanup.orphan_detection";
+
+    /**
+     * Orphans are detected and deleted by the database using NOT EXISTS 
+     * anti-joins.
+     */
+    public static final String ORPHAN_DETECTION_ANTI_JOIN = "anti_join";
+
+    /**
+     * Orphans are detected by merging sorted job ID cursors in the 
+     * application.  Intended for databases on which the anti-join performs
+     * poorly.
+     */
+    public static final String ORPHAN_DETECTION_MERGE = "merge";
+
+    /**
+     * Property defining the number of parallel workers used to purge old 
+     * jobs.  The value is capped at half of the datasource pool size.
+     */
+    public static final String PURGE_THREADS_PROPERTY =
+            "bundler.cleanup.purge_threads";
+
+    /**
+     * Default number of parallel purge workers (i.e. serial purge).
+     */
+    public static final int DEFAULT_PURGE_THREADS = 1;
+
+    /**
+     * Property defining the number of old jobs retrieved (and purged) per 
+     * page during the datasource cleanup.
+     */
+    public static final String PURGE_PAGE_SIZE_PROPERTY =
+            "bundler.cleanup.purge_page_size";
+
+    /**
+     * Default number of old jobs retrieved per page.
+     */
+    public static final int DEFAULT_PURGE_PAGE_SIZE = 1000;
+
+    /**
+     * Property defining the age (in days) after which BUNDLER_JOB_METRICS 
+     * records are rolled up into the daily summary table and deleted.  The
+     * value must not be less than the age at which jobs are purged.  The 
+     * rollup is disabled if not set.
+     */
+    public static final String METRICS_ROLLUP_DAYS_PROPERTY =
+            "bundler.cleanup.metrics_rollup_days";
+
+    /**
+     * Default age (in days) after which job metrics are rolled up (0 
+     * disables the rollup).
+     */
+    public static final int DEFAULT_METRICS_ROLLUP_DAYS = 0;
+
+    /**
+     * Property defining the maximum size of the JobTracker datasource 
+     * connection pool (max-pool-size in the container configuration).
+     */
+    public static final String DATASOURCE_POOL_SIZE_PROPERTY =
+            "bundler.cleanup.datasource_pool_size";
+
+    /**
+     * Default maximum datasource pool size (the container default).
+     */
+    public static final int DEFAULT_DATASOURCE_POOL_SIZE = 20;
+
+    /**
+     * Property identifying the cold (cheaper, slower) staging directory to
+     * which aging bundles are moved prior to final expiry.  The directory
+     * must reside beneath <code>bundler.staging_directory_base</code> so the
+     * moved bundles remain downloadable.  Tiering is disabled if not set.
+     */
+    public static final String COLD_DIRECTORY_PROPERTY =
+            "bundler.cleanup.cold_directory";
+
+    /**
+     * Property defining the age (in days) after which staged bundles are 
+     * moved to the cold staging directory.
+     */
+    public static final String TIER_AFTER_DAYS_PROPERTY =
+            "bundler.cleanup.tier_after_days";
+
+    /**
+     * Default age (in days) after which staged bundles are moved to the 
+     * cold staging directory.
+     */
+    public static final int DEFAULT_TIER_AFTER_DAYS = 3;
+
+    /**
+     * Property enabling the replacement of duplicate staged archives with
+     * hard links to a single copy.  Defaults to false.
+     */
+    public static final String DEDUPLICATE_ARCHIVES_PROPERTY =
+            "bundler.cleanup.deduplicate_archives";
+
+    /**
+     * Property defining the default staging area quota (in MB) applied to 
+     * each user.  Zero (the default) disables quota enforcement.
+     */
+    public static final String USER_QUOTA_PROPERTY =
+            "bundler.cleanup.user_quota";
+
+    /**
+     * Prefix of the properties defining per-user staging area quotas (in 
+     * MB).  The user name is appended to the prefix (e.g. 
+     * <code>bundler.cleanup.user_quota.jsmith=10240</code>).
+     */
+    public static final String USER_QUOTA_PROP_PREFIX =
+            "bundler.cleanup.user_quota.";
+
     /**
      * Number of Base64 characters to use in creating unique tokens for output
      * directories and/or filenames.
@@ -0,0 +1,180 @@
+package mil.nga.bundler.model;
+
+import java.io.Serializable;
+
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.types.JobStateType;
+
+/**
+ * Lightweight view of a single ARCHIVE_JOBS record joined with the 
+ * USER_NAME of the owning JOBS record.  Used to account for the staging 
+ * area footprint generated by each user.  Only archives that are complete
+ * and still have an on-disk location occupy staging space (see 
+ * <code>isStaged()</code>).
+ * 
+ * @author L. Craig Carpenter
+ */
+public class StagedArchive implements Serializable {
+
+    /**
+     * Eclipse-generated serialVersionUID
+     */
+    private static final long serialVersionUID = -2861503940471137751L;
+
+    /**
+     * Primary key of the ARCHIVE_JOBS record.
+     */
+    private final long ID;
+    
+    /**
+     * The job ID owning the archive.
+     */
+    private final String jobID;
+    
+    /**
+     * The user that submitted the job.
+     */
+    private final String userName;
+    
+    /**
+     * The size of the archive.
+     */
+    private final long size;
+    
+    /**
+     * The time the archive was started.
+     */
+    private final long startTime;
+    
+    /**
+     * The state of the archive.
+     */
+    private final JobStateType state;
+    
+    /**
+     * True if the archive has an on-disk location (ARCHIVE_FILE).
+     */
+    private final boolean hasFile;
+    
+    /**
+     * Default constructor requiring all fields.
+     * 
+     * @param ID Primary key of the ARCHIVE_JOBS record.
+     * @param jobID The job ID owning the archive.
+     * @param userName The user that submitted the job.
+     * @param size The size of the archive.
+     * @param startTime The time the archive was started.
+     * @param state The state of the archive.
+     * @param hasFile True if the archive has an on-disk location.
+     */
+    public StagedArchive(
+            long         ID, 
+            String       jobID, 
+            String       userName, 
+            long         size, 
+            long         startTime,
+            JobStateType state,
+            boolean      hasFile) {
+        this.ID        = ID;
+        this.jobID     = jobID;
+        this.userName  = ((userName == null) || (userName.trim().isEmpty())) ?
+                BundlerConstantsI.DEFAULT_USERNAME : userName.trim();
+        this.size      = size;
+        this.startTime = startTime;
+        this.state     = state;
+        this.hasFile   = hasFile;
+    }
+    
+    /**
+     * Getter method for the primary key of the ARCHIVE_JOBS record.
+     * @return The primary key.
+     */
+    public long getID() {
+        return ID;
+    }
+    
+    /**
+     * Getter method for the job ID owning the archive.
+     * @return The job ID.
+     */
+    public String getJobID() {
+        return jobID;
+    }
+    
+    /**
+     * Getter method for the size of the archive.
+     * @return The size of the archive.
+     */
+    public long getSize() {
+        return size;
+    }
+    
+    /**
+     * Getter method for the time the archive was started.
+     * @return The start time.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+    
+    /**
+     * Getter method for the state of the archive.
+     * @return The archive state.
+     */
+    public JobStateType getState() {
+        return state;
+    }
+    
+    /**
+     * Determine whether the archive occupies staging space, i.e. it is 
+     * complete and its on-disk location has not been cleared.
+     * @return True if the archive is staged.
+     */
+    public boolean isStaged() {
+        return (state == JobStateType.COMPLETE) && hasFile;
+    }
+    
+    /**
+     * Determine whether the archive is still being built, in which case its
+     * size and location may change.  Complete, failed and rejected archives
+     * are final.
+     * @return True if the archive may still change.
+     */
+    public boolean isPending() {
+        return (state != JobStateType.COMPLETE) 
+                && (state != JobStateType.ERROR) 
+                && (state != JobStateType.INVALID_REQUEST);
+    }
+    
+    /**
+     * Getter method for the user that submitted the job.
+     * @return The user name.
+     */
+    public String getUserName() {
+        return userName;
+    }
+    
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("ID => [ ");
+        sb.append(getID());
+        sb.append(" ], Job ID => [ ");
+        sb.append(getJobID());
+        sb.append(" ], User => [ ");
+        sb.append(getUserName());
+        sb.append(" ], Size => [ ");
+        sb.append(getSize());
+        sb.append(" ], Start Time => [ ");
+        sb.append(getStartTime());
+        sb.append(" ], State => [ ");
+        sb.append(getState());
+        sb.append(" ], Staged => [ ");
+        sb.append(isStaged());
+        sb.append(" ].");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package mil.nga.bundler.model;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Simple class containing the staging area usage attributed to a single 
+ * user along with the quota that applies to that user.
+ * 
+ * @author L. Craig Carpenter
+ */
+public class UserUsage implements Serializable {
+
+    /**
+     * Eclipse-generated serialVersionUID
+     */
+    private static final long serialVersionUID = 4183320972712240155L;
+
+    /**
+     * The user name.
+     */
+    @JsonProperty(value="user_name")
+    private final String userName;
+    
+    /**
+     * The number of staged archives owned by the user.
+     */
+    @JsonProperty(value="num_archives")
+    private final int numArchives;
+    
+    /**
+     * The total size (in bytes) of the archives owned by the user.
+     */
+    @JsonProperty(value="total_size")
+    private final long totalSize;
+    
+    /**
+     * The quota (in bytes) applied to the user.  Zero indicates no quota.
+     */
+    @JsonProperty(value="quota")
+    private final long quota;
+    
+    /**
+     * Default constructor requiring all fields.
+     * 
+     * @param userName The user name.
+     * @param numArchives The number of staged archives owned by the user.
+     * @param totalSize The total size of the archives owned by the user.
+     * @param quota The quota applied to the user (zero for no quota).
+     */
+    public UserUsage(
+            String userName, 
+            int    numArchives, 
+            long   totalSize, 
+            long   quota) {
+        this.userName    = userName;
+        this.numArchives = numArchives;
+        this.totalSize   = totalSize;
+        this.quota       = quota;
+    }
+    
+    /**
+     * Getter method for the number of staged archives owned by the user.
+     * @return The number of staged archives.
+     */
+    public int getNumArchives() {
+        return numArchives;
+    }
+    
+    /**
+     * Getter method for the quota applied to the user.
+     * @return The quota in bytes (zero for no quota).
+     */
+    public long getQuota() {
+        return quota;
+    }
+    
+    /**
+     * Getter method for the total size of the archives owned by the user.
+     * @return The total size in bytes.
+     */
+    public long getTotalSize() {
+        return totalSize;
+    }
+    
+    /**
+     * Getter method for the user name.
+     * @return The user name.
+     */
+    public String getUserName() {
+        return userName;
+    }
+    
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("User => [ ");
+        sb.append(getUserName());
+        sb.append(" ], Num Archives => [ ");
+        sb.append(getNumArchives());
+        sb.append(" ], Total Size => [ ");
+        sb.append(getTotalSize());
+        sb.append(" ], Quota => [ ");
+        sb.append(getQuota());
+        sb.append(" ].");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,280 @@
+package mil.nga.bundler.simulator;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Simple class describing a candidate staging area retention policy to be
+ * evaluated by the <code>RetentionSimulator</code>.  A policy consists of
+ * an age limit applied by a periodic sweep (mirroring the cleanup timer)
+ * and an optional high/low watermark pair.  When the staging area usage
+ * exceeds the high watermark at a sweep, the oldest bundles are removed
+ * until the usage falls to the low watermark.
+ *
+ * @author L. Craig Carpenter
+ */
+public class RetentionPolicy implements Serializable {
+
+    /**
+     * Eclipse-generated serialVersionUID
+     */
+    private static final long serialVersionUID = -7207254120463817542L;
+
+    /**
+     * Number of milliseconds in a day.
+     */
+    public static final long MILLISECONDS_PER_DAY = 1000L * 60L * 60L * 24L;
+
+    /**
+     * The age (in days) after which bundles are removed.
+     */
+    @JsonProperty(value="retention_days")
+    private final double retentionDays;
+
+    /**
+     * The time between sweeps (in ms).
+     */
+    @JsonProperty(value="sweep_interval")
+    private final long sweepInterval;
+
+    /**
+     * Offset of the sweep from midnight UTC (in ms).
+     */
+    @JsonProperty(value="sweep_offset")
+    private final long sweepOffset;
+
+    /**
+     * Usage (in bytes) above which watermark eviction is triggered.  Zero
+     * disables watermark eviction.
+     */
+    @JsonProperty(value="high_watermark")
+    private final long highWatermark;
+
+    /**
+     * Usage (in bytes) to which watermark eviction reduces the staging
+     * area.
+     */
+    @JsonProperty(value="low_watermark")
+    private final long lowWatermark;
+
+    /**
+     * Capacity (in bytes) of the staging area used to calculate headroom.
+     * Zero if unknown.
+     */
+    @JsonProperty(value="capacity")
+    private final long capacity;
+
+    /**
+     * Constructor used to build an object from the specified builder.
+     * @param builder The builder object.
+     */
+    protected RetentionPolicy(RetentionPolicyBuilder builder) {
+        retentionDays = builder.retentionDays;
+        sweepInterval = builder.sweepInterval;
+        sweepOffset   = builder.sweepOffset;
+        highWatermark = builder.highWatermark;
+        lowWatermark  = (builder.lowWatermark > 0 ?
+                builder.lowWatermark : builder.highWatermark);
+        capacity      = builder.capacity;
+    }
+
+    /**
+     * Getter method for the staging area capacity.
+     * @return The capacity in bytes (zero if unknown).
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Getter method for the high watermark.
+     * @return The high watermark in bytes (zero if disabled).
+     */
+    public long getHighWatermark() {
+        return highWatermark;
+    }
+
+    /**
+     * Getter method for the low watermark.
+     * @return The low watermark in bytes.
+     */
+    public long getLowWatermark() {
+        return lowWatermark;
+    }
+
+    /**
+     * Getter method for the retention period.
+     * @return The retention period in days.
+     */
+    public double getRetentionDays() {
+        return retentionDays;
+    }
+
+    /**
+     * Getter method for the retention period.
+     * @return The retention period in milliseconds.
+     */
+    @JsonIgnore
+    public long getRetentionMillis() {
+        return (long)(retentionDays * MILLISECONDS_PER_DAY);
+    }
+
+    /**
+     * Getter method for the time between sweeps.
+     * @return The time between sweeps in milliseconds.
+     */
+    public long getSweepInterval() {
+        return sweepInterval;
+    }
+
+    /**
+     * Getter method for the offset of the sweep from midnight UTC.
+     * @return The sweep offset in milliseconds.
+     */
+    public long getSweepOffset() {
+        return sweepOffset;
+    }
+
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Retention Days => [ ");
+        sb.append(getRetentionDays());
+        sb.append(" ], Sweep Interval => [ ");
+        sb.append(getSweepInterval());
+        sb.append(" ], Sweep Offset => [ ");
+        sb.append(getSweepOffset());
+        sb.append(" ], High Watermark => [ ");
+        sb.append(getHighWatermark());
+        sb.append(" ], Low Watermark => [ ");
+        sb.append(getLowWatermark());
+        sb.append(" ], Capacity => [ ");
+        sb.append(getCapacity());
+        sb.append(" ].");
+        return sb.toString();
+    }
+
+    /**
+     * Class implementing the Builder creation pattern for new
+     * RetentionPolicy objects.
+     *
+     * @author L. Craig Carpenter
+     */
+    public static class RetentionPolicyBuilder {
+
+        private double retentionDays = 14;
+        private long   sweepInterval = MILLISECONDS_PER_DAY;
+        private long   sweepOffset   = 30L * 60L * 1000L;
+        private long   highWatermark = 0L;
+        private long   lowWatermark  = 0L;
+        private long   capacity      = 0L;
+
+        /**
+         * Method used to actually construct the RetentionPolicy object.
+         * @return A constructed and validated RetentionPolicy object.
+         */
+        public RetentionPolicy build() throws IllegalStateException {
+            RetentionPolicy object = new RetentionPolicy(this);
+            validateRetentionPolicyObject(object);
+            return object;
+        }
+
+        /**
+         * Setter method for the staging area capacity.
+         * @param value The capacity in bytes.
+         * @return Reference to the parent builder object.
+         */
+        public RetentionPolicyBuilder capacity(long value) {
+            capacity = value;
+            return this;
+        }
+
+        /**
+         * Setter method for the high watermark.
+         * @param value The high watermark in bytes (zero to disable).
+         * @return Reference to the parent builder object.
+         */
+        public RetentionPolicyBuilder highWatermark(long value) {
+            highWatermark = value;
+            return this;
+        }
+
+        /**
+         * Setter method for the low watermark.  Defaults to the high
+         * watermark.
+         * @param value The low watermark in bytes.
+         * @return Reference to the parent builder object.
+         */
+        public RetentionPolicyBuilder lowWatermark(long value) {
+            lowWatermark = value;
+            return this;
+        }
+
+        /**
+         * Setter method for the retention period.
+         * @param value The retention period in days.
+         * @return Reference to the parent builder object.
+         */
+        public RetentionPolicyBuilder retentionDays(double value) {
+            retentionDays = value;
+            return this;
+        }
+
+        /**
+         * Setter method for the time between sweeps.
+         * @param value The time between sweeps in milliseconds.
+         * @return Reference to the parent builder object.
+         */
+        public RetentionPolicyBuilder sweepInterval(long value) {
+            sweepInterval = value;
+            return this;
+        }
+
+        /**
+         * Setter method for the offset of the sweep from midnight UTC.
+         * @param value The sweep offset in milliseconds.
+         * @return Reference to the parent builder object.
+         */
+        public RetentionPolicyBuilder sweepOffset(long value) {
+            sweepOffset = value;
+            return this;
+        }
+
+        /**
+         * Validate that all required fields are populated.
+         *
+         * @param object The RetentionPolicy object to validate.
+         * @throws IllegalStateException Thrown if any of the required
+         * fields are not populated.
+         */
+        private void validateRetentionPolicyObject(RetentionPolicy object)
+                throws IllegalStateException {
+            if (object.getRetentionDays() <= 0) {
+                throw new IllegalStateException("Invalid value for the "
+                        + "retention period.  Value is [ "
+                        + object.getRetentionDays()
+                        + " ].");
+            }
+            if (object.getSweepInterval() <= 0) {
+                throw new IllegalStateException("Invalid value for the "
+                        + "sweep interval.  Value is [ "
+                        + object.getSweepInterval()
+                        + " ].");
+            }
+            if ((object.getHighWatermark() < 0)
+                    || (object.getLowWatermark() > object.getHighWatermark())) {
+                throw new IllegalStateException("Invalid watermarks.  High "
+                        + "watermark [ "
+                        + object.getHighWatermark()
+                        + " ], low watermark [ "
+                        + object.getLowWatermark()
+                        + " ].");
+            }
+        }
+    }
+}
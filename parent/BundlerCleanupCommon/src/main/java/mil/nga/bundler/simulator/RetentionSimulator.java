@@ -0,0 +1,244 @@
+package mil.nga.bundler.simulator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Offline simulator used to predict the effect of a candidate retention
+ * policy on the staging area before it is deployed.  The simulator replays
+ * the historical job records (BUNDLER_JOB_METRICS) as a time-ordered
+ * sequence of events.  Each completed job adds its compressed output to
+ * the staging area at START_TIME + ELAPSED_TIME.  Periodic sweeps then
+ * remove bundles according to the policy.
+ *
+ * Bundles are added in completion order and are always removed oldest
+ * first, so the set of bundles on disk is a contiguous window of the
+ * sorted event arrays.  The FIFO queue is therefore just a pair of indices
+ * and the replay runs in linear time with no per-event allocation.  Bundle
+ * age is measured from completion rather than from directory creation.
+ * Since jobs run for minutes and retention is measured in days, the
+ * difference is negligible (and errs on the side of higher usage).
+ *
+ * This class is not thread safe.  Load the events once and call
+ * <code>simulate</code> for as many policies as required.
+ *
+ * @author L. Craig Carpenter
+ */
+public class RetentionSimulator {
+
+    /**
+     * Initial capacity of the event arrays.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Time at which each bundle landed in the staging area.
+     */
+    private long[] times = new long[INITIAL_CAPACITY];
+
+    /**
+     * Size of each bundle (in bytes).
+     */
+    private long[] sizes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Number of events loaded.
+     */
+    private int numEvents = 0;
+
+    /**
+     * True if the events have been sorted since the last add.
+     */
+    private boolean sorted = true;
+
+    /**
+     * Default constructor.
+     */
+    public RetentionSimulator() { }
+
+    /**
+     * Add a single historical job to the replay.  If the compressed size
+     * was not recorded the uncompressed size is used.
+     *
+     * @param startTime The START_TIME of the job.
+     * @param elapsedTime The ELAPSED_TIME of the job.
+     * @param totalCompressedSize The TOTAL_COMPRESSED_SIZE of the job.
+     * @param totalSize The TOTAL_SIZE of the job.
+     */
+    public void add(
+            long startTime,
+            long elapsedTime,
+            long totalCompressedSize,
+            long totalSize) {
+
+        long size = (totalCompressedSize > 0 ? totalCompressedSize : totalSize);
+        long time = startTime + Math.max(0L, elapsedTime);
+
+        if (size <= 0) {
+            return;
+        }
+        if (numEvents == times.length) {
+            times = Arrays.copyOf(times, numEvents * 2);
+            sizes = Arrays.copyOf(sizes, numEvents * 2);
+        }
+        if ((numEvents > 0) && (time < times[numEvents - 1])) {
+            sorted = false;
+        }
+        times[numEvents] = time;
+        sizes[numEvents] = size;
+        numEvents++;
+    }
+
+    /**
+     * Getter method for the number of events loaded.
+     * @return The number of events.
+     */
+    public int getNumEvents() {
+        return numEvents;
+    }
+
+    /**
+     * Sort the parallel event arrays by time.  The event indexes are sorted
+     * by time and both arrays are then rebuilt in that order.  Events 
+     * loaded in time order (i.e. via an ORDER BY clause) skip the sort.
+     */
+    private void sort() {
+        if (!sorted) {
+            final long[] unsortedTimes = times;
+            Integer[]    order         = new Integer[numEvents];
+            for (int i = 0; i < numEvents; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i1, Integer i2) {
+                    return Long.compare(
+                            unsortedTimes[i1], unsortedTimes[i2]);
+                }
+            });
+            long[] sortedTimes = new long[times.length];
+            long[] sortedSizes = new long[sizes.length];
+            for (int i = 0; i < numEvents; i++) {
+                sortedTimes[i] = times[order[i]];
+                sortedSizes[i] = sizes[order[i]];
+            }
+            times  = sortedTimes;
+            sizes  = sortedSizes;
+            sorted = true;
+        }
+    }
+
+    /**
+     * Replay the loaded events through the input retention policy.
+     *
+     * @param policy The candidate retention policy.
+     * @return The outcome of the replay.
+     */
+    public SimulationResult simulate(RetentionPolicy policy) {
+
+        sort();
+
+        if (numEvents == 0) {
+            return new SimulationResult(
+                    policy, 0, 0L, 0L, 0L, 0, 0, 0L, 0L, new long[0]);
+        }
+
+        final long day       = RetentionPolicy.MILLISECONDS_PER_DAY;
+        final long retention = policy.getRetentionMillis();
+        final long interval  = policy.getSweepInterval();
+        final long high      = policy.getHighWatermark();
+        final long low       = policy.getLowWatermark();
+        final long first     = times[0];
+        final long last      = times[numEvents - 1];
+        final long firstDay  = Math.floorDiv(first, day) * day;
+        final long[] daily   = new long[
+                (int)((last - firstDay) / day) + 1];
+
+        Arrays.fill(daily, -1L);
+
+        int    head               = 0;
+        long   usage              = 0L;
+        long   peak               = 0L;
+        long   peakTime           = first;
+        double area               = 0.0;
+        long   clock              = first;
+        int    ageDeletions       = 0;
+        int    watermarkDeletions = 0;
+        long   bytesDeleted       = 0L;
+        long   nextSweep          = Math.floorDiv(first, interval) * interval
+                + policy.getSweepOffset();
+
+        while (nextSweep <= first) {
+            nextSweep += interval;
+        }
+
+        for (int tail = 0; tail < numEvents; tail++) {
+
+            long time = times[tail];
+
+            // Run all of the sweeps that fall before the next arrival.
+            while (nextSweep <= time) {
+                area  += (double)usage * (nextSweep - clock);
+                clock  = nextSweep;
+
+                // The usage immediately prior to the sweep is carried over
+                // from the previous day.
+                int d = (int)((nextSweep - firstDay) / day);
+                if (d < daily.length) {
+                    daily[d] = Math.max(daily[d], usage);
+                }
+
+                long cutoff = nextSweep - retention;
+                while ((head < tail) && (times[head] < cutoff)) {
+                    usage        -= sizes[head];
+                    bytesDeleted += sizes[head];
+                    ageDeletions++;
+                    head++;
+                }
+                if ((high > 0) && (usage > high)) {
+                    while ((head < tail) && (usage > low)) {
+                        usage        -= sizes[head];
+                        bytesDeleted += sizes[head];
+                        watermarkDeletions++;
+                        head++;
+                    }
+                }
+                nextSweep += interval;
+            }
+
+            area  += (double)usage * (time - clock);
+            clock  = time;
+            usage += sizes[tail];
+
+            int d = (int)((time - firstDay) / day);
+            daily[d] = Math.max(daily[d], usage);
+            if (usage > peak) {
+                peak     = usage;
+                peakTime = time;
+            }
+        }
+
+        // Days without any event or sweep carry the usage of the previous 
+        // day.
+        for (int d = 1; d < daily.length; d++) {
+            if (daily[d] < 0L) {
+                daily[d] = daily[d - 1];
+            }
+        }
+
+        long average = (last > first) ?
+                (long)(area / (last - first)) : usage;
+
+        return new SimulationResult(
+                policy,
+                numEvents,
+                peak,
+                peakTime,
+                average,
+                ageDeletions,
+                watermarkDeletions,
+                bytesDeleted,
+                firstDay,
+                daily);
+    }
+}
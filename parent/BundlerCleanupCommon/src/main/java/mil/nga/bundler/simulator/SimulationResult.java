@@ -0,0 +1,256 @@
+package mil.nga.bundler.simulator;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Simple class containing the outcome of replaying the job history through
+ * a single <code>RetentionPolicy</code>.
+ *
+ * @author L. Craig Carpenter
+ */
+public class SimulationResult implements Serializable {
+
+    /**
+     * Eclipse-generated serialVersionUID
+     */
+    private static final long serialVersionUID = 2712440958716355204L;
+
+    /**
+     * The policy that was simulated.
+     */
+    @JsonProperty(value="policy")
+    private final RetentionPolicy policy;
+
+    /**
+     * Number of bundles replayed.
+     */
+    @JsonProperty(value="num_bundles")
+    private final int numBundles;
+
+    /**
+     * Peak staging usage (in bytes).
+     */
+    @JsonProperty(value="peak_usage")
+    private final long peakUsage;
+
+    /**
+     * Time at which the peak usage occurred.
+     */
+    @JsonProperty(value="peak_time")
+    private final long peakTime;
+
+    /**
+     * Time-weighted average staging usage (in bytes).
+     */
+    @JsonProperty(value="average_usage")
+    private final long averageUsage;
+
+    /**
+     * Number of bundles removed because they exceeded the retention period.
+     */
+    @JsonProperty(value="age_deletions")
+    private final int ageDeletions;
+
+    /**
+     * Number of bundles removed by watermark eviction.
+     */
+    @JsonProperty(value="watermark_deletions")
+    private final int watermarkDeletions;
+
+    /**
+     * Total number of bytes removed.
+     */
+    @JsonProperty(value="bytes_deleted")
+    private final long bytesDeleted;
+
+    /**
+     * Start of the first day (UTC) in the daily series.
+     */
+    @JsonProperty(value="first_day")
+    private final long firstDay;
+
+    /**
+     * Peak staging usage (in bytes) for each day of the replay.
+     */
+    @JsonProperty(value="daily_peak_usage")
+    private final long[] dailyPeakUsage;
+
+    /**
+     * Default constructor requiring all fields.
+     *
+     * @param policy The policy that was simulated.
+     * @param numBundles Number of bundles replayed.
+     * @param peakUsage Peak staging usage.
+     * @param peakTime Time at which the peak usage occurred.
+     * @param averageUsage Time-weighted average staging usage.
+     * @param ageDeletions Number of bundles removed by age.
+     * @param watermarkDeletions Number of bundles removed by watermark.
+     * @param bytesDeleted Total number of bytes removed.
+     * @param firstDay Start of the first day in the daily series.
+     * @param dailyPeakUsage Peak staging usage for each day.
+     */
+    public SimulationResult(
+            RetentionPolicy policy,
+            int             numBundles,
+            long            peakUsage,
+            long            peakTime,
+            long            averageUsage,
+            int             ageDeletions,
+            int             watermarkDeletions,
+            long            bytesDeleted,
+            long            firstDay,
+            long[]          dailyPeakUsage) {
+        this.policy             = policy;
+        this.numBundles         = numBundles;
+        this.peakUsage          = peakUsage;
+        this.peakTime           = peakTime;
+        this.averageUsage       = averageUsage;
+        this.ageDeletions       = ageDeletions;
+        this.watermarkDeletions = watermarkDeletions;
+        this.bytesDeleted       = bytesDeleted;
+        this.firstDay           = firstDay;
+        this.dailyPeakUsage     = dailyPeakUsage;
+    }
+
+    /**
+     * Getter method for the number of bundles removed by age.
+     * @return The number of bundles removed by age.
+     */
+    public int getAgeDeletions() {
+        return ageDeletions;
+    }
+
+    /**
+     * Getter method for the time-weighted average staging usage.
+     * @return The average usage in bytes.
+     */
+    public long getAverageUsage() {
+        return averageUsage;
+    }
+
+    /**
+     * Getter method for the total number of bytes removed.
+     * @return The number of bytes removed.
+     */
+    public long getBytesDeleted() {
+        return bytesDeleted;
+    }
+
+    /**
+     * Getter method for the peak staging usage of each day.
+     * @return The daily peak usage in bytes.
+     */
+    public long[] getDailyPeakUsage() {
+        return dailyPeakUsage;
+    }
+
+    /**
+     * Getter method for the start of the first day in the daily series.
+     * @return The start of the first day (UTC).
+     */
+    public long getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Calculate the minimum headroom (capacity less the daily peak usage)
+     * observed over the replay.
+     * @return The minimum headroom in bytes, or -1 if the capacity of the
+     * staging area was not supplied.
+     */
+    @JsonProperty(value="min_headroom")
+    public long getMinHeadroom() {
+        if (policy.getCapacity() <= 0) {
+            return -1L;
+        }
+        return policy.getCapacity() - peakUsage;
+    }
+
+    /**
+     * Calculate the number of days in which the daily peak usage exceeded
+     * the capacity of the staging area.
+     * @return The number of days over capacity (zero if the capacity was
+     * not supplied).
+     */
+    @JsonProperty(value="days_over_capacity")
+    public int getDaysOverCapacity() {
+        int days = 0;
+        if (policy.getCapacity() > 0) {
+            for (long usage : dailyPeakUsage) {
+                if (usage > policy.getCapacity()) {
+                    days++;
+                }
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Getter method for the number of bundles replayed.
+     * @return The number of bundles.
+     */
+    public int getNumBundles() {
+        return numBundles;
+    }
+
+    /**
+     * Getter method for the time at which the peak usage occurred.
+     * @return The time of the peak usage.
+     */
+    public long getPeakTime() {
+        return peakTime;
+    }
+
+    /**
+     * Getter method for the peak staging usage.
+     * @return The peak usage in bytes.
+     */
+    public long getPeakUsage() {
+        return peakUsage;
+    }
+
+    /**
+     * Getter method for the policy that was simulated.
+     * @return The simulated policy.
+     */
+    public RetentionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Getter method for the number of bundles removed by watermark
+     * eviction.
+     * @return The number of bundles removed by watermark eviction.
+     */
+    public int getWatermarkDeletions() {
+        return watermarkDeletions;
+    }
+
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Policy => [ ");
+        sb.append(getPolicy().toString());
+        sb.append(" ], Bundles => [ ");
+        sb.append(getNumBundles());
+        sb.append(" ], Peak Usage => [ ");
+        sb.append(getPeakUsage());
+        sb.append(" ], Average Usage => [ ");
+        sb.append(getAverageUsage());
+        sb.append(" ], Age Deletions => [ ");
+        sb.append(getAgeDeletions());
+        sb.append(" ], Watermark Deletions => [ ");
+        sb.append(getWatermarkDeletions());
+        sb.append(" ], Bytes Deleted => [ ");
+        sb.append(getBytesDeleted());
+        sb.append(" ], Min Headroom => [ ");
+        sb.append(getMinHeadroom());
+        sb.append(" ].");
+        return sb.toString();
+    }
+}
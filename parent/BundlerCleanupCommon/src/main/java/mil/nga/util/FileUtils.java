@@ -2,6 +2,10 @@ package mil.nga.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
 import java.util.Random;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -101,6 +105,101 @@ public class FileUtils {
         return (buffer.toString());
     }
 
+    /**
+     * Compare the contents of two files byte-for-byte.  The files are read
+     * in parallel in fixed-size blocks and the comparison stops at the 
+     * first difference.
+     * 
+     * @param p1 The first file.
+     * @param p2 The second file.
+     * @return True if both files have identical contents.  False otherwise.
+     * @throws IOException Thrown if there are issues reading either file.
+     */
+    public static boolean contentEquals(Path p1, Path p2) throws IOException {
+        if (Files.size(p1) != Files.size(p2)) {
+            return false;
+        }
+        byte[] buffer1 = new byte[64 * 1024];
+        byte[] buffer2 = new byte[64 * 1024];
+        try (InputStream is1 = Files.newInputStream(p1);
+             InputStream is2 = Files.newInputStream(p2)) {
+            int read1;
+            while ((read1 = readFully(is1, buffer1)) > 0) {
+                int read2 = readFully(is2, buffer2);
+                if (read1 != read2) {
+                    return false;
+                }
+                for (int i = 0; i < read1; i++) {
+                    if (buffer1[i] != buffer2[i]) {
+                        return false;
+                    }
+                }
+            }
+            return (readFully(is2, buffer2) <= 0);
+        }
+    }
+    
+    /**
+     * Read from the input stream until the buffer is full or the end of 
+     * the stream is reached.
+     * 
+     * @param is The input stream.
+     * @param buffer The target buffer.
+     * @return The number of bytes read, or -1 if the stream is exhausted.
+     * @throws IOException Thrown if there are issues reading the stream.
+     */
+    private static int readFully(InputStream is, byte[] buffer) 
+            throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = is.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return (total == 0 ? -1 : total);
+    }
+    
+    /**
+     * Obtain the number of hard links referencing the input file.  The 
+     * <code>unix:nlink</code> attribute is only available on POSIX file 
+     * systems.  If it cannot be read, 1 is returned (i.e. the file is 
+     * assumed to be the only reference to its data).
+     * 
+     * @param p The target file.
+     * @return The number of hard links referencing the file.
+     */
+    public static int getLinkCount(Path p) {
+        int count = 1;
+        try {
+            Object value = Files.getAttribute(
+                    p, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+            if (value instanceof Integer) {
+                count = ((Integer)value).intValue();
+            }
+        }
+        catch (IOException | UnsupportedOperationException 
+                | IllegalArgumentException e) { }
+        return count;
+    }
+    
+    /**
+     * Determine whether the two input paths overlap, i.e. they identify the
+     * same location or one of them lies beneath the other.  Both paths are
+     * made absolute and normalized before they are compared.  Symbolic 
+     * links are not resolved.
+     * 
+     * @param p1 The first path.
+     * @param p2 The second path.
+     * @return True if the paths are equal or one contains the other.
+     */
+    public static boolean overlaps(Path p1, Path p2) {
+        Path a = p1.toAbsolutePath().normalize();
+        Path b = p2.toAbsolutePath().normalize();
+        return (a.startsWith(b) || b.startsWith(a));
+    }
+    
     /**
      * Simple method to convert a time (in milliseconds) to a printable
      * String.
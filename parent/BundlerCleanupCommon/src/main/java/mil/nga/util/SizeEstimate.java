@@ -0,0 +1,231 @@
+package mil.nga.util;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Simple class containing the (possibly estimated) size of a directory 
+ * tree as calculated by the <code>SizeEstimator</code>.  The margins are 
+ * the half-width of the 95% confidence interval.  If the entire tree was 
+ * walked the values are exact and the margins are zero.  If too few 
+ * entries were sampled to estimate the variance the margins are -1.  If 
+ * no entry could be sampled at all the estimate is unavailable and all 
+ * values are -1.
+ * 
+ * @author L. Craig Carpenter
+ */
+public class SizeEstimate implements Serializable {
+
+    /**
+     * Eclipse-generated serialVersionUID
+     */
+    private static final long serialVersionUID = -3325807445960478853L;
+
+    /**
+     * Value reported for a quantity that could not be estimated.
+     */
+    public static final long UNAVAILABLE = -1L;
+
+    /**
+     * The root of the directory tree.
+     */
+    @JsonProperty(value="path")
+    private final String path;
+    
+    /**
+     * Number of entries directly beneath the root (the sampling units).
+     */
+    @JsonProperty(value="num_entries")
+    private final int numEntries;
+    
+    /**
+     * Number of entries that were completely walked.
+     */
+    @JsonProperty(value="num_sampled")
+    private final int numSampled;
+    
+    /**
+     * Number of file attribute reads performed.
+     */
+    @JsonProperty(value="stat_calls")
+    private final long statCalls;
+    
+    /**
+     * Estimated total size (in bytes) of the tree.
+     */
+    @JsonProperty(value="bytes")
+    private final long bytes;
+    
+    /**
+     * Half-width (in bytes) of the 95% confidence interval on the size.
+     */
+    @JsonProperty(value="bytes_margin")
+    private final long bytesMargin;
+    
+    /**
+     * Estimated number of files in the tree.
+     */
+    @JsonProperty(value="files")
+    private final long files;
+    
+    /**
+     * Half-width of the 95% confidence interval on the number of files.
+     */
+    @JsonProperty(value="files_margin")
+    private final long filesMargin;
+    
+    /**
+     * Default constructor requiring all fields.
+     * 
+     * @param path The root of the directory tree.
+     * @param numEntries Number of entries directly beneath the root.
+     * @param numSampled Number of entries completely walked.
+     * @param statCalls Number of file attribute reads performed.
+     * @param bytes Estimated total size.
+     * @param bytesMargin Half-width of the confidence interval on the size.
+     * @param files Estimated number of files.
+     * @param filesMargin Half-width of the confidence interval on the 
+     * number of files.
+     */
+    public SizeEstimate(
+            String path,
+            int    numEntries,
+            int    numSampled,
+            long   statCalls,
+            long   bytes,
+            long   bytesMargin,
+            long   files,
+            long   filesMargin) {
+        this.path        = path;
+        this.numEntries  = numEntries;
+        this.numSampled  = numSampled;
+        this.statCalls   = statCalls;
+        this.bytes       = bytes;
+        this.bytesMargin = bytesMargin;
+        this.files       = files;
+        this.filesMargin = filesMargin;
+    }
+    
+    /**
+     * Getter method for the estimated total size.
+     * @return The estimated size in bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+    
+    /**
+     * Getter method for the confidence interval on the size.
+     * @return The half-width of the 95% confidence interval in bytes.
+     */
+    public long getBytesMargin() {
+        return bytesMargin;
+    }
+    
+    /**
+     * Getter method for the estimated number of files.
+     * @return The estimated number of files.
+     */
+    public long getFiles() {
+        return files;
+    }
+    
+    /**
+     * Getter method for the confidence interval on the number of files.
+     * @return The half-width of the 95% confidence interval.
+     */
+    public long getFilesMargin() {
+        return filesMargin;
+    }
+    
+    /**
+     * Getter method for the number of entries directly beneath the root.
+     * @return The number of entries.
+     */
+    public int getNumEntries() {
+        return numEntries;
+    }
+    
+    /**
+     * Getter method for the number of entries completely walked.
+     * @return The number of entries sampled.
+     */
+    public int getNumSampled() {
+        return numSampled;
+    }
+    
+    /**
+     * Getter method for the root of the directory tree.
+     * @return The root path.
+     */
+    public String getPath() {
+        return path;
+    }
+    
+    /**
+     * Getter method for the number of file attribute reads performed.
+     * @return The number of stat calls.
+     */
+    public long getStatCalls() {
+        return statCalls;
+    }
+    
+    /**
+     * Determine whether an estimate could be made (i.e. at least one entry
+     * was walked, or the tree is empty).
+     * @return True if the estimate is available.
+     */
+    @JsonProperty(value="available")
+    public boolean isAvailable() {
+        return (numSampled > 0) || (numEntries == 0);
+    }
+    
+    /**
+     * Determine whether the values are exact (i.e. every entry was walked).
+     * @return True if the values are exact.
+     */
+    @JsonProperty(value="exact")
+    public boolean isExact() {
+        return numSampled == numEntries;
+    }
+    
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Path => [ ");
+        sb.append(getPath());
+        if (!isAvailable()) {
+            sb.append(" ], Size => [ unavailable ], Sampled => [ 0 of ");
+            sb.append(getNumEntries());
+            sb.append(" ], Stat Calls => [ ");
+            sb.append(getStatCalls());
+            sb.append(" ].");
+            return sb.toString();
+        }
+        sb.append(" ], Size => [ ");
+        sb.append(FileUtils.humanReadableByteCount(getBytes(), false));
+        if (!isExact()) {
+            sb.append(" +/- ");
+            sb.append(getBytesMargin() < 0 ? "?" : 
+                FileUtils.humanReadableByteCount(getBytesMargin(), false));
+        }
+        sb.append(" ], Files => [ ");
+        sb.append(getFiles());
+        if (!isExact()) {
+            sb.append(" +/- ");
+            sb.append(getFilesMargin() < 0 ? "?" : getFilesMargin());
+        }
+        sb.append(" ], Sampled => [ ");
+        sb.append(getNumSampled());
+        sb.append(" of ");
+        sb.append(getNumEntries());
+        sb.append(" ], Stat Calls => [ ");
+        sb.append(getStatCalls());
+        sb.append(" ].");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,277 @@
+package mil.nga.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates the size of very large directory trees without walking the
+ * entire tree.  The entries directly beneath the root are listed (a
+ * listing does not require any attribute reads) and treated as the
+ * sampling units.  Units are walked in random order until the budget of
+ * stat calls is exhausted, and the totals are extrapolated from the mean
+ * of the walked units.  The 95% confidence interval uses the sample
+ * variance with the finite population correction, so it shrinks to zero
+ * as the sample approaches the whole tree.
+ *
+ * The unit that crosses the budget is still walked to completion and kept
+ * in the sample, after which sampling stops.  Discarding it (or skipping
+ * to smaller units) would favor small units and bias the estimate low.
+ * The overrun is capped at one additional budget; a unit that cannot be 
+ * walked within the cap is abandoned.  If no unit could be walked the 
+ * estimate is reported as unavailable.  If the tree fits within the 
+ * budget the result is exact.
+ *
+ * @author L. Craig Carpenter
+ */
+public class SizeEstimator {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(SizeEstimator.class);
+
+    /**
+     * Two-sided z value for a 95% confidence interval.
+     */
+    public static final double Z_95 = 1.96;
+
+    /**
+     * Maximum number of attribute reads performed per estimate.
+     */
+    private final long maxStatCalls;
+
+    /**
+     * Source of randomness used to select the sampled entries.
+     */
+    private final Random random;
+
+    /**
+     * Constructor.
+     *
+     * @param maxStatCalls Maximum number of attribute reads performed per
+     * estimate.
+     */
+    public SizeEstimator(long maxStatCalls) {
+        this(maxStatCalls, new Random());
+    }
+
+    /**
+     * Constructor allowing the source of randomness to be supplied (e.g.
+     * with a fixed seed for repeatable estimates).
+     *
+     * @param maxStatCalls Maximum number of attribute reads performed per
+     * estimate.
+     * @param random Source of randomness.
+     */
+    public SizeEstimator(long maxStatCalls, Random random) {
+        this.maxStatCalls = maxStatCalls;
+        this.random       = random;
+    }
+
+    /**
+     * Walk a single sampling unit accumulating its size and file count.
+     * The walk is terminated if the limit is exceeded.
+     *
+     * @param unit The entry to walk.
+     * @param budget The maximum number of attribute reads allowed.
+     * @return Array containing the bytes, files, and stat calls consumed,
+     * or null if the unit could not be walked within the limit.
+     */
+    private long[] walk(Path unit, final long budget) {
+
+        final long[] totals = new long[3];
+
+        try {
+            Files.walkFileTree(unit, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(
+                        Path dir,
+                        BasicFileAttributes attrs) {
+                    return (++totals[2] > budget) ?
+                            FileVisitResult.TERMINATE :
+                            FileVisitResult.CONTINUE;
+                }
+                @Override
+                public FileVisitResult visitFile(
+                        Path file,
+                        BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        totals[0] += attrs.size();
+                        totals[1]++;
+                    }
+                    return (++totals[2] > budget) ?
+                            FileVisitResult.TERMINATE :
+                            FileVisitResult.CONTINUE;
+                }
+                @Override
+                public FileVisitResult visitFileFailed(
+                        Path file,
+                        IOException ioe) {
+                    // Entries removed during the walk are simply skipped.
+                    return (++totals[2] > budget) ?
+                            FileVisitResult.TERMINATE :
+                            FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unexpected IOException while walking [ "
+                    + unit.toString()
+                    + " ].  Exception message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        return (totals[2] > budget) ? null : totals;
+    }
+
+    /**
+     * Calculate the half-width of the 95% confidence interval on the
+     * extrapolated total.
+     *
+     * @param values The per-unit values of the sample.
+     * @param n The sample size.
+     * @param population The number of units in the population.
+     * @return The half-width of the confidence interval, or -1 if the
+     * sample is too small to estimate the variance.
+     */
+    private static long getMargin(long[] values, int n, int population) {
+        if (n >= population) {
+            return 0L;
+        }
+        if (n < 2) {
+            return -1L;
+        }
+        double mean = 0.0;
+        for (int i = 0; i < n; i++) {
+            mean += values[i];
+        }
+        mean /= n;
+        double variance = 0.0;
+        for (int i = 0; i < n; i++) {
+            variance += (values[i] - mean) * (values[i] - mean);
+        }
+        variance /= (n - 1);
+        double fpc = (double)(population - n) / (population - 1);
+        return (long)Math.ceil(Z_95 * population
+                * Math.sqrt(variance / n * fpc));
+    }
+
+    /**
+     * Extrapolate the total of the population from the sample.
+     *
+     * @param values The per-unit values of the sample.
+     * @param n The sample size.
+     * @param population The number of units in the population.
+     * @return The estimated total.
+     */
+    private static long getTotal(long[] values, int n, int population) {
+        long sum = 0L;
+        for (int i = 0; i < n; i++) {
+            sum += values[i];
+        }
+        if ((n == 0) || (n >= population)) {
+            return sum;
+        }
+        return Math.round((double)sum / n * population);
+    }
+
+    /**
+     * Estimate the size of the directory tree beneath the input root.
+     *
+     * @param root The root of the directory tree.
+     * @return The size estimate.
+     */
+    public SizeEstimate estimate(Path root) {
+
+        long       startTime = System.currentTimeMillis();
+        List<Path> units     = new ArrayList<Path>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (Path p : stream) {
+                units.add(p);
+            }
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unable to list directory [ "
+                    + root.toString()
+                    + " ].  Exception message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        Collections.shuffle(units, random);
+
+        int    population = units.size();
+        int    n          = 0;
+        long   statCalls  = 0L;
+        long[] bytes      = new long[population];
+        long[] files      = new long[population];
+
+        for (Path unit : units) {
+            if (statCalls >= maxStatCalls) {
+                break;
+            }
+            // The unit crossing the budget may overrun it by one budget.
+            long   limit  = (maxStatCalls - statCalls) + maxStatCalls;
+            long[] totals = walk(unit, limit);
+            if (totals == null) {
+                LOGGER.warn("Entry [ "
+                        + unit.toString()
+                        + " ] could not be walked within [ "
+                        + limit
+                        + " ] stat calls.  Sampling stopped.");
+                statCalls += limit;
+                break;
+            }
+            bytes[n]   = totals[0];
+            files[n]   = totals[1];
+            statCalls += totals[2];
+            n++;
+        }
+
+        SizeEstimate estimate;
+        if ((n == 0) && (population > 0)) {
+            estimate = new SizeEstimate(
+                    root.toString(),
+                    population,
+                    n,
+                    statCalls,
+                    SizeEstimate.UNAVAILABLE,
+                    SizeEstimate.UNAVAILABLE,
+                    SizeEstimate.UNAVAILABLE,
+                    SizeEstimate.UNAVAILABLE);
+        }
+        else {
+            estimate = new SizeEstimate(
+                    root.toString(),
+                    population,
+                    n,
+                    statCalls,
+                    getTotal(bytes, n, population),
+                    getMargin(bytes, n, population),
+                    getTotal(files, n, population),
+                    getMargin(files, n, population));
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Size estimate => "
+                    + estimate.toString()
+                    + " completed in [ "
+                    + (System.currentTimeMillis() - startTime)
+                    + " ] ms.");
+        }
+        return estimate;
+    }
+}
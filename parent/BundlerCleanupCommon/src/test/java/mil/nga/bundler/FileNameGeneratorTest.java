@@ -0,0 +1,111 @@
+package mil.nga.bundler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.util.HostNameUtils;
+
+/**
+ * Unit tests for the date bucket parsing and staging directory regular
+ * expressions of <code>FileNameGenerator</code>.
+ *
+ * @author L. Craig Carpenter
+ */
+public class FileNameGeneratorTest {
+
+    private static final Path STAGING = Paths.get("/mnt/public/data_bundles");
+
+    @Test
+    public void testYearBucket() {
+        assertTrue(FileNameGenerator.isYearBucket(STAGING.resolve("2019")));
+        assertFalse(FileNameGenerator.isYearBucket(STAGING.resolve("0000")));
+        assertFalse(FileNameGenerator.isYearBucket(STAGING.resolve("201")));
+        assertFalse(FileNameGenerator.isYearBucket(STAGING.resolve("20190")));
+        assertFalse(FileNameGenerator.isYearBucket(STAGING.resolve("abcd")));
+        assertFalse(FileNameGenerator.isYearBucket(null));
+        assertFalse(FileNameGenerator.isYearBucket(Paths.get("/")));
+    }
+
+    @Test
+    public void testMonthDayBucket() {
+        assertTrue(FileNameGenerator.isMonthDayBucket(Paths.get("01")));
+        assertTrue(FileNameGenerator.isMonthDayBucket(Paths.get("12")));
+        assertTrue(FileNameGenerator.isMonthDayBucket(Paths.get("31")));
+        assertFalse(FileNameGenerator.isMonthDayBucket(Paths.get("00")));
+        assertFalse(FileNameGenerator.isMonthDayBucket(Paths.get("32")));
+        assertFalse(FileNameGenerator.isMonthDayBucket(Paths.get("1")));
+        assertFalse(FileNameGenerator.isMonthDayBucket(Paths.get("001")));
+    }
+
+    @Test
+    public void testDateBucket() {
+        Path day = STAGING.resolve("2019").resolve("07").resolve("04");
+        assertTrue(FileNameGenerator.isDateBucket(day));
+        assertFalse(FileNameGenerator.isDateBucket(day.getParent()));
+        assertFalse(FileNameGenerator.isDateBucket(
+                STAGING.resolve("19").resolve("07").resolve("04")));
+        assertFalse(FileNameGenerator.isDateBucket(Paths.get("07", "04")));
+    }
+
+    @Test
+    public void testStagingRoot() {
+        Path day = STAGING.resolve("2019").resolve("07").resolve("04");
+        assertEquals(STAGING, FileNameGenerator.getStagingRoot(day));
+        assertEquals(STAGING, FileNameGenerator.getStagingRoot(STAGING));
+        assertEquals(day.getParent(), 
+                FileNameGenerator.getStagingRoot(day.getParent()));
+    }
+
+    @Test
+    public void testDateBucketIsUTC() {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.clear();
+        cal.set(2019, Calendar.DECEMBER, 31, 23, 59, 59);
+        assertEquals("2019" + File.separator + "12" + File.separator + "31",
+                FileNameGenerator.getInstance().getDateBucket(
+                        cal.getTimeInMillis()));
+    }
+
+    @Test
+    public void testRegExMatchesBothLayouts() {
+
+        List<String> regexes = FileNameGenerator.getRegEx();
+        String       name    = BundlerConstantsI.DEFAULT_FILENAME_PREFIX
+                + "_"
+                + HostNameUtils.getHostName()
+                + "_"
+                + FileNameGenerator.getInstance().getUniqueToken();
+        String       bucket  = "2019" + File.separator 
+                + "07" + File.separator 
+                + "04" + File.separator;
+
+        assertEquals(4, regexes.size());
+        assertTrue(matchesAny(regexes, name));
+        assertTrue(matchesAny(regexes, bucket + name));
+        assertFalse(matchesAny(regexes, 
+                "2019" + File.separator + "00" + File.separator 
+                + "04" + File.separator + name));
+        assertFalse(matchesAny(regexes, "other" + File.separator + name));
+    }
+
+    private boolean matchesAny(List<String> regexes, String value) {
+        for (String regex : regexes) {
+            if (Pattern.matches(regex, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package mil.nga.bundler.simulator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import mil.nga.bundler.simulator.RetentionPolicy.RetentionPolicyBuilder;
+
+/**
+ * Unit tests for the <code>RetentionSimulator</code> replay.
+ *
+ * @author L. Craig Carpenter
+ */
+public class RetentionSimulatorTest {
+
+    private static final long DAY  = RetentionPolicy.MILLISECONDS_PER_DAY;
+    private static final long HOUR = DAY / 24L;
+    private static final long BASE = 20000L * DAY;
+
+    private RetentionPolicy policy(double days, long high, long low) {
+        return new RetentionPolicyBuilder()
+                .retentionDays(days)
+                .sweepInterval(DAY)
+                .sweepOffset(0L)
+                .highWatermark(high)
+                .lowWatermark(low)
+                .build();
+    }
+
+    private RetentionSimulator threeDays(boolean reversed) {
+        RetentionSimulator simulator = new RetentionSimulator();
+        for (int i = 0; i < 3; i++) {
+            int d = (reversed ? 2 - i : i);
+            simulator.add(BASE + (d * DAY) + HOUR, 0L, 100L, 0L);
+        }
+        return simulator;
+    }
+
+    @Test
+    public void testEmpty() {
+        SimulationResult result = new RetentionSimulator()
+                .simulate(policy(14, 0L, 0L));
+        assertEquals(0, result.getNumBundles());
+        assertEquals(0L, result.getPeakUsage());
+        assertEquals(0, result.getDailyPeakUsage().length);
+    }
+
+    @Test
+    public void testSizeFallback() {
+        RetentionSimulator simulator = new RetentionSimulator();
+        simulator.add(BASE, 0L, 0L, 500L);
+        simulator.add(BASE + HOUR, 0L, 0L, 0L);
+        assertEquals(1, simulator.getNumEvents());
+        assertEquals(500L, 
+                simulator.simulate(policy(14, 0L, 0L)).getPeakUsage());
+    }
+
+    @Test
+    public void testAgeDeletion() {
+        SimulationResult result = threeDays(false)
+                .simulate(policy(1, 0L, 0L));
+        assertEquals(3, result.getNumBundles());
+        assertEquals(200L, result.getPeakUsage());
+        assertEquals(1, result.getAgeDeletions());
+        assertEquals(0, result.getWatermarkDeletions());
+        assertEquals(100L, result.getBytesDeleted());
+        assertEquals(BASE, result.getFirstDay());
+        assertArrayEquals(new long[] { 100L, 200L, 200L }, 
+                result.getDailyPeakUsage());
+    }
+
+    @Test
+    public void testWatermarkDeletion() {
+        SimulationResult result = threeDays(false)
+                .simulate(policy(30, 150L, 50L));
+        assertEquals(200L, result.getPeakUsage());
+        assertEquals(0, result.getAgeDeletions());
+        assertEquals(2, result.getWatermarkDeletions());
+        assertEquals(200L, result.getBytesDeleted());
+    }
+
+    @Test
+    public void testOutOfOrderEventsAreSorted() {
+        RetentionPolicy  p        = policy(1, 0L, 0L);
+        SimulationResult ordered  = threeDays(false).simulate(p);
+        SimulationResult shuffled = threeDays(true).simulate(p);
+        assertEquals(ordered.getPeakUsage(), shuffled.getPeakUsage());
+        assertEquals(ordered.getPeakTime(), shuffled.getPeakTime());
+        assertEquals(ordered.getAgeDeletions(), shuffled.getAgeDeletions());
+        assertArrayEquals(ordered.getDailyPeakUsage(), 
+                shuffled.getDailyPeakUsage());
+    }
+
+    @Test
+    public void testSortKeepsSizesWithTimes() {
+        RetentionSimulator simulator = new RetentionSimulator();
+        for (int i = 2000; i > 0; i--) {
+            simulator.add(BASE + (i * HOUR), 0L, i, 0L);
+        }
+        // With a one hour retention and hourly sweeps only the newest 
+        // bundle (the largest) remains at the end of the replay.
+        SimulationResult result = simulator.simulate(new RetentionPolicyBuilder()
+                .retentionDays(1.0 / 24.0)
+                .sweepInterval(HOUR)
+                .sweepOffset(HOUR / 2L)
+                .build());
+        assertEquals(2000, result.getNumBundles());
+        assertEquals(2000L + 1999L, result.getPeakUsage());
+        assertEquals(BASE + (2000L * HOUR), result.getPeakTime());
+    }
+}
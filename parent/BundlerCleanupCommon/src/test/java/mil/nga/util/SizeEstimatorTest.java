@@ -0,0 +1,111 @@
+package mil.nga.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the sampling performed by <code>SizeEstimator</code>.
+ *
+ * @author L. Craig Carpenter
+ */
+public class SizeEstimatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Create a sampling unit (directory) containing the requested number
+     * of files of the requested size.  Walking the unit costs one stat 
+     * call for the directory plus one per file.
+     */
+    private void createUnit(Path root, String name, int numFiles, int size) 
+            throws IOException {
+        Path unit = Files.createDirectory(root.resolve(name));
+        for (int i = 0; i < numFiles; i++) {
+            Files.write(unit.resolve("file_" + i), new byte[size]);
+        }
+    }
+
+    private SizeEstimate estimate(Path root, long budget) {
+        return new SizeEstimator(budget, new Random(42L)).estimate(root);
+    }
+
+    @Test
+    public void testEmptyTree() throws IOException {
+        SizeEstimate estimate = estimate(folder.getRoot().toPath(), 10L);
+        assertTrue(estimate.isAvailable());
+        assertTrue(estimate.isExact());
+        assertEquals(0L, estimate.getBytes());
+        assertEquals(0L, estimate.getFiles());
+    }
+
+    @Test
+    public void testExactWithinBudget() throws IOException {
+        Path root = folder.getRoot().toPath();
+        createUnit(root, "a", 2, 100);
+        createUnit(root, "b", 3, 10);
+        Files.write(root.resolve("c"), new byte[7]);
+
+        SizeEstimate estimate = estimate(root, 100L);
+        assertTrue(estimate.isAvailable());
+        assertTrue(estimate.isExact());
+        assertEquals(237L, estimate.getBytes());
+        assertEquals(0L, estimate.getBytesMargin());
+        assertEquals(6L, estimate.getFiles());
+        assertEquals(3, estimate.getNumSampled());
+        assertEquals(8L, estimate.getStatCalls());
+    }
+
+    @Test
+    public void testUnitCrossingBudgetIsKept() throws IOException {
+        Path root = folder.getRoot().toPath();
+        for (String name : new String[] { "a", "b", "c" }) {
+            createUnit(root, name, 3, 50);
+        }
+
+        // Each unit costs 4 stat calls.  The second unit crosses the 
+        // budget of 6 and must still be part of the sample.
+        SizeEstimate estimate = estimate(root, 6L);
+        assertTrue(estimate.isAvailable());
+        assertFalse(estimate.isExact());
+        assertEquals(2, estimate.getNumSampled());
+        assertEquals(3, estimate.getNumEntries());
+        assertEquals(8L, estimate.getStatCalls());
+        assertEquals(450L, estimate.getBytes());
+        assertEquals(9L, estimate.getFiles());
+    }
+
+    @Test
+    public void testUnavailableWhenNothingSampled() throws IOException {
+        Path root = folder.getRoot().toPath();
+        createUnit(root, "a", 10, 1);
+
+        // The single unit costs 11 stat calls, more than twice the budget.
+        SizeEstimate estimate = estimate(root, 2L);
+        assertFalse(estimate.isAvailable());
+        assertFalse(estimate.isExact());
+        assertEquals(0, estimate.getNumSampled());
+        assertEquals(SizeEstimate.UNAVAILABLE, estimate.getBytes());
+        assertEquals(SizeEstimate.UNAVAILABLE, estimate.getFiles());
+        assertTrue(estimate.toString().contains("unavailable"));
+    }
+
+    @Test
+    public void testMissingRoot() {
+        File missing = new File(folder.getRoot(), "missing");
+        SizeEstimate estimate = estimate(missing.toPath(), 10L);
+        assertTrue(estimate.isAvailable());
+        assertEquals(0, estimate.getNumEntries());
+    }
+}
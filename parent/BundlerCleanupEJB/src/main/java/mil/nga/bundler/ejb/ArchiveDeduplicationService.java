@@ -0,0 +1,357 @@
+package mil.nga.bundler.ejb;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.ejb.exceptions.EJBLookupException;
+import mil.nga.bundler.ejb.jdbc.JDBCArchiveService;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.model.Archive;
+import mil.nga.util.FileUtils;
+
+/**
+ * Session Bean implementation class ArchiveDeduplicationService
+ *
+ * Users frequently request identical product sets, resulting in identical
+ * output archives sitting in several staging directories until they
+ * expire.  This bean locates completed archives with identical hash file
+ * contents and identical size on the same file store, confirms that the
+ * archives are byte-for-byte identical, and replaces the duplicates with
+ * hard links to a single copy.
+ *
+ * Expiration of the staging directories is unaffected because the disk
+ * cleanup process keys off of the creation time of the job directory, not
+ * the archive file.  The data behind a set of linked archives is only
+ * released when the last remaining link is deleted.
+ *
+ * @author L. Craig Carpenter
+ */
+@Stateless
+@LocalBean
+public class ArchiveDeduplicationService
+        extends PropertyLoader
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(ArchiveDeduplicationService.class);
+
+    /**
+     * Suffix added to the temporary link created prior to replacing a
+     * duplicate archive.
+     */
+    private static final String TEMP_LINK_SUFFIX = ".dedup";
+
+    /**
+     * Handle to the interface associated with the ARCHIVE_JOBS table.
+     */
+    @EJB
+    JDBCArchiveService archiveService;
+
+    /**
+     * Flag indicating whether or not the deduplication process is enabled.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Default no-arg constructor.
+     */
+    public ArchiveDeduplicationService() {
+        super(PROPERTY_FILE_NAME);
+    }
+
+    /**
+     * Initialization method used to read the deduplication properties.
+     */
+    @PostConstruct
+    public void init() {
+        setEnabled();
+    }
+
+    /**
+     * Private method used to obtain a reference to the target EJB.
+     * @return Reference to the JDBCArchiveService EJB.
+     */
+    private JDBCArchiveService getJDBCArchiveService()
+            throws EJBLookupException {
+        if (archiveService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + JDBCArchiveService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            archiveService = EJBClientUtilities
+                    .getInstance()
+                    .getJDBCArchiveService();
+        }
+        return archiveService;
+    }
+
+    /**
+     * Read the SHA-1 hash of an archive from its associated hash file.  The
+     * hash is the first whitespace-delimited token in the file.
+     *
+     * @param archive The archive.
+     * @return The hash, or null if the hash file could not be read.
+     */
+    private String readHash(Archive archive) {
+
+        String hash = null;
+
+        if ((archive.getHash() != null) && (!archive.getHash().isEmpty())) {
+            try {
+                byte[] content = Files.readAllBytes(
+                        Paths.get(archive.getHash()));
+                String value = new String(content, StandardCharsets.UTF_8)
+                        .trim();
+                if (!value.isEmpty()) {
+                    hash = value.split("\\s+")[0].toLowerCase();
+                }
+            }
+            catch (IOException | IllegalArgumentException e) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Unable to read hash file [ "
+                            + archive.getHash()
+                            + " ].  Exception message => [ "
+                            + e.getMessage()
+                            + " ].");
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Group the input archives by hash, on-disk size, and file store.
+     * Hard links cannot span file stores so archives residing on different
+     * file stores are never grouped together.  Archives that no longer
+     * exist on disk, or whose hash cannot be read, are skipped.
+     *
+     * @param archives The candidate archives.
+     * @return Map of duplicate sets keyed by (hash, size, file store).
+     */
+    private Map<List<Object>, List<Path>> groupDuplicates(
+            List<Archive> archives) {
+
+        Map<List<Object>, List<Path>> groups =
+                new LinkedHashMap<List<Object>, List<Path>>();
+
+        for (Archive archive : archives) {
+            if ((archive.getArchive() == null)
+                    || (archive.getArchive().isEmpty())) {
+                continue;
+            }
+            try {
+                Path p = Paths.get(archive.getArchive());
+                if (!Files.isRegularFile(p)) {
+                    continue;
+                }
+                String hash = readHash(archive);
+                if (hash == null) {
+                    continue;
+                }
+                List<Object> key = Arrays.<Object>asList(
+                        hash,
+                        Files.size(p),
+                        Files.getFileStore(p));
+                List<Path> group = groups.get(key);
+                if (group == null) {
+                    group = new ArrayList<Path>();
+                    groups.put(key, group);
+                }
+                group.add(p);
+            }
+            catch (IOException | IllegalArgumentException e) {
+                LOGGER.warn("Unable to access archive [ "
+                        + archive.getArchive()
+                        + " ] associated with job ID [ "
+                        + archive.getJobID()
+                        + " ].  Exception message => [ "
+                        + e.getMessage()
+                        + " ].");
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Replace the duplicate archive with a hard link to the canonical
+     * archive.  The link is first created under a temporary name in the
+     * duplicate's directory and then atomically renamed over the duplicate
+     * so readers never observe a missing file.
+     *
+     * @param canonical The copy of the archive that will be retained.
+     * @param duplicate The copy of the archive that will be replaced.
+     * @return True if the duplicate was replaced.  False otherwise.
+     */
+    private boolean link(Path canonical, Path duplicate) {
+
+        boolean linked = false;
+        Path    temp   = duplicate.resolveSibling(
+                duplicate.getFileName().toString() + TEMP_LINK_SUFFIX);
+
+        try {
+            Files.deleteIfExists(temp);
+            Files.createLink(temp, canonical);
+            Files.move(temp, duplicate,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            linked = true;
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Unable to replace duplicate archive [ "
+                    + duplicate.toString()
+                    + " ] with a link to [ "
+                    + canonical.toString()
+                    + " ].  Exception message => [ "
+                    + e.getMessage()
+                    + " ].");
+            try {
+                Files.deleteIfExists(temp);
+            }
+            catch (IOException ioe) { }
+        }
+        return linked;
+    }
+
+    /**
+     * Public entry point for the session bean.  Locate duplicate staged
+     * archives and replace them with hard links to a single copy.
+     */
+    public void deduplicate() {
+
+        long startTime = System.currentTimeMillis();
+        int  linked    = 0;
+        long reclaimed = 0L;
+
+        if (!isEnabled()) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Archive deduplication is disabled.  Set "
+                        + "property [ "
+                        + DEDUPLICATE_ARCHIVES_PROPERTY
+                        + " ] to enable.");
+            }
+            return;
+        }
+
+        LOGGER.info("Beginning staged archive deduplication.");
+
+        try {
+
+            Map<List<Object>, List<Path>> groups = groupDuplicates(
+                    getJDBCArchiveService().getDuplicateCandidates());
+
+            for (List<Path> group : groups.values()) {
+                if (group.size() < 2) {
+                    continue;
+                }
+                Path canonical = group.get(0);
+                for (Path duplicate : group.subList(1, group.size())) {
+                    try {
+                        if (Files.isSameFile(canonical, duplicate)) {
+                            continue;
+                        }
+                        if (!FileUtils.contentEquals(canonical, duplicate)) {
+                            LOGGER.warn("Archive [ "
+                                    + duplicate.toString()
+                                    + " ] has the same hash as [ "
+                                    + canonical.toString()
+                                    + " ] but the content differs.  "
+                                    + "Archive will not be linked.");
+                            continue;
+                        }
+                        // The data is only released if this was the last
+                        // link referencing it.
+                        long size  = Files.size(duplicate);
+                        int  links = FileUtils.getLinkCount(duplicate);
+                        if (link(canonical, duplicate)) {
+                            linked++;
+                            if (links <= 1) {
+                                reclaimed += size;
+                            }
+                            if (LOGGER.isDebugEnabled()) {
+                                LOGGER.debug("Replaced [ "
+                                        + duplicate.toString()
+                                        + " ] with a link to [ "
+                                        + canonical.toString()
+                                        + " ].");
+                            }
+                        }
+                    }
+                    catch (IOException ioe) {
+                        LOGGER.warn("Unexpected IOException while comparing "
+                                + "archive [ "
+                                + duplicate.toString()
+                                + " ] with [ "
+                                + canonical.toString()
+                                + " ].  Exception message => [ "
+                                + ioe.getMessage()
+                                + " ].");
+                    }
+                }
+            }
+        }
+        catch (EJBLookupException ele) {
+            LOGGER.error("Unable to obtain a reference to [ "
+                    + ele.getEJBName()
+                    + " ].  Deduplication will not be performed.");
+        }
+
+        LOGGER.info("Staged archive deduplication linked [ "
+                + linked
+                + " ] archives reclaiming [ "
+                + FileUtils.humanReadableByteCount(reclaimed, false)
+                + " ] in [ "
+                + (System.currentTimeMillis() - startTime)
+                + " ] ms.");
+    }
+
+    /**
+     * Getter method for the flag indicating whether the deduplication
+     * process is enabled.
+     * @return True if deduplication is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Setter method for the flag indicating whether the deduplication
+     * process is enabled.
+     */
+    private void setEnabled() {
+        try {
+            String value = getProperty(DEDUPLICATE_ARCHIVES_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                enabled = Boolean.parseBoolean(value.trim());
+            }
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+}
@@ -42,6 +42,24 @@ public class CleanupTimerBean
     @EJB
     DatasourceCleanupService datasourceCleanupService;
     
+    /**
+     * Container-injected reference to the ArchiveDeduplicationService object.
+     */
+    @EJB
+    ArchiveDeduplicationService archiveDeduplicationService;
+    
+    /**
+     * Container-injected reference to the StagingTierService object.
+     */
+    @EJB
+    StagingTierService stagingTierService;
+    
+    /**
+     * Container-injected reference to the StagingUsageService object.
+     */
+    @EJB
+    StagingUsageService stagingUsageService;
+    
     /**
      * Default no-arg constructor. 
      */
@@ -83,6 +101,60 @@ public class CleanupTimerBean
         return datasourceCleanupService;
     }
     
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * @return Reference to the ArchiveDeduplicationService EJB.
+     */
+    private ArchiveDeduplicationService getArchiveDeduplicationService() 
+            throws EJBLookupException {
+        if (archiveDeduplicationService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + ArchiveDeduplicationService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            archiveDeduplicationService = EJBClientUtilities
+                    .getInstance()
+                    .getArchiveDeduplicationService();
+        }
+        return archiveDeduplicationService;
+    }
+    
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * @return Reference to the StagingTierService EJB.
+     */
+    private StagingTierService getStagingTierService() 
+            throws EJBLookupException {
+        if (stagingTierService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + StagingTierService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            stagingTierService = EJBClientUtilities
+                    .getInstance()
+                    .getStagingTierService();
+        }
+        return stagingTierService;
+    }
+    
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * @return Reference to the StagingUsageService EJB.
+     */
+    private StagingUsageService getStagingUsageService() 
+            throws EJBLookupException {
+        if (stagingUsageService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + StagingUsageService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            stagingUsageService = EJBClientUtilities
+                    .getInstance()
+                    .getStagingUsageService();
+        }
+        return stagingUsageService;
+    }
+    
     /**
      * Entry point called by the application container to run the staging 
      * area cleanup algorithm.
@@ -101,6 +173,9 @@ public class CleanupTimerBean
         
         try {
             getDiskCleanupService().cleanup();
+            getStagingTierService().tier();
+            getStagingUsageService().enforceQuotas();
+            getArchiveDeduplicationService().deduplicate();
             getDatasourceCleanupService().cleanup();
         }
         catch (EJBLookupException ele) {
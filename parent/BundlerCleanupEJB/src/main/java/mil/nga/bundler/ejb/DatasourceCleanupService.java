@@ -1,23 +1,38 @@
 package mil.nga.bundler.ejb;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Calendar;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.enterprise.concurrent.ManagedExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import mil.nga.PropertyLoader;
 import mil.nga.bundler.model.BundlerJobMetrics;
-import mil.nga.bundler.model.Job;
 import mil.nga.bundler.ejb.exceptions.EJBLookupException;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
 import mil.nga.bundler.ejb.jdbc.JDBCJobService;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
 import mil.nga.bundler.ejb.jdbc.JDBCArchiveService;
 import mil.nga.bundler.ejb.jdbc.JDBCFileService;
+import mil.nga.bundler.ejb.jdbc.ChunkedDeleteExecutor;
 import mil.nga.bundler.ejb.jdbc.JDBCJobMetricsService;
+import mil.nga.bundler.ejb.jdbc.JobIDCursor;
+import mil.nga.bundler.ejb.jdbc.PurgeCandidate;
+import mil.nga.bundler.ejb.jdbc.UnitOfWork;
 
 /**
  * Session Bean implementation class DatasourceCleanupService
@@ -29,6 +44,7 @@ import mil.nga.bundler.ejb.jdbc.JDBCJobMetricsService;
 @Stateless
 @LocalBean
 public class DatasourceCleanupService 
+        extends PropertyLoader 
         implements BundlerConstantsI {
 
     /**
@@ -43,6 +59,11 @@ public class DatasourceCleanupService
      */
     public static final int DELETE_JOBS_OLDER_THAN = 14;
     
+    /**
+     * Maximum number of jobs removed in a single purge transaction.
+     */
+    public static final int PURGE_JOBS_PER_TRANSACTION = 50;
+    
     /**
      * Handle to the interface associated with the ARCHIVE_JOBS table.
      */
@@ -67,10 +88,100 @@ public class DatasourceCleanupService
     @EJB
     JDBCJobMetricsService jobMetricsService;
     
+    /**
+     * Container-managed executor running the parallel purge workers.  
+     * Tasks submitted to it run with the container context of the calling
+     * bean, so the workers may call the JDBC service EJBs.
+     */
+    @Resource
+    private ManagedExecutorService executor;
+    
+    /**
+     * Maximum number of orphaned rows removed per transaction.
+     */
+    private int orphanChunkSize = DEFAULT_ORPHAN_CHUNK_SIZE;
+    
+    /**
+     * Time (in ms) to pause between the chunks of a bulk delete.
+     */
+    private long deleteChunkPause = DEFAULT_DELETE_CHUNK_PAUSE;
+    
+    /**
+     * Target time (in ms) for a single chunk of a bulk delete.
+     */
+    private long deleteChunkTargetLatency = 
+            DEFAULT_DELETE_CHUNK_TARGET_LATENCY;
+    
+    /**
+     * True if orphans should be detected by merging sorted job ID cursors
+     * rather than by the database.
+     */
+    private boolean mergeOrphanDetection = false;
+    
+    /**
+     * Configured number of parallel purge workers.
+     */
+    private int purgeThreads = DEFAULT_PURGE_THREADS;
+    
+    /**
+     * Number of purge candidates retrieved per page.
+     */
+    private int purgePageSize = DEFAULT_PURGE_PAGE_SIZE;
+    
+    /**
+     * Age (in days) after which job metrics are rolled up (0 if disabled).
+     */
+    private int metricsRollupDays = DEFAULT_METRICS_ROLLUP_DAYS;
+    
+    /**
+     * Maximum size of the JobTracker datasource connection pool.
+     */
+    private int datasourcePoolSize = DEFAULT_DATASOURCE_POOL_SIZE;
+    
     /**
      * Default no-arg constructor. 
      */
-    public DatasourceCleanupService() { }
+    public DatasourceCleanupService() { 
+        super(PROPERTY_FILE_NAME);
+    }
+    
+    /**
+     * Constructor used outside of the container (e.g. by a test or 
+     * benchmark harness) to supply the JDBC services directly rather than 
+     * via injection or JNDI.  As there is no container, the caller must 
+     * invoke <code>init()</code> before use.
+     * 
+     * @param jobService Service for the JOBS table.
+     * @param archiveService Service for the ARCHIVE_JOBS table.
+     * @param fileService Service for the FILE_ENTRY table.
+     * @param jobMetricsService Service for the BUNDLER_JOB_METRICS table.
+     */
+    public DatasourceCleanupService(
+            JDBCJobService        jobService,
+            JDBCArchiveService    archiveService,
+            JDBCFileService       fileService,
+            JDBCJobMetricsService jobMetricsService) { 
+        this();
+        this.jobService        = jobService;
+        this.archiveService    = archiveService;
+        this.fileService       = fileService;
+        this.jobMetricsService = jobMetricsService;
+    }
+    
+    /**
+     * Initialization method used to load the optional cleanup properties.
+     */
+    @PostConstruct
+    public void init() {
+        setOrphanChunkSize();
+        setDeleteChunkPause();
+        setDeleteChunkTargetLatency();
+        setMergeOrphanDetection();
+        setPurgeThreads();
+        setPurgePageSize();
+        setMetricsRollupDays();
+        setDatasourcePoolSize();
+    }
     
     /**
      * Private method used to obtain a reference to the target EJB.  
@@ -142,29 +253,15 @@ public class DatasourceCleanupService
     }
     
     /**
-     * Method introduced to ensure that the record to delete has a metrics
-     * record associated with it prior to removing from the data source.
-     * 
-     * @param jobID The job ID to check.
-     * @return True if the input Job ID has an associated metrics record,
-     * False otherwise. 
+     * Construct the executor used to remove orphaned records in bounded, 
+     * throttled chunks.
+     * @return A new delete executor.
      */
-    private boolean hasMetrics(String jobID) {
-        boolean hasMetrics = false;
-        try {
-            if (getJDBCJobMetricsService().jobIDExists(jobID)) {
-                hasMetrics = true;
-            }
-        }
-        catch (EJBLookupException ele) {
-            LOGGER.error("Unexpected EJBLookupException raised while "
-                    + "attempting to look up [ "
-                    + ele.getEJBName()
-                    + " ].  Exception message [ "
-                    + ele.getMessage()
-                    + " ]");
-        }
-        return hasMetrics;
+    private ChunkedDeleteExecutor getDeleteExecutor() {
+        return new ChunkedDeleteExecutor(
+                getOrphanChunkSize(),
+                getDeleteChunkPause(),
+                getDeleteChunkTargetLatency());
     }
     
     /**
@@ -177,26 +274,124 @@ public class DatasourceCleanupService
         return cal.getTimeInMillis(); 
     }
     
+    /**
+     * Identify the job IDs referenced by the input child cursor that do not
+     * exist in the JOBS table.  Both tables are streamed in job ID order and
+     * merged in a single pass, so neither list of job IDs is loaded into 
+     * memory.  The input cursor is closed by this method.
+     * 
+     * @param child Cursor over the job IDs of the child table.
+     * @return The orphaned job IDs, or null if the merge could not be 
+     * completed (in which case the caller should fall back to the 
+     * anti-join).
+     */
+    private List<String> getOrphanedJobIDs(JobIDCursor child) 
+            throws EJBLookupException {
+        
+        List<String> orphans = null;
+        JobIDCursor  parent  = null;
+        long         start   = System.currentTimeMillis();
+        
+        try {
+            if (child != null) {
+                parent = getJDBCJobService().getJobIDCursor();
+                if (parent != null) {
+                    orphans = JobIDCursor.getOrphans(child, parent);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Merged [ "
+                                + child.getCount()
+                                + " ] job IDs from [ "
+                                + child.getTableName()
+                                + " ] against [ "
+                                + parent.getCount()
+                                + " ] job IDs from [ "
+                                + parent.getTableName()
+                                + " ] finding [ "
+                                + orphans.size()
+                                + " ] orphans in [ "
+                                + (System.currentTimeMillis() - start)
+                                + " ] ms.");
+                    }
+                }
+            }
+        }
+        catch (SQLException se) {
+            LOGGER.warn("An unexpected SQLException was raised while "
+                    + "merging job ID cursors.  Falling back to the "
+                    + "anti-join.  Error message [ "
+                    + se.getMessage()
+                    + " ].");
+        }
+        catch (IllegalStateException ise) {
+            LOGGER.warn(ise.getMessage()
+                    + "  Falling back to the anti-join.");
+        }
+        finally {
+            if (child != null) { child.close(); }
+            if (parent != null) { parent.close(); }
+        }
+        return orphans;
+    }
+    
     /**
      * Method implemented to search for and delete any "orphaned" records left
-     * in the FILE_ENTRY table.
+     * in the FILE_ENTRY table.  By default the orphans are identified and 
+     * removed by the database (NOT EXISTS anti-join) in bounded chunks.  If
+     * merge detection is configured the orphaned job IDs are found by 
+     * merging the sorted job IDs of the two tables and their records are 
+     * deleted job by job.
+     * 
+     * @return The number of orphaned FILE_ENTRY records removed (when merge 
+     * detection is configured, the number of jobs whose orphaned records 
+     * were removed).
      */
-    public void cleanOrphanedFileRecords() {
+    public int cleanOrphanedFileRecords() {
+        
+        long         startTime = System.currentTimeMillis();
+        List<String> orphans   = null;
+        int          removed   = 0;
+        
         try {
-            List<String> allJobIDs = getJDBCJobService().getJobIDs();
-            List<String> fileJobIDs = getJDBCFileService().getJobIDs();
-            if (fileJobIDs != null) {
-                fileJobIDs.removeAll(allJobIDs);
-                if ((fileJobIDs != null) && (fileJobIDs.size() > 0)) {
-                    for (String jobID : fileJobIDs) {
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("Found orphaned FILE_ENTRY records "
-                                    + "for job [ "
-                                    + jobID
-                                    + " ].  Removing...");
-                        }
-                        getJDBCFileService().deleteFiles(jobID);
+            if (isMergeOrphanDetection()) {
+                try {
+                    orphans = getOrphanedJobIDs(
+                            getJDBCFileService().getJobIDCursor());
+                }
+                catch (SQLException se) {
+                    LOGGER.warn("Unable to open the FILE_ENTRY job ID "
+                            + "cursor.  Falling back to the anti-join.  "
+                            + "Error message [ "
+                            + se.getMessage()
+                            + " ].");
+                }
+            }
+            if (orphans != null) {
+                if (orphans.size() > 0) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Found orphaned FILE_ENTRY records "
+                                + "for jobs "
+                                + orphans.toString()
+                                + ".  Removing...");
                     }
+                    getJDBCFileService().deleteFiles(orphans);
+                    removed = orphans.size();
+                    LOGGER.info("Removed orphaned FILE_ENTRY records for [ "
+                            + orphans.size()
+                            + " ] jobs in [ "
+                            + (System.currentTimeMillis() - startTime)
+                            + " ] ms.");
+                }
+            }
+            else {
+                int deleted = getJDBCFileService().deleteOrphanedFiles(
+                        getDeleteExecutor());
+                removed = deleted;
+                if (deleted > 0) {
+                    LOGGER.info("Removed [ "
+                            + deleted
+                            + " ] orphaned FILE_ENTRY records in [ "
+                            + (System.currentTimeMillis() - startTime)
+                            + " ] ms.");
                 }
             }
         }
@@ -209,28 +404,68 @@ public class DatasourceCleanupService
                     + " ].  Any potential orphaned file records will not be "
                     + "cleaned up.");
         }
+        return removed;
     }
     
     /**
      * Method implemented to search for and delete any "orphaned" records left
-     * in the ARCHIVE_JOBS table.
+     * in the ARCHIVE_JOBS table (along with their FILE_ENTRY children).  By 
+     * default the orphans are identified and removed by the database (NOT 
+     * EXISTS anti-join) in bounded chunks.  If merge detection is 
+     * configured the orphaned job IDs are found by merging the sorted job 
+     * IDs of the two tables and their records are deleted job by job.
+     * 
+     * @return The number of orphaned ARCHIVE_JOBS records removed (when 
+     * merge detection is configured, the number of jobs whose orphaned 
+     * records were removed).
      */
-    public void cleanOrphanedArchiveRecords() {
+    public int cleanOrphanedArchiveRecords() {
+        
+        long         startTime = System.currentTimeMillis();
+        List<String> orphans   = null;
+        int          removed   = 0;
+        
         try {
-            List<String> allJobIDs = getJDBCJobService().getJobIDs();
-            List<String> archiveJobIDs = getJDBCArchiveService().getJobIDs();
-            if (archiveJobIDs != null) {
-                archiveJobIDs.removeAll(allJobIDs);
-                if ((archiveJobIDs != null) && (archiveJobIDs.size() > 0)) {
-                    for (String jobID : archiveJobIDs) {
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("Found orphaned ARCHIVE_JOBS records "
-                                    + "for job [ "
-                                    + jobID
-                                    + " ].  Removing...");
-                        }
-                        getJDBCArchiveService().deepDeleteArchive(jobID);
+            if (isMergeOrphanDetection()) {
+                try {
+                    orphans = getOrphanedJobIDs(
+                            getJDBCArchiveService().getJobIDCursor());
+                }
+                catch (SQLException se) {
+                    LOGGER.warn("Unable to open the ARCHIVE_JOBS job ID "
+                            + "cursor.  Falling back to the anti-join.  "
+                            + "Error message [ "
+                            + se.getMessage()
+                            + " ].");
+                }
+            }
+            if (orphans != null) {
+                if (orphans.size() > 0) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Found orphaned ARCHIVE_JOBS records "
+                                + "for jobs "
+                                + orphans.toString()
+                                + ".  Removing...");
                     }
+                    getJDBCArchiveService().deepDeleteArchives(orphans);
+                    removed = orphans.size();
+                    LOGGER.info("Removed orphaned ARCHIVE_JOBS records for [ "
+                            + orphans.size()
+                            + " ] jobs in [ "
+                            + (System.currentTimeMillis() - startTime)
+                            + " ] ms.");
+                }
+            }
+            else {
+                int deleted = getJDBCArchiveService().deleteOrphanedArchives(
+                        getDeleteExecutor());
+                removed = deleted;
+                if (deleted > 0) {
+                    LOGGER.info("Removed [ "
+                            + deleted
+                            + " ] orphaned ARCHIVE_JOBS records in [ "
+                            + (System.currentTimeMillis() - startTime)
+                            + " ] ms.");
                 }
             }
         }
@@ -243,48 +478,231 @@ public class DatasourceCleanupService
                     + " ].  Any potential orphaned archive records will not be "
                     + "cleaned up.");
         }
+        return removed;
+    }
+    
+    /**
+     * Purge the input jobs, <code>PURGE_JOBS_PER_TRANSACTION</code> jobs per
+     * transaction.  All of the transactions share one unit of work, so the 
+     * partition uses a single connection and prepares each delete once.
+     * 
+     * @param service Reference to the JDBCJobService EJB.
+     * @param jobIDs The jobs to purge.
+     * @return The number of jobs whose purge was committed.
+     */
+    private static int purgePartition(
+            JDBCJobService service, 
+            List<String>   jobIDs) {
+        int        purged = 0;
+        UnitOfWork work   = null;
+        try {
+            work = service.getUnitOfWork();
+            if (work != null) {
+                for (int i = 0; 
+                        i < jobIDs.size(); 
+                        i += PURGE_JOBS_PER_TRANSACTION) {
+                    List<String> chunk = jobIDs.subList(
+                            i, 
+                            Math.min(
+                                    jobIDs.size(), 
+                                    i + PURGE_JOBS_PER_TRANSACTION));
+                    try {
+                        service.purge(work, chunk);
+                        work.commit();
+                        purged += chunk.size();
+                    }
+                    catch (SQLException se) {
+                        LOGGER.error("An unexpected SQLException was raised "
+                                + "while attempting to purge [ "
+                                + chunk.size()
+                                + " ] jobs.  The transaction will be rolled "
+                                + "back.  Error message [ "
+                                + se.getMessage() 
+                                + " ].");
+                        work.rollback();
+                    }
+                }
+            }
+        }
+        catch (SQLException se) {
+            LOGGER.error("An unexpected SQLException was raised while "
+                    + "attempting to open a unit of work.  Error message [ "
+                    + se.getMessage() 
+                    + " ].");
+        }
+        finally {
+            if (work != null) { work.close(); }
+        }
+        return purged;
+    }
+    
+    /**
+     * Purge the input jobs.  If more than one purge worker is configured 
+     * the job IDs are partitioned by hash among the workers, each of which 
+     * purges its partition in its own transactions on its own connection.  
+     * The number of workers is capped at half of the JobTracker datasource 
+     * pool size so the bundler always has connections available.  This 
+     * method blocks until all workers have completed.
+     * 
+     * @param service Reference to the JDBCJobService EJB.
+     * @param jobIDs The jobs to purge.
+     * @param pool The executor running the workers (null to purge on the
+     * calling thread).
+     * @return The number of jobs whose purge was committed.
+     */
+    private int purge(
+            final JDBCJobService service, 
+            List<String>         jobIDs, 
+            ExecutorService      pool) {
+        
+        int purged  = 0;
+        int workers = Math.min(
+                getPurgeWorkers(), 
+                (jobIDs.size() + PURGE_JOBS_PER_TRANSACTION - 1) 
+                        / PURGE_JOBS_PER_TRANSACTION);
+        
+        if ((workers <= 1) || (pool == null)) {
+            workers = 1;
+            purged  = purgePartition(service, jobIDs);
+        }
+        else {
+            
+            List<List<String>> partitions = new ArrayList<List<String>>();
+            for (int i = 0; i < workers; i++) {
+                partitions.add(new ArrayList<String>());
+            }
+            for (String jobID : jobIDs) {
+                partitions.get((jobID.hashCode() & Integer.MAX_VALUE) 
+                        % workers).add(jobID);
+            }
+            
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            try {
+                for (final List<String> partition : partitions) {
+                    futures.add(pool.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return purgePartition(service, partition);
+                        }
+                    }));
+                }
+                for (Future<Integer> future : futures) {
+                    try {
+                        purged += future.get();
+                    }
+                    catch (ExecutionException ee) {
+                        LOGGER.error("Unexpected exception raised by a "
+                                + "purge worker.  Exception message => [ "
+                                + ee.getCause().getMessage()
+                                + " ].");
+                    }
+                }
+            }
+            catch (InterruptedException ie) {
+                LOGGER.warn("Interrupted while waiting for the purge "
+                        + "workers to complete.");
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + purged
+                    + " ] of [ "
+                    + jobIDs.size()
+                    + " ] jobs purged by [ "
+                    + workers
+                    + " ] workers.");
+        }
+        return purged;
     }
     
     /**
      * Delete all jobs from the target datasource that are older than the 
-     * pre-defined time limit.  Currently two weeks.
+     * pre-defined time limit.  Currently two weeks.  The purge is planned 
+     * with a single query (see <code>JDBCJobService.getPurgeCandidates</code>)
+     * rather than by materializing each job, and the candidates are 
+     * processed one keyset page at a time.  Jobs with archives are only 
+     * removed once their metrics have been recorded.  Empty jobs (requests
+     * that produced no archives) are always removed.  If parallel purge 
+     * workers are configured they run on the container-managed executor.
+     * Outside of the container a single pool is created for the run.
+     * 
+     * @return The number of jobs purged.
      */
-    public void purgeOldJobRecords() {
+    public int purgeOldJobRecords() {
+        
+        ExecutorService      pool       = null;
+        long                 purgeTime  = getPurgeTime();
+        long                 startTime  = System.currentTimeMillis();
+        int                  candidates = 0;
+        int                  purged     = 0;
+        List<PurgeCandidate> page       = null;
+        PurgeCandidate       last       = null;
         
-        long purgeTime = getPurgeTime();
+        if (getPurgeWorkers() > 1) {
+            pool = executor;
+            if (pool == null) {
+                LOGGER.warn("ManagedExecutorService not injected by the "
+                        + "container.  Creating a pool for this run.");
+                pool = Executors.newFixedThreadPool(getPurgeWorkers());
+            }
+        }
         
         try {
-            List<String> oldJobs = getJDBCJobService().getJobIDs(purgeTime);
-            if ((oldJobs != null) && (oldJobs.size() > 0)) { 
-                for (String jobID : oldJobs) {
+            do {
+                
+                List<String> purgeable = new ArrayList<String>();
+                page = getJDBCJobService().getPurgeCandidates(
+                        purgeTime, 
+                        last, 
+                        getPurgePageSize());
+                
+                for (PurgeCandidate candidate : page) {
                     
-                    // We found that somebody has been sending essentially 
-                    // empty requests to the bundler.  Additional code added 
-                    // here to clean them up.  
-                    Job job = getJDBCJobService().getMaterializedJob(jobID);
-                    if (job != null) {
-                        if ((job.getArchives() != null) || (job.getArchives().size() > 0)) {
-                            if (hasMetrics(jobID)) {
-                                if (LOGGER.isDebugEnabled()) {
-                                    LOGGER.info("Removing old job [ "
-                                            + jobID 
-                                            + " ].");
-                                }
-                                getJDBCJobService().delete(jobID);
-                            }
-                            else {
-                                LOGGER.warn("Job ID [ " + jobID + " ] is more than two "
-                                        + "weeks old, yet it does not have an associated "
-                                        + "metrics object.  Please investigate.");
-                             }
+                    String jobID = candidate.getJobID();
+                    if (candidate.isPurgeable()) {
+                        
+                        // We found that somebody has been sending essentially 
+                        // empty requests to the bundler.  They are removed 
+                        // regardless of whether metrics exist.
+                        if (!candidate.hasArchives()) {
+                            LOGGER.warn("Removing empty job [ "
+                                    + jobID
+                                    + " ].");
                         }
-                        else {
-                           LOGGER.warn("Removing empty job [ "
-                                   + jobID
-                                   + " ].");
+                        else if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("Removing old job [ "
+                                    + jobID 
+                                    + " ].");
                         }
+                        purgeable.add(jobID);
+                    }
+                    else {
+                        LOGGER.warn("Job ID [ " + jobID + " ] is more than two "
+                                + "weeks old, yet it does not have an associated "
+                                + "metrics object.  Please investigate.");
                     }
+                    last = candidate;
                 }
+                
+                // The page is purged (and committed) before the next page is
+                // requested.  The next page resumes after the last key.
+                candidates += page.size();
+                if (purgeable.size() > 0) {
+                    purged += purge(getJDBCJobService(), purgeable, pool);
+                }
+                
+            } while (page.size() >= getPurgePageSize());
+            
+            if (candidates > 0) {
+                LOGGER.info("Purged [ "
+                        + purged
+                        + " ] of [ "
+                        + candidates
+                        + " ] old jobs in [ "
+                        + (System.currentTimeMillis() - startTime)
+                        + " ] ms.");
             }
             else {
                 if (LOGGER.isDebugEnabled()) { 
@@ -301,6 +719,56 @@ public class DatasourceCleanupService
                     + ele.getMessage()
                     + " ].  Old Job records will not be cleaned up.");
         }
+        finally {
+            // The managed executor belongs to the container.
+            if ((pool != null) && (pool != executor)) {
+                pool.shutdown();
+            }
+        }
+        return purged;
+    }
+    
+    /**
+     * Roll the BUNDLER_JOB_METRICS records older than the configured age up
+     * into the daily summary table and delete them.  Only the metrics of 
+     * jobs that have already been purged are rolled up.  Does nothing if 
+     * the rollup is not configured.
+     * 
+     * @return The number of job metrics records rolled up.
+     */
+    public int rollupJobMetrics() {
+        
+        int rolledUp = 0;
+        
+        if (getMetricsRollupDays() > 0) {
+            
+            long     startTime = System.currentTimeMillis();
+            Calendar cal       = Calendar.getInstance();
+            cal.add(Calendar.DAY_OF_YEAR, -getMetricsRollupDays());
+            
+            try {
+                rolledUp = getJDBCJobMetricsService().rollup(
+                        cal.getTimeInMillis());
+                if (rolledUp > 0) {
+                    LOGGER.info("Rolled up [ "
+                            + rolledUp
+                            + " ] job metrics records older than [ "
+                            + getMetricsRollupDays()
+                            + " ] days in [ "
+                            + (System.currentTimeMillis() - startTime)
+                            + " ] ms.");
+                }
+            }
+            catch (EJBLookupException ele) {
+                LOGGER.error("Unexpected EJBLookupException raised while "
+                        + "attempting to look up [ "
+                        + ele.getEJBName()
+                        + " ].  Exception message [ "
+                        + ele.getMessage()
+                        + " ].  Job metrics will not be rolled up.");
+            }
+        }
+        return rolledUp;
     }
     
     /**
@@ -312,6 +780,7 @@ public class DatasourceCleanupService
         long startTime = System.currentTimeMillis();
         
         purgeOldJobRecords();
+        rollupJobMetrics();
         cleanOrphanedArchiveRecords();
         cleanOrphanedFileRecords();
         
@@ -319,6 +788,417 @@ public class DatasourceCleanupService
                 + (System.currentTimeMillis() - startTime)
                 + " ] ms.");
     }
+    
+    /**
+     * Getter method for the time (in ms) to pause between the chunks of a 
+     * bulk delete.
+     * @return The pause between chunks.
+     */
+    public long getDeleteChunkPause() {
+        return deleteChunkPause;
+    }
+    
+    /**
+     * Getter method for the target time (in ms) for a single chunk of a 
+     * bulk delete.
+     * @return The target chunk latency.
+     */
+    public long getDeleteChunkTargetLatency() {
+        return deleteChunkTargetLatency;
+    }
+    
+    /**
+     * Getter method for the maximum number of orphaned rows removed per 
+     * transaction.
+     * @return The orphan delete chunk size.
+     */
+    public int getOrphanChunkSize() {
+        return orphanChunkSize;
+    }
+    
+    /**
+     * Getter method for the maximum size of the JobTracker datasource 
+     * connection pool.
+     * @return The datasource pool size.
+     */
+    public int getDatasourcePoolSize() {
+        return datasourcePoolSize;
+    }
+    
+    /**
+     * Getter method for the age (in days) after which job metrics are 
+     * rolled up.
+     * @return The rollup age, or 0 if the rollup is disabled.
+     */
+    public int getMetricsRollupDays() {
+        return metricsRollupDays;
+    }
+    
+    /**
+     * Getter method for the number of purge candidates retrieved per page.
+     * @return The purge page size.
+     */
+    public int getPurgePageSize() {
+        return purgePageSize;
+    }
+    
+    /**
+     * Getter method for the number of parallel purge workers.  The 
+     * configured value is capped at half of the datasource pool size.
+     * @return The number of purge workers (at least one).
+     */
+    public int getPurgeWorkers() {
+        return Math.max(1, Math.min(purgeThreads, getDatasourcePoolSize() / 2));
+    }
+    
+    /**
+     * Getter method indicating whether orphans are detected by merging 
+     * sorted job ID cursors.
+     * @return True if merge detection is configured.
+     */
+    public boolean isMergeOrphanDetection() {
+        return mergeOrphanDetection;
+    }
+    
+    /**
+     * Setter method for the maximum number of orphaned rows removed per 
+     * transaction.  The value is read from the system properties.  
+     */
+    private void setOrphanChunkSize() {
+        
+        String value = null;
+        
+        try {
+            value = getProperty(ORPHAN_CHUNK_SIZE_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                int chunkSize = Integer.parseInt(value.trim());
+                if (chunkSize > 0) {
+                    orphanChunkSize = chunkSize;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + ORPHAN_CHUNK_SIZE_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_ORPHAN_CHUNK_SIZE
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + ORPHAN_CHUNK_SIZE_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_ORPHAN_CHUNK_SIZE
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
 
     
+    
+    /**
+     * Setter method for the orphan detection mode.  The value is read from 
+     * the system properties.
+     */
+    private void setMergeOrphanDetection() {
+        try {
+            String value = getProperty(ORPHAN_DETECTION_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                if (value.trim().equalsIgnoreCase(ORPHAN_DETECTION_MERGE)) {
+                    mergeOrphanDetection = true;
+                }
+                else if (!value.trim().equalsIgnoreCase(
+                        ORPHAN_DETECTION_ANTI_JOIN)) {
+                    LOGGER.warn("Invalid value for property [ "
+                            + ORPHAN_DETECTION_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + ORPHAN_DETECTION_ANTI_JOIN
+                            + " ].");
+                }
+            }
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+    
+    /**
+     * Setter method for the time (in ms) to pause between the chunks of a 
+     * bulk delete.  The value is read from the system properties.
+     */
+    private void setDeleteChunkPause() {
+        
+        String value = null;
+        
+        try {
+            value = getProperty(DELETE_CHUNK_PAUSE_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                long millis = Long.parseLong(value.trim());
+                if (millis >= 0) {
+                    deleteChunkPause = millis;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + DELETE_CHUNK_PAUSE_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_DELETE_CHUNK_PAUSE
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + DELETE_CHUNK_PAUSE_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_DELETE_CHUNK_PAUSE
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+    
+    /**
+     * Setter method for the target time (in ms) for a single chunk of a 
+     * bulk delete.  The value is read from the system properties.
+     */
+    private void setDeleteChunkTargetLatency() {
+        
+        String value = null;
+        
+        try {
+            value = getProperty(DELETE_CHUNK_TARGET_LATENCY_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                long millis = Long.parseLong(value.trim());
+                if (millis > 0) {
+                    deleteChunkTargetLatency = millis;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + DELETE_CHUNK_TARGET_LATENCY_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_DELETE_CHUNK_TARGET_LATENCY
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + DELETE_CHUNK_TARGET_LATENCY_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_DELETE_CHUNK_TARGET_LATENCY
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+    
+    /**
+     * Setter method for the number of parallel purge workers.  The value is read from the system 
+     * properties.
+     */
+    private void setPurgeThreads() {
+        
+        String value = null;
+        
+        try {
+            value = getProperty(PURGE_THREADS_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                int count = Integer.parseInt(value.trim());
+                if (count > 0) {
+                    purgeThreads = count;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + PURGE_THREADS_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_PURGE_THREADS
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + PURGE_THREADS_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_PURGE_THREADS
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+    
+    /**
+     * Setter method for the number of purge candidates retrieved per 
+     * page.  The value is read from the system properties.
+     */
+    private void setPurgePageSize() {
+        
+        String value = null;
+        
+        try {
+            value = getProperty(PURGE_PAGE_SIZE_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                int count = Integer.parseInt(value.trim());
+                if (count > 0) {
+                    purgePageSize = count;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + PURGE_PAGE_SIZE_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_PURGE_PAGE_SIZE
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + PURGE_PAGE_SIZE_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_PURGE_PAGE_SIZE
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+    
+    /**
+     * Setter method for the age (in days) after which job metrics are 
+     * rolled up.  The value is read from the system properties.
+     */
+    private void setMetricsRollupDays() {
+        
+        String value = null;
+        
+        try {
+            value = getProperty(METRICS_ROLLUP_DAYS_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                int days = Integer.parseInt(value.trim());
+                if (days >= DELETE_JOBS_OLDER_THAN) {
+                    metricsRollupDays = days;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + METRICS_ROLLUP_DAYS_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_METRICS_ROLLUP_DAYS
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + METRICS_ROLLUP_DAYS_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_METRICS_ROLLUP_DAYS
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+    
+    /**
+     * Setter method for the maximum size of the JobTracker datasource 
+     * connection pool.  The value is read from the system properties.
+     */
+    private void setDatasourcePoolSize() {
+        
+        String value = null;
+        
+        try {
+            value = getProperty(DATASOURCE_POOL_SIZE_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                int count = Integer.parseInt(value.trim());
+                if (count > 0) {
+                    datasourcePoolSize = count;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + DATASOURCE_POOL_SIZE_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_DATASOURCE_POOL_SIZE
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + DATASOURCE_POOL_SIZE_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_DATASOURCE_POOL_SIZE
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
 }
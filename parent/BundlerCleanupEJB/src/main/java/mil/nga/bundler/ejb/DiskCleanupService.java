@@ -3,30 +3,70 @@ package mil.nga.bundler.ejb;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
+import javax.enterprise.concurrent.ManagedExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import mil.nga.PropertyLoader;
+import mil.nga.bundler.FileNameGenerator;
+import mil.nga.bundler.UrlGenerator;
+import mil.nga.bundler.ejb.disk.CleanupRoot;
+import mil.nga.bundler.ejb.disk.CleanupEventSink;
+import mil.nga.bundler.ejb.disk.CleanupStatistics;
+import mil.nga.bundler.ejb.disk.DeleteTreeAction;
+import mil.nga.bundler.ejb.disk.EntryAttributes;
+import mil.nga.bundler.ejb.disk.FileStoreWorkerGroup;
+import mil.nga.bundler.ejb.disk.StagingEntry;
 import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.util.FileUtils;
+import mil.nga.util.SizeEstimate;
+import mil.nga.util.SizeEstimator;
 
 /**
  * Session Bean implementation class CleanupService
+ *
+ * The cleanup operates on a set of cleanup roots (the request log
+ * directory, the primary staging directory, and any additional staging
+ * directories discovered beneath the staging base directory).  Roots are
+ * grouped by the file store on which they reside.  Each group is processed
+ * in parallel by its own bounded pool of worker threads.  If a cold
+ * staging directory is configured it is managed as an additional root.
+ * 
+ * Staging roots may contain date buckets (<code>yyyy/MM/dd</code>) created
+ * by the date-bucketed layout.  Buckets are expired as a unit based solely
+ * on the date encoded in their path, so the bundle directories within them
+ * are never individually examined.
  */
 @Stateless
 @LocalBean
@@ -53,6 +93,14 @@ public class DiskCleanupService
         super(PROPERTY_FILE_NAME);
     }
     
+    /**
+     * Container-managed executor used to process the file stores in 
+     * parallel.  Tasks submitted to it run with the container context of 
+     * the calling bean.
+     */
+    @Resource
+    private ManagedExecutorService executor;
+
     /**
      * The location of the staging area.
      */
@@ -62,15 +110,54 @@ public class DiskCleanupService
      * Location of all incoming requests.
      */
     private URI requestLogDirectory = null;
-    
+
+    /**
+     * The complete list of staging areas (including the primary staging
+     * area).
+     */
+    private List<URI> stagingDirectories = new ArrayList<URI>();
+
+    /**
+     * Path prefixes (i.e. data mounts) that must never be managed by the 
+     * cleanup (<code>bundler.exclude_path_prefix_N</code>).
+     */
+    private List<Path> excludedPrefixes = new ArrayList<Path>();
+
+    /**
+     * Maximum number of concurrent cleanup threads per file store.
+     */
+    private int maxThreadsPerFileStore = DEFAULT_MAX_THREADS_PER_FILE_STORE;
+
     /**
-     * Initialization method used to populate the private internal 
+     * The location of the cold staging area (null if tiering is disabled).
+     */
+    private URI coldDirectory = null;
+
+    /**
+     * Maximum number of attribute reads used to estimate the size of a
+     * cleanup root.
+     */
+    private long sizeEstimateBudget = DEFAULT_SIZE_ESTIMATE_BUDGET;
+
+    /**
+     * True if every deleted entry should be logged.
+     */
+    private boolean verbose = false;
+
+    /**
+     * Initialization method used to populate the private internal
      * stagingDirectory variable.
      */
     @PostConstruct
     public void init() {
         setStagingDirectory();
         setRequestLogDirectory();
+        setExcludedPrefixes();
+        setStagingDirectories();
+        setMaxThreadsPerFileStore();
+        setColdDirectory();
+        setSizeEstimateBudget();
+        setVerbose();
     }
     
     /**
@@ -84,15 +171,45 @@ public class DiskCleanupService
     }
     
     /**
-     * Delete a single file.
+     * Calculate the number of bytes that will be released by deleting the
+     * input file.  Files that are still referenced by another hard link 
+     * (e.g. archives replaced by the deduplication process) do not release
+     * any space until the last link is removed.  The link count is taken
+     * from the attributes read during the scan.
      * 
-     * @param p Path object defining a single file.
+     * @param attrs The attributes of the file about to be deleted.
+     * @return The number of bytes released.
      */
-    private void delete(Path p) {
-        if ((p != null) && (Files.exists(p))) {
+    public static long getReclaimableBytes(EntryAttributes attrs) {
+        long bytes = 0L;
+        if ((attrs != null) && (attrs.isRegularFile())) {
+            if (attrs.getLinkCount() <= 1) {
+                bytes = attrs.size();
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Delete a single file.  The attributes read when the entry was listed
+     * are used for the size accounting so no further metadata reads are
+     * required.
+     * 
+     * @param entry The file to delete.
+     * @return The number of bytes released.
+     */
+    private long delete(StagingEntry entry) {
+        long bytes = 0L;
+        Path p     = entry.getPath();
+        if (p != null) {
             try {
+                bytes = getReclaimableBytes(entry.getAttributes());
                 Files.delete(p);
             }
+            catch (NoSuchFileException nsfe) {
+                // Already removed.
+                bytes = 0L;
+            }
             catch (IOException ioe) {
                 LOGGER.warn("Unexpected IOException while removing target "
                         + "directory [ "
@@ -100,97 +217,117 @@ public class DiskCleanupService
                         + " ].  Exception message => [ "
                         + ioe.getMessage()
                         + " ].  Target file not deleted.");
+                bytes = 0L;
             }
         }
+        return bytes;
     }
     
     /**
-     * Implementation of the NIO2 recursive delete operation.
+     * Recursive delete operation.  The tree is split into fork/join 
+     * subtasks by sub-directory (see <code>DeleteTreeAction</code>).  When
+     * called from a file store worker thread the subtasks are executed by 
+     * the same bounded pool, so idle workers help delete a single large 
+     * tree.
      * 
      * @param p Directory to delete.
+     * @return The number of bytes released.
      */
-    private void deleteDir (Path p) {
+    private long deleteDir (Path p) {
+        final AtomicLong bytes = new AtomicLong(0L);
         if (p != null) {
-            try {
-    
-                LOGGER.info("Removing expired directory [ "
-                        + p.toUri().toString()
-                        + " ].");
-                
-                Files.walkFileTree(p, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(
-                            Path file, 
-                            BasicFileAttributes attrs) throws IOException {
-                        Files.delete(file);
-                        return FileVisitResult.CONTINUE;
-                    }
-                    @Override
-                    public FileVisitResult postVisitDirectory(
-                            Path dir, 
-                            IOException ioe) throws IOException {
-                        Files.delete(dir);
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
-                
-            }
-            catch (IOException ioe) {
-                LOGGER.warn("Unexpected exception while removing target "
-                        + "directory [ "
-                        + p.toUri().toString()
-                        + " ].  Exception message => [ "
-                        + ioe.getMessage()
-                        + " ].  Target file not deleted.");
-            }
+            new DeleteTreeAction(p, bytes).invoke();
         }
         else {
             LOGGER.warn("Input Path object is null.  Nothing to delete.");
         }
+        return bytes.get();
     }
     
     /**
-     * Determine whether or not the input file should be deleted.
-     * This method ensures the input file is a directory and falls 
-     * outside the date threshold.
+     * Determine the age of the input file.  Directories moved to the cold
+     * staging area are re-created (so their creation time is reset) but
+     * their last modified time is preserved.  The earlier of the two is 
+     * used so moved bundles still expire on their original schedule.
      * 
-     * @param file Candidate for deletion.
+     * @param attrs The attributes of the file.
+     * @return The time at which the file was created.
+     */
+    public static long getCreationTime(BasicFileAttributes attrs) {
+        return Math.min(
+                attrs.creationTime().toMillis(), 
+                attrs.lastModifiedTime().toMillis());
+    }
+    
+    /**
+     * Determine whether or not the input entry should be deleted (i.e. it
+     * falls outside the date threshold).  The decision uses the attributes
+     * read when the entry was listed.
+     * 
+     * @param entry Candidate for deletion.
+     * @param purgeTime Entries created before this time are expired.
      * @return True if the file should be deleted.  False otherwise.
      */
-    private boolean timeToDelete(Path p) {
+    private boolean timeToDelete(StagingEntry entry, long purgeTime) {
+        return (entry != null) 
+                && (entry.getAttributes() != null)
+                && (getCreationTime(entry.getAttributes()) < purgeTime);
+    }
+    
+    /**
+     * Obtain a listing of the input directory along with the attributes of
+     * each entry.  Each entry's attributes (including the hard link count)
+     * are read exactly once and are then reused for the expiry decision, 
+     * size accounting, and deletion.  
+     * Symbolic links are not followed.  Entries whose attributes cannot be
+     * read (e.g. removed during the listing) are skipped.
+     * 
+     * @param parent The directory to list.
+     * @return The entries of the directory.
+     */
+    public List<StagingEntry> getEntries(URI parent) {
         
-        boolean delete    = false;
-        long    purgeTime = getPurgeTime();
+        List<StagingEntry> entries = new ArrayList<StagingEntry>();
         
-        if (p != null) {
-            try {
-                
-                BasicFileAttributes attrs = 
-                        Files.readAttributes(p, BasicFileAttributes.class);
-                
-                if (attrs != null) {
-                    FileTime t = attrs.creationTime();
-                    if (t.toMillis() < purgeTime) {
-                        delete = true;
+        if (parent != null) {
+            try (DirectoryStream<Path> stream = 
+                    Files.newDirectoryStream(Paths.get(parent))) {
+                for (Path path : stream) {
+                    try {
+                        entries.add(new StagingEntry(
+                                path, 
+                                EntryAttributes.read(path)));
+                    }
+                    catch (IOException ioe) {
+                        LOGGER.warn("Unable to read the file attributes "
+                                + "associated with file [ "
+                                + path.toUri().toString()
+                                + " ].  Exception message => [ "
+                                + ioe.getMessage()
+                                + " ].  File will not be deleted.");
                     }
-                }
-                else {
-                    LOGGER.warn("Unable to read the file attributes "
-                            + "associated with file [ "
-                            + p.toUri().toString()
-                            + " ].  File will not be deleted.");
                 }
             }
+            catch (NoSuchFileException nsfe) {
+                LOGGER.error("The target staging area defined by URI [ "
+                        + parent.toString()
+                        + " ] does not exist.");
+            }
             catch (IOException ioe) {
-                LOGGER.error("Unexpected IOException attempting to obtain "
-                        + "the creation time associated with URI [ "
-                        + p.toUri().toString()
-                        + " ].  Exception message => [ "
+                LOGGER.warn("An unexpected IOException was encountered "
+                        + "while attempting to obtain a list of "
+                        + "directory [ "
+                        + parent.toString()
+                        + " ].  Exception message [ "
                         + ioe.getMessage()
-                        + " ].  Target file not deleted.");
+                        + " ].");
             }
         }
-        return delete;
+        else {
+            LOGGER.error("Target staging area not defined.  The disk cleanup "
+                    + "process will not execute.");
+        }
+        return entries;
     }
     
     /**
@@ -224,7 +361,7 @@ public class DiskCleanupService
             }
             else {
                 LOGGER.error("The target staging area defined by URI [ "
-                        + getStagingDirectory().toString()
+                        + parent.toString()
                         + " ] does not exist.");
             }
         
@@ -238,102 +375,587 @@ public class DiskCleanupService
     }
     
     /**
-     * Method used to clean up old bundler jobs from the target staging area.
+     * Calculate the time at which the input date bucket ends (i.e. the 
+     * start of the following year, month, or day in UTC).  Every bundle in
+     * the bucket was created before this time.
+     * 
+     * @param bucket A year, month, or day bucket.
+     * @param depth The depth of the bucket (1 = year, 2 = month, 3 = day).
+     * @return The end of the bucket, or -1 if the path does not encode a 
+     * valid date.
      */
-    public void cleanupStagingDirectory() {
+    private long getBucketEnd(Path bucket, int depth) {
         
-        int        count     = 0;
-        List<Path> listing   = getDirectoryListing(getStagingDirectory());
-        long      startTime = System.currentTimeMillis();
+        int[] fields = new int[] { 0, 1, 1 };
+        Path  p      = bucket;
         
-        if ((listing != null) && (listing.size() > 0)) { 
-            for (Path p : listing) {
-                if (timeToDelete(p)) {
-                    count++;
-                    LOGGER.info("Recursively deleting directory [ "
-                            + p.toUri().toString()
-                            + " ].");
-                    deleteDir(p);
+        try {
+            for (int i = depth - 1; i >= 0; i--) {
+                fields[i] = Integer.parseInt(p.getFileName().toString());
+                p = p.getParent();
+            }
+            Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            cal.setLenient(false);
+            cal.clear();
+            cal.set(fields[0], fields[1] - 1, fields[2]);
+            cal.add(depth == 1 ? Calendar.YEAR : 
+                (depth == 2 ? Calendar.MONTH : Calendar.DAY_OF_MONTH), 1);
+            return cal.getTimeInMillis();
+        }
+        catch (IllegalArgumentException iae) {
+            // Includes NumberFormatException
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Directory [ "
+                        + bucket.toString()
+                        + " ] is not a valid date bucket.");
+            }
+        }
+        return -1L;
+    }
+    
+    /**
+     * Expire a date bucket.  If the bucket ends before the purge time the
+     * entire bucket is handed to the worker group as a single deletion.  
+     * If the bucket straddles the purge time its child buckets are 
+     * examined.  Buckets starting after the purge time are skipped without
+     * being listed.  Directories that look like date buckets but do not 
+     * form a valid date (e.g. <code>2019/02/30</code>), and any other 
+     * entries found within a bucket, fall back to the age-based expiration
+     * applied to ordinary entries.
+     * 
+     * @param bucket A year, month, or day bucket.
+     * @param depth The depth of the bucket (1 = year, 2 = month, 3 = day).
+     * @param purgeTime Bundles created before this time are expired.
+     * @param group The worker group associated with the root's file store.
+     * @param stats Accumulator for the entries removed and bytes released.
+     * @param sink Sink receiving the deletion events.
+     */
+    private void cleanupBucket(
+            final StagingEntry bucket, 
+            int depth, 
+            long purgeTime,
+            FileStoreWorkerGroup group,
+            final CleanupStatistics stats,
+            final CleanupEventSink sink) {
+        
+        long end = getBucketEnd(bucket.getPath(), depth);
+        
+        if (end < 0) {
+            cleanupEntry(bucket, true, purgeTime, group, stats, sink);
+        }
+        else if (end <= purgeTime) {
+            group.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.currentTimeMillis();
+                    long bytes = deleteDir(bucket.getPath());
+                    stats.add(bytes);
+                    sink.record(
+                            bucket.getPath(), 
+                            bytes, 
+                            System.currentTimeMillis() - start);
+                }
+            });
+        }
+        else if (depth < 3) {
+            for (StagingEntry child : getEntries(bucket.getPath().toUri())) {
+                if (child.getAttributes().isDirectory() 
+                        && FileNameGenerator.isMonthDayBucket(
+                                child.getPath())) {
+                    cleanupBucket(
+                            child, depth + 1, purgeTime, group, stats, sink);
                 }
                 else {
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("File [ "
-                                + p.toUri().toString()
-                                + " ] not ready to delete.");
+                    cleanupEntry(child, true, purgeTime, group, stats, sink);
+                }
+            }
+        }
+        else {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Date bucket [ "
+                        + bucket.getPath().toUri().toString()
+                        + " ] not ready to delete.");
+            }
+        }
+    }
+    
+    /**
+     * Hand a single entry to the worker group if it is old enough to be
+     * removed.  The age of the entry is determined from the attributes read
+     * during the scan.
+     * 
+     * @param entry The entry to examine.
+     * @param recursive True if directories should be removed along with 
+     * their contents.
+     * @param purgeTime Bundles created before this time are expired.
+     * @param group The worker group associated with the root's file store.
+     * @param stats Accumulator for the entries removed and bytes released.
+     * @param sink Sink receiving the deletion events.
+     */
+    private void cleanupEntry(
+            final StagingEntry entry,
+            final boolean recursive,
+            long purgeTime,
+            FileStoreWorkerGroup group,
+            final CleanupStatistics stats,
+            final CleanupEventSink sink) {
+
+        final Path p = entry.getPath();
+
+        if (timeToDelete(entry, purgeTime)) {
+            group.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.currentTimeMillis();
+                    long bytes;
+                    if (recursive && entry.getAttributes().isDirectory()) {
+                        bytes = deleteDir(p);
+                    }
+                    else {
+                        bytes = delete(entry);
+                    }
+                    stats.add(bytes);
+                    sink.record(
+                            p, 
+                            bytes, 
+                            System.currentTimeMillis() - start);
+                }
+            });
+        }
+        else {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("File [ "
+                        + p.toUri().toString()
+                        + " ] not ready to delete.");
+            }
+        }
+    }
+    
+    /**
+     * Obtain the list of bundle directories residing in the input staging
+     * directory regardless of the layout in use.  Entries directly within
+     * the staging directory are returned as-is, and the contents of any 
+     * <code>yyyy/MM/dd</code> date buckets are returned in place of the 
+     * buckets themselves.  Entries within a bucket that are not themselves
+     * buckets are returned as-is.
+     * 
+     * @param staging The staging directory.
+     * @return The list of bundle directories.
+     */
+    public List<Path> getBundleDirectories(URI staging) {
+        List<Path> bundles = new ArrayList<Path>();
+        for (Path p : getDirectoryListing(staging)) {
+            if (FileNameGenerator.isYearBucket(p)) {
+                for (Path month : getDirectoryListing(p.toUri())) {
+                    if (FileNameGenerator.isMonthDayBucket(month)) {
+                        for (Path day : getDirectoryListing(month.toUri())) {
+                            if (FileNameGenerator.isMonthDayBucket(day)) {
+                                bundles.addAll(
+                                        getDirectoryListing(day.toUri()));
+                            }
+                            else {
+                                bundles.add(day);
+                            }
+                        }
+                    }
+                    else {
+                        bundles.add(month);
                     }
                 }
             }
+            else {
+                bundles.add(p);
+            }
         }
-        LOGGER.info("Staging area cleanup completed in [ "
-                + (System.currentTimeMillis() - startTime)
-                + " ] ms and removed [ "
-                + count
-                + " ] directories.");
+        return bundles;
     }
     
     /**
-     * Method used to clean up the request log directory.
+     * Scan a single cleanup root and hand each expired entry to the worker
+     * group associated with the root's file store.  Date buckets found in
+     * recursive roots are expired by date rather than by attributes.  The
+     * attributes of all other entries are read once, during the scan.
+     *
+     * @param root The cleanup root to process.
+     * @param group The worker group associated with the root's file store.
+     * @param stats Accumulator for the entries removed and bytes released.
+     * @param sink Sink receiving the deletion events.
      */
-    public void cleanupRequestLogDirectory() {
-        
-        int        count     = 0;
-        List<Path> listing   = getDirectoryListing(getRequestLogDirectory());
-        long      startTime = System.currentTimeMillis();
-        
-        if ((listing != null) && (listing.size() > 0)) { 
-            for (Path p : listing) {
-                if (timeToDelete(p)) {
-                    count++;
-                    LOGGER.info("Deleting file [ "
-                            + p.toUri().toString()
-                            + " ].");
-                    delete(p);
+    private void cleanupRoot(
+            final CleanupRoot root,
+            FileStoreWorkerGroup group,
+            final CleanupStatistics stats,
+            final CleanupEventSink sink) {
+
+        List<StagingEntry> listing   = getEntries(root.getURI());
+        long               purgeTime = getPurgeTime();
+
+        if ((listing != null) && (listing.size() > 0)) {
+            for (StagingEntry entry : listing) {
+                if (root.isRecursive() 
+                        && entry.getAttributes().isDirectory()
+                        && FileNameGenerator.isYearBucket(entry.getPath())) {
+                    cleanupBucket(entry, 1, purgeTime, group, stats, sink);
                 }
                 else {
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("File [ "
-                                + p.toUri().toString()
-                                + " ] not ready to delete.");
-                    }
+                    cleanupEntry(
+                            entry, 
+                            root.isRecursive(), 
+                            purgeTime, 
+                            group, 
+                            stats, 
+                            sink);
                 }
             }
         }
-        LOGGER.info("Request log directory cleanup completed in [ "
+    }
+
+    /**
+     * Process all of the cleanup roots residing on a single file store.
+     * Expired entries are removed by the group's bounded pool of worker
+     * threads.  Individual deletions are aggregated by an event sink which
+     * logs periodic summaries rather than one line per entry.
+     *
+     * @param group The group of cleanup roots residing on one file store.
+     */
+    private void cleanup(FileStoreWorkerGroup group) {
+
+        long                       startTime = System.currentTimeMillis();
+        Map<CleanupRoot, CleanupStatistics> counts =
+                new LinkedHashMap<CleanupRoot, CleanupStatistics>();
+        CleanupEventSink           sink      = 
+                new CleanupEventSink(group.getName(), isVerbose());
+
+        group.start();
+        try {
+            for (CleanupRoot root : group.getRoots()) {
+                CleanupStatistics stats = new CleanupStatistics();
+                counts.put(root, stats);
+                cleanupRoot(root, group, stats, sink);
+            }
+        }
+        finally {
+            group.awaitCompletion();
+            sink.close();
+        }
+
+        for (Map.Entry<CleanupRoot, CleanupStatistics> entry : 
+                counts.entrySet()) {
+            LOGGER.info("Cleanup of "
+                    + entry.getKey().toString()
+                    + " removed [ "
+                    + entry.getValue().getEntries()
+                    + " ] entries reclaiming [ "
+                    + FileUtils.humanReadableByteCount(
+                            entry.getValue().getBytesReclaimed(), false)
+                    + " ].");
+            // The size estimate walks part of the tree, so it is only 
+            // taken at the end of a run when debugging (see /capacity).
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Remaining => "
+                        + estimateSize(entry.getKey().getURI()).toString());
+            }
+        }
+        LOGGER.info("Cleanup of file store [ "
+                + group.getName()
+                + " ] completed in [ "
                 + (System.currentTimeMillis() - startTime)
-                + " ] ms and removed [ "
-                + count
-                + " ] files.");
+                + " ] ms.");
     }
-    
+
     /**
-     * Public entry point for the session bean.  This method contains all of 
-     * the logic required to clean up the on-disk staging area utilized by 
-     * the Bundler application.  
+     * Process the input cleanup roots.  The roots are grouped by the file
+     * store on which they reside and each group is processed in parallel
+     * on the container-managed executor.  If the executor was not injected
+     * (i.e. outside of the container) a pool is created for the duration of
+     * the run.  This method blocks until all groups have completed.
+     *
+     * @param roots The list of cleanup roots to process.
      */
-    public void cleanup() {
-        
-        long startTime = System.currentTimeMillis();
-        LOGGER.info("Beginning disk cleanup process.");
+    private void cleanup(List<CleanupRoot> roots) {
+
+        final List<FileStoreWorkerGroup> groups = groupByFileStore(roots);
+
+        if (groups.size() == 1) {
+            cleanup(groups.get(0));
+        }
+        else if (groups.size() > 1) {
+            ExecutorService      coordinator = executor;
+            List<Future<?>>      futures     = new ArrayList<Future<?>>();
+            if (coordinator == null) {
+                LOGGER.warn("ManagedExecutorService not injected by the "
+                        + "container.  Creating a pool for this run.");
+                coordinator = Executors.newFixedThreadPool(groups.size());
+            }
+            try {
+                for (final FileStoreWorkerGroup group : groups) {
+                    futures.add(coordinator.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            cleanup(group);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    }
+                    catch (ExecutionException ee) {
+                        LOGGER.error("Unexpected exception raised while "
+                                + "processing a file store.  Exception "
+                                + "message => [ "
+                                + ee.getCause().getMessage()
+                                + " ].");
+                    }
+                }
+            }
+            catch (InterruptedException ie) {
+                LOGGER.warn("Interrupted while waiting for the disk cleanup "
+                        + "to complete.");
+                Thread.currentThread().interrupt();
+            }
+            finally {
+                // The managed executor belongs to the container.
+                if (coordinator != executor) {
+                    coordinator.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Group the input cleanup roots by the file store on which they reside.
+     * Roots that do not exist (or whose file store cannot be determined) are
+     * placed into their own group so that any errors are logged during the
+     * normal processing.
+     *
+     * @param roots The list of cleanup roots.
+     * @return The list of per-file store worker groups.
+     */
+    private List<FileStoreWorkerGroup> groupByFileStore(List<CleanupRoot> roots) {
+
+        Map<Object, FileStoreWorkerGroup> groups =
+                new LinkedHashMap<Object, FileStoreWorkerGroup>();
+
+        for (CleanupRoot root : roots) {
+            Object key  = root.getURI();
+            String name = root.getURI().toString();
+            try {
+                FileStore store = Files.getFileStore(Paths.get(root.getURI()));
+                key  = store;
+                name = store.name();
+            }
+            catch (IOException | IllegalArgumentException e) {
+                LOGGER.warn("Unable to determine the file store associated "
+                        + "with "
+                        + root.toString()
+                        + ".  Exception message => [ "
+                        + e.getMessage()
+                        + " ].");
+            }
+            FileStoreWorkerGroup group = groups.get(key);
+            if (group == null) {
+                group = new FileStoreWorkerGroup(
+                        name,
+                        getMaxThreadsPerFileStore());
+                groups.put(key, group);
+            }
+            group.add(root);
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            for (FileStoreWorkerGroup group : groups.values()) {
+                LOGGER.debug(group.toString());
+            }
+        }
+        return new ArrayList<FileStoreWorkerGroup>(groups.values());
+    }
+
+    /**
+     * Construct the list of cleanup roots from the configured request log
+     * directory and the list of staging directories.
+     *
+     * @return The list of cleanup roots.
+     */
+    public List<CleanupRoot> getCleanupRoots() {
+
+        List<CleanupRoot> roots = new ArrayList<CleanupRoot>();
+
         if (getRequestLogDirectory() != null) {
-            cleanupRequestLogDirectory();
+            roots.add(new CleanupRoot(
+                    getRequestLogDirectory(), false, "Request log directory"));
         }
         else {
             LOGGER.info("Request log directory is not defined.  Cleanup "
                     + "cannot proceed.");
         }
-        if (getStagingDirectory() != null) {
-            cleanupStagingDirectory();
+        if (getStagingDirectories().size() > 0) {
+            for (URI uri : getStagingDirectories()) {
+                roots.add(new CleanupRoot(uri, true, "Staging area"));
+            }
         }
         else {
             LOGGER.info("Staging directory is not defined.  Cleanup operation "
                     + "cannot proceed.");
         }
-        
+        if (getColdDirectory() != null) {
+            roots.add(new CleanupRoot(
+                    getColdDirectory(), true, "Cold staging area"));
+        }
+        return roots;
+    }
+
+    /**
+     * Estimate the size of the directory tree beneath the input URI.  The
+     * number of attribute reads is bounded by the configured budget so the
+     * cost is predictable even for very large trees.
+     *
+     * @param uri The root of the directory tree.
+     * @return The (possibly sampled) size of the tree.
+     */
+    public SizeEstimate estimateSize(URI uri) {
+        return new SizeEstimator(getSizeEstimateBudget())
+                .estimate(Paths.get(uri));
+    }
+
+    /**
+     * Build a capacity report containing the estimated size of every 
+     * cleanup root.
+     *
+     * @return The list of size estimates.
+     */
+    public List<SizeEstimate> getCapacityReport() {
+
+        List<SizeEstimate> report    = new ArrayList<SizeEstimate>();
+        long               startTime = System.currentTimeMillis();
+
+        for (CleanupRoot root : getCleanupRoots()) {
+            report.add(estimateSize(root.getURI()));
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Capacity report generated in [ "
+                    + (System.currentTimeMillis() - startTime)
+                    + " ] ms.");
+        }
+        return report;
+    }
+
+    /**
+     * Method used to clean up old bundler jobs from all of the staging
+     * areas.
+     */
+    public void cleanupStagingDirectory() {
+
+        List<CleanupRoot> roots     = new ArrayList<CleanupRoot>();
+        long              startTime = System.currentTimeMillis();
+
+        for (URI uri : getStagingDirectories()) {
+            roots.add(new CleanupRoot(uri, true, "Staging area"));
+        }
+        if (getColdDirectory() != null) {
+            roots.add(new CleanupRoot(
+                    getColdDirectory(), true, "Cold staging area"));
+        }
+        cleanup(roots);
+        LOGGER.info("Staging area cleanup completed in [ "
+                + (System.currentTimeMillis() - startTime)
+                + " ] ms.");
+    }
+
+    /**
+     * Method used to clean up the request log directory.
+     */
+    public void cleanupRequestLogDirectory() {
+
+        long startTime = System.currentTimeMillis();
+
+        if (getRequestLogDirectory() != null) {
+            cleanup(Collections.singletonList(new CleanupRoot(
+                    getRequestLogDirectory(), false, "Request log directory")));
+        }
+        LOGGER.info("Request log directory cleanup completed in [ "
+                + (System.currentTimeMillis() - startTime)
+                + " ] ms.");
+    }
+
+    /**
+     * Public entry point for the session bean.  This method contains all of
+     * the logic required to clean up the on-disk staging area utilized by
+     * the Bundler application.
+     */
+    public void cleanup() {
+
+        long startTime = System.currentTimeMillis();
+        LOGGER.info("Beginning disk cleanup process.");
+
+        cleanup(getCleanupRoots());
+
         LOGGER.info("Disk cleanup process completed in [ "
                 + (System.currentTimeMillis() - startTime)
                 + " ].");
     }
+
+    /**
+     * Getter method for the location of the cold staging directory.
+     * @return The URI of the cold staging directory, or null if tiering is
+     * disabled.
+     */
+    public URI getColdDirectory() {
+        return coldDirectory;
+    }
+
+    /**
+     * Getter method for the path prefixes that must never be managed by the
+     * cleanup.
+     * @return The list of excluded path prefixes.
+     */
+    public List<Path> getExcludedPrefixes() {
+        return excludedPrefixes;
+    }
+
+    /**
+     * Determine the excluded path prefix (if any) that overlaps the input 
+     * path, i.e. the path is the prefix, contains the prefix, or lies 
+     * beneath it.  Such a path must never be used as a cleanup root.
+     * 
+     * @param path The candidate cleanup root.
+     * @return The overlapping excluded prefix, or null if there is none.
+     */
+    private Path getOverlappingExclusion(Path path) {
+        for (Path prefix : getExcludedPrefixes()) {
+            if (FileUtils.overlaps(path, prefix)) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Getter method for the maximum number of concurrent cleanup threads
+     * that will be run against a single file store.
+     * @return The maximum number of threads per file store.
+     */
+    public int getMaxThreadsPerFileStore() {
+        return maxThreadsPerFileStore;
+    }
     
+    /**
+     * Getter method for the maximum number of attribute reads used to
+     * estimate the size of a cleanup root.
+     * @return The size estimate budget.
+     */
+    public long getSizeEstimateBudget() {
+        return sizeEstimateBudget;
+    }
+
+    /**
+     * Getter method determining whether every deleted entry is logged.
+     * @return True if verbose cleanup logging is enabled.
+     */
+    public boolean isVerbose() {
+        return verbose;
+    }
+
     /**
      * Getter method for the location where the request logs are stored.
      * @param value The URI for the location where the request logs are stored.
@@ -349,7 +971,197 @@ public class DiskCleanupService
     public URI getStagingDirectory() {
         return stagingDirectory;
     }
-    
+
+    /**
+     * Getter method for the complete list of staging directories (i.e. the
+     * primary staging directory plus any discovered staging directories).
+     * @return The list of staging directories.
+     */
+    public List<URI> getStagingDirectories() {
+        return stagingDirectories;
+    }
+
+    /**
+     * Walk the staging base directory looking for directories that match
+     * the input glob pattern.  The pattern is evaluated relative to the
+     * staging base directory, and the walk is limited to the depth of the
+     * pattern.  The walk never descends into an excluded path prefix.
+     *
+     * @param base The staging base directory.
+     * @param pattern Glob pattern relative to the staging base directory.
+     * @return The list of matching directories.
+     */
+    private List<URI> discoverStagingDirectories(
+            final Path base,
+            String pattern) {
+
+        final List<URI>   matches = new ArrayList<URI>();
+        final PathMatcher matcher = base.getFileSystem()
+                .getPathMatcher("glob:" + pattern);
+        final int         depth   = Paths.get(pattern).getNameCount();
+
+        try {
+            Files.walkFileTree(
+                    base,
+                    EnumSet.noneOf(FileVisitOption.class),
+                    depth,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(
+                                Path dir,
+                                BasicFileAttributes attrs) {
+                            // Never descend into the data mounts.
+                            Path normalized = dir.toAbsolutePath().normalize();
+                            for (Path prefix : getExcludedPrefixes()) {
+                                if (normalized.startsWith(
+                                        prefix.toAbsolutePath())) {
+                                    LOGGER.info("Skipping excluded path [ "
+                                            + dir.toString()
+                                            + " ] while searching for "
+                                            + "staging directories.");
+                                    return FileVisitResult.SKIP_SUBTREE;
+                                }
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                        @Override
+                        public FileVisitResult visitFile(
+                                Path file,
+                                BasicFileAttributes attrs) {
+                            Path relative = base.relativize(file);
+                            if (attrs.isDirectory()
+                                    && (relative.getNameCount() == depth)
+                                    && matcher.matches(relative)) {
+                                matches.add(file.toUri());
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                        @Override
+                        public FileVisitResult visitFileFailed(
+                                Path file,
+                                IOException ioe) {
+                            LOGGER.warn("Unable to access [ "
+                                    + file.toString()
+                                    + " ] while searching for staging "
+                                    + "directories.  Exception message => [ "
+                                    + ioe.getMessage()
+                                    + " ].");
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+        }
+        catch (IOException ioe) {
+            LOGGER.error("Unexpected IOException raised while searching for "
+                    + "staging directories matching pattern [ "
+                    + pattern
+                    + " ] under [ "
+                    + base.toString()
+                    + " ].  Exception message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        return matches;
+    }
+
+    /**
+     * Determine the staging directory (if any) that the input path is 
+     * nested in, or that is nested in the input path.  A staging directory
+     * equal to the input path is not considered nested.
+     * 
+     * @param path The candidate cold staging directory.
+     * @return The overlapping staging directory, or null if there is none.
+     */
+    private URI getNestedStagingDirectory(Path path) {
+        for (URI staging : getStagingDirectories()) {
+            Path stagingPath = Paths.get(staging).normalize();
+            if ((!stagingPath.equals(path)) 
+                    && FileUtils.overlaps(stagingPath, path)) {
+                return staging;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Setter method for the location of the cold staging directory.  The
+     * cold staging directory must reside beneath the staging base directory
+     * (so bundles moved there remain downloadable) and must not overlap
+     * the primary staging directory, any excluded path prefix, or any other
+     * staging directory (i.e. it may neither contain nor lie beneath one).
+     * If the cold staging directory was discovered as an additional 
+     * staging directory it is removed from that list.
+     */
+    private void setColdDirectory() {
+
+        String value = null;
+
+        try {
+            value = getProperty(COLD_DIRECTORY_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                URI  uri  = URI.create(value.trim());
+                Path path = Paths.get(uri).normalize();
+                if (!UrlGenerator.getInstance().isServable(path)) {
+                    LOGGER.error("Cold staging directory [ "
+                            + value
+                            + " ] does not reside beneath the staging base "
+                            + "directory.  Tiering is disabled.");
+                }
+                else if ((getStagingDirectory() != null) 
+                        && (FileUtils.overlaps(
+                                Paths.get(getStagingDirectory()), path))) {
+                    LOGGER.error("Cold staging directory [ "
+                            + value
+                            + " ] overlaps the primary staging directory [ "
+                            + getStagingDirectory().toString()
+                            + " ].  Tiering is disabled.");
+                }
+                else if (getOverlappingExclusion(path) != null) {
+                    LOGGER.error("Cold staging directory [ "
+                            + value
+                            + " ] overlaps excluded path prefix [ "
+                            + getOverlappingExclusion(path).toString()
+                            + " ].  Tiering is disabled.");
+                }
+                else if (getNestedStagingDirectory(path) != null) {
+                    LOGGER.error("Cold staging directory [ "
+                            + value
+                            + " ] is nested in, or contains, staging "
+                            + "directory [ "
+                            + getNestedStagingDirectory(path).toString()
+                            + " ].  Tiering is disabled.");
+                }
+                else {
+                    // The cold directory may also match one of the staging
+                    // directory patterns.  It is managed separately.
+                    List<URI> directories = new ArrayList<URI>();
+                    for (URI staging : getStagingDirectories()) {
+                        if (!Paths.get(staging).normalize().equals(path)) {
+                            directories.add(staging);
+                        }
+                    }
+                    stagingDirectories = directories;
+                    coldDirectory      = uri;
+                }
+            }
+        }
+        catch (IllegalArgumentException iae) {
+            LOGGER.error("Unexpected IllegalArgumentException raised while "
+                    + "attempting to convert the cold staging area location "
+                    + "to a URI.  Cold staging area location [ "
+                    + value
+                    + " ].  Exception message => [ "
+                    + iae.getMessage()
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+
     /**
      * Setter method for the location of the temporary staging directory.
      * @param value The temporary staging directory.
@@ -431,4 +1243,246 @@ public class DiskCleanupService
             stagingDirectory = null;
         }
     }
+
+    /**
+     * Setter method for the complete list of staging directories.  The list
+     * always contains the primary staging directory (if defined) followed
+     * by any directories under the staging base directory that match the
+     * configured staging directory patterns.  Patterns resolving to
+     * locations outside of the staging base directory are ignored, as are
+     * discovered directories that equal, contain, or lie beneath one of the
+     * excluded path prefixes (i.e. the data mounts).
+     */
+    private void setStagingDirectories() {
+
+        List<URI>  directories = new ArrayList<URI>();
+        List<Path> paths       = new ArrayList<Path>();
+        String     base        = null;
+        String     patterns    = null;
+
+        if (getStagingDirectory() != null) {
+            directories.add(getStagingDirectory());
+            paths.add(Paths.get(getStagingDirectory()).normalize());
+        }
+        try {
+            base     = getProperty(STAGING_DIRECTORY_BASE_PROPERTY);
+            patterns = getProperty(STAGING_DIRECTORY_PATTERNS_PROPERTY);
+            if ((base != null) && (!base.isEmpty())
+                    && (patterns != null) && (!patterns.isEmpty())) {
+
+                Path basePath = Paths.get(base).normalize();
+                for (String pattern : patterns.split(",")) {
+                    pattern = pattern.trim();
+                    if (pattern.isEmpty()) {
+                        continue;
+                    }
+                    if (!basePath.resolve(pattern).normalize()
+                            .startsWith(basePath)) {
+                        LOGGER.error("Staging directory pattern [ "
+                                + pattern
+                                + " ] resolves outside of the staging base "
+                                + "directory [ "
+                                + base
+                                + " ].  Pattern ignored.");
+                        continue;
+                    }
+                    for (URI uri : discoverStagingDirectories(
+                            basePath, pattern)) {
+                        Path path      = Paths.get(uri).normalize();
+                        Path exclusion = getOverlappingExclusion(path);
+                        if (exclusion != null) {
+                            LOGGER.warn("Discovered staging directory [ "
+                                    + path.toString()
+                                    + " ] overlaps excluded path prefix [ "
+                                    + exclusion.toString()
+                                    + " ].  Directory will not be managed "
+                                    + "by the cleanup.");
+                        }
+                        else if (!paths.contains(path)) {
+                            paths.add(path);
+                            directories.add(uri);
+                        }
+                    }
+                }
+            }
+        }
+        catch (IllegalArgumentException iae) {
+            LOGGER.error("Unexpected IllegalArgumentException raised while "
+                    + "attempting to discover the staging directories.  "
+                    + "Staging base [ "
+                    + base
+                    + " ], patterns [ "
+                    + patterns
+                    + " ].  Exception message => [ "
+                    + iae.getMessage()
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Managing [ "
+                    + directories.size()
+                    + " ] staging directories => "
+                    + directories.toString());
+        }
+        stagingDirectories = directories;
+    }
+
+    /**
+     * Setter method for the path prefixes that must never be managed by the
+     * cleanup.  The prefixes are read from the same 
+     * <code>bundler.exclude_path_prefix_N</code> properties used by the 
+     * bundler to identify the data mounts.
+     */
+    private void setExcludedPrefixes() {
+
+        List<Path> prefixes = new ArrayList<Path>();
+
+        try {
+            Properties props = getProperties();
+            for (String key : props.stringPropertyNames()) {
+                String value = props.getProperty(key);
+                if (key.startsWith(PARTIAL_PROP_NAME) 
+                        && (value != null) 
+                        && (!value.trim().isEmpty())) {
+                    try {
+                        prefixes.add(Paths.get(value.trim()).normalize());
+                    }
+                    catch (IllegalArgumentException iae) {
+                        LOGGER.warn("Invalid value for property [ "
+                                + key
+                                + " ] => [ "
+                                + value
+                                + " ].  Property ignored.");
+                    }
+                }
+            }
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Excluded path prefixes => "
+                    + prefixes.toString());
+        }
+        excludedPrefixes = prefixes;
+    }
+
+    /**
+     * Setter method for the maximum number of concurrent cleanup threads
+     * that will be run against a single file store.
+     */
+    private void setMaxThreadsPerFileStore() {
+
+        String value = null;
+
+        try {
+            value = getProperty(MAX_THREADS_PER_FILE_STORE_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                int threads = Integer.parseInt(value.trim());
+                if (threads > 0) {
+                    maxThreadsPerFileStore = threads;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + MAX_THREADS_PER_FILE_STORE_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_MAX_THREADS_PER_FILE_STORE
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + MAX_THREADS_PER_FILE_STORE_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_MAX_THREADS_PER_FILE_STORE
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+
+    /**
+     * Read the maximum number of attribute reads used to estimate the size
+     * of a cleanup root.
+     */
+    private void setSizeEstimateBudget() {
+
+        String value = null;
+
+        try {
+            value = getProperty(SIZE_ESTIMATE_BUDGET_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                long budget = Long.parseLong(value.trim());
+                if (budget > 0) {
+                    sizeEstimateBudget = budget;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + SIZE_ESTIMATE_BUDGET_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_SIZE_ESTIMATE_BUDGET
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + SIZE_ESTIMATE_BUDGET_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_SIZE_ESTIMATE_BUDGET
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+
+    /**
+     * Read the property enabling per-entry cleanup logging.
+     */
+    private void setVerbose() {
+        try {
+            String value = getProperty(CLEANUP_VERBOSE_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                verbose = Boolean.parseBoolean(value.trim());
+            }
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
 }
@@ -391,6 +391,44 @@ public class EJBClientUtilities {
         return service;
     }
     
+    /**
+     * Utility method used to look up the ArchiveDeduplicationService 
+     * interface.
+     * 
+     * @return The ArchiveDeduplicationService interface, or null if we 
+     * couldn't look it up.
+     */
+    public ArchiveDeduplicationService getArchiveDeduplicationService() 
+            throws EJBLookupException {
+        
+        ArchiveDeduplicationService service = null;
+        Object                      ejb     = getEJB(
+                ArchiveDeduplicationService.class);
+        
+        if (ejb != null) {
+            if (ejb instanceof mil.nga.bundler.ejb.ArchiveDeduplicationService) {
+                service = (ArchiveDeduplicationService)ejb;
+            }
+            else {
+                throw new EJBLookupException("Unable to look up EJB [ "
+                        + getJNDIName(ArchiveDeduplicationService.class)
+                        + " ] returned reference was the wrong type.  "
+                        + "Type returned [ "
+                        + ejb.getClass().getCanonicalName()
+                        + " ].",
+                        ArchiveDeduplicationService.class.getName());
+            }
+        }
+        else {
+            throw new EJBLookupException(
+                    "Unable to look up Object [ "
+                    + getJNDIName(ArchiveDeduplicationService.class)
+                    + " ].",
+                    ArchiveDeduplicationService.class.getName());
+        }
+        return service;
+    } 
+    
     /**
      * Utility method used to look up the DatasourceCleanupService interface.  
      * This method is only called by the web tier.
@@ -465,6 +503,114 @@ public class EJBClientUtilities {
         return service;
     }    
 
+    /**
+     * Utility method used to look up the StagingTierService interface.
+     * 
+     * @return The StagingTierService interface, or null if we couldn't 
+     * look it up.
+     */
+    public StagingTierService getStagingTierService() 
+            throws EJBLookupException {
+        
+        StagingTierService service = null;
+        Object             ejb     = getEJB(StagingTierService.class);
+        
+        if (ejb != null) {
+            if (ejb instanceof mil.nga.bundler.ejb.StagingTierService) {
+                service = (StagingTierService)ejb;
+            }
+            else {
+                throw new EJBLookupException("Unable to look up EJB [ "
+                        + getJNDIName(StagingTierService.class)
+                        + " ] returned reference was the wrong type.  "
+                        + "Type returned [ "
+                        + ejb.getClass().getCanonicalName()
+                        + " ].",
+                        StagingTierService.class.getName());
+            }
+        }
+        else {
+            throw new EJBLookupException(
+                    "Unable to look up Object [ "
+                    + getJNDIName(StagingTierService.class)
+                    + " ].",
+                    StagingTierService.class.getName());
+        }
+        return service;
+    } 
+    
+    /**
+     * Utility method used to look up the RetentionSimulationService interface.
+     * 
+     * @return The RetentionSimulationService interface, or null if we couldn't 
+     * look it up.
+     */
+    public RetentionSimulationService getRetentionSimulationService() 
+            throws EJBLookupException {
+        
+        RetentionSimulationService service = null;
+        Object                     ejb     = getEJB(RetentionSimulationService.class);
+        
+        if (ejb != null) {
+            if (ejb instanceof mil.nga.bundler.ejb.RetentionSimulationService) {
+                service = (RetentionSimulationService)ejb;
+            }
+            else {
+                throw new EJBLookupException("Unable to look up EJB [ "
+                        + getJNDIName(RetentionSimulationService.class)
+                        + " ] returned reference was the wrong type.  "
+                        + "Type returned [ "
+                        + ejb.getClass().getCanonicalName()
+                        + " ].",
+                        RetentionSimulationService.class.getName());
+            }
+        }
+        else {
+            throw new EJBLookupException(
+                    "Unable to look up Object [ "
+                    + getJNDIName(RetentionSimulationService.class)
+                    + " ].",
+                    RetentionSimulationService.class.getName());
+        }
+        return service;
+    } 
+    
+    /**
+     * Utility method used to look up the StagingUsageService interface.
+     * 
+     * @return The StagingUsageService interface, or null if we couldn't 
+     * look it up.
+     */
+    public StagingUsageService getStagingUsageService() 
+            throws EJBLookupException {
+        
+        StagingUsageService service = null;
+        Object              ejb     = getEJB(StagingUsageService.class);
+        
+        if (ejb != null) {
+            if (ejb instanceof mil.nga.bundler.ejb.StagingUsageService) {
+                service = (StagingUsageService)ejb;
+            }
+            else {
+                throw new EJBLookupException("Unable to look up EJB [ "
+                        + getJNDIName(StagingUsageService.class)
+                        + " ] returned reference was the wrong type.  "
+                        + "Type returned [ "
+                        + ejb.getClass().getCanonicalName()
+                        + " ].",
+                        StagingUsageService.class.getName());
+            }
+        }
+        else {
+            throw new EJBLookupException(
+                    "Unable to look up Object [ "
+                    + getJNDIName(StagingUsageService.class)
+                    + " ].",
+                    StagingUsageService.class.getName());
+        }
+        return service;
+    } 
+    
     /**
      * Method using the JMX MBean interface to retrieve the name of the current
      * JVM (i.e. server name).
@@ -0,0 +1,104 @@
+package mil.nga.bundler.ejb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ejb.EJB;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.bundler.ejb.exceptions.EJBLookupException;
+import mil.nga.bundler.ejb.jdbc.JDBCJobMetricsService;
+import mil.nga.bundler.simulator.RetentionPolicy;
+import mil.nga.bundler.simulator.RetentionSimulator;
+import mil.nga.bundler.simulator.SimulationResult;
+
+/**
+ * Session Bean implementation class RetentionSimulationService
+ *
+ * Replays the BUNDLER_JOB_METRICS history through one or more candidate
+ * retention policies.  This bean is read-only: it never touches the
+ * staging area, so it can be run against production data to evaluate a
+ * policy change before it is deployed.
+ *
+ * @author L. Craig Carpenter
+ */
+@Stateless
+@LocalBean
+public class RetentionSimulationService {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(RetentionSimulationService.class);
+
+    /**
+     * Handle to the interface associated with the BUNDLER_JOB_METRICS table.
+     */
+    @EJB
+    JDBCJobMetricsService jobMetricsService;
+
+    /**
+     * Default no-arg constructor.
+     */
+    public RetentionSimulationService() { }
+
+    /**
+     * Private method used to obtain a reference to the target EJB.
+     * @return Reference to the JDBCJobMetricsService EJB.
+     */
+    private JDBCJobMetricsService getJDBCJobMetricsService()
+            throws EJBLookupException {
+        if (jobMetricsService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + JDBCJobMetricsService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            jobMetricsService = EJBClientUtilities
+                    .getInstance()
+                    .getJDBCJobMetricsService();
+        }
+        return jobMetricsService;
+    }
+
+    /**
+     * Replay the job history through each of the input policies.  The
+     * history is loaded once and shared by all of the policies.
+     *
+     * @param policies The candidate retention policies.
+     * @return The outcome of each replay (in the same order as the input
+     * policies).
+     */
+    public List<SimulationResult> simulate(List<RetentionPolicy> policies)
+            throws EJBLookupException {
+
+        List<SimulationResult> results = new ArrayList<SimulationResult>();
+        long                   start   = System.currentTimeMillis();
+
+        if ((policies != null) && (policies.size() > 0)) {
+
+            RetentionSimulator simulator =
+                    getJDBCJobMetricsService().getRetentionSimulator();
+
+            for (RetentionPolicy policy : policies) {
+                SimulationResult result = simulator.simulate(policy);
+                LOGGER.info("Simulation result => "
+                        + result.toString());
+                results.add(result);
+            }
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + results.size()
+                    + " ] retention policies simulated in [ "
+                    + (System.currentTimeMillis() - start)
+                    + " ] ms.");
+        }
+        return results;
+    }
+}
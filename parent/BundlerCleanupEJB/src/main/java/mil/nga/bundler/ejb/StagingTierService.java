@@ -0,0 +1,472 @@
+package mil.nga.bundler.ejb;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Calendar;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.UrlGenerator;
+import mil.nga.bundler.ejb.exceptions.EJBLookupException;
+import mil.nga.bundler.ejb.jdbc.JDBCArchiveService;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.model.Archive;
+import mil.nga.util.FileUtils;
+
+/**
+ * Session Bean implementation class StagingTierService
+ *
+ * This bean implements an intermediate storage tier between the hot
+ * staging area and final deletion.  Bundles older than the configured
+ * tier age are moved from the staging directories to the cold staging
+ * directory, and the ARCHIVE_JOBS pointers (local paths and URLs) are
+ * updated to the new location.  Bundles in the cold staging directory
+ * remain downloadable and are deleted by the disk cleanup process at final
+ * expiry.
+ *
+ * @author L. Craig Carpenter
+ */
+@Stateless
+@LocalBean
+public class StagingTierService
+        extends PropertyLoader
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(StagingTierService.class);
+
+    /**
+     * Suffix added to a bundle directory while it is being copied into the
+     * cold staging area.
+     */
+    private static final String PARTIAL_SUFFIX = ".partial";
+
+    /**
+     * Handle to the interface associated with the ARCHIVE_JOBS table.
+     */
+    @EJB
+    JDBCArchiveService archiveService;
+
+    /**
+     * Handle to the disk cleanup service (owner of the staging directory
+     * configuration).
+     */
+    @EJB
+    DiskCleanupService diskCleanupService;
+
+    /**
+     * Age (in days) after which bundles are moved to the cold staging area.
+     */
+    private int tierAfterDays = DEFAULT_TIER_AFTER_DAYS;
+
+    /**
+     * Default no-arg constructor.
+     */
+    public StagingTierService() {
+        super(PROPERTY_FILE_NAME);
+    }
+
+    /**
+     * Initialization method used to read the tiering properties.
+     */
+    @PostConstruct
+    public void init() {
+        setTierAfterDays();
+    }
+
+    /**
+     * Private method used to obtain a reference to the target EJB.
+     * @return Reference to the JDBCArchiveService EJB.
+     */
+    private JDBCArchiveService getJDBCArchiveService()
+            throws EJBLookupException {
+        if (archiveService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + JDBCArchiveService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            archiveService = EJBClientUtilities
+                    .getInstance()
+                    .getJDBCArchiveService();
+        }
+        return archiveService;
+    }
+
+    /**
+     * Private method used to obtain a reference to the target EJB.
+     * @return Reference to the DiskCleanupService EJB.
+     */
+    private DiskCleanupService getDiskCleanupService()
+            throws EJBLookupException {
+        if (diskCleanupService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + DiskCleanupService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            diskCleanupService = EJBClientUtilities
+                    .getInstance()
+                    .getDiskCleanupService();
+        }
+        return diskCleanupService;
+    }
+
+    /**
+     * Calculate the time before which bundles are moved to the cold tier.
+     * @return The tier threshold time.
+     */
+    private long getTierTime() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -getTierAfterDays());
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Determine whether the input staging entry is a bundle directory old
+     * enough to be moved to the cold staging area.
+     *
+     * @param p Candidate bundle directory.
+     * @return True if the directory should be moved.
+     */
+    private boolean timeToMove(Path p) {
+        boolean move = false;
+        try {
+            BasicFileAttributes attrs =
+                    Files.readAttributes(p, BasicFileAttributes.class);
+            move = (attrs.isDirectory()
+                    && (DiskCleanupService.getCreationTime(attrs)
+                            < getTierTime()));
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unable to read the file attributes associated with "
+                    + "[ "
+                    + p.toString()
+                    + " ].  Exception message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        return move;
+    }
+
+    /**
+     * Recursively copy a bundle directory preserving the file attributes.
+     * Directory timestamps are applied after the directory contents have
+     * been copied (copying the children would otherwise reset them).
+     *
+     * @param source The source bundle directory.
+     * @param target The target directory (must not exist).
+     * @throws IOException Thrown if the copy fails.
+     */
+    private void copyTree(final Path source, final Path target)
+            throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(
+                    Path dir,
+                    BasicFileAttributes attrs) throws IOException {
+                Files.createDirectory(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult visitFile(
+                    Path file,
+                    BasicFileAttributes attrs) throws IOException {
+                Files.copy(file,
+                        target.resolve(source.relativize(file)),
+                        StandardCopyOption.COPY_ATTRIBUTES);
+                return FileVisitResult.CONTINUE;
+            }
+            @Override
+            public FileVisitResult postVisitDirectory(
+                    Path dir,
+                    IOException ioe) throws IOException {
+                if (ioe != null) {
+                    throw ioe;
+                }
+                Files.setLastModifiedTime(
+                        target.resolve(source.relativize(dir)),
+                        Files.getLastModifiedTime(dir));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Build the list of archive pointer updates required to reflect the
+     * relocation of a bundle directory.
+     *
+     * @param source The original bundle directory.
+     * @param target The new bundle directory.
+     * @return The archives with updated locations.
+     */
+    private List<Archive> relocate(Path source, Path target)
+            throws EJBLookupException {
+
+        List<Archive> archives = getJDBCArchiveService()
+                .getArchivesByDirectory(source.toString());
+
+        for (Archive archive : archives) {
+            archive.setArchive(relocate(archive.getArchive(), source, target));
+            archive.setArchiveURL(UrlGenerator.getInstance()
+                    .getURL(archive.getArchive()));
+            if ((archive.getHash() != null) && (!archive.getHash().isEmpty())) {
+                archive.setHash(relocate(archive.getHash(), source, target));
+                archive.setHashURL(UrlGenerator.getInstance()
+                        .getURL(archive.getHash()));
+            }
+        }
+        return archives;
+    }
+
+    /**
+     * Map a single local path from the source directory to the target
+     * directory.
+     *
+     * @param file The local path.
+     * @param source The original bundle directory.
+     * @param target The new bundle directory.
+     * @return The relocated local path.
+     */
+    private String relocate(String file, Path source, Path target) {
+        Path p = Paths.get(file);
+        if (p.startsWith(source)) {
+            return target.resolve(source.relativize(p)).toString();
+        }
+        return file;
+    }
+
+    /**
+     * Move a single bundle directory into the cold staging area.  When the
+     * cold staging area is on the same file store the directory is simply
+     * renamed.  Otherwise the directory is copied under a temporary name,
+     * renamed into place, the ARCHIVE_JOBS pointers are updated, and only
+     * then is the source removed.  The pointers therefore never reference
+     * a location that does not exist.
+     *
+     * @param source The bundle directory to move.
+     * @param cold The target directory within the cold staging area (i.e. 
+     * the cold staging directory or a date bucket beneath it).
+     * @return True if the bundle was moved.
+     */
+    private boolean move(Path source, Path cold) throws EJBLookupException {
+
+        boolean moved   = false;
+        Path    target  = cold.resolve(source.getFileName().toString());
+        Path    partial = cold.resolve(
+                source.getFileName().toString() + PARTIAL_SUFFIX);
+
+        if (Files.exists(target)) {
+            LOGGER.warn("Bundle [ "
+                    + target.toString()
+                    + " ] already exists in the cold staging area.  Bundle [ "
+                    + source.toString()
+                    + " ] will not be moved.");
+            return false;
+        }
+
+        try {
+            Files.createDirectories(cold);
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                moved = true;
+            }
+            catch (AtomicMoveNotSupportedException amnse) {
+                // Different file store, fall through to the copy.
+            }
+            catch (IOException ioe) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Unable to rename [ "
+                            + source.toString()
+                            + " ] into the cold staging area.  Falling "
+                            + "back to copy.  Exception message => [ "
+                            + ioe.getMessage()
+                            + " ].");
+                }
+            }
+
+            if (moved) {
+                if (!getJDBCArchiveService().updateArchiveLocations(
+                        relocate(source, target))) {
+                    LOGGER.error("Unable to update the archive locations "
+                            + "for bundle [ "
+                            + target.toString()
+                            + " ].  Moving the bundle back.");
+                    Files.move(target, source, StandardCopyOption.ATOMIC_MOVE);
+                    moved = false;
+                }
+            }
+            else {
+                if (Files.exists(partial)) {
+                    FileUtils.delete(partial.toFile());
+                }
+                copyTree(source, partial);
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+                if (getJDBCArchiveService().updateArchiveLocations(
+                        relocate(source, target))) {
+                    FileUtils.delete(source.toFile());
+                    moved = true;
+                }
+                else {
+                    LOGGER.error("Unable to update the archive locations "
+                            + "for bundle [ "
+                            + source.toString()
+                            + " ].  The cold copy will be removed.");
+                    FileUtils.delete(target.toFile());
+                }
+            }
+        }
+        catch (IOException ioe) {
+            LOGGER.error("Unexpected IOException raised while moving bundle [ "
+                    + source.toString()
+                    + " ] to the cold staging area.  Exception message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+            try {
+                FileUtils.delete(partial.toFile());
+            }
+            catch (IOException e) { }
+        }
+        return moved;
+    }
+
+    /**
+     * Public entry point for the session bean.  Move all bundles older than
+     * the tier age out of the hot staging directories into the cold staging
+     * directory.  Bundles residing in date buckets are moved into the same
+     * date bucket beneath the cold staging directory.
+     */
+    public void tier() {
+
+        long startTime = System.currentTimeMillis();
+        int  moved     = 0;
+
+        try {
+
+            URI coldDirectory = getDiskCleanupService().getColdDirectory();
+            if (coldDirectory == null) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Cold staging directory not defined.  "
+                            + "Tiering will not be performed.");
+                }
+                return;
+            }
+
+            Path cold = Paths.get(coldDirectory);
+            Files.createDirectories(cold);
+
+            LOGGER.info("Moving bundles older than [ "
+                    + getTierAfterDays()
+                    + " ] days to cold staging area [ "
+                    + coldDirectory.toString()
+                    + " ].");
+
+            for (URI staging : getDiskCleanupService()
+                    .getStagingDirectories()) {
+                Path root = Paths.get(staging);
+                for (Path p : getDiskCleanupService()
+                        .getBundleDirectories(staging)) {
+                    if (timeToMove(p)) {
+                        if (move(p, cold.resolve(
+                                root.relativize(p.getParent())))) {
+                            moved++;
+                            if (LOGGER.isDebugEnabled()) {
+                                LOGGER.debug("Moved bundle [ "
+                                        + p.toString()
+                                        + " ] to the cold staging area.");
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException ioe) {
+            LOGGER.error("Unable to create the cold staging area.  Exception "
+                    + "message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        catch (EJBLookupException ele) {
+            LOGGER.error("Unable to obtain a reference to [ "
+                    + ele.getEJBName()
+                    + " ].  Tiering will not be performed.");
+        }
+
+        LOGGER.info("Moved [ "
+                + moved
+                + " ] bundles to the cold staging area in [ "
+                + (System.currentTimeMillis() - startTime)
+                + " ] ms.");
+    }
+
+    /**
+     * Getter method for the age (in days) after which bundles are moved to
+     * the cold staging area.
+     * @return The tier age in days.
+     */
+    public int getTierAfterDays() {
+        return tierAfterDays;
+    }
+
+    /**
+     * Setter method for the age (in days) after which bundles are moved to
+     * the cold staging area.
+     */
+    private void setTierAfterDays() {
+
+        String value = null;
+
+        try {
+            value = getProperty(TIER_AFTER_DAYS_PROPERTY);
+            if ((value != null) && (!value.trim().isEmpty())) {
+                int days = Integer.parseInt(value.trim());
+                if (days > 0) {
+                    tierAfterDays = days;
+                }
+                else {
+                    LOGGER.warn("Invalid value for property [ "
+                            + TIER_AFTER_DAYS_PROPERTY
+                            + " ] => [ "
+                            + value
+                            + " ].  Using default value [ "
+                            + DEFAULT_TIER_AFTER_DAYS
+                            + " ].");
+                }
+            }
+        }
+        catch (NumberFormatException nfe) {
+            LOGGER.warn("Unable to parse property [ "
+                    + TIER_AFTER_DAYS_PROPERTY
+                    + " ] => [ "
+                    + value
+                    + " ].  Using default value [ "
+                    + DEFAULT_TIER_AFTER_DAYS
+                    + " ].");
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+}
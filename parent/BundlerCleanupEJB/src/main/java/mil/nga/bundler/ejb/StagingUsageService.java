@@ -0,0 +1,623 @@
+package mil.nga.bundler.ejb;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.LocalBean;
+import javax.ejb.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.FileNameGenerator;
+import mil.nga.bundler.ejb.exceptions.EJBLookupException;
+import mil.nga.bundler.ejb.jdbc.JDBCArchiveService;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.model.Archive;
+import mil.nga.bundler.model.StagedArchive;
+import mil.nga.bundler.model.UserUsage;
+import mil.nga.bundler.types.JobStateType;
+import mil.nga.util.FileUtils;
+
+/**
+ * Session Bean implementation class StagingUsageService
+ *
+ * Singleton maintaining the staging area usage attributed to each user
+ * (ARCHIVE_JOBS.ARCHIVE_SIZE joined with JOBS.USER_NAME).  The usage is
+ * maintained incrementally: each refresh only reads the ARCHIVE_JOBS
+ * records added since the previous refresh and drops the records that
+ * have aged past the disk retention period.  Only completed archives that
+ * still have an on-disk location are counted.  Archives still being built
+ * are remembered and re-read on each refresh until they reach a final
+ * state, and a re-read archive replaces the one previously counted so the
+ * totals follow its latest size.  When a user exceeds their
+ * configured quota, their oldest completed bundles are evicted until they
+ * are back under quota.  Evicted archives have their on-disk location
+ * cleared in ARCHIVE_JOBS and are never counted again.
+ *
+ * @author L. Craig Carpenter
+ */
+@Singleton
+@LocalBean
+public class StagingUsageService
+        extends PropertyLoader
+        implements BundlerConstantsI {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(StagingUsageService.class);
+
+    /**
+     * Number of primary keys below the watermark that are re-read on each
+     * refresh.  Sequence values are not necessarily committed in order, so
+     * this catches records that committed after a higher key was read.
+     */
+    private static final long WATERMARK_OVERLAP = 1000L;
+
+    /**
+     * Number of bytes in a MB (quota properties are defined in MB).
+     */
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    /**
+     * Handle to the interface associated with the ARCHIVE_JOBS table.
+     */
+    @EJB
+    JDBCArchiveService archiveService;
+
+    /**
+     * Handle to the disk cleanup service (owner of the staging directory
+     * configuration).
+     */
+    @EJB
+    DiskCleanupService diskCleanupService;
+
+    /**
+     * The staged archives currently accounted for, keyed by primary key.
+     */
+    private final Map<Long, StagedArchive> archives =
+            new TreeMap<Long, StagedArchive>();
+
+    /**
+     * Running total of the bytes attributed to each user.
+     */
+    private final Map<String, Long> usage = new HashMap<String, Long>();
+
+    /**
+     * Running count of the archives attributed to each user.
+     */
+    private final Map<String, Integer> counts = new HashMap<String, Integer>();
+
+    /**
+     * Primary keys of the archives evicted by this service that may still
+     * be re-read by a refresh (i.e. within the watermark overlap).
+     */
+    private final Set<Long> evictedIDs = new HashSet<Long>();
+
+    /**
+     * Archives read while still being built (primary key to start time).
+     * The oldest of these bounds the range re-read by each refresh.
+     */
+    private final TreeMap<Long, Long> pending = new TreeMap<Long, Long>();
+
+    /**
+     * Highest ARCHIVE_JOBS primary key read so far.
+     */
+    private long watermark = 0L;
+
+    /**
+     * Default quota (in bytes) applied to each user.  Zero for no quota.
+     */
+    private long defaultQuota = 0L;
+
+    /**
+     * Per-user quota overrides (in bytes).
+     */
+    private final Map<String, Long> quotas = new HashMap<String, Long>();
+
+    /**
+     * Default no-arg constructor.
+     */
+    public StagingUsageService() {
+        super(PROPERTY_FILE_NAME);
+    }
+
+    /**
+     * Initialization method used to read the quota properties.
+     */
+    @PostConstruct
+    public void init() {
+        setQuotas();
+    }
+
+    /**
+     * Private method used to obtain a reference to the target EJB.
+     * @return Reference to the JDBCArchiveService EJB.
+     */
+    private JDBCArchiveService getJDBCArchiveService()
+            throws EJBLookupException {
+        if (archiveService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + JDBCArchiveService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            archiveService = EJBClientUtilities
+                    .getInstance()
+                    .getJDBCArchiveService();
+        }
+        return archiveService;
+    }
+
+    /**
+     * Private method used to obtain a reference to the target EJB.
+     * @return Reference to the DiskCleanupService EJB.
+     */
+    private DiskCleanupService getDiskCleanupService()
+            throws EJBLookupException {
+        if (diskCleanupService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ "
+                    + DiskCleanupService.class.getName()
+                    + " ].  Attempting to look it up via JNDI.");
+            diskCleanupService = EJBClientUtilities
+                    .getInstance()
+                    .getDiskCleanupService();
+        }
+        return diskCleanupService;
+    }
+
+    /**
+     * Calculate the time before which bundles are removed by the disk
+     * cleanup process.
+     * @return The retention threshold time.
+     */
+    private long getRetentionTime() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH,
+                -DiskCleanupService.DELETE_DATA_OLDER_THAN);
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Add an archive to the running totals.  If the archive is already
+     * tracked the previous copy is removed first, so the totals reflect
+     * the size most recently read.
+     * @param archive The archive to add.
+     */
+    private void add(StagedArchive archive) {
+        StagedArchive previous = archives.get(archive.getID());
+        if (previous != null) {
+            remove(previous);
+        }
+        archives.put(archive.getID(), archive);
+        String user = archive.getUserName();
+        Long   size = usage.get(user);
+        usage.put(user, (size == null ? 0L : size) + archive.getSize());
+        Integer count = counts.get(user);
+        counts.put(user, (count == null ? 0 : count) + 1);
+    }
+
+    /**
+     * Remove an archive from the running totals.
+     * @param archive The archive to remove.
+     */
+    private void remove(StagedArchive archive) {
+        if (archives.remove(archive.getID()) != null) {
+            String user  = archive.getUserName();
+            long   size  = usage.get(user) - archive.getSize();
+            int    count = counts.get(user) - 1;
+            if (count <= 0) {
+                usage.remove(user);
+                counts.remove(user);
+            }
+            else {
+                usage.put(user, size);
+                counts.put(user, count);
+            }
+        }
+    }
+
+    /**
+     * Bring the usage totals up to date.  Records added since the last
+     * refresh are added, records that completed or changed since they were
+     * last read are replaced and records older than the disk retention 
+     * period are dropped.
+     */
+    @Lock(LockType.WRITE)
+    public void refresh() {
+
+        long start         = System.currentTimeMillis();
+        long retentionTime = getRetentionTime();
+        int  added         = archives.size();
+        long afterID       = watermark - WATERMARK_OVERLAP;
+
+        if (!pending.isEmpty()) {
+            afterID = Math.min(afterID, pending.firstKey() - 1L);
+        }
+
+        try {
+            for (StagedArchive archive : getJDBCArchiveService()
+                    .getStagedArchives(
+                            Math.max(0L, afterID),
+                            retentionTime)) {
+                if (evictedIDs.contains(archive.getID())) {
+                    pending.remove(archive.getID());
+                }
+                else if (archive.isStaged()) {
+                    pending.remove(archive.getID());
+                    add(archive);
+                }
+                else {
+                    StagedArchive tracked = archives.get(archive.getID());
+                    if (tracked != null) {
+                        remove(tracked);
+                    }
+                    if (archive.isPending()) {
+                        pending.put(archive.getID(), archive.getStartTime());
+                    }
+                    else {
+                        pending.remove(archive.getID());
+                    }
+                }
+                watermark = Math.max(watermark, archive.getID());
+            }
+        }
+        catch (EJBLookupException ele) {
+            LOGGER.error("Unable to obtain a reference to [ "
+                    + ele.getEJBName()
+                    + " ].  Staging usage will not be refreshed.");
+        }
+        added = archives.size() - added;
+
+        // Tombstones below the overlap window will never be re-read.
+        Iterator<Long> tombstones = evictedIDs.iterator();
+        while (tombstones.hasNext()) {
+            if (tombstones.next() <= (watermark - WATERMARK_OVERLAP)) {
+                tombstones.remove();
+            }
+        }
+
+        // Archives still being built past the retention period are no 
+        // longer read.
+        Iterator<Long> startTimes = pending.values().iterator();
+        while (startTimes.hasNext()) {
+            if (startTimes.next() <= retentionTime) {
+                startTimes.remove();
+            }
+        }
+
+        List<StagedArchive> expired = new ArrayList<StagedArchive>();
+        for (StagedArchive archive : archives.values()) {
+            if (archive.getStartTime() <= retentionTime) {
+                expired.add(archive);
+            }
+        }
+        for (StagedArchive archive : expired) {
+            remove(archive);
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Staging usage refreshed in [ "
+                    + (System.currentTimeMillis() - start)
+                    + " ] ms.  Added [ "
+                    + added
+                    + " ], expired [ "
+                    + expired.size()
+                    + " ], tracking [ "
+                    + archives.size()
+                    + " ] archives for [ "
+                    + usage.size()
+                    + " ] users, [ "
+                    + pending.size()
+                    + " ] archives pending.");
+        }
+    }
+
+    /**
+     * Get the current staging area usage of every user, largest first.
+     * The usage is refreshed prior to being returned.
+     *
+     * @return The usage of each user.
+     */
+    @Lock(LockType.WRITE)
+    public List<UserUsage> getUsage() {
+        refresh();
+        List<UserUsage> list = new ArrayList<UserUsage>();
+        for (Map.Entry<String, Long> entry : usage.entrySet()) {
+            list.add(new UserUsage(
+                    entry.getKey(),
+                    counts.get(entry.getKey()),
+                    entry.getValue(),
+                    getQuota(entry.getKey())));
+        }
+        Collections.sort(list, new Comparator<UserUsage>() {
+            @Override
+            public int compare(UserUsage u1, UserUsage u2) {
+                return Long.compare(u2.getTotalSize(), u1.getTotalSize());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * Get the quota applied to the input user.
+     *
+     * @param user The user name.
+     * @return The quota in bytes (zero for no quota).
+     */
+    public long getQuota(String user) {
+        Long quota = quotas.get(user);
+        return (quota != null ? quota : defaultQuota);
+    }
+
+    /**
+     * Evict the bundle directory containing a single staged archive.  The 
+     * current location and state of the archive are re-read from 
+     * ARCHIVE_JOBS (the bundle may have been moved to the cold staging 
+     * area).  Only completed archives residing in a bundle directory 
+     * directly beneath a managed staging directory (or one of its date 
+     * buckets) are removed.  The bundle directory holds every archive of 
+     * the job created in it, so all of them are removed together and their
+     * on-disk locations are cleared in ARCHIVE_JOBS.
+     *
+     * @param staged The archive to evict.
+     * @param managed The managed staging directories.
+     * @return The archives removed from disk (empty if the bundle was not
+     * evicted).
+     */
+    private List<Archive> evict(StagedArchive staged, List<Path> managed)
+            throws EJBLookupException {
+
+        List<Archive> evicted = new ArrayList<Archive>();
+        List<Archive> jobArchives = getJDBCArchiveService()
+                .getArchives(staged.getJobID());
+        Path          bundle  = null;
+
+        for (Archive archive : jobArchives) {
+            if (archive.getID() != staged.getID()) {
+                continue;
+            }
+            if (archive.getArchiveState() != JobStateType.COMPLETE) {
+                return evicted;
+            }
+            if ((archive.getArchive() == null)
+                    || (archive.getArchive().isEmpty())) {
+                return evicted;
+            }
+            bundle = Paths.get(archive.getArchive()).normalize().getParent();
+        }
+        if (bundle == null) {
+            return evicted;
+        }
+        if (!managed.contains(
+                FileNameGenerator.getStagingRoot(bundle.getParent()))) {
+            LOGGER.warn("Bundle [ "
+                    + bundle.toString()
+                    + " ] does not reside in a managed staging "
+                    + "directory.  Archive will not be evicted.");
+            return evicted;
+        }
+
+        for (Archive archive : jobArchives) {
+            if ((archive.getArchive() != null) 
+                    && (!archive.getArchive().isEmpty())
+                    && bundle.equals(Paths.get(archive.getArchive())
+                            .normalize().getParent())) {
+                evicted.add(archive);
+            }
+        }
+
+        try {
+            if (Files.exists(bundle)) {
+                LOGGER.info("Evicting bundle [ "
+                        + bundle.toString()
+                        + " ] containing [ "
+                        + evicted.size()
+                        + " ] archives owned by user [ "
+                        + staged.getUserName()
+                        + " ].");
+                FileUtils.delete(bundle.toFile());
+            }
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unexpected IOException while evicting bundle [ "
+                    + bundle.toString()
+                    + " ].  Exception message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+            return new ArrayList<Archive>();
+        }
+
+        for (Archive archive : evicted) {
+            archive.setArchive(null);
+            archive.setArchiveURL(null);
+            archive.setHash(null);
+            archive.setHashURL(null);
+        }
+        if (!getJDBCArchiveService().updateArchiveLocations(evicted)) {
+            LOGGER.error("Unable to clear the location of the archives "
+                    + "evicted from bundle [ "
+                    + bundle.toString()
+                    + " ].");
+        }
+        return evicted;
+    }
+
+    /**
+     * Public entry point for quota enforcement.  For each user over their
+     * quota, that user's oldest completed bundles are evicted until the
+     * user is back under quota.
+     */
+    @Lock(LockType.WRITE)
+    public void enforceQuotas() {
+
+        long start   = System.currentTimeMillis();
+        int  evicted = 0;
+
+        if ((defaultQuota <= 0) && (quotas.isEmpty())) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("No staging quotas defined.  Quota enforcement "
+                        + "will not be performed.");
+            }
+            return;
+        }
+
+        refresh();
+
+        try {
+
+            List<Path> managed = new ArrayList<Path>();
+            for (URI uri : getDiskCleanupService().getStagingDirectories()) {
+                managed.add(Paths.get(uri).normalize());
+            }
+            if (getDiskCleanupService().getColdDirectory() != null) {
+                managed.add(Paths.get(
+                        getDiskCleanupService().getColdDirectory())
+                        .normalize());
+            }
+
+            for (String user : new ArrayList<String>(usage.keySet())) {
+
+                long quota = getQuota(user);
+                if ((quota <= 0) || (usage.get(user) <= quota)) {
+                    continue;
+                }
+
+                LOGGER.info("User [ "
+                        + user
+                        + " ] is using [ "
+                        + FileUtils.humanReadableByteCount(
+                                usage.get(user), false)
+                        + " ] of a [ "
+                        + FileUtils.humanReadableByteCount(quota, false)
+                        + " ] quota.");
+
+                List<StagedArchive> owned = new ArrayList<StagedArchive>();
+                for (StagedArchive archive : archives.values()) {
+                    if (archive.getUserName().equals(user)) {
+                        owned.add(archive);
+                    }
+                }
+                Collections.sort(owned, new Comparator<StagedArchive>() {
+                    @Override
+                    public int compare(StagedArchive a1, StagedArchive a2) {
+                        return Long.compare(
+                                a1.getStartTime(), a2.getStartTime());
+                    }
+                });
+
+                Iterator<StagedArchive> iter = owned.iterator();
+                while (iter.hasNext() && usage.containsKey(user)
+                        && (usage.get(user) > quota)) {
+                    StagedArchive archive = iter.next();
+                    if (!archives.containsKey(archive.getID())) {
+                        // Already removed with an earlier archive of the job.
+                        continue;
+                    }
+                    for (Archive removed : evict(archive, managed)) {
+                        evictedIDs.add(removed.getID());
+                        StagedArchive tracked = archives.get(removed.getID());
+                        if (tracked != null) {
+                            remove(tracked);
+                        }
+                        evicted++;
+                    }
+                }
+            }
+        }
+        catch (EJBLookupException ele) {
+            LOGGER.error("Unable to obtain a reference to [ "
+                    + ele.getEJBName()
+                    + " ].  Quota enforcement will not be performed.");
+        }
+
+        LOGGER.info("Quota enforcement evicted [ "
+                + evicted
+                + " ] archives in [ "
+                + (System.currentTimeMillis() - start)
+                + " ] ms.");
+    }
+
+    /**
+     * Parse a single quota value (in MB).
+     *
+     * @param key The property name.
+     * @param value The property value.
+     * @return The quota in bytes, or -1 if the value is invalid.
+     */
+    private long parseQuota(String key, String value) {
+        try {
+            long quota = Long.parseLong(value.trim());
+            if (quota >= 0) {
+                return quota * BYTES_PER_MB;
+            }
+        }
+        catch (NumberFormatException nfe) { }
+        LOGGER.warn("Invalid value for property [ "
+                + key
+                + " ] => [ "
+                + value
+                + " ].  Property ignored.");
+        return -1L;
+    }
+
+    /**
+     * Setter method for the default and per-user quotas.
+     */
+    private void setQuotas() {
+        try {
+            Properties props = getProperties();
+            for (String key : props.stringPropertyNames()) {
+                String value = props.getProperty(key);
+                if ((value == null) || (value.trim().isEmpty())) {
+                    continue;
+                }
+                if (key.equals(USER_QUOTA_PROPERTY)) {
+                    long quota = parseQuota(key, value);
+                    if (quota >= 0) {
+                        defaultQuota = quota;
+                    }
+                }
+                else if (key.startsWith(USER_QUOTA_PROP_PREFIX)
+                        && (key.length() > USER_QUOTA_PROP_PREFIX.length())) {
+                    long quota = parseQuota(key, value);
+                    if (quota >= 0) {
+                        quotas.put(
+                                key.substring(USER_QUOTA_PROP_PREFIX.length()),
+                                quota);
+                    }
+                }
+            }
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            LOGGER.error("Unexpected PropertiesNotLoadedException raised while "
+                    + "attempting to obtain the system properties.  Please "
+                    + "check for the existance of property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ].");
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package mil.nga.bundler.ejb.disk;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.util.FileUtils;
+
+/**
+ * Thread-safe sink for the deletion events generated by the disk cleanup.
+ * Rather than logging a line for every deleted file and directory, events
+ * are aggregated and a summary record (counts, bytes, and the slowest
+ * deletions) is logged at most once per summary interval, plus a final
+ * record when the sink is closed.  Per-path detail is only logged when
+ * verbose output is requested (or DEBUG logging is enabled for this
+ * class).
+ *
+ * @author L. Craig Carpenter
+ */
+public class CleanupEventSink {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(CleanupEventSink.class);
+
+    /**
+     * Default time (in ms) between summary records.
+     */
+    public static final long DEFAULT_SUMMARY_INTERVAL = 60L * 1000L;
+
+    /**
+     * Number of slowest deletions included in each summary record.
+     */
+    public static final int NUM_SLOWEST = 5;
+
+    /**
+     * Name used to identify the sink in the summary records.
+     */
+    private final String name;
+
+    /**
+     * True if every deletion should be logged at INFO.
+     */
+    private final boolean verbose;
+
+    /**
+     * Time (in ms) between summary records.
+     */
+    private final long summaryInterval;
+
+    /**
+     * Time at which the sink was created.
+     */
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * Time at which the current interval started.
+     */
+    private long intervalStart = startTime;
+
+    /**
+     * Entries removed in the current interval.
+     */
+    private int intervalEntries = 0;
+
+    /**
+     * Bytes released in the current interval.
+     */
+    private long intervalBytes = 0L;
+
+    /**
+     * Entries removed since the sink was created.
+     */
+    private int totalEntries = 0;
+
+    /**
+     * Bytes released since the sink was created.
+     */
+    private long totalBytes = 0L;
+
+    /**
+     * The slowest deletions of the current interval (min-heap on elapsed
+     * time so the fastest of the retained events is evicted first).
+     */
+    private final PriorityQueue<Event> slowest = new PriorityQueue<Event>(
+            NUM_SLOWEST + 1,
+            new Comparator<Event>() {
+                @Override
+                public int compare(Event e1, Event e2) {
+                    return Long.compare(e1.elapsed, e2.elapsed);
+                }
+            });
+
+    /**
+     * Constructor.
+     *
+     * @param name Name used to identify the sink in the summary records.
+     * @param verbose True if every deletion should be logged.
+     */
+    public CleanupEventSink(String name, boolean verbose) {
+        this(name, verbose, DEFAULT_SUMMARY_INTERVAL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name Name used to identify the sink in the summary records.
+     * @param verbose True if every deletion should be logged.
+     * @param summaryInterval Time (in ms) between summary records.
+     */
+    public CleanupEventSink(
+            String  name,
+            boolean verbose,
+            long    summaryInterval) {
+        this.name            = name;
+        this.verbose         = verbose;
+        this.summaryInterval = summaryInterval;
+    }
+
+    /**
+     * Record the removal of a single entry.
+     *
+     * @param path The entry removed.
+     * @param bytes The number of bytes released.
+     * @param elapsed The time (in ms) taken to remove the entry.
+     */
+    public void record(Path path, long bytes, long elapsed) {
+
+        if (verbose) {
+            LOGGER.info("Deleted [ "
+                    + path.toUri().toString()
+                    + " ] reclaiming [ "
+                    + bytes
+                    + " ] bytes in [ "
+                    + elapsed
+                    + " ] ms.");
+        }
+        else if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Deleted [ "
+                    + path.toUri().toString()
+                    + " ] reclaiming [ "
+                    + bytes
+                    + " ] bytes in [ "
+                    + elapsed
+                    + " ] ms.");
+        }
+
+        String summary = null;
+        synchronized (this) {
+            intervalEntries++;
+            intervalBytes += bytes;
+            totalEntries++;
+            totalBytes    += bytes;
+            slowest.add(new Event(path, elapsed));
+            if (slowest.size() > NUM_SLOWEST) {
+                slowest.poll();
+            }
+            long now = System.currentTimeMillis();
+            if ((now - intervalStart) >= summaryInterval) {
+                summary = getIntervalSummary(now);
+            }
+        }
+        // Log outside of the lock so workers never wait on the appender.
+        if (summary != null) {
+            LOGGER.info(summary);
+        }
+    }
+
+    /**
+     * Build the summary record for the current interval and start a new
+     * interval.  Must be called while holding the lock.
+     *
+     * @param now The current time.
+     * @return The summary record.
+     */
+    private String getIntervalSummary(long now) {
+
+        List<Event> events = new ArrayList<Event>(slowest);
+        Collections.sort(events, Collections.reverseOrder(
+                slowest.comparator()));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Cleanup of [ ");
+        sb.append(name);
+        sb.append(" ] removed [ ");
+        sb.append(intervalEntries);
+        sb.append(" ] entries reclaiming [ ");
+        sb.append(FileUtils.humanReadableByteCount(intervalBytes, false));
+        sb.append(" ] in the last [ ");
+        sb.append(now - intervalStart);
+        sb.append(" ] ms.  Slowest => ");
+        sb.append(events.toString());
+
+        intervalStart   = now;
+        intervalEntries = 0;
+        intervalBytes   = 0L;
+        slowest.clear();
+        return sb.toString();
+    }
+
+    /**
+     * Log the summary of any events not yet reported along with the totals
+     * for the life of the sink.
+     */
+    public void close() {
+        String summary = null;
+        synchronized (this) {
+            if (intervalEntries > 0) {
+                summary = getIntervalSummary(System.currentTimeMillis());
+            }
+        }
+        if (summary != null) {
+            LOGGER.info(summary);
+        }
+        LOGGER.info("Cleanup of [ "
+                + name
+                + " ] removed a total of [ "
+                + getTotalEntries()
+                + " ] entries reclaiming [ "
+                + FileUtils.humanReadableByteCount(getTotalBytes(), false)
+                + " ] in [ "
+                + (System.currentTimeMillis() - startTime)
+                + " ] ms.");
+    }
+
+    /**
+     * Getter method for the number of bytes released since the sink was
+     * created.
+     * @return The number of bytes released.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Getter method for the number of entries removed since the sink was
+     * created.
+     * @return The number of entries removed.
+     */
+    public synchronized int getTotalEntries() {
+        return totalEntries;
+    }
+
+    /**
+     * Simple class holding a single deletion event.
+     */
+    private static class Event {
+
+        /**
+         * The entry removed.
+         */
+        private final Path path;
+
+        /**
+         * The time (in ms) taken to remove the entry.
+         */
+        private final long elapsed;
+
+        /**
+         * Default constructor requiring all fields.
+         * @param path The entry removed.
+         * @param elapsed The time taken to remove the entry.
+         */
+        Event(Path path, long elapsed) {
+            this.path    = path;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Convert the object to string representation for logging purposes.
+         */
+        @Override
+        public String toString() {
+            return path.toString() + " (" + elapsed + " ms)";
+        }
+    }
+}
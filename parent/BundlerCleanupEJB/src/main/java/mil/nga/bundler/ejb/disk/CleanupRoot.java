@@ -0,0 +1,81 @@
+package mil.nga.bundler.ejb.disk;
+
+import java.net.URI;
+
+/**
+ * Simple class identifying a single on-disk location managed by the disk
+ * cleanup process.  Staging roots contain one sub-directory per bundler
+ * job which must be removed recursively.  The request log root contains
+ * flat files that are removed individually.
+ *
+ * @author L. Craig Carpenter
+ */
+public class CleanupRoot {
+
+    /**
+     * The location of the cleanup root.
+     */
+    private final URI uri;
+
+    /**
+     * True if the expired entries should be deleted recursively.
+     */
+    private final boolean recursive;
+
+    /**
+     * Description used for logging purposes.
+     */
+    private final String description;
+
+    /**
+     * Default constructor requiring all fields.
+     *
+     * @param uri The location of the cleanup root.
+     * @param recursive True if expired entries are directories that should
+     * be removed recursively.
+     * @param description Description used for logging purposes.
+     */
+    public CleanupRoot(URI uri, boolean recursive, String description) {
+        this.uri         = uri;
+        this.recursive   = recursive;
+        this.description = description;
+    }
+
+    /**
+     * Getter method for the description of the cleanup root.
+     * @return Description used for logging purposes.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Getter method for the location of the cleanup root.
+     * @return The location of the cleanup root.
+     */
+    public URI getURI() {
+        return uri;
+    }
+
+    /**
+     * Getter method determining whether expired entries are removed
+     * recursively.
+     * @return True if expired entries are directories.
+     */
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getDescription());
+        sb.append(" [ ");
+        sb.append(getURI());
+        sb.append(" ]");
+        return sb.toString();
+    }
+}
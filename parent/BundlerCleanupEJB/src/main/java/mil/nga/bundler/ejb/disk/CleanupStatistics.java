@@ -0,0 +1,51 @@
+package mil.nga.bundler.ejb.disk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe accumulator for the statistics associated with the cleanup
+ * of a single cleanup root.  Updated concurrently by the worker threads of
+ * a <code>FileStoreWorkerGroup</code>.
+ *
+ * @author L. Craig Carpenter
+ */
+public class CleanupStatistics {
+
+    /**
+     * The number of top-level entries removed.
+     */
+    private final AtomicInteger entries = new AtomicInteger(0);
+
+    /**
+     * The number of bytes actually released.  Files that are still
+     * referenced by another hard link do not release any space.
+     */
+    private final AtomicLong bytesReclaimed = new AtomicLong(0L);
+
+    /**
+     * Record the removal of a single top-level entry.
+     *
+     * @param bytes The number of bytes released by the removal.
+     */
+    public void add(long bytes) {
+        entries.incrementAndGet();
+        bytesReclaimed.addAndGet(bytes);
+    }
+
+    /**
+     * Getter method for the number of bytes released.
+     * @return The number of bytes released.
+     */
+    public long getBytesReclaimed() {
+        return bytesReclaimed.get();
+    }
+
+    /**
+     * Getter method for the number of top-level entries removed.
+     * @return The number of entries removed.
+     */
+    public int getEntries() {
+        return entries.get();
+    }
+}
@@ -0,0 +1,203 @@
+package mil.nga.bundler.ejb.disk;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mil.nga.bundler.ejb.DiskCleanupService;
+
+/**
+ * Fork/join task that recursively deletes a single directory tree.  Each
+ * sub-directory is deleted by its own subtask and large runs of files are
+ * split into batches, so a single huge bundle (e.g. a CADRG or tile
+ * extract containing hundreds of thousands of files) keeps every worker
+ * of the file store's pool busy.  A directory is removed only after all
+ * of its subtasks have completed.
+ *
+ * When invoked from a <code>FileStoreWorkerGroup</code> worker thread the
+ * subtasks run in that group's pool, so the per-file store thread cap is
+ * preserved.
+ *
+ * @author L. Craig Carpenter
+ */
+public class DeleteTreeAction extends RecursiveAction {
+
+    /**
+     * Eclipse-generated serialVersionUID
+     */
+    private static final long serialVersionUID = 5528062405786913125L;
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(DeleteTreeAction.class);
+
+    /**
+     * Number of files deleted by a single task before the remainder of a
+     * directory is split off into a separate subtask.
+     */
+    public static final int FILE_BATCH_SIZE = 1000;
+
+    /**
+     * The directory to delete (null for a batch of files).
+     */
+    private final Path dir;
+
+    /**
+     * Batch of files to delete (null for a directory).
+     */
+    private final List<Path> files;
+
+    /**
+     * Attributes of each file in the batch (read once while listing).
+     */
+    private final List<EntryAttributes> attrs;
+
+    /**
+     * Accumulator for the number of bytes released.
+     */
+    private final AtomicLong bytes;
+
+    /**
+     * Constructor used to delete a directory tree.
+     *
+     * @param dir The directory to delete.
+     * @param bytes Accumulator for the number of bytes released.
+     */
+    public DeleteTreeAction(Path dir, AtomicLong bytes) {
+        this.dir   = dir;
+        this.files = null;
+        this.attrs = null;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Constructor used to delete a batch of files.
+     *
+     * @param files The files to delete.
+     * @param attrs The attributes of each file.
+     * @param bytes Accumulator for the number of bytes released.
+     */
+    private DeleteTreeAction(
+            List<Path> files, 
+            List<EntryAttributes> attrs, 
+            AtomicLong bytes) {
+        this.dir   = null;
+        this.files = files;
+        this.attrs = attrs;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Delete the files in the batch.
+     */
+    private void deleteFiles() {
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            try {
+                long size = DiskCleanupService.getReclaimableBytes(
+                        attrs.get(i));
+                Files.delete(file);
+                bytes.addAndGet(size);
+            }
+            catch (IOException ioe) {
+                LOGGER.warn("Unexpected IOException while removing file [ "
+                        + file.toString()
+                        + " ].  Exception message => [ "
+                        + ioe.getMessage()
+                        + " ].");
+            }
+        }
+    }
+
+    /**
+     * Delete the directory.  Sub-directories and batches of files beyond
+     * the first are forked as subtasks.  The first batch of files is
+     * deleted by the current task while the subtasks run.
+     */
+    private void deleteDirectory() {
+
+        List<DeleteTreeAction> subtasks = new ArrayList<DeleteTreeAction>();
+        List<Path>             batch    = new ArrayList<Path>();
+        List<EntryAttributes>  attrs    = new ArrayList<EntryAttributes>();
+        DeleteTreeAction       local    = null;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                EntryAttributes a = EntryAttributes.read(p);
+                if (a.isDirectory()) {
+                    subtasks.add(new DeleteTreeAction(p, bytes));
+                }
+                else {
+                    batch.add(p);
+                    attrs.add(a);
+                    if (batch.size() == FILE_BATCH_SIZE) {
+                        if (local == null) {
+                            local = new DeleteTreeAction(batch, attrs, bytes);
+                        }
+                        else {
+                            subtasks.add(
+                                    new DeleteTreeAction(batch, attrs, bytes));
+                        }
+                        batch = new ArrayList<Path>();
+                        attrs = new ArrayList<EntryAttributes>();
+                    }
+                }
+            }
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unexpected IOException while listing directory [ "
+                    + dir.toString()
+                    + " ].  Exception message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+        if (local == null) {
+            local = new DeleteTreeAction(batch, attrs, bytes);
+        }
+        else if (batch.size() > 0) {
+            subtasks.add(new DeleteTreeAction(batch, attrs, bytes));
+        }
+
+        for (DeleteTreeAction subtask : subtasks) {
+            subtask.fork();
+        }
+        local.deleteFiles();
+        for (DeleteTreeAction subtask : subtasks) {
+            subtask.join();
+        }
+
+        try {
+            Files.delete(dir);
+        }
+        catch (IOException ioe) {
+            LOGGER.warn("Unexpected IOException while removing directory [ "
+                    + dir.toString()
+                    + " ].  Exception message => [ "
+                    + ioe.getMessage()
+                    + " ].");
+        }
+    }
+
+    /**
+     * Fork/join entry point.
+     */
+    @Override
+    protected void compute() {
+        if (dir != null) {
+            deleteDirectory();
+        }
+        else {
+            deleteFiles();
+        }
+    }
+}
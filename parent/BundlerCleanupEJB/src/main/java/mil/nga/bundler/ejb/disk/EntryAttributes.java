@@ -0,0 +1,201 @@
+package mil.nga.bundler.ejb.disk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+/**
+ * The attributes of a single entry read during the cleanup.  On platforms
+ * supporting the <code>unix</code> attribute view the basic attributes 
+ * and the hard link count are obtained with a single 
+ * <code>readAttributes</code> call (i.e. a single <code>lstat</code>), so
+ * the size accounting of hard-linked archives does not require a second
+ * metadata round trip (significant on NFS).  On other platforms only the
+ * basic attributes are read and the link count is assumed to be 1.
+ * 
+ * Symbolic links are never followed.
+ *
+ * @author L. Craig Carpenter
+ */
+public class EntryAttributes implements BasicFileAttributes {
+
+    /**
+     * The attributes requested from the <code>unix</code> view.
+     */
+    private static final String UNIX_ATTRIBUTES = "unix:size,nlink,"
+            + "creationTime,lastModifiedTime,lastAccessTime,isRegularFile,"
+            + "isDirectory,isSymbolicLink,isOther,fileKey";
+
+    /**
+     * Set to false the first time the <code>unix</code> view is found to
+     * be unsupported so the failing call is not repeated for every entry.
+     */
+    private static volatile boolean unixSupported = true;
+
+    /**
+     * Size of the entry in bytes.
+     */
+    private final long size;
+
+    /**
+     * Number of hard links referencing the entry (1 if unknown).
+     */
+    private final int linkCount;
+
+    /**
+     * Creation time of the entry.
+     */
+    private final FileTime creationTime;
+
+    /**
+     * Last modification time of the entry.
+     */
+    private final FileTime lastModifiedTime;
+
+    /**
+     * Last access time of the entry.
+     */
+    private final FileTime lastAccessTime;
+
+    /**
+     * True if the entry is a regular file.
+     */
+    private final boolean regularFile;
+
+    /**
+     * True if the entry is a directory.
+     */
+    private final boolean directory;
+
+    /**
+     * True if the entry is a symbolic link (links are not followed).
+     */
+    private final boolean symbolicLink;
+
+    /**
+     * True if the entry is something other than a file, directory or link.
+     */
+    private final boolean other;
+
+    /**
+     * Object uniquely identifying the entry (e.g. device and inode), or 
+     * null if not available.
+     */
+    private final Object fileKey;
+
+    /**
+     * Constructor used when the <code>unix</code> view is supported.
+     * 
+     * @param values The attribute values keyed by attribute name.
+     */
+    private EntryAttributes(Map<String, Object> values) {
+        size             = ((Number)values.get("size")).longValue();
+        linkCount        = ((Number)values.get("nlink")).intValue();
+        creationTime     = (FileTime)values.get("creationTime");
+        lastModifiedTime = (FileTime)values.get("lastModifiedTime");
+        lastAccessTime   = (FileTime)values.get("lastAccessTime");
+        regularFile      = (Boolean)values.get("isRegularFile");
+        directory        = (Boolean)values.get("isDirectory");
+        symbolicLink     = (Boolean)values.get("isSymbolicLink");
+        other            = (Boolean)values.get("isOther");
+        fileKey          = values.get("fileKey");
+    }
+
+    /**
+     * Constructor used when only the basic attributes are available.
+     * 
+     * @param attrs The basic attributes.
+     */
+    private EntryAttributes(BasicFileAttributes attrs) {
+        size             = attrs.size();
+        linkCount        = 1;
+        creationTime     = attrs.creationTime();
+        lastModifiedTime = attrs.lastModifiedTime();
+        lastAccessTime   = attrs.lastAccessTime();
+        regularFile      = attrs.isRegularFile();
+        directory        = attrs.isDirectory();
+        symbolicLink     = attrs.isSymbolicLink();
+        other            = attrs.isOther();
+        fileKey          = attrs.fileKey();
+    }
+
+    /**
+     * Read the attributes of the input entry with a single metadata call.
+     * 
+     * @param p The entry.
+     * @return The attributes of the entry.
+     * @throws IOException Thrown if the attributes could not be read (e.g.
+     * the entry has been removed).
+     */
+    public static EntryAttributes read(Path p) throws IOException {
+        if (unixSupported) {
+            try {
+                return new EntryAttributes(Files.readAttributes(
+                        p, UNIX_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS));
+            }
+            catch (UnsupportedOperationException 
+                    | IllegalArgumentException e) {
+                unixSupported = false;
+            }
+        }
+        return new EntryAttributes(Files.readAttributes(
+                p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    /**
+     * Getter method for the number of hard links referencing the entry.
+     * @return The link count (1 if it could not be determined).
+     */
+    public int getLinkCount() {
+        return linkCount;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+        return lastAccessTime;
+    }
+
+    @Override
+    public FileTime creationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+        return regularFile;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+        return symbolicLink;
+    }
+
+    @Override
+    public boolean isOther() {
+        return other;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public Object fileKey() {
+        return fileKey;
+    }
+}
@@ -0,0 +1,189 @@
+package mil.nga.bundler.ejb.disk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class grouping all of the cleanup roots that reside on a single file
+ * store (i.e. a single local mount or NFS export).  Each group owns its
+ * own bounded pool of worker threads so that the cleanup of one file store
+ * never waits on another, while the number of concurrent operations
+ * executed against any one file store is capped.
+ * 
+ * The pool is a fork/join pool whose parallelism is the thread cap.  
+ * Recursive deletes forked by a worker (see <code>DeleteTreeAction</code>)
+ * are therefore shared among the group's idle workers rather than running
+ * on a single thread.
+ * 
+ * The worker threads are not managed by the container (a fork/join pool
+ * cannot use a <code>ManagedThreadFactory</code>), so the work submitted 
+ * to a group must be limited to file system operations.  Work requiring
+ * container services (EJBs, datasources, transactions) must be performed
+ * by the calling thread.  A group (and its pool) lives for a single 
+ * cleanup run.
+ *
+ * @author L. Craig Carpenter
+ */
+public class FileStoreWorkerGroup {
+
+    /**
+     * Set up the Log4j system for use throughout the class
+     */
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(FileStoreWorkerGroup.class);
+
+    /**
+     * The name of the file store (used for logging and thread names).
+     */
+    private final String name;
+
+    /**
+     * Maximum number of concurrent worker threads.
+     */
+    private final int maxThreads;
+
+    /**
+     * The cleanup roots residing on the target file store.
+     */
+    private final List<CleanupRoot> roots = new ArrayList<CleanupRoot>();
+
+    /**
+     * The worker pool.  Created when the group is started.
+     */
+    private ForkJoinPool workers = null;
+
+    /**
+     * Default constructor.
+     *
+     * @param name The name of the file store.
+     * @param maxThreads The maximum number of concurrent workers allowed
+     * to operate on the file store.
+     */
+    public FileStoreWorkerGroup(String name, int maxThreads) {
+        this.name       = name;
+        this.maxThreads = (maxThreads > 0 ? maxThreads : 1);
+    }
+
+    /**
+     * Add a cleanup root to the group.
+     * @param root A cleanup root residing on the target file store.
+     */
+    public void add(CleanupRoot root) {
+        if (root != null) {
+            roots.add(root);
+        }
+    }
+
+    /**
+     * Getter method for the name of the file store.
+     * @return The name of the file store.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter method for the maximum number of concurrent workers.
+     * @return The maximum number of concurrent workers.
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Getter method for the list of cleanup roots in the group.
+     * @return The cleanup roots residing on the target file store.
+     */
+    public List<CleanupRoot> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Start the worker pool associated with the file store.
+     */
+    public synchronized void start() {
+        if (workers == null) {
+            final String        prefix  = "cleanup-" + name + "-";
+            final AtomicInteger counter = new AtomicInteger(0);
+            workers = new ForkJoinPool(
+                    maxThreads,
+                    new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        @Override
+                        public ForkJoinWorkerThread newThread(
+                                ForkJoinPool pool) {
+                            ForkJoinWorkerThread t = ForkJoinPool
+                                    .defaultForkJoinWorkerThreadFactory
+                                    .newThread(pool);
+                            t.setName(prefix + counter.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    },
+                    null,
+                    false);
+        }
+    }
+
+    /**
+     * Submit a unit of work to be executed against the file store.
+     *
+     * @param task The work to execute.
+     */
+    public void submit(Runnable task) {
+        if (workers == null) {
+            start();
+        }
+        workers.execute(task);
+    }
+
+    /**
+     * Block until all previously submitted work has completed and release
+     * the worker threads.
+     */
+    public synchronized void awaitCompletion() {
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Waiting on cleanup workers for file "
+                                + "store [ "
+                                + name
+                                + " ].");
+                    }
+                }
+            }
+            catch (InterruptedException ie) {
+                LOGGER.warn("Interrupted while waiting on cleanup workers "
+                        + "for file store [ "
+                        + name
+                        + " ].  Outstanding work will be cancelled.");
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            workers = null;
+        }
+    }
+
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("File store => [ ");
+        sb.append(getName());
+        sb.append(" ], Max threads => [ ");
+        sb.append(getMaxThreads());
+        sb.append(" ], Roots => ");
+        sb.append(getRoots());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package mil.nga.bundler.ejb.disk;
+
+import java.nio.file.Path;
+
+/**
+ * Simple class pairing an entry of a cleanup root with the attributes
+ * read while the root was listed.  The attributes are carried through the
+ * expiry decision, the size accounting, and the deletion so that each
+ * entry costs a single metadata round trip (significant on NFS).
+ *
+ * @author L. Craig Carpenter
+ */
+public class StagingEntry {
+
+    /**
+     * The location of the entry.
+     */
+    private final Path path;
+
+    /**
+     * The attributes of the entry at the time it was listed.
+     */
+    private final EntryAttributes attributes;
+
+    /**
+     * Default constructor requiring all fields.
+     *
+     * @param path The location of the entry.
+     * @param attributes The attributes of the entry.
+     */
+    public StagingEntry(Path path, EntryAttributes attributes) {
+        this.path       = path;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Getter method for the attributes of the entry.
+     * @return The attributes read when the entry was listed.
+     */
+    public EntryAttributes getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Getter method for the location of the entry.
+     * @return The location of the entry.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        return path.toUri().toString();
+    }
+}
@@ -0,0 +1,192 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes a bulk delete as a series of bounded chunks so that a large
+ * backlog (e.g. millions of FILE_ENTRY rows after an outage) never
+ * generates a single huge transaction.  Each chunk is a separate statement
+ * execution limited by a row count parameter (i.e. <code>rownum &lt;= ?</code>)
+ * and is committed on its own.  The executor pauses between chunks so that
+ * the bundler's inserts into the same tables are not starved.
+ *
+ * The chunk size adapts to the observed statement latency.  A chunk that
+ * takes longer than the target latency halves the chunk size (bounded by
+ * <code>MIN_CHUNK_SIZE</code>); a chunk that completes in less than half
+ * of the target latency grows it by 50% (bounded by the configured
+ * maximum).  The adapted chunk size is retained between calls so a single
+ * executor may be reused for several tables during one cleanup run.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author L. Craig Carpenter
+ */
+public class ChunkedDeleteExecutor {
+
+    /**
+     * Set up the logging system for use throughout the class
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            ChunkedDeleteExecutor.class);
+
+    /**
+     * Smallest chunk size the executor will adapt down to.
+     */
+    public static final int MIN_CHUNK_SIZE = 100;
+
+    /**
+     * Maximum number of rows deleted per statement.
+     */
+    private final int maxChunkSize;
+
+    /**
+     * Time (in ms) to pause between chunks.
+     */
+    private final long pause;
+
+    /**
+     * Target time (in ms) for the execution of a single chunk.
+     */
+    private final long targetLatency;
+
+    /**
+     * Current chunk size.
+     */
+    private int chunkSize;
+
+    /**
+     * Constructor.
+     *
+     * @param maxChunkSize Maximum number of rows deleted per statement.
+     * @param pause Time (in ms) to pause between chunks.
+     * @param targetLatency Target time (in ms) for a single chunk.
+     */
+    public ChunkedDeleteExecutor(
+            int  maxChunkSize,
+            long pause,
+            long targetLatency) {
+        this.maxChunkSize  = Math.max(1, maxChunkSize);
+        this.pause         = Math.max(0L, pause);
+        this.targetLatency = Math.max(1L, targetLatency);
+        this.chunkSize     = this.maxChunkSize;
+    }
+
+    /**
+     * Adjust the chunk size based on the latency of the last chunk.
+     *
+     * @param elapsed The time (in ms) taken by the last chunk.
+     */
+    private void adapt(long elapsed) {
+        int previous = chunkSize;
+        if (elapsed > targetLatency) {
+            chunkSize = Math.max(
+                    Math.min(MIN_CHUNK_SIZE, maxChunkSize),
+                    chunkSize / 2);
+        }
+        else if (elapsed < (targetLatency / 2)) {
+            chunkSize = (int)Math.min(
+                    (long)maxChunkSize,
+                    chunkSize + Math.max(1L, chunkSize / 2L));
+        }
+        if ((chunkSize != previous) && (LOGGER.isDebugEnabled())) {
+            LOGGER.debug("Chunk of [ "
+                    + previous
+                    + " ] rows completed in [ "
+                    + elapsed
+                    + " ] ms (target [ "
+                    + targetLatency
+                    + " ] ms).  Chunk size adjusted to [ "
+                    + chunkSize
+                    + " ].");
+        }
+    }
+
+    /**
+     * Execute the input delete statement repeatedly until a chunk deletes
+     * fewer rows than were requested.  All parameters other than the row
+     * limit must be bound by the caller.  The connection must have
+     * auto-commit disabled; each chunk is committed by this method.
+     *
+     * @param conn The connection on which the statement was prepared.
+     * @param stmt The delete statement.
+     * @param limitIndex Index of the row limit parameter.
+     * @return The total number of rows deleted.
+     * @throws SQLException Thrown if a chunk failed.  Chunks completed
+     * prior to the failure remain committed.
+     */
+    public int execute(
+            Connection        conn,
+            PreparedStatement stmt,
+            int               limitIndex) throws SQLException {
+
+        int total   = 0;
+        int deleted = 0;
+        int limit   = 0;
+
+        do {
+            limit = chunkSize;
+            long start = System.currentTimeMillis();
+            stmt.setInt(limitIndex, limit);
+            deleted = stmt.executeUpdate();
+
+            // Note: If the container Datasource has jta=true this will throw
+            // an exception.
+            conn.commit();
+            total += deleted;
+            adapt(System.currentTimeMillis() - start);
+
+            if ((deleted >= limit) && (pause > 0)) {
+                try {
+                    Thread.sleep(pause);
+                }
+                catch (InterruptedException ie) {
+                    LOGGER.warn("Interrupted while pausing between chunks.  "
+                            + "[ "
+                            + total
+                            + " ] rows were deleted.");
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } while (deleted >= limit);
+
+        return total;
+    }
+
+    /**
+     * Getter method for the current (adapted) chunk size.
+     * @return The number of rows the next chunk will request.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Getter method for the maximum number of rows deleted per statement.
+     * @return The maximum chunk size.
+     */
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        return "ChunkedDeleteExecutor => [ max_chunk_size => "
+                + maxChunkSize
+                + ", chunk_size => "
+                + chunkSize
+                + ", pause => "
+                + pause
+                + ", target_latency => "
+                + targetLatency
+                + " ]";
+    }
+}
@@ -5,6 +5,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.annotation.Resource;
@@ -17,6 +18,7 @@ import mil.nga.bundler.ejb.EJBClientUtilities;
 import mil.nga.bundler.ejb.exceptions.EJBLookupException;
 import mil.nga.bundler.model.Archive;
 import mil.nga.bundler.model.FileEntry;
+import mil.nga.bundler.model.StagedArchive;
 import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.types.JobStateType;
 
@@ -42,6 +44,13 @@ public class JDBCArchiveService {
      */
     private static final String TABLE_NAME = "ARCHIVE_JOBS";
     
+    /**
+     * Maximum number of deletes issued in a single JDBC batch (and 
+     * committed together).
+     */
+    private static final int DELETE_BATCH_SIZE = 
+            JDBCFileService.DELETE_BATCH_SIZE;
+    
     /**
      * Set up the logging system for use throughout the class
      */        
@@ -64,6 +73,21 @@ public class JDBCArchiveService {
      * Default Eclipse-generated constructor. 
      */
     public JDBCArchiveService() { }
+    
+    /**
+     * Constructor used outside of the container (e.g. by a test or 
+     * benchmark harness) to supply the datasource and the FILE_ENTRY 
+     * service directly rather than via injection or JNDI.
+     * 
+     * @param datasource The datasource containing the ARCHIVE_JOBS table.
+     * @param jdbcFileService Service for the FILE_ENTRY table.
+     */
+    public JDBCArchiveService(
+            DataSource      datasource, 
+            JDBCFileService jdbcFileService) { 
+        this.datasource      = datasource;
+        this.jdbcFileService = jdbcFileService;
+    }
 
     /**
      * Private method used to obtain a reference to the target EJB.  
@@ -431,6 +455,242 @@ public class JDBCArchiveService {
         }    
     }
     
+    /**
+     * Delete all of the Archives and FileEntry objects associated with any
+     * of the input job IDs.  The child FILE_ENTRY records are removed first
+     * (see <code>JDBCFileService.deleteFiles(Collection)</code>), then the 
+     * ARCHIVE_JOBS deletes are issued as JDBC batches on a single 
+     * connection with one commit per <code>DELETE_BATCH_SIZE</code> job 
+     * IDs.
+     * 
+     * @param jobIDs The job IDs requested (null or empty entries are 
+     * skipped).
+     */
+    public void deepDeleteArchives(Collection<String> jobIDs) {
+        
+        Connection        conn    = null;
+        PreparedStatement stmt    = null;
+        int               batched = 0;
+        int               total   = 0;
+        long              start   = System.currentTimeMillis();
+        String            sql     = "delete from " 
+                + TABLE_NAME
+                + " where JOB_ID = ?";
+        
+        if (datasource != null) {
+            if ((jobIDs != null) && (jobIDs.size() > 0)) {
+                
+                try { 
+                    
+                    // First, delete the child FILE_ENTRY records
+                    getJDBCFileService().deleteFiles(jobIDs);
+                    
+                    conn = datasource.getConnection();
+                    
+                    // Note: If the container Datasource has jta=true this will throw
+                    // an exception.
+                    conn.setAutoCommit(false);
+                    
+                    stmt = conn.prepareStatement(sql);
+                    for (String jobID : jobIDs) {
+                        if ((jobID != null) && (!jobID.isEmpty())) {
+                            stmt.setString(1, jobID);
+                            stmt.addBatch();
+                            batched++;
+                            if (batched == DELETE_BATCH_SIZE) {
+                                stmt.executeBatch();
+                                
+                                // Note: If the container Datasource has jta=true this will throw
+                                // an exception.
+                                conn.commit();
+                                total  += batched;
+                                batched = 0;
+                            }
+                        }
+                        else {
+                            LOGGER.warn("Invalid job ID [ "
+                                    + jobID
+                                    + " ] skipped.");
+                        }
+                    }
+                    if (batched > 0) {
+                        stmt.executeBatch();
+                        
+                        // Note: If the container Datasource has jta=true this will throw
+                        // an exception.
+                        conn.commit();
+                        total  += batched;
+                        batched = 0;
+                    }
+                }
+                catch (EJBLookupException ele) {
+                    LOGGER.error("Unable to obtain a reference to [ "
+                            + ele.getEJBName()
+                            + " ].  Batched delete of [ "
+                            + TABLE_NAME
+                            + " ] records will not be performed.");
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised "
+                            + "while attempting to batch delete [ "
+                            + TABLE_NAME
+                            + " ] records.  [ "
+                            + total
+                            + " ] of [ "
+                            + jobIDs.size()
+                            + " ] deletes were committed prior to the "
+                            + "error.  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                    try { 
+                        if (conn != null) { conn.rollback(); } 
+                    } catch (Exception e) {}
+                }
+                finally {
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {} 
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "Records will not be deleted.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + total
+                    + " ] batched [ "
+                    + TABLE_NAME 
+                    + " ] deletes completed in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+    }
+    
+    /**
+     * Delete all individual archives (and their FileEntry objects) that 
+     * match the archive ID and job ID of any of the input archives.  The 
+     * child FILE_ENTRY records are removed first, then the ARCHIVE_JOBS 
+     * deletes are issued as JDBC batches on a single connection with one 
+     * commit per <code>DELETE_BATCH_SIZE</code> archives.
+     * 
+     * @param archives The archives to delete (entries with a negative 
+     * archive ID or empty job ID are skipped).
+     */
+    public void deepDeleteArchiveList(Collection<Archive> archives) {
+        
+        Connection        conn    = null;
+        PreparedStatement stmt    = null;
+        int               batched = 0;
+        int               total   = 0;
+        long              start   = System.currentTimeMillis();
+        String            sql     = "delete from " 
+                + TABLE_NAME
+                + " where ARCHIVE_ID = ? AND JOB_ID = ?";
+        
+        if (datasource != null) {
+            if ((archives != null) && (archives.size() > 0)) {
+                
+                try { 
+                    
+                    // First, delete the child FILE_ENTRY records.
+                    getJDBCFileService().deleteArchiveFiles(archives);
+                    
+                    conn = datasource.getConnection();
+                    
+                    // Note: If the container Datasource has jta=true this will throw
+                    // an exception.
+                    conn.setAutoCommit(false);
+                    
+                    stmt = conn.prepareStatement(sql);
+                    for (Archive archive : archives) {
+                        if ((archive != null) && (archive.getArchiveID() >= 0) 
+                                && (archive.getJobID() != null) 
+                                && (!archive.getJobID().isEmpty())) {
+                            stmt.setLong(   1, archive.getArchiveID());
+                            stmt.setString( 2, archive.getJobID());
+                            stmt.addBatch();
+                            batched++;
+                            if (batched == DELETE_BATCH_SIZE) {
+                                stmt.executeBatch();
+                                
+                                // Note: If the container Datasource has jta=true this will throw
+                                // an exception.
+                                conn.commit();
+                                total  += batched;
+                                batched = 0;
+                            }
+                        }
+                        else {
+                            LOGGER.warn("Invalid archive [ "
+                                    + archive
+                                    + " ] skipped.");
+                        }
+                    }
+                    if (batched > 0) {
+                        stmt.executeBatch();
+                        
+                        // Note: If the container Datasource has jta=true this will throw
+                        // an exception.
+                        conn.commit();
+                        total  += batched;
+                        batched = 0;
+                    }
+                }
+                catch (EJBLookupException ele) {
+                    LOGGER.error("Unable to obtain a reference to [ "
+                            + ele.getEJBName()
+                            + " ].  Batched delete of [ "
+                            + TABLE_NAME
+                            + " ] records will not be performed.");
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised "
+                            + "while attempting to batch delete [ "
+                            + TABLE_NAME
+                            + " ] records.  [ "
+                            + total
+                            + " ] of [ "
+                            + archives.size()
+                            + " ] deletes were committed prior to the "
+                            + "error.  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                    try { 
+                        if (conn != null) { conn.rollback(); } 
+                    } catch (Exception e) {}
+                }
+                finally {
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {} 
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "Records will not be deleted.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + total
+                    + " ] batched [ "
+                    + TABLE_NAME 
+                    + " ] deletes completed in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+    }
+    
     /**
      * Retrieve the list of individual archives associated with the input  
      * job ID.  The list of archives returned from this method will not have
@@ -535,6 +795,186 @@ public class JDBCArchiveService {
         return archives;
     }
     
+    /**
+     * Retrieve the archives whose local archive file resides beneath the 
+     * input directory.  Only the ID, JOB_ID, ARCHIVE_FILE, ARCHIVE_URL, 
+     * HASH_FILE, and HASH_FILE_URL fields are populated.
+     * 
+     * @param directory The local directory (must not be null, or empty 
+     * String).
+     * @return The list of archives stored beneath the input directory.
+     */
+    public List<Archive> getArchivesByDirectory(String directory) {
+        
+        List<Archive>     archives = new ArrayList<Archive>();
+        Connection        conn     = null;
+        PreparedStatement stmt     = null;
+        ResultSet         rs       = null;
+        long              start    = System.currentTimeMillis();
+        String            sql      = "select ID, JOB_ID, ARCHIVE_FILE, "
+                + "ARCHIVE_URL, HASH_FILE, HASH_FILE_URL from "
+                + TABLE_NAME
+                + " where ARCHIVE_FILE like ?";
+        
+        if (datasource != null) {
+            if ((directory != null) && (!directory.isEmpty())) {
+                
+                String prefix = directory.endsWith("/") ? 
+                        directory : directory + "/";
+                
+                try {
+                    conn = datasource.getConnection();
+                    stmt = conn.prepareStatement(sql);
+                    stmt.setString(1, prefix + "%");
+                    rs   = stmt.executeQuery();
+                    
+                    while (rs.next()) {
+                        // The LIKE wildcards ('_' in particular) may match
+                        // more than the requested directory.
+                        String file = rs.getString("ARCHIVE_FILE");
+                        if ((file != null) && (file.startsWith(prefix))) {
+                            Archive archive = new Archive();
+                            archive.setID(rs.getLong("ID"));
+                            archive.setJobID(rs.getString("JOB_ID"));
+                            archive.setArchive(file);
+                            archive.setArchiveURL(rs.getString("ARCHIVE_URL"));
+                            archive.setHash(rs.getString("HASH_FILE"));
+                            archive.setHashURL(rs.getString("HASH_FILE_URL"));
+                            archives.add(archive);
+                        }
+                    }
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised while "
+                            + "attempting to retrieve the list of archives "
+                            + "stored in directory [ "
+                            + directory
+                            + " ].  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                }
+                finally {
+                    try { 
+                        if (rs != null) { rs.close(); } 
+                    } catch (Exception e) {}
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {}
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+            else {
+                LOGGER.warn("The input directory is null or empty.  Unable to "
+                        + "retrieve the list of individual archives.");
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "An empty List will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + archives.size() 
+                    + " ] archives in directory [ "
+                    + directory
+                    + " ] selected in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return archives;
+    }
+    
+    /**
+     * Retrieve the list of completed archives that share their size with at
+     * least one other completed archive.  Only archives of identical size 
+     * can possibly have identical content, so this list is the candidate 
+     * set for the staging area deduplication process.  The returned 
+     * archives are ordered by size and then start time so that the oldest 
+     * copy of any duplicate set appears first.  The list of 
+     * <code>FileEntry</code> objects is not populated.
+     * 
+     * @return The list of candidate archives.
+     */
+    public List<Archive> getDuplicateCandidates() {
+        
+        List<Archive>     archives = new ArrayList<Archive>();
+        Connection        conn     = null;
+        PreparedStatement stmt     = null;
+        ResultSet         rs       = null;
+        long              start    = System.currentTimeMillis();
+        String            sql      = "select ID, ARCHIVE_FILE, ARCHIVE_ID, "
+                + "ARCHIVE_URL, HASH_FILE, HASH_FILE_URL, JOB_ID, "
+                + "ARCHIVE_SIZE, START_TIME from "
+                + TABLE_NAME
+                + " where ARCHIVE_STATE = ? and ARCHIVE_SIZE in ("
+                + "select ARCHIVE_SIZE from "
+                + TABLE_NAME
+                + " where ARCHIVE_STATE = ? and ARCHIVE_SIZE > 0 "
+                + "group by ARCHIVE_SIZE having count(*) > 1) "
+                + "order by ARCHIVE_SIZE, START_TIME";
+        
+        if (datasource != null) {
+            
+            try {
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                stmt.setString(1, JobStateType.COMPLETE.name());
+                stmt.setString(2, JobStateType.COMPLETE.name());
+                rs   = stmt.executeQuery();
+                
+                while (rs.next()) {
+                    Archive archive = new Archive();
+                    archive.setID(rs.getLong("ID"));
+                    archive.setArchive(rs.getString("ARCHIVE_FILE"));
+                    archive.setArchiveID(rs.getLong("ARCHIVE_ID"));
+                    archive.setArchiveState(JobStateType.COMPLETE);
+                    archive.setArchiveURL(rs.getString("ARCHIVE_URL"));
+                    archive.setHash(rs.getString("HASH_FILE"));
+                    archive.setHashURL(rs.getString("HASH_FILE_URL"));
+                    archive.setJobID(rs.getString("JOB_ID"));
+                    archive.setSize(rs.getLong("ARCHIVE_SIZE"));
+                    archive.setStartTime(rs.getLong("START_TIME"));
+                    archives.add(archive);
+                }
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to retrieve the list of duplicate "
+                        + "archive candidates from the target data source.  "
+                        + "Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                try { 
+                    if (rs != null) { rs.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "An empty List will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + archives.size() 
+                    + " ] duplicate archive candidates selected in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return archives;
+    }
+    
     /**
      * Retrieve a complete list of job IDs from the data store.  This method was 
      * added in an effort to clean-up orphaned ARCHIVE_JOB records.
@@ -595,6 +1035,133 @@ public class JDBCArchiveService {
         return jobIDs;
     }
 
+    /**
+     * Open a cursor returning the distinct, non-null job IDs in the 
+     * ARCHIVE_JOBS table in ascending order.  Unlike <code>getJobIDs()</code> 
+     * the job IDs are streamed rather than loaded into memory.  The caller 
+     * is responsible for closing the cursor.
+     * 
+     * @return Cursor over the job IDs, or null if the DataSource was not 
+     * injected.
+     * @throws SQLException Thrown if the query could not be executed.
+     */
+    public JobIDCursor getJobIDCursor() throws SQLException {
+        JobIDCursor cursor = null;
+        if (datasource != null) {
+            cursor = new JobIDCursor(datasource, TABLE_NAME);
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null cursor will be returned to the caller.");
+        }
+        return cursor;
+    }
+    
+    /**
+     * Open a unit of work (one connection and one transaction) on the 
+     * JobTracker datasource.  The unit of work may be passed to any of the 
+     * JDBC service methods that accept one.  The caller is responsible for
+     * committing and closing it.
+     * 
+     * @return A new unit of work, or null if the DataSource was not 
+     * injected.
+     * @throws SQLException Thrown if a connection could not be obtained.
+     */
+    public UnitOfWork getUnitOfWork() throws SQLException {
+        UnitOfWork work = null;
+        if (datasource != null) {
+            work = new UnitOfWork(datasource);
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null unit of work will be returned to the caller.");
+        }
+        return work;
+    }
+    
+    /**
+     * Delete all ARCHIVE_JOBS records whose JOB_ID no longer exists in the 
+     * JOBS table.  The orphans are identified by the database using a 
+     * NOT EXISTS anti-join rather than by comparing job ID lists in memory.
+     * The delete is executed in bounded, throttled chunks by the input 
+     * executor, each committed separately, in order to bound the undo 
+     * generated and the time any locks are held.  Records with a null 
+     * JOB_ID are not considered orphans.  As with 
+     * <code>deepDeleteArchive</code>, the orphaned FILE_ENTRY children are 
+     * removed before the parent ARCHIVE_JOBS records.
+     * 
+     * @param executor Executor controlling the chunk size and pacing.
+     * @return The total number of ARCHIVE_JOBS rows deleted.
+     */
+    public int deleteOrphanedArchives(ChunkedDeleteExecutor executor) 
+            throws EJBLookupException {
+        
+        Connection        conn    = null;
+        PreparedStatement stmt    = null;
+        int               total   = 0;
+        long              start   = System.currentTimeMillis();
+        String            sql     = "delete from "
+                + TABLE_NAME
+                + " t where t.JOB_ID is not null and not exists "
+                + "(select 1 from JOBS j where j.JOB_ID = t.JOB_ID) "
+                + "and rownum <= ?";
+        
+        if (datasource != null) {
+            if (executor != null) {
+                try {
+                    
+                    getJDBCFileService().deleteOrphanedFiles(executor);
+                    
+                    conn = datasource.getConnection();
+                    
+                    // Note: If the container Datasource has jta=true this will throw
+                    // an exception.
+                    conn.setAutoCommit(false);
+                    
+                    stmt  = conn.prepareStatement(sql);
+                    total = executor.execute(conn, stmt, 1);
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised "
+                            + "while attempting to delete orphaned [ "
+                            + TABLE_NAME
+                            + " ] records.  Chunks completed prior to the "
+                            + "error remain committed.  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                }
+                finally {
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {} 
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+            else {
+                LOGGER.error("No delete executor supplied.  Orphaned [ "
+                        + TABLE_NAME
+                        + " ] records will not be deleted.");
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "Orphaned records will not be deleted.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + total
+                    + " ] orphaned [ "
+                    + TABLE_NAME 
+                    + " ] records deleted in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return total;
+    }
+    
     /**
      * 
      * @param archiveID
@@ -724,6 +1291,11 @@ public class JDBCArchiveService {
      * list of <code>FileEntry</code> objects retrieved from the back-end 
      * <code>FILE_ENTRY</code> table.
      * 
+     * The archives and all of the job's files are loaded with two 
+     * set-based queries (both ordered by ARCHIVE_ID) and the files are 
+     * distributed to their archives in a single merge pass, so the number 
+     * of round trips does not grow with the number of archives.
+     * 
      * @param jobID The job ID requested (must not be null, or empty String)
      * @return The requested list of archives (may be null).
      */
@@ -736,13 +1308,29 @@ public class JDBCArchiveService {
             
             if ((archives != null) && (archives.size() > 0)) { 
                 try {
+                    
+                    List<FileEntry> files = 
+                            getJDBCFileService().getFiles(jobID);
+                    int index = 0;
+                    
                     for (Archive archive : archives) {
                         
-                        List<FileEntry> files = 
-                                getJDBCFileService().getFiles(
-                                        archive.getArchiveID(), 
-                                        archive.getJobID());
-                        archive.setFiles(files);
+                        List<FileEntry> archiveFiles = 
+                                new ArrayList<FileEntry>();
+                        
+                        // Skip files that reference an unknown archive.
+                        while ((index < files.size()) && 
+                                (files.get(index).getArchiveID() < 
+                                        archive.getArchiveID())) {
+                            index++;
+                        }
+                        while ((index < files.size()) && 
+                                (files.get(index).getArchiveID() == 
+                                        archive.getArchiveID())) {
+                            archiveFiles.add(files.get(index));
+                            index++;
+                        }
+                        archive.setFiles(archiveFiles);
                         
                     }
                 }
@@ -769,6 +1357,91 @@ public class JDBCArchiveService {
         return archives;
     }
     
+    /**
+     * Retrieve the archives (joined with the owning user name) with a 
+     * primary key greater than the input watermark that were started after
+     * the input time.  Used to incrementally maintain the per-user staging
+     * area usage.  Archives in every state are returned along with whether
+     * their location is still set, so the caller can tell staged archives 
+     * from those still being built or already evicted.
+     * 
+     * @param afterID Only records with a primary key greater than this 
+     * value are returned.
+     * @param startedAfter Only records started after this time are 
+     * returned.
+     * @return The list of archives ordered by primary key.
+     */
+    public List<StagedArchive> getStagedArchives(long afterID, long startedAfter) {
+        
+        List<StagedArchive> archives = new ArrayList<StagedArchive>();
+        Connection          conn     = null;
+        PreparedStatement   stmt     = null;
+        ResultSet           rs       = null;
+        long                start    = System.currentTimeMillis();
+        String              sql      = "select a.ID, a.JOB_ID, "
+                + "a.ARCHIVE_SIZE, a.START_TIME, a.ARCHIVE_STATE, "
+                + "case when a.ARCHIVE_FILE is null then 0 else 1 end "
+                + "HAS_FILE, j.USER_NAME from "
+                + TABLE_NAME
+                + " a, JOBS j where a.JOB_ID = j.JOB_ID and a.ID > ? "
+                + "and a.START_TIME > ? order by a.ID";
+        
+        if (datasource != null) {
+            
+            try {
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                stmt.setLong(1, afterID);
+                stmt.setLong(2, startedAfter);
+                rs   = stmt.executeQuery();
+                
+                while (rs.next()) {
+                    archives.add(new StagedArchive(
+                            rs.getLong("ID"),
+                            rs.getString("JOB_ID"),
+                            rs.getString("USER_NAME"),
+                            rs.getLong("ARCHIVE_SIZE"),
+                            rs.getLong("START_TIME"),
+                            JobStateType.valueOf(
+                                    rs.getString("ARCHIVE_STATE")),
+                            (rs.getInt("HAS_FILE") > 0)));
+                }
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to retrieve the list of staged "
+                        + "archives from the target data source.  Error "
+                        + "message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                try { 
+                    if (rs != null) { rs.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "An empty List will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + archives.size() 
+                    + " ] staged archives selected in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return archives;
+    }
+    
     /**
      * Retreive a list of unique hosts that have processed bundler jobs.
      * @return The list of unique hosts that have processed bundler jobs.
@@ -1039,6 +1712,91 @@ public class JDBCArchiveService {
         }
     }
     
+    /**
+     * Update the on-disk location (ARCHIVE_FILE, ARCHIVE_URL, HASH_FILE, 
+     * and HASH_FILE_URL) of the input archives.  All updates are issued as
+     * a single batch and committed together.
+     * 
+     * @param archives The archives with updated locations.
+     * @return True if the updates were committed.  False otherwise.
+     */
+    public boolean updateArchiveLocations(List<Archive> archives) {
+        
+        boolean           updated = false;
+        Connection        conn    = null;
+        PreparedStatement stmt    = null;
+        long              start   = System.currentTimeMillis();
+        String            sql     = "update " + TABLE_NAME + " set "
+                + "ARCHIVE_FILE = ?, ARCHIVE_URL = ?, HASH_FILE = ?, "
+                + "HASH_FILE_URL = ? where ID = ?";
+        
+        if (datasource != null) {
+            if ((archives != null) && (archives.size() > 0)) {
+                try {
+                    
+                    conn = datasource.getConnection();
+                    
+                    // Note: If the container Datasource has jta=true this will throw
+                    // an exception.
+                    conn.setAutoCommit(false);
+                    
+                    stmt = conn.prepareStatement(sql);
+                    for (Archive archive : archives) {
+                        stmt.setString(1, archive.getArchive());
+                        stmt.setString(2, archive.getArchiveURL());
+                        stmt.setString(3, archive.getHash());
+                        stmt.setString(4, archive.getHashURL());
+                        stmt.setLong(5, archive.getID());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    
+                    // Note: If the container Datasource has jta=true this will throw
+                    // an exception.
+                    conn.commit();
+                    updated = true;
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised while "
+                            + "attempting to update the location of [ "
+                            + archives.size()
+                            + " ] [ "
+                            + TABLE_NAME 
+                            + " ] records.  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                    try { 
+                        if (conn != null) { conn.rollback(); } 
+                    } catch (Exception e) {}
+                }
+                finally {
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {}
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+            else {
+                updated = true;
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "Archive locations will not be updated.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Location update of [ "
+                    + (archives == null ? 0 : archives.size())
+                    + " ] archives completed in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return updated;
+    }
+    
     /**
      * Persist (update) the information associated with the input 
      * list of <code>ARCHIVE_JOB</code> objects.
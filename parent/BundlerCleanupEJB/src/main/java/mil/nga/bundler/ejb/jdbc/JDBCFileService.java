@@ -5,6 +5,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.annotation.Resource;
@@ -12,6 +13,7 @@ import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 import javax.sql.DataSource;
 
+import mil.nga.bundler.model.Archive;
 import mil.nga.bundler.model.FileEntry;
 import mil.nga.bundler.types.JobStateType;
 
@@ -40,6 +42,36 @@ public class JDBCFileService {
      */
     private static final String TABLE_NAME = "FILE_ENTRY";
     
+    /**
+     * Maximum number of deletes issued in a single JDBC batch (and 
+     * committed together).
+     */
+    public static final int DELETE_BATCH_SIZE = 500;
+    
+    /**
+     * Number of rows retrieved per round trip when loading all of the files
+     * of a job.
+     */
+    private static final int FILE_FETCH_SIZE = 1000;
+    
+    /**
+     * SQL used to insert a single file.
+     */
+    private static final String INSERT_SQL = "insert into "
+            + TABLE_NAME 
+            + " (ARCHIVE_ID, "
+            + "ARCHIVE_ENTRY_PATH, FILE_STATE, JOB_ID, "
+            + "PATH, FILE_SIZE) values (?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * SQL used to update a single file.
+     */
+    private static final String UPDATE_SQL = "update " 
+            + TABLE_NAME 
+            + " set ARCHIVE_ID = ?, "
+            + "ARCHIVE_ENTRY_PATH = ?, FILE_STATE = ?, JOB_ID = ?, "
+            + "PATH = ? , FILE_SIZE = ? where ID = ?";
+    
     /**
      * Set up the logging system for use throughout the class
      */        
@@ -57,6 +89,16 @@ public class JDBCFileService {
      */
     public JDBCFileService() { }
     
+    /**
+     * Constructor used outside of the container (e.g. by a test or 
+     * benchmark harness) to supply the datasource directly.
+     * 
+     * @param datasource The datasource containing the FILE_ENTRY table.
+     */
+    public JDBCFileService(DataSource datasource) { 
+        this.datasource = datasource;
+    }
+    
     /**
      * Delete all files that match the input job ID.
      * 
@@ -219,6 +261,314 @@ public class JDBCFileService {
         }    
     }
     
+    /**
+     * Delete all files that match any of the input job IDs.  The deletes 
+     * are issued as JDBC batches on a single connection with one commit per
+     * <code>DELETE_BATCH_SIZE</code> job IDs, so purging many jobs costs a 
+     * handful of round trips rather than one connection, statement and 
+     * commit per job.
+     * 
+     * @param jobIDs The job IDs requested (null or empty entries are 
+     * skipped).
+     */
+    public void deleteFiles(Collection<String> jobIDs) {
+        
+        Connection        conn    = null;
+        PreparedStatement stmt    = null;
+        int               batched = 0;
+        int               total   = 0;
+        long              start   = System.currentTimeMillis();
+        String            sql     = "delete from " 
+                + TABLE_NAME
+                + " where JOB_ID = ?";
+        
+        if (datasource != null) {
+            if ((jobIDs != null) && (jobIDs.size() > 0)) {
+                
+                try { 
+                    
+                    conn = datasource.getConnection();
+                    
+                    // Note: If the container Datasource has jta=true this will throw
+                    // an exception.
+                    conn.setAutoCommit(false);
+                    
+                    stmt = conn.prepareStatement(sql);
+                    for (String jobID : jobIDs) {
+                        if ((jobID != null) && (!jobID.isEmpty())) {
+                            stmt.setString(1, jobID);
+                            stmt.addBatch();
+                            batched++;
+                            if (batched == DELETE_BATCH_SIZE) {
+                                stmt.executeBatch();
+                                
+                                // Note: If the container Datasource has jta=true this will throw
+                                // an exception.
+                                conn.commit();
+                                total  += batched;
+                                batched = 0;
+                            }
+                        }
+                        else {
+                            LOGGER.warn("Invalid job ID [ "
+                                    + jobID
+                                    + " ] skipped.");
+                        }
+                    }
+                    if (batched > 0) {
+                        stmt.executeBatch();
+                        
+                        // Note: If the container Datasource has jta=true this will throw
+                        // an exception.
+                        conn.commit();
+                        total  += batched;
+                        batched = 0;
+                    }
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised "
+                            + "while attempting to batch delete [ "
+                            + TABLE_NAME
+                            + " ] records.  [ "
+                            + total
+                            + " ] of [ "
+                            + jobIDs.size()
+                            + " ] deletes were committed prior to the "
+                            + "error.  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                    try { 
+                        if (conn != null) { conn.rollback(); } 
+                    } catch (Exception e) {}
+                }
+                finally {
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {} 
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "Records will not be deleted.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + total
+                    + " ] batched [ "
+                    + TABLE_NAME 
+                    + " ] deletes completed in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+    }
+    
+    /**
+     * Delete all files that match the archive ID and job ID of any of the 
+     * input archives.  The deletes are issued as JDBC batches on a single 
+     * connection with one commit per <code>DELETE_BATCH_SIZE</code> 
+     * archives.
+     * 
+     * @param archives The archives whose files should be deleted (entries 
+     * with a negative archive ID or empty job ID are skipped).
+     */
+    public void deleteArchiveFiles(Collection<Archive> archives) {
+        
+        Connection        conn    = null;
+        PreparedStatement stmt    = null;
+        int               batched = 0;
+        int               total   = 0;
+        long              start   = System.currentTimeMillis();
+        String            sql     = "delete from " 
+                + TABLE_NAME
+                + " where ARCHIVE_ID = ? AND JOB_ID = ?";
+        
+        if (datasource != null) {
+            if ((archives != null) && (archives.size() > 0)) {
+                
+                try { 
+                    
+                    conn = datasource.getConnection();
+                    
+                    // Note: If the container Datasource has jta=true this will throw
+                    // an exception.
+                    conn.setAutoCommit(false);
+                    
+                    stmt = conn.prepareStatement(sql);
+                    for (Archive archive : archives) {
+                        if ((archive != null) && (archive.getArchiveID() >= 0) 
+                                && (archive.getJobID() != null) 
+                                && (!archive.getJobID().isEmpty())) {
+                            stmt.setLong(   1, archive.getArchiveID());
+                            stmt.setString( 2, archive.getJobID());
+                            stmt.addBatch();
+                            batched++;
+                            if (batched == DELETE_BATCH_SIZE) {
+                                stmt.executeBatch();
+                                
+                                // Note: If the container Datasource has jta=true this will throw
+                                // an exception.
+                                conn.commit();
+                                total  += batched;
+                                batched = 0;
+                            }
+                        }
+                        else {
+                            LOGGER.warn("Invalid archive [ "
+                                    + archive
+                                    + " ] skipped.");
+                        }
+                    }
+                    if (batched > 0) {
+                        stmt.executeBatch();
+                        
+                        // Note: If the container Datasource has jta=true this will throw
+                        // an exception.
+                        conn.commit();
+                        total  += batched;
+                        batched = 0;
+                    }
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised "
+                            + "while attempting to batch delete [ "
+                            + TABLE_NAME
+                            + " ] records.  [ "
+                            + total
+                            + " ] of [ "
+                            + archives.size()
+                            + " ] deletes were committed prior to the "
+                            + "error.  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                    try { 
+                        if (conn != null) { conn.rollback(); } 
+                    } catch (Exception e) {}
+                }
+                finally {
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {} 
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "Records will not be deleted.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + total
+                    + " ] batched [ "
+                    + TABLE_NAME 
+                    + " ] deletes completed in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+    }
+    
+    /**
+     * Retrieve the list of files associated with all archives of the input
+     * job ID in a single query.  The files are ordered by ARCHIVE_ID so 
+     * that the caller can distribute them to their archives in one pass 
+     * (see <code>JDBCArchiveService.getMaterializedArchives</code>) rather 
+     * than issuing one query per archive.
+     * 
+     * @param jobID The job ID requested (must not be null, or empty String)
+     * @return The requested list of files ordered by archive ID.
+     */
+    public List<FileEntry> getFiles(String jobID) {
+        
+        List<FileEntry>   files  = new ArrayList<FileEntry>();
+        Connection        conn   = null;
+        PreparedStatement stmt   = null;
+        ResultSet         rs     = null;
+        long              start  = System.currentTimeMillis();
+        String            sql    = "select ID, ARCHIVE_ID, "
+                + "ARCHIVE_ENTRY_PATH, FILE_STATE, JOB_ID, PATH, FILE_SIZE "
+                + "from "
+                + TABLE_NAME
+                + " where JOB_ID = ? order by ARCHIVE_ID";
+        
+        if (datasource != null) {
+            if ((jobID != null) && (!jobID.isEmpty())) {
+                
+                try { 
+                    
+                    conn = datasource.getConnection();
+                    stmt = conn.prepareStatement(sql);
+                    stmt.setFetchSize(FILE_FETCH_SIZE);
+                    stmt.setString(1, jobID);
+                    rs   = stmt.executeQuery();
+                    
+                    while (rs.next()) {
+                        
+                        FileEntry file = new FileEntry();
+                        file.setID(rs.getLong("ID"));
+                        file.setArchiveID(rs.getLong("ARCHIVE_ID"));
+                        file.setEntryPath(rs.getString("ARCHIVE_ENTRY_PATH"));
+                        file.setFileState(
+                                JobStateType.valueOf(
+                                        rs.getString("FILE_STATE")));
+                        file.setJobID(rs.getString("JOB_ID"));
+                        file.setFilePath(rs.getString("PATH"));
+                        file.setSize(rs.getLong("FILE_SIZE"));
+                        files.add(file);
+                        
+                    }
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised while "
+                            + "attempting to retrieve a list of [ "
+                            + TABLE_NAME
+                            + " ] objects from the target data source.  Error "
+                            + "message [ "
+                            + se.getMessage() 
+                            + " ].");
+                }
+                finally {
+                    try { 
+                        if (rs != null) { rs.close(); }
+                    } catch (Exception e) {}
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {}
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+            else {
+                LOGGER.warn("The input job ID is null or empty.  Unable to "
+                        + "retrieve the file list.");
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "An empty List will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + files.size() 
+                    + " ] files for job ID [ "
+                    + jobID
+                    + " ] selected in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        
+        return files;
+    }
+    
     /**
      * Retrieve the list of files associated with the input archive ID and 
      * job ID.
@@ -380,6 +730,128 @@ public class JDBCFileService {
         return jobIDs;
     }
     
+    /**
+     * Open a cursor returning the distinct, non-null job IDs in the 
+     * FILE_ENTRY table in ascending order.  Unlike <code>getJobIDs()</code> 
+     * the job IDs are streamed rather than loaded into memory.  The caller 
+     * is responsible for closing the cursor.
+     * 
+     * @return Cursor over the job IDs, or null if the DataSource was not 
+     * injected.
+     * @throws SQLException Thrown if the query could not be executed.
+     */
+    public JobIDCursor getJobIDCursor() throws SQLException {
+        JobIDCursor cursor = null;
+        if (datasource != null) {
+            cursor = new JobIDCursor(datasource, TABLE_NAME);
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null cursor will be returned to the caller.");
+        }
+        return cursor;
+    }
+    
+    /**
+     * Open a unit of work (one connection and one transaction) on the 
+     * JobTracker datasource.  The unit of work may be passed to any of the 
+     * JDBC service methods that accept one.  The caller is responsible for
+     * committing and closing it.
+     * 
+     * @return A new unit of work, or null if the DataSource was not 
+     * injected.
+     * @throws SQLException Thrown if a connection could not be obtained.
+     */
+    public UnitOfWork getUnitOfWork() throws SQLException {
+        UnitOfWork work = null;
+        if (datasource != null) {
+            work = new UnitOfWork(datasource);
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null unit of work will be returned to the caller.");
+        }
+        return work;
+    }
+    
+    /**
+     * Delete all FILE_ENTRY records whose JOB_ID no longer exists in the 
+     * JOBS table.  The orphans are identified by the database using a 
+     * NOT EXISTS anti-join rather than by comparing job ID lists in memory.
+     * The delete is executed in bounded, throttled chunks by the input 
+     * executor, each committed separately, in order to bound the undo 
+     * generated and the time any locks are held.  Records with a null 
+     * JOB_ID are not considered orphans.
+     * 
+     * @param executor Executor controlling the chunk size and pacing.
+     * @return The total number of rows deleted.
+     */
+    public int deleteOrphanedFiles(ChunkedDeleteExecutor executor) {
+        
+        Connection        conn    = null;
+        PreparedStatement stmt    = null;
+        int               total   = 0;
+        long              start   = System.currentTimeMillis();
+        String            sql     = "delete from "
+                + TABLE_NAME
+                + " t where t.JOB_ID is not null and not exists "
+                + "(select 1 from JOBS j where j.JOB_ID = t.JOB_ID) "
+                + "and rownum <= ?";
+        
+        if (datasource != null) {
+            if (executor != null) {
+                try {
+                    
+                    conn = datasource.getConnection();
+                    
+                    // Note: If the container Datasource has jta=true this will throw
+                    // an exception.
+                    conn.setAutoCommit(false);
+                    
+                    stmt  = conn.prepareStatement(sql);
+                    total = executor.execute(conn, stmt, 1);
+                }
+                catch (SQLException se) {
+                    LOGGER.error("An unexpected SQLException was raised "
+                            + "while attempting to delete orphaned [ "
+                            + TABLE_NAME
+                            + " ] records.  Chunks completed prior to the "
+                            + "error remain committed.  Error message [ "
+                            + se.getMessage() 
+                            + " ].");
+                }
+                finally {
+                    try { 
+                        if (stmt != null) { stmt.close(); } 
+                    } catch (Exception e) {} 
+                    try { 
+                        if (conn != null) { conn.close(); } 
+                    } catch (Exception e) {}
+                }
+            }
+            else {
+                LOGGER.error("No delete executor supplied.  Orphaned [ "
+                        + TABLE_NAME
+                        + " ] records will not be deleted.");
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "Orphaned records will not be deleted.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + total
+                    + " ] orphaned [ "
+                    + TABLE_NAME 
+                    + " ] records deleted in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return total;
+    }
+    
     /**
      * Persist (update) the information associated with the input 
      * <code>FILE_ENTRY</code> object.
@@ -392,9 +864,7 @@ public class JDBCFileService {
         Connection        conn   = null;
         PreparedStatement stmt   = null;
         long              start  = System.currentTimeMillis();
-        String            sql    = "update " + TABLE_NAME + " set ARCHIVE_ID = ?, "
-                + "ARCHIVE_ENTRY_PATH = ?, FILE_STATE = ?, JOB_ID = ?, "
-                + "PATH = ? , FILE_SIZE = ? where ID = ?";
+        String            sql    = UPDATE_SQL;
         
         if (datasource != null) {
             if (file != null) {
@@ -461,15 +931,48 @@ public class JDBCFileService {
 
     /**
      * Persist (update) the information associated with the input 
-     * list of <code>FILE_ENTRY</code> objects.
+     * list of <code>FILE_ENTRY</code> objects.  All of the files are 
+     * updated in a single JDBC batch and committed together.
      * 
      * @param files List of <code>FILE_ENTRY</code> objects containing 
      * updated state information.
      */
     public void updateFiles(List<FileEntry> files) {
         if ((files != null) && (files.size() > 0)) {
-            for (FileEntry file : files) {
-                updateFile(file);
+            
+            UnitOfWork work  = null;
+            long       start = System.currentTimeMillis();
+            
+            try {
+                work = getUnitOfWork();
+                if (work != null) {
+                    updateFiles(work, files);
+                    work.commit();
+                }
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to update [ "
+                        + files.size()
+                        + " ] [ "
+                        + TABLE_NAME 
+                        + " ] objects.  The transaction will be rolled "
+                        + "back.  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                if (work != null) { work.close(); }
+            }
+            
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Update of [ "
+                        + files.size()
+                        + " ] [ "
+                        + TABLE_NAME 
+                        + " ] records completed in [ "
+                        + (System.currentTimeMillis() - start) 
+                        + " ] ms.");
             }
         }
         else {
@@ -478,6 +981,36 @@ public class JDBCFileService {
         }
     }
     
+    /**
+     * Update the input list of <code>FILE_ENTRY</code> objects within the 
+     * caller's unit of work using a single JDBC batch.  Nothing is 
+     * committed.
+     * 
+     * @param work The caller's unit of work.
+     * @param files List of <code>FILE_ENTRY</code> objects containing 
+     * updated state information (null entries are skipped).
+     * @throws SQLException Thrown if the update failed.
+     */
+    public void updateFiles(UnitOfWork work, List<FileEntry> files) 
+            throws SQLException {
+        if ((files != null) && (files.size() > 0)) {
+            PreparedStatement stmt = work.prepare(UPDATE_SQL);
+            for (FileEntry file : files) {
+                if (file != null) {
+                    stmt.setLong(   1, file.getArchiveID());
+                    stmt.setString( 2, file.getEntryPath());
+                    stmt.setString( 3, file.getFileState().getText());
+                    stmt.setString( 4, file.getJobID());
+                    stmt.setString( 5, file.getFilePath());
+                    stmt.setLong(   6, file.getSize());
+                    stmt.setLong(   7, file.getID());
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+    
     /**
      * Persist (insert) the information associated with the input 
      * <code>FILE_ENTRY</code> object.
@@ -490,11 +1023,7 @@ public class JDBCFileService {
         Connection        conn   = null;
         PreparedStatement stmt   = null;
         long              start  = System.currentTimeMillis();
-        String            sql    = "insert into "
-                + TABLE_NAME 
-                + " (ARCHIVE_ID, "
-                + "ARCHIVE_ENTRY_PATH, FILE_STATE, JOB_ID, "
-                + "PATH, FILE_SIZE) values (?, ?, ?, ?, ?, ?)";
+        String            sql    = INSERT_SQL;
         
         if (datasource != null) {
             if (file != null) {
@@ -558,14 +1087,47 @@ public class JDBCFileService {
     
     /**
      * Persist (insert) the information associated with the input 
-     * list of <code>FILE_ENTRY</code> objects.
+     * list of <code>FILE_ENTRY</code> objects.  All of the files are 
+     * inserted in a single JDBC batch and committed together.
      * 
      * @param files List of <code>FILE_ENTRY</code> objects to persist.
      */
     public void insertFiles(List<FileEntry> files) {
         if ((files != null) && (files.size() > 0)) {
-            for (FileEntry file : files) {
-                insertFile(file);
+            
+            UnitOfWork work  = null;
+            long       start = System.currentTimeMillis();
+            
+            try {
+                work = getUnitOfWork();
+                if (work != null) {
+                    insertFiles(work, files);
+                    work.commit();
+                }
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to insert [ "
+                        + files.size()
+                        + " ] new [ "
+                        + TABLE_NAME 
+                        + " ] objects.  The transaction will be rolled "
+                        + "back.  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                if (work != null) { work.close(); }
+            }
+            
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Insert of [ "
+                        + files.size()
+                        + " ] [ "
+                        + TABLE_NAME 
+                        + " ] records completed in [ "
+                        + (System.currentTimeMillis() - start) 
+                        + " ] ms.");
             }
         }
         else {
@@ -573,4 +1135,33 @@ public class JDBCFileService {
                     + "insert operation not performed.");
         }
     }
+    
+    /**
+     * Insert the input list of <code>FILE_ENTRY</code> objects within the 
+     * caller's unit of work using a single JDBC batch.  Nothing is 
+     * committed.
+     * 
+     * @param work The caller's unit of work.
+     * @param files List of <code>FILE_ENTRY</code> objects to persist (null
+     * entries are skipped).
+     * @throws SQLException Thrown if the insert failed.
+     */
+    public void insertFiles(UnitOfWork work, List<FileEntry> files) 
+            throws SQLException {
+        if ((files != null) && (files.size() > 0)) {
+            PreparedStatement stmt = work.prepare(INSERT_SQL);
+            for (FileEntry file : files) {
+                if (file != null) {
+                    stmt.setLong(1, file.getArchiveID());
+                    stmt.setString(2, file.getEntryPath());
+                    stmt.setString(3, file.getFileState().getText());
+                    stmt.setString(4, file.getJobID());
+                    stmt.setString(5, file.getFilePath());
+                    stmt.setLong(6,  file.getSize());
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
 }
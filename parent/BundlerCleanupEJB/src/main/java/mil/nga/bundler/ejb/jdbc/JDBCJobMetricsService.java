@@ -5,8 +5,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import javax.annotation.Resource;
 import javax.ejb.LocalBean;
@@ -19,6 +22,7 @@ import org.slf4j.LoggerFactory;
 import mil.nga.bundler.exceptions.UnknownArchiveTypeException;
 import mil.nga.bundler.exceptions.UnknownJobStateTypeException;
 import mil.nga.bundler.model.BundlerJobMetrics;
+import mil.nga.bundler.simulator.RetentionSimulator;
 import mil.nga.bundler.types.ArchiveType;
 import mil.nga.bundler.types.JobStateType;
 
@@ -41,6 +45,60 @@ public class JDBCJobMetricsService {
      */
     public static final String TABLE_NAME = "BUNDLER_JOB_METRICS";
     
+    /**
+     * Number of rows fetched per round trip when loading the job history
+     * for the retention simulator.
+     */
+    private static final int SIMULATOR_FETCH_SIZE = 5000;
+    
+    /**
+     * The daily summary table populated by <code>rollup()</code>.  The 
+     * table is expected to have been created as follows:
+     * <pre>
+     * create table BUNDLER_JOB_METRICS_DAILY (
+     *     DAY_START             NUMBER(19)    not null,
+     *     ARCHIVE_TYPE          VARCHAR2(20)  not null,
+     *     JOB_STATE             VARCHAR2(20)  not null,
+     *     USER_NAME             VARCHAR2(255) not null,
+     *     NUM_JOBS              NUMBER(19)    not null,
+     *     NUM_ARCHIVES          NUMBER(19)    not null,
+     *     NUM_FILES             NUMBER(19)    not null,
+     *     TOTAL_SIZE            NUMBER(19)    not null,
+     *     TOTAL_COMPRESSED_SIZE NUMBER(19)    not null,
+     *     TOTAL_ELAPSED_TIME    NUMBER(19)    not null,
+     *     MIN_ELAPSED_TIME      NUMBER(19)    not null,
+     *     MAX_ELAPSED_TIME      NUMBER(19)    not null,
+     *     constraint BUNDLER_JOB_METRICS_DAILY_PK primary key 
+     *         (DAY_START, ARCHIVE_TYPE, JOB_STATE, USER_NAME));
+     * </pre>
+     * DAY_START is the start of the (UTC) day in ms since the epoch.  The 
+     * average elapsed time and compression ratio are derived from the 
+     * totals.
+     */
+    public static final String DAILY_TABLE_NAME = "BUNDLER_JOB_METRICS_DAILY";
+    
+    /**
+     * Number of ms in one day.
+     */
+    public static final long MS_PER_DAY = 24L * 60L * 60L * 1000L;
+    
+    /**
+     * Value stored in the summary key columns in place of a null.
+     */
+    public static final String UNKNOWN = "unknown";
+    
+    /**
+     * Default number of rows retrieved per round trip by the streaming 
+     * (<code>forEach</code>) read methods.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    
+    /**
+     * Maximum number of bind variables in a single IN list (Oracle rejects
+     * lists longer than 1000 entries).
+     */
+    public static final int MAX_IN_LIST_SIZE = 1000;
+    
     /**
      * Set up the logging system for use throughout the class
      */        
@@ -57,7 +115,95 @@ public class JDBCJobMetricsService {
      * Default constructor. 
      */
     public JDBCJobMetricsService() { }
+    
+    /**
+     * Constructor used outside of the container (e.g. by a test or 
+     * benchmark harness) to supply the datasource directly.
+     * 
+     * @param datasource The datasource containing the BUNDLER_JOB_METRICS 
+     * table.
+     */
+    public JDBCJobMetricsService(DataSource datasource) { 
+        this.datasource = datasource;
+    }
 
+    /**
+     * Load the history of completed jobs into a retention simulator.  Only
+     * the columns required by the simulator are selected and the rows are 
+     * streamed directly into the simulator's primitive arrays (no 
+     * <code>BundlerJobMetrics</code> objects are materialized) so that 
+     * years of history can be loaded quickly.  Rows are ordered by 
+     * completion time so the simulator does not need to sort them.
+     * 
+     * @return A simulator populated with the job history.
+     */
+    public RetentionSimulator getRetentionSimulator() {
+        
+        Connection         conn      = null;
+        PreparedStatement  stmt      = null;
+        ResultSet          rs        = null;
+        RetentionSimulator simulator = new RetentionSimulator();
+        long               start     = System.currentTimeMillis();
+        String             sql       = "select START_TIME, ELAPSED_TIME, "
+                + "TOTAL_COMPRESSED_SIZE, TOTAL_SIZE from "
+                + TABLE_NAME
+                + " where upper(JOB_STATE) = ? "
+                + "order by START_TIME + ELAPSED_TIME";
+        
+        if (datasource != null) {
+            try {
+                
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                stmt.setFetchSize(SIMULATOR_FETCH_SIZE);
+                stmt.setString(1, JobStateType.COMPLETE.name());
+                rs   = stmt.executeQuery();
+                
+                while (rs.next()) {
+                    simulator.add(
+                            rs.getLong("START_TIME"),
+                            rs.getLong("ELAPSED_TIME"),
+                            rs.getLong("TOTAL_COMPRESSED_SIZE"),
+                            rs.getLong("TOTAL_SIZE"));
+                }
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to load the job history from table [ "
+                        + TABLE_NAME
+                        + " ].  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                try { 
+                    if (rs != null) { rs.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "An empty simulator will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + simulator.getNumEvents()
+                    + " ] job history records loaded from table [ "
+                    + TABLE_NAME
+                    + " ] in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return simulator;
+    }
+    
     /**
      * Retrieve a complete list of job IDs from the data store.
      * 
@@ -293,7 +439,9 @@ public class JDBCJobMetricsService {
      * This method will return a list of all 
      * <code>mil.nga.bundler.model.BundlerJobMetrics</code> objects currently 
      * persisted in the back-end data store That fall between the input start 
-     * and end time.
+     * and end time.  The full list is held in memory; see 
+     * <code>forEachJobMetrics()</code> to process the records with constant
+     * heap.
      * 
      * @param startTime The "from" parameter 
      * @param endTime The "to" parameter
@@ -303,11 +451,58 @@ public class JDBCJobMetricsService {
     public List<BundlerJobMetrics> getJobMetricsByDate(
             long startTime, 
             long endTime) {
+        List<BundlerJobMetrics> metrics = new ArrayList<BundlerJobMetrics>();
+        forEachJobMetrics(startTime, endTime, metrics::add);
+        return metrics;
+    }
+    
+    /**
+     * Pass each job metrics record with a start time between the input 
+     * start and end time (most recent first) to the input consumer using 
+     * <code>DEFAULT_FETCH_SIZE</code>.
+     * 
+     * @param startTime The "from" parameter 
+     * @param endTime The "to" parameter
+     * @param consumer Called once per job metrics record.
+     * @return The number of records passed to the consumer.
+     */
+    public long forEachJobMetrics(
+            long                        startTime, 
+            long                        endTime, 
+            Consumer<BundlerJobMetrics> consumer) {
+        return forEachJobMetrics(
+                startTime, 
+                endTime, 
+                consumer, 
+                DEFAULT_FETCH_SIZE);
+    }
+    
+    /**
+     * Pass each job metrics record with a start time between the input 
+     * start and end time (most recent first) to the input consumer as it 
+     * is read.  The rows are read through a forward-only, read-only cursor
+     * and retrieved from the server <code>fetchSize</code> rows at a time, 
+     * so no list of records is ever built.  The connection remains open 
+     * while the consumer runs; exceptions raised by the consumer are 
+     * propagated to the caller after the cursor is closed.
+     * 
+     * @param startTime The "from" parameter 
+     * @param endTime The "to" parameter
+     * @param consumer Called once per job metrics record.
+     * @param fetchSize Number of rows retrieved per round trip (values 
+     * less than 1 select <code>DEFAULT_FETCH_SIZE</code>).
+     * @return The number of records passed to the consumer.
+     */
+    public long forEachJobMetrics(
+            long                        startTime, 
+            long                        endTime, 
+            Consumer<BundlerJobMetrics> consumer, 
+            int                         fetchSize) {
         
         Connection              conn    = null;
-        List<BundlerJobMetrics> metrics = new ArrayList<BundlerJobMetrics>();
         PreparedStatement       stmt    = null;
         ResultSet               rs      = null;
+        long                    count   = 0L;
         long                    start   = System.currentTimeMillis();
         String                  sql    = "select ARCHIVE_SIZE, ARCHIVE_TYPE, "
                 + "ELAPSED_TIME, JOB_ID, JOB_STATE, NUM_ARCHIVES, "
@@ -339,7 +534,12 @@ public class JDBCJobMetricsService {
             try {
                 
                 conn = datasource.getConnection();
-                stmt = conn.prepareStatement(sql);
+                stmt = conn.prepareStatement(
+                        sql, 
+                        ResultSet.TYPE_FORWARD_ONLY, 
+                        ResultSet.CONCUR_READ_ONLY);
+                stmt.setFetchSize(
+                        fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
                 stmt.setLong(1, startTime);
                 stmt.setLong(2, endTime);
                 rs   = stmt.executeQuery();
@@ -363,7 +563,8 @@ public class JDBCJobMetricsService {
                             .totalCompressedSize(rs.getLong("TOTAL_COMPRESSED_SIZE"))
                             .userName(rs.getString("USER_NAME"))
                             .build();
-                    metrics.add(job);
+                    consumer.accept(job);
+                    count++;
                 }
             }
             catch (SQLException se) {
@@ -387,18 +588,303 @@ public class JDBCJobMetricsService {
         }
         else {
             LOGGER.warn("DataSource object not injected by the container.  "
-                    + "An empty List will be returned to the caller.");
+                    + "No job metrics will be returned to the caller.");
         }
         
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("[ "
-                    + metrics.size() 
-                    + " ] job IDs selected in [ "
+                    + count 
+                    + " ] job metrics records selected in [ "
                     + (System.currentTimeMillis() - start) 
                     + " ] ms.");
         }
         
-        return metrics;
+        return count;
+    }
+    
+    /**
+     * Roll the detail records of jobs that started before the input time up
+     * into the daily summary table (<code>DAILY_TABLE_NAME</code>) and 
+     * delete the detail records that were rolled up.  Only whole (UTC) days
+     * are rolled up, and only the records of jobs that no longer exist in 
+     * the JOBS table are considered, so the job purge never finds a job 
+     * whose metrics have already been removed.
+     * 
+     * Each day is processed in its own transaction:  the detail records of
+     * the day are read once, aggregated by ArchiveType, JobStateType and 
+     * user, merged into the summary table, and exactly the records read are 
+     * deleted.  A failure therefore never double-counts a day or loses 
+     * detail records that were not summarized, and a subsequent run simply
+     * resumes with the days that remain.  
+     * 
+     * Note: Rolled-up jobs are no longer visible to 
+     * <code>getJobMetricsByDate()</code> or the retention simulator.
+     * 
+     * @param time Detail records of jobs started before this time (rounded
+     * down to the start of the day) are rolled up.
+     * @return The number of detail records rolled up and deleted.
+     */
+    public int rollup(long time) {
+        
+        Connection        conn     = null;
+        PreparedStatement stmt     = null;
+        ResultSet         rs       = null;
+        List<Long>        days     = new ArrayList<Long>();
+        int               rolledUp = 0;
+        long              start    = System.currentTimeMillis();
+        long              before   = time - (time % MS_PER_DAY);
+        String            sql      = "select distinct m.START_TIME - "
+                + "mod(m.START_TIME, "
+                + MS_PER_DAY
+                + ") DAY_START from "
+                + TABLE_NAME
+                + " m where m.START_TIME < ? and not exists "
+                + "(select 1 from JOBS j where j.JOB_ID = m.JOB_ID) "
+                + "order by 1";
+        
+        if (datasource != null) {
+            try {
+                
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                stmt.setLong(1, before);
+                rs   = stmt.executeQuery();
+                while (rs.next()) {
+                    days.add(rs.getLong("DAY_START"));
+                }
+                rs.close();
+                rs = null;
+                stmt.close();
+                stmt = null;
+                
+                // Note: If the container Datasource has jta=true this will throw
+                // an exception.
+                conn.setAutoCommit(false);
+                
+                for (Long day : days) {
+                    rolledUp += rollupDay(conn, day);
+                }
+                
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to roll up the [ "
+                        + TABLE_NAME 
+                        + " ] records into [ "
+                        + DAILY_TABLE_NAME
+                        + " ].  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+                try { conn.rollback(); } catch (Exception e) {}
+            }
+            finally {
+                try { 
+                    if (rs != null) { rs.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "No job metrics will be rolled up.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Roll up of [ "
+                    + rolledUp
+                    + " ] [ "
+                    + TABLE_NAME
+                    + " ] records spanning [ "
+                    + days.size()
+                    + " ] days completed in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return rolledUp;
+    }
+    
+    /**
+     * Roll up the detail records of a single day and commit.  Called by 
+     * <code>rollup()</code>.
+     * 
+     * @param conn Connection with auto-commit disabled.
+     * @param day The start of the day (ms since the epoch).
+     * @return The number of detail records rolled up.
+     * @throws SQLException Thrown if any statement fails.  The caller is 
+     * responsible for the rollback.
+     */
+    private int rollupDay(Connection conn, long day) throws SQLException {
+        
+        PreparedStatement         stmt    = null;
+        ResultSet                 rs      = null;
+        List<String>              jobIDs  = new ArrayList<String>();
+        Map<String, DailyMetrics> summary = 
+                new LinkedHashMap<String, DailyMetrics>();
+        String                    select  = "select m.JOB_ID, "
+                + "m.ARCHIVE_TYPE, m.JOB_STATE, m.USER_NAME, m.NUM_ARCHIVES, "
+                + "m.NUM_FILES, m.TOTAL_SIZE, m.TOTAL_COMPRESSED_SIZE, "
+                + "m.ELAPSED_TIME from "
+                + TABLE_NAME
+                + " m where m.START_TIME >= ? and m.START_TIME < ? "
+                + "and not exists "
+                + "(select 1 from JOBS j where j.JOB_ID = m.JOB_ID)";
+        String                    merge   = "merge into "
+                + DAILY_TABLE_NAME
+                + " d using (select ? DAY_START, ? ARCHIVE_TYPE, "
+                + "? JOB_STATE, ? USER_NAME, ? NUM_JOBS, ? NUM_ARCHIVES, "
+                + "? NUM_FILES, ? TOTAL_SIZE, ? TOTAL_COMPRESSED_SIZE, "
+                + "? TOTAL_ELAPSED_TIME, ? MIN_ELAPSED_TIME, "
+                + "? MAX_ELAPSED_TIME from dual) s "
+                + "on (d.DAY_START = s.DAY_START "
+                + "and d.ARCHIVE_TYPE = s.ARCHIVE_TYPE "
+                + "and d.JOB_STATE = s.JOB_STATE "
+                + "and d.USER_NAME = s.USER_NAME) "
+                + "when matched then update set "
+                + "d.NUM_JOBS = d.NUM_JOBS + s.NUM_JOBS, "
+                + "d.NUM_ARCHIVES = d.NUM_ARCHIVES + s.NUM_ARCHIVES, "
+                + "d.NUM_FILES = d.NUM_FILES + s.NUM_FILES, "
+                + "d.TOTAL_SIZE = d.TOTAL_SIZE + s.TOTAL_SIZE, "
+                + "d.TOTAL_COMPRESSED_SIZE = "
+                + "d.TOTAL_COMPRESSED_SIZE + s.TOTAL_COMPRESSED_SIZE, "
+                + "d.TOTAL_ELAPSED_TIME = "
+                + "d.TOTAL_ELAPSED_TIME + s.TOTAL_ELAPSED_TIME, "
+                + "d.MIN_ELAPSED_TIME = "
+                + "least(d.MIN_ELAPSED_TIME, s.MIN_ELAPSED_TIME), "
+                + "d.MAX_ELAPSED_TIME = "
+                + "greatest(d.MAX_ELAPSED_TIME, s.MAX_ELAPSED_TIME) "
+                + "when not matched then insert (DAY_START, ARCHIVE_TYPE, "
+                + "JOB_STATE, USER_NAME, NUM_JOBS, NUM_ARCHIVES, NUM_FILES, "
+                + "TOTAL_SIZE, TOTAL_COMPRESSED_SIZE, TOTAL_ELAPSED_TIME, "
+                + "MIN_ELAPSED_TIME, MAX_ELAPSED_TIME) values (s.DAY_START, "
+                + "s.ARCHIVE_TYPE, s.JOB_STATE, s.USER_NAME, s.NUM_JOBS, "
+                + "s.NUM_ARCHIVES, s.NUM_FILES, s.TOTAL_SIZE, "
+                + "s.TOTAL_COMPRESSED_SIZE, s.TOTAL_ELAPSED_TIME, "
+                + "s.MIN_ELAPSED_TIME, s.MAX_ELAPSED_TIME)";
+        String                    delete  = "delete from "
+                + TABLE_NAME
+                + " where JOB_ID = ?";
+        
+        try {
+            
+            stmt = conn.prepareStatement(select);
+            stmt.setFetchSize(SIMULATOR_FETCH_SIZE);
+            stmt.setLong(1, day);
+            stmt.setLong(2, day + MS_PER_DAY);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                DailyMetrics metrics = new DailyMetrics(
+                        rs.getString("ARCHIVE_TYPE"),
+                        rs.getString("JOB_STATE"),
+                        rs.getString("USER_NAME"));
+                DailyMetrics existing = summary.get(metrics.getKey());
+                if (existing == null) {
+                    summary.put(metrics.getKey(), metrics);
+                    existing = metrics;
+                }
+                existing.add(
+                        rs.getInt("NUM_ARCHIVES"),
+                        rs.getLong("NUM_FILES"),
+                        rs.getLong("TOTAL_SIZE"),
+                        rs.getLong("TOTAL_COMPRESSED_SIZE"),
+                        rs.getLong("ELAPSED_TIME"));
+                jobIDs.add(rs.getString("JOB_ID"));
+            }
+            rs.close();
+            rs = null;
+            stmt.close();
+            stmt = null;
+            
+            if (jobIDs.size() > 0) {
+                
+                stmt = conn.prepareStatement(merge);
+                for (DailyMetrics metrics : summary.values()) {
+                    stmt.setLong(   1,  day);
+                    stmt.setString( 2,  metrics.archiveType);
+                    stmt.setString( 3,  metrics.jobState);
+                    stmt.setString( 4,  metrics.userName);
+                    stmt.setLong(   5,  metrics.numJobs);
+                    stmt.setLong(   6,  metrics.numArchives);
+                    stmt.setLong(   7,  metrics.numFiles);
+                    stmt.setLong(   8,  metrics.totalSize);
+                    stmt.setLong(   9,  metrics.totalCompressedSize);
+                    stmt.setLong(   10, metrics.totalElapsedTime);
+                    stmt.setLong(   11, metrics.minElapsedTime);
+                    stmt.setLong(   12, metrics.maxElapsedTime);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                stmt.close();
+                stmt = null;
+                
+                // Exactly the detail records that were summarized are 
+                // removed, in batches of MAX_IN_LIST_SIZE.
+                stmt = conn.prepareStatement(delete);
+                int batched = 0;
+                for (String jobID : jobIDs) {
+                    stmt.setString(1, jobID);
+                    stmt.addBatch();
+                    if (++batched >= MAX_IN_LIST_SIZE) {
+                        stmt.executeBatch();
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    stmt.executeBatch();
+                }
+            }
+            
+            // Note: If the container Datasource has jta=true this will throw
+            // an exception.
+            conn.commit();
+            
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Rolled up [ "
+                        + jobIDs.size()
+                        + " ] [ "
+                        + TABLE_NAME
+                        + " ] records for day [ "
+                        + day
+                        + " ] into [ "
+                        + summary.size()
+                        + " ] summary records.");
+            }
+        }
+        finally {
+            try { 
+                if (rs != null) { rs.close(); } 
+            } catch (Exception e) {}
+            try { 
+                if (stmt != null) { stmt.close(); } 
+            } catch (Exception e) {}
+        }
+        return jobIDs.size();
+    }
+    
+    /**
+     * Open a unit of work (one connection and one transaction) on the 
+     * JobTracker datasource.  The unit of work may be passed to any of the 
+     * JDBC service methods that accept one.  The caller is responsible for
+     * committing and closing it.
+     * 
+     * @return A new unit of work, or null if the DataSource was not 
+     * injected.
+     * @throws SQLException Thrown if a connection could not be obtained.
+     */
+    public UnitOfWork getUnitOfWork() throws SQLException {
+        UnitOfWork work = null;
+        if (datasource != null) {
+            work = new UnitOfWork(datasource);
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null unit of work will be returned to the caller.");
+        }
+        return work;
     }
     
     /**
@@ -485,4 +971,126 @@ public class JDBCJobMetricsService {
                     + " ] ms.");
         }
     }
+    
+    /**
+     * Accumulator for a single record of the daily summary table.
+     */
+    private static class DailyMetrics {
+        
+        /**
+         * The archive type (key).
+         */
+        private final String archiveType;
+        
+        /**
+         * The final job state (key).
+         */
+        private final String jobState;
+        
+        /**
+         * The user that submitted the jobs (key).
+         */
+        private final String userName;
+        
+        /**
+         * Number of jobs summarized.
+         */
+        private long numJobs             = 0L;
+        
+        /**
+         * Total number of archives.
+         */
+        private long numArchives         = 0L;
+        
+        /**
+         * Total number of files.
+         */
+        private long numFiles            = 0L;
+        
+        /**
+         * Total uncompressed size (in bytes).
+         */
+        private long totalSize           = 0L;
+        
+        /**
+         * Total compressed size (in bytes).
+         */
+        private long totalCompressedSize = 0L;
+        
+        /**
+         * Total elapsed time (in ms).
+         */
+        private long totalElapsedTime    = 0L;
+        
+        /**
+         * Shortest elapsed time (in ms).
+         */
+        private long minElapsedTime      = Long.MAX_VALUE;
+        
+        /**
+         * Longest elapsed time (in ms).
+         */
+        private long maxElapsedTime      = Long.MIN_VALUE;
+        
+        /**
+         * Constructor requiring the key fields.  Null or empty values are 
+         * replaced with <code>UNKNOWN</code> so that they can be matched by
+         * the merge.
+         * 
+         * @param archiveType The archive type.
+         * @param jobState The final job state.
+         * @param userName The user that submitted the jobs.
+         */
+        DailyMetrics(String archiveType, String jobState, String userName) {
+            this.archiveType = normalize(archiveType);
+            this.jobState    = normalize(jobState);
+            this.userName    = normalize(userName);
+        }
+        
+        /**
+         * Add a single job to the totals.
+         * 
+         * @param archives Number of archives generated by the job.
+         * @param files Number of files in the job.
+         * @param size Uncompressed size of the job.
+         * @param compressedSize Compressed size of the job.
+         * @param elapsedTime Elapsed time of the job.
+         */
+        void add(
+                int  archives, 
+                long files, 
+                long size, 
+                long compressedSize, 
+                long elapsedTime) {
+            numJobs++;
+            numArchives         += archives;
+            numFiles            += files;
+            totalSize           += size;
+            totalCompressedSize += compressedSize;
+            totalElapsedTime    += elapsedTime;
+            minElapsedTime       = Math.min(minElapsedTime, elapsedTime);
+            maxElapsedTime       = Math.max(maxElapsedTime, elapsedTime);
+        }
+        
+        /**
+         * Getter method for the key identifying the summary record within
+         * a single day.
+         * @return The summary key.
+         */
+        String getKey() {
+            return archiveType + "|" + jobState + "|" + userName;
+        }
+        
+        /**
+         * Replace null or empty key values.
+         * @param value The key value.
+         * @return The value or <code>UNKNOWN</code>.
+         */
+        private static String normalize(String value) {
+            if ((value == null) || (value.trim().isEmpty())) {
+                return UNKNOWN;
+            }
+            return value;
+        }
+    }
 }
@@ -5,7 +5,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import javax.annotation.Resource;
 import javax.ejb.EJB;
@@ -39,6 +42,18 @@ public class JDBCJobService {
      */
     private static final String TABLE_NAME = "JOBS";
     
+    /**
+     * Tables purged by <code>purge</code>, children first.
+     */
+    private static final String[] PURGE_TABLES = { 
+            "FILE_ENTRY", "ARCHIVE_JOBS", TABLE_NAME };
+    
+    /**
+     * Default number of rows retrieved per round trip by the streaming 
+     * (<code>forEach</code>) read methods.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    
     /**
      * Set up the logging system for use throughout the class
      */        
@@ -61,6 +76,21 @@ public class JDBCJobService {
      * Eclipse-generated default constructor. 
      */
     public JDBCJobService() { }
+    
+    /**
+     * Constructor used outside of the container (e.g. by a test or 
+     * benchmark harness) to supply the datasource and the ARCHIVE_JOBS 
+     * service directly rather than via injection or JNDI.
+     * 
+     * @param datasource The datasource containing the JOBS table.
+     * @param jdbcArchiveService Service for the ARCHIVE_JOBS table.
+     */
+    public JDBCJobService(
+            DataSource         datasource, 
+            JDBCArchiveService jdbcArchiveService) { 
+        this.datasource         = datasource;
+        this.jdbcArchiveService = jdbcArchiveService;
+    }
 
     /**
      * Private method used to obtain a reference to the target EJB.  
@@ -92,87 +122,124 @@ public class JDBCJobService {
     
     /**
      * Delete all information associated with the input jobID from the back-end
-     * data store.
+     * data store.  The FILE_ENTRY, ARCHIVE_JOBS and JOBS records are removed
+     * in a single transaction (see <code>purge</code>).
      * 
      * @param jobID The target job ID to delete.
      */
     public void delete(String jobID) {
+        if ((jobID != null) && (!jobID.isEmpty())) {
+            purge(Collections.singletonList(jobID));
+        }
+        else {
+            LOGGER.warn("Input JOB_ID field is null or empty.  "
+                    + "Delete operation will not be performed.");
+        }
+    }
+    
+    /**
+     * Delete all information associated with the input job IDs from the 
+     * back-end data store.  The child FILE_ENTRY records, then the 
+     * ARCHIVE_JOBS records, then the JOBS records are deleted using one 
+     * connection and one transaction (each table is a single JDBC batch).
+     * Either every record of every input job is removed or, on failure, the
+     * transaction is rolled back and nothing is removed.  Callers purging 
+     * very large numbers of jobs should supply them in chunks to bound the 
+     * size of the transaction (see <code>purge(UnitOfWork, Collection)</code>
+     * to purge several chunks on one connection).
+     * 
+     * @param jobIDs The target job IDs to delete (null or empty entries 
+     * are skipped).
+     * @return True if the purge was committed.  False otherwise.
+     */
+    public boolean purge(Collection<String> jobIDs) {
+        
+        boolean    purged  = false;
+        UnitOfWork work    = null;
+        int        count   = 0;
+        long       start   = System.currentTimeMillis();
         
-        Connection        conn   = null;
-        List<String>      jobIDs = new ArrayList<String>();
-        PreparedStatement stmt   = null;
-        ResultSet         rs     = null;
-        long              start  = System.currentTimeMillis();
-        String            sql    = "delete from " + TABLE_NAME  
-                + " where JOB_ID = ?";
-            
         if (datasource != null) {
-            if ((jobID != null) && (!jobID.isEmpty())) {
-                
-                try {
-                    
-                    // First, delete the associated archive and file objects
-                    getJDBCArchiveService().deepDeleteArchive(jobID);
+            try {
                 
-                    conn = datasource.getConnection();
-                    
-                    // Note: If the container Datasource has jta=true this will throw
-                    // an exception.
-                    conn.setAutoCommit(false);
-                    
-                    stmt = conn.prepareStatement(sql);
-                    stmt.setString(1, jobID);
-                    stmt.executeUpdate();
-                    
-                    // Note: If the container Datasource has jta=true this will throw
-                    // an exception.
-                    conn.commit();
-                    
-                }
-                catch (EJBLookupException ele) {
-                    LOGGER.error("Unable to obtain a reference to [ "
-                            + ele.getEJBName()
-                            + " ].  Delete of job [  "
-                            + jobID
-                            + " ] will not be performed.");
-                }
-                catch (SQLException se) {
-                    LOGGER.error("An unexpected SQLException was raised while "
-                            + "attempting to insert delete a [ "
-                            + TABLE_NAME 
-                            + " ] object "
-                            + "from the data store.  Error message [ "
-                            + se.getMessage() 
-                            + " ].");
-                }
-                finally {
-                    try { 
-                        if (stmt != null) { stmt.close(); } 
-                    } catch (Exception e) {}
-                    try { 
-                        if (conn != null) { conn.close(); } 
-                    } catch (Exception e) {}
-                }
+                work  = getUnitOfWork();
+                count = purge(work, jobIDs);
+                work.commit();
+                purged = true;
             }
-            else {
-                LOGGER.warn("Input JOB_ID field is null or empty.  "
-                        + "Delete operation will not be performed.");
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to purge [ "
+                        + count
+                        + " ] jobs from the data store.  The transaction "
+                        + "will be rolled back.  Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                if (work != null) { work.close(); }
             }
         }
         else {
             LOGGER.warn("DataSource object not injected by the container.  "
-                    + "An empty List will be returned to the caller.");
+                    + "Jobs will not be purged.");
         }
         
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Delete of [ "
-                    + TABLE_NAME
-                    + " ] record for job ID [ "
-                    + jobID
-                    + " ] completed in [ "
+            LOGGER.debug("Purge of [ "
+                    + count
+                    + " ] jobs completed in [ "
                     + (System.currentTimeMillis() - start) 
                     + " ] ms.");
         }
+        return purged;
+    }
+    
+    /**
+     * Delete all information associated with the input job IDs within the 
+     * caller's unit of work.  The FILE_ENTRY, ARCHIVE_JOBS and JOBS records
+     * are deleted (in that order) with one JDBC batch per table.  The 
+     * delete statements are cached by the unit of work, so purging many 
+     * chunks of jobs on the same unit of work prepares them only once.  
+     * Nothing is committed; the caller commits (or rolls back) the unit of 
+     * work.
+     * 
+     * @param work The caller's unit of work.
+     * @param jobIDs The target job IDs to delete (null or empty entries 
+     * are skipped).
+     * @return The number of jobs deleted.
+     * @throws SQLException Thrown if any of the deletes failed.
+     */
+    public int purge(UnitOfWork work, Collection<String> jobIDs) 
+            throws SQLException {
+        
+        List<String> targets = new ArrayList<String>();
+        
+        if (jobIDs != null) {
+            for (String jobID : jobIDs) {
+                if ((jobID != null) && (!jobID.isEmpty())) {
+                    targets.add(jobID);
+                }
+                else {
+                    LOGGER.warn("Input JOB_ID field is null or empty.  "
+                            + "Entry will be skipped.");
+                }
+            }
+        }
+        
+        if (targets.size() > 0) {
+            for (String table : PURGE_TABLES) {
+                PreparedStatement stmt = work.prepare("delete from " 
+                        + table
+                        + " where JOB_ID = ?");
+                for (String jobID : targets) {
+                    stmt.setString(1, jobID);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+        return targets.size();
     }
     
     /**
@@ -192,15 +259,47 @@ public class JDBCJobService {
     }
     
     /**
-     * Retrieve a complete list of job IDs from the data store.
+     * Retrieve a complete list of job IDs from the data store.  The full 
+     * list is held in memory; see <code>forEachJobID()</code> to process 
+     * the job IDs with constant heap.
      * @return A list of job IDs.
      */
     public List<String> getJobIDs() {
+        List<String> jobIDs = new ArrayList<String>();
+        forEachJobID(jobIDs::add);
+        return jobIDs;
+    }
+    
+    /**
+     * Pass each job ID in the data store to the input consumer using 
+     * <code>DEFAULT_FETCH_SIZE</code>.
+     * 
+     * @param consumer Called once per job ID.
+     * @return The number of job IDs passed to the consumer.
+     */
+    public long forEachJobID(Consumer<String> consumer) {
+        return forEachJobID(consumer, DEFAULT_FETCH_SIZE);
+    }
+    
+    /**
+     * Pass each job ID in the data store to the input consumer as it is 
+     * read.  The rows are read through a forward-only, read-only cursor 
+     * and retrieved from the server <code>fetchSize</code> rows at a time, 
+     * so no list of job IDs is ever built.  The connection remains open 
+     * while the consumer runs; exceptions raised by the consumer are 
+     * propagated to the caller after the cursor is closed.
+     * 
+     * @param consumer Called once per job ID.
+     * @param fetchSize Number of rows retrieved per round trip (values 
+     * less than 1 select <code>DEFAULT_FETCH_SIZE</code>).
+     * @return The number of job IDs passed to the consumer.
+     */
+    public long forEachJobID(Consumer<String> consumer, int fetchSize) {
         
         Connection        conn   = null;
-        List<String>      jobIDs = new ArrayList<String>();
         PreparedStatement stmt   = null;
         ResultSet         rs     = null;
+        long              count  = 0L;
         long              start  = System.currentTimeMillis();
         String            sql    = "select JOB_ID from " + TABLE_NAME;
         
@@ -208,10 +307,16 @@ public class JDBCJobService {
             
             try {
                 conn = datasource.getConnection();
-                stmt = conn.prepareStatement(sql);
+                stmt = conn.prepareStatement(
+                        sql, 
+                        ResultSet.TYPE_FORWARD_ONLY, 
+                        ResultSet.CONCUR_READ_ONLY);
+                stmt.setFetchSize(
+                        fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
                 rs   = stmt.executeQuery();
                 while (rs.next()) {
-                    jobIDs.add(rs.getString("JOB_ID"));
+                    consumer.accept(rs.getString("JOB_ID"));
+                    count++;
                 }
             }
             catch (SQLException se) {
@@ -235,18 +340,62 @@ public class JDBCJobService {
         }
         else {
             LOGGER.warn("DataSource object not injected by the container.  "
-                    + "An empty List will be returned to the caller.");
+                    + "No job IDs will be returned to the caller.");
         }
         
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("[ "
-                    + jobIDs.size() 
+                    + count 
                     + " ] job IDs selected in [ "
                     + (System.currentTimeMillis() - start) 
                     + " ] ms.");
         }
         
-        return jobIDs;
+        return count;
+    }
+    
+    /**
+     * Open a cursor returning the distinct, non-null job IDs in the 
+     * JOBS table in ascending order.  Unlike <code>getJobIDs()</code> 
+     * the job IDs are streamed rather than loaded into memory.  The caller 
+     * is responsible for closing the cursor.
+     * 
+     * @return Cursor over the job IDs, or null if the DataSource was not 
+     * injected.
+     * @throws SQLException Thrown if the query could not be executed.
+     */
+    public JobIDCursor getJobIDCursor() throws SQLException {
+        JobIDCursor cursor = null;
+        if (datasource != null) {
+            cursor = new JobIDCursor(datasource, TABLE_NAME);
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null cursor will be returned to the caller.");
+        }
+        return cursor;
+    }
+    
+    /**
+     * Open a unit of work (one connection and one transaction) on the 
+     * JobTracker datasource.  The unit of work may be passed to any of the 
+     * JDBC service methods that accept one.  The caller is responsible for
+     * committing and closing it.
+     * 
+     * @return A new unit of work, or null if the DataSource was not 
+     * injected.
+     * @throws SQLException Thrown if a connection could not be obtained.
+     */
+    public UnitOfWork getUnitOfWork() throws SQLException {
+        UnitOfWork work = null;
+        if (datasource != null) {
+            work = new UnitOfWork(datasource);
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "A null unit of work will be returned to the caller.");
+        }
+        return work;
     }
     
     /**
@@ -312,21 +461,159 @@ public class JDBCJobService {
         return jobIDs;
     }
     
+    /**
+     * Plan the purge of the jobs that were started prior to the input time.
+     * A single query returns, for each candidate job, whether it has any 
+     * ARCHIVE_JOBS records and whether a BUNDLER_JOB_METRICS record exists 
+     * for it.  The existence checks are evaluated by the database 
+     * (EXISTS sub-queries) so no archive, file, or metrics data is 
+     * transferred.  This replaces materializing each job and issuing a 
+     * separate metrics lookup per job.
+     * 
+     * The candidates are returned one page at a time using keyset 
+     * pagination on (START_TIME, JOB_ID): each page begins immediately 
+     * after the key of the last candidate of the previous page, so no 
+     * cursor is held open across pages and the cost of a page does not 
+     * depend on how many pages precede it.
+     * 
+     * @param time The cutoff time (jobs started earlier are candidates).
+     * @param after The last candidate of the previous page (null for the 
+     * first page).
+     * @param pageSize The maximum number of candidates to return.
+     * @return The next page of purge candidates ordered by START_TIME and 
+     * JOB_ID.  A page shorter than <code>pageSize</code> is the last page.
+     */
+    public List<PurgeCandidate> getPurgeCandidates(
+            long           time, 
+            PurgeCandidate after, 
+            int            pageSize) {
+        
+        Connection           conn       = null;
+        List<PurgeCandidate> candidates = new ArrayList<PurgeCandidate>();
+        PreparedStatement    stmt       = null;
+        ResultSet            rs         = null;
+        long                 start      = System.currentTimeMillis();
+        String               sql        = "select * from (select j.JOB_ID, "
+                + "j.START_TIME, "
+                + "case when exists (select 1 from ARCHIVE_JOBS a "
+                + "where a.JOB_ID = j.JOB_ID) then 1 else 0 end HAS_ARCHIVES, "
+                + "case when exists (select 1 from "
+                + JDBCJobMetricsService.TABLE_NAME
+                + " m where m.JOB_ID = j.JOB_ID) then 1 else 0 end HAS_METRICS "
+                + "from " 
+                + TABLE_NAME
+                + " j where j.START_TIME < ? and ((j.START_TIME > ?) or "
+                + "(j.START_TIME = ? and j.JOB_ID > ?)) "
+                + "order by j.START_TIME, j.JOB_ID) where rownum <= ?";
+        
+        if (datasource != null) {
+            
+            try {
+                conn = datasource.getConnection();
+                stmt = conn.prepareStatement(sql);
+                stmt.setLong(1, time);
+                if (after != null) {
+                    stmt.setLong(  2, after.getStartTime());
+                    stmt.setLong(  3, after.getStartTime());
+                    stmt.setString(4, after.getJobID());
+                }
+                else {
+                    stmt.setLong(  2, Long.MIN_VALUE);
+                    stmt.setLong(  3, Long.MIN_VALUE);
+                    stmt.setString(4, "");
+                }
+                stmt.setInt(5, pageSize);
+                rs   = stmt.executeQuery();
+                while (rs.next()) {
+                    candidates.add(new PurgeCandidate(
+                            rs.getString("JOB_ID"),
+                            rs.getLong("START_TIME"),
+                            rs.getInt("HAS_ARCHIVES") > 0,
+                            rs.getInt("HAS_METRICS") > 0));
+                }
+            }
+            catch (SQLException se) {
+                LOGGER.error("An unexpected SQLException was raised while "
+                        + "attempting to plan the purge of old jobs.  "
+                        + "Error message [ "
+                        + se.getMessage() 
+                        + " ].");
+            }
+            finally {
+                try { 
+                    if (rs != null) { rs.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
+            }
+        }
+        else {
+            LOGGER.warn("DataSource object not injected by the container.  "
+                    + "An empty List will be returned to the caller.");
+        }
+        
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[ "
+                    + candidates.size() 
+                    + " ] purge candidates selected in [ "
+                    + (System.currentTimeMillis() - start) 
+                    + " ] ms.");
+        }
+        return candidates;
+    }
+    
     /**
      * This method will return a list of all 
      * <code>mil.nga.bundler.model.Job</code> objects currently persisted in 
      * the back-end data store.  The Job objects returned will not be fully 
      * loaded.  They will not contain the individual archives nor the file 
-     * lists.
+     * lists.  The full list is held in memory; see 
+     * <code>forEachJob()</code> to process the jobs with constant heap.
      * 
      * @return A list of Job objects.
      */
     public List<Job> getJobs() {
+        List<Job> jobs = new ArrayList<Job>();
+        forEachJob(jobs::add);
+        return jobs;
+    }
+    
+    /**
+     * Pass each job in the data store (most recent first) to the input 
+     * consumer using <code>DEFAULT_FETCH_SIZE</code>.
+     * 
+     * @param consumer Called once per job.
+     * @return The number of jobs passed to the consumer.
+     */
+    public long forEachJob(Consumer<Job> consumer) {
+        return forEachJob(consumer, DEFAULT_FETCH_SIZE);
+    }
+    
+    /**
+     * Pass each job in the data store (most recent first) to the input 
+     * consumer as it is read.  The job objects are not materialized (i.e. 
+     * the archives are not loaded).  The rows are read through a 
+     * forward-only, read-only cursor and retrieved from the server 
+     * <code>fetchSize</code> rows at a time, so no list of jobs is ever 
+     * built.  The connection remains open while the consumer runs; 
+     * exceptions raised by the consumer are propagated to the caller after
+     * the cursor is closed.
+     * 
+     * @param consumer Called once per job.
+     * @param fetchSize Number of rows retrieved per round trip (values 
+     * less than 1 select <code>DEFAULT_FETCH_SIZE</code>).
+     * @return The number of jobs passed to the consumer.
+     */
+    public long forEachJob(Consumer<Job> consumer, int fetchSize) {
         
         Connection        conn   = null;
-        List<Job>         jobs   = new ArrayList<Job>();
         PreparedStatement stmt   = null;
         ResultSet         rs     = null;
+        long              count  = 0L;
         long              start  = System.currentTimeMillis();
         String            sql    = "select JOB_ID, ARCHIVE_SIZE, "
                 + "ARCHIVE_TYPE, END_TIME, NUM_ARCHIVES, "
@@ -339,7 +626,12 @@ public class JDBCJobService {
         if (datasource != null) {
             try {
                 conn = datasource.getConnection();
-                stmt = conn.prepareStatement(sql);
+                stmt = conn.prepareStatement(
+                        sql, 
+                        ResultSet.TYPE_FORWARD_ONLY, 
+                        ResultSet.CONCUR_READ_ONLY);
+                stmt.setFetchSize(
+                        fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
                 rs   = stmt.executeQuery();
                 
                 while (rs.next()) {
@@ -361,36 +653,43 @@ public class JDBCJobService {
                     job.setTotalSize(rs.getLong("TOTAL_SIZE"));
                     job.setTotalSizeComplete(rs.getLong("TOTAL_SIZE_COMPLETE"));
                     job.setUserName(rs.getString("USER_NAME"));
-                    jobs.add(job);
+                    consumer.accept(job);
+                    count++;
                 }
             }
             catch (SQLException se) {
                 LOGGER.error("An unexpected SQLException was raised while "
-                        + "attempting to retrieve a list of job IDs from the "
+                        + "attempting to retrieve a list of jobs from the "
                         + "target data source.  Error message [ "
                         + se.getMessage() 
                         + " ].");
             }
             finally {
-                try { rs.close(); } catch (Exception e) {}
-                try { stmt.close(); } catch (Exception e) {}
-                try { conn.close(); } catch (Exception e) {}
+                try { 
+                    if (rs != null) { rs.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (stmt != null) { stmt.close(); } 
+                } catch (Exception e) {}
+                try { 
+                    if (conn != null) { conn.close(); } 
+                } catch (Exception e) {}
             }
         }
         else {
             LOGGER.warn("DataSource object not injected by the container.  "
-                    + "An empty List will be returned to the caller.");
+                    + "No jobs will be returned to the caller.");
         }
         
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("[ "
-                    + jobs.size() 
+                    + count 
                     + " ] jobs selected in [ "
                     + (System.currentTimeMillis() - start) 
                     + " ] ms.");
         }
         
-        return jobs;
+        return count;
     }
     
     /**
@@ -0,0 +1,218 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Forward-only cursor over the JOB_ID column of a single table, returned
+ * in ascending order.  The rows are streamed from the server in batches of
+ * <code>FETCH_SIZE</code> so the full list of job IDs is never held in
+ * memory.  Null and repeated job IDs are skipped, so each call to
+ * <code>next()</code> returns a distinct job ID.
+ *
+ * The cursor verifies that the database actually returned the job IDs in
+ * the order defined by <code>String.compareTo()</code> (a linguistic
+ * NLS_SORT setting, for instance, would not).  An
+ * <code>IllegalStateException</code> is raised if it did not, as a merge
+ * of the cursor would no longer be correct.
+ *
+ * The caller is responsible for calling <code>close()</code>.
+ *
+ * @author L. Craig Carpenter
+ */
+public class JobIDCursor implements AutoCloseable {
+
+    /**
+     * Set up the logging system for use throughout the class
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            JobIDCursor.class);
+
+    /**
+     * Number of rows retrieved from the server per round trip.
+     */
+    public static final int FETCH_SIZE = 5000;
+
+    /**
+     * The table the job IDs are read from.
+     */
+    private final String tableName;
+
+    /**
+     * Connection held open for the life of the cursor.
+     */
+    private Connection conn;
+
+    /**
+     * The open query.
+     */
+    private PreparedStatement stmt;
+
+    /**
+     * The open result set.
+     */
+    private ResultSet rs;
+
+    /**
+     * The last job ID returned (used to skip duplicates and verify order).
+     */
+    private String last = null;
+
+    /**
+     * Number of distinct job IDs returned.
+     */
+    private long count = 0L;
+
+    /**
+     * Open a cursor over the JOB_ID column of the input table.
+     *
+     * @param datasource The datasource containing the table.
+     * @param tableName The table to read.
+     * @throws SQLException Thrown if the query could not be executed.
+     */
+    JobIDCursor(DataSource datasource, String tableName)
+            throws SQLException {
+
+        String sql = "select JOB_ID from "
+                + tableName
+                + " where JOB_ID is not null order by JOB_ID";
+
+        this.tableName = tableName;
+        try {
+            conn = datasource.getConnection();
+            stmt = conn.prepareStatement(sql);
+            stmt.setFetchSize(FETCH_SIZE);
+            rs   = stmt.executeQuery();
+        }
+        catch (SQLException se) {
+            close();
+            throw se;
+        }
+    }
+
+    /**
+     * Advance the cursor.
+     *
+     * @return The next distinct job ID, or null if the cursor is exhausted.
+     * @throws SQLException Thrown if the next row could not be read.
+     * @throws IllegalStateException Thrown if the job IDs were not returned
+     * in ascending order.
+     */
+    public String next() throws SQLException {
+        while ((rs != null) && (rs.next())) {
+            String jobID = rs.getString(1);
+            if (jobID != null) {
+                if (last != null) {
+                    int cmp = jobID.compareTo(last);
+                    if (cmp == 0) {
+                        continue;
+                    }
+                    if (cmp < 0) {
+                        throw new IllegalStateException("Job IDs in table [ "
+                                + tableName
+                                + " ] were not returned in ascending order.  "
+                                + "Job ID [ "
+                                + jobID
+                                + " ] followed [ "
+                                + last
+                                + " ].");
+                    }
+                }
+                last = jobID;
+                count++;
+                return jobID;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Getter method for the number of distinct job IDs returned so far.
+     * @return The number of distinct job IDs returned.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Getter method for the name of the table being read.
+     * @return The table name.
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Release the database resources held by the cursor.
+     */
+    @Override
+    public void close() {
+        try {
+            if (rs != null) { rs.close(); }
+        } catch (Exception e) {}
+        try {
+            if (stmt != null) { stmt.close(); }
+        } catch (Exception e) {}
+        try {
+            if (conn != null) { conn.close(); }
+        } catch (Exception e) {}
+        rs   = null;
+        stmt = null;
+        conn = null;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Cursor over [ "
+                    + tableName
+                    + " ] closed after returning [ "
+                    + count
+                    + " ] job IDs.");
+        }
+    }
+
+    /**
+     * Merge the two sorted cursors in a single pass returning the job IDs
+     * present in the child cursor that do not appear in the parent cursor.
+     * Memory use is independent of the size of either table (only the
+     * orphans are retained) and the time is linear in the sum of their
+     * sizes.
+     *
+     * @param child Cursor over the referencing table (e.g. FILE_ENTRY).
+     * @param parent Cursor over the referenced table (i.e. JOBS).
+     * @return The orphaned job IDs in ascending order.
+     * @throws SQLException Thrown if either cursor could not be read.
+     * @throws IllegalStateException Thrown if either cursor was not in
+     * ascending order.
+     */
+    public static List<String> getOrphans(
+            JobIDCursor child,
+            JobIDCursor parent) throws SQLException {
+
+        List<String> orphans = new ArrayList<String>();
+        String       c       = child.next();
+        String       p       = parent.next();
+
+        while (c != null) {
+            int cmp = (p == null) ? -1 : c.compareTo(p);
+            if (cmp < 0) {
+                orphans.add(c);
+                c = child.next();
+            }
+            else if (cmp == 0) {
+                c = child.next();
+                p = parent.next();
+            }
+            else {
+                p = parent.next();
+            }
+        }
+        return orphans;
+    }
+}
@@ -0,0 +1,109 @@
+package mil.nga.bundler.ejb.jdbc;
+
+/**
+ * Compact description of a job that is old enough to be purged.  Only the
+ * facts required to decide whether the job may be removed are carried, so
+ * planning a purge never requires the job's ARCHIVE_JOBS or FILE_ENTRY
+ * records to be loaded.
+ *
+ * @author L. Craig Carpenter
+ */
+public class PurgeCandidate {
+
+    /**
+     * The job ID.
+     */
+    private final String jobID;
+
+    /**
+     * The time at which the job started (the leading part of the key used
+     * to page through the candidates).
+     */
+    private final long startTime;
+
+    /**
+     * True if at least one ARCHIVE_JOBS record references the job.
+     */
+    private final boolean hasArchives;
+
+    /**
+     * True if a BUNDLER_JOB_METRICS record exists for the job.
+     */
+    private final boolean hasMetrics;
+
+    /**
+     * Default constructor requiring all fields.
+     *
+     * @param jobID The job ID.
+     * @param startTime The time at which the job started.
+     * @param hasArchives True if the job has archives.
+     * @param hasMetrics True if the job has a metrics record.
+     */
+    public PurgeCandidate(
+            String  jobID,
+            long    startTime,
+            boolean hasArchives,
+            boolean hasMetrics) {
+        this.jobID       = jobID;
+        this.startTime   = startTime;
+        this.hasArchives = hasArchives;
+        this.hasMetrics  = hasMetrics;
+    }
+
+    /**
+     * Getter method for the job ID.
+     * @return The job ID.
+     */
+    public String getJobID() {
+        return jobID;
+    }
+
+    /**
+     * Getter method for the time at which the job started.
+     * @return The job start time.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Getter method indicating whether the job has archives.
+     * @return True if at least one ARCHIVE_JOBS record references the job.
+     */
+    public boolean hasArchives() {
+        return hasArchives;
+    }
+
+    /**
+     * Getter method indicating whether the job has a metrics record.
+     * @return True if a BUNDLER_JOB_METRICS record exists for the job.
+     */
+    public boolean hasMetrics() {
+        return hasMetrics;
+    }
+
+    /**
+     * A job may be purged if it is empty (a request that produced no
+     * archives) or if its metrics have been recorded.
+     * @return True if the job may be purged.
+     */
+    public boolean isPurgeable() {
+        return (!hasArchives) || hasMetrics;
+    }
+
+    /**
+     * Convert the object to string representation for logging purposes.
+     */
+    @Override
+    public String toString() {
+        return "PurgeCandidate => [ job_id => "
+                + jobID
+                + ", start_time => "
+                + startTime
+                + ", has_archives => "
+                + hasArchives
+                + ", has_metrics => "
+                + hasMetrics
+                + " ]";
+    }
+}
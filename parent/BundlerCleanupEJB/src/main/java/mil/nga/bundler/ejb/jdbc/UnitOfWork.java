@@ -0,0 +1,208 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single connection and transaction shared by a series of JDBC service
+ * calls.  The caller opens the unit of work once (see
+ * <code>getUnitOfWork()</code> on any of the JDBC services, all of which
+ * use the JobTracker datasource), passes it to the service methods that
+ * accept it, and calls <code>commit()</code> when the work is complete.
+ * Service methods never commit a unit of work themselves.
+ *
+ * Prepared statements are cached by SQL text for the life of the unit of
+ * work, so a statement executed repeatedly (e.g. in a loop over files or
+ * purge chunks) is only prepared once.  Statements obtained from
+ * <code>prepare()</code> must not be closed by the caller.
+ *
+ * The caller is responsible for calling <code>close()</code>.  Any work
+ * not committed at that point is rolled back.  Instances are not
+ * thread-safe.
+ *
+ * This class is written assuming that the DataSource is not handling the
+ * transactions on behalf of the application (i.e. non-JTA).
+ *
+ * @author L. Craig Carpenter
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    /**
+     * Set up the logging system for use throughout the class
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            UnitOfWork.class);
+
+    /**
+     * Cache of prepared statements keyed by SQL text.
+     */
+    private final Map<String, PreparedStatement> statements =
+            new HashMap<String, PreparedStatement>();
+
+    /**
+     * Time at which the unit of work was opened.
+     */
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * Connection held open for the life of the unit of work.
+     */
+    private Connection conn;
+
+    /**
+     * Number of calls to <code>prepare()</code> satisfied from the cache.
+     */
+    private int cacheHits = 0;
+
+    /**
+     * Number of transactions committed.
+     */
+    private int commits = 0;
+
+    /**
+     * Open a unit of work on a new connection obtained from the input
+     * datasource.
+     *
+     * @param datasource The datasource.
+     * @throws SQLException Thrown if the connection could not be obtained.
+     */
+    UnitOfWork(DataSource datasource) throws SQLException {
+        try {
+            conn = datasource.getConnection();
+
+            // Note: If the container Datasource has jta=true this will throw
+            // an exception.
+            conn.setAutoCommit(false);
+        }
+        catch (SQLException se) {
+            close();
+            throw se;
+        }
+    }
+
+    /**
+     * Obtain a prepared statement for the input SQL, preparing it only if
+     * it has not already been prepared by this unit of work.  Parameters
+     * bound by a previous use of the statement are cleared.
+     *
+     * @param sql The SQL text.
+     * @return The prepared statement (owned by the unit of work).
+     * @throws SQLException Thrown if the statement could not be prepared,
+     * or if the unit of work has been closed.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        if (conn == null) {
+            throw new SQLException("The unit of work has been closed.");
+        }
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null) {
+            stmt = conn.prepareStatement(sql);
+            statements.put(sql, stmt);
+        }
+        else {
+            stmt.clearParameters();
+            cacheHits++;
+        }
+        return stmt;
+    }
+
+    /**
+     * Commit the work performed since the last commit.  The unit of work
+     * (and its cached statements) remains open for further work.
+     *
+     * @throws SQLException Thrown if the commit failed.
+     */
+    public void commit() throws SQLException {
+        if (conn == null) {
+            throw new SQLException("The unit of work has been closed.");
+        }
+        // Note: If the container Datasource has jta=true this will throw
+        // an exception.
+        conn.commit();
+        commits++;
+    }
+
+    /**
+     * Roll back the work performed since the last commit.  Failures are
+     * logged rather than thrown as this method is typically called while
+     * handling an earlier exception.
+     */
+    public void rollback() {
+        try {
+            if (conn != null) { conn.rollback(); }
+        }
+        catch (SQLException se) {
+            LOGGER.error("An unexpected SQLException was raised while "
+                    + "attempting to roll back the unit of work.  Error "
+                    + "message [ "
+                    + se.getMessage()
+                    + " ].");
+        }
+    }
+
+    /**
+     * Getter method for the number of statements prepared.
+     * @return The number of distinct statements prepared.
+     */
+    public int getStatementCount() {
+        return statements.size();
+    }
+
+    /**
+     * Getter method for the number of statement requests satisfied from
+     * the cache.
+     * @return The number of cache hits.
+     */
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Getter method for the number of transactions committed.
+     * @return The number of commits.
+     */
+    public int getCommits() {
+        return commits;
+    }
+
+    /**
+     * Roll back any uncommitted work and release the cached statements and
+     * the connection.
+     */
+    @Override
+    public void close() {
+        int prepared = statements.size();
+        if (conn != null) {
+            rollback();
+        }
+        for (PreparedStatement stmt : statements.values()) {
+            try {
+                stmt.close();
+            } catch (Exception e) {}
+        }
+        statements.clear();
+        try {
+            if (conn != null) { conn.close(); }
+        } catch (Exception e) {}
+        conn = null;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Unit of work closed after [ "
+                    + (System.currentTimeMillis() - startTime)
+                    + " ] ms.  Commits => [ "
+                    + commits
+                    + " ], statements prepared => [ "
+                    + prepared
+                    + " ], cache hits => [ "
+                    + cacheHits
+                    + " ].");
+        }
+    }
+}
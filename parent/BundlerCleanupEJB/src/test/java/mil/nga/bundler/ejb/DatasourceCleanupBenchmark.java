@@ -0,0 +1,94 @@
+package mil.nga.bundler.ejb;
+
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Repeatable benchmark of the datasource cleanup.  The JobTracker model is
+ * populated with synthetic volumes and each phase of the cleanup is 
+ * measured by <code>DatasourceCleanupHarness.measure()</code>, reporting 
+ * the records processed and the connections, statements, round trips and
+ * commits issued.  The volumes are read 
+ * from the following system properties (defaults in brackets):
+ * 
+ * <pre>
+ * benchmark.jobs              Number of jobs [100000]
+ * benchmark.archives_per_job  ARCHIVE_JOBS rows per job [10]
+ * benchmark.files_per_archive FILE_ENTRY rows per archive [50]
+ * benchmark.old_ratio         Fraction of jobs past the cutoff [0.5]
+ * benchmark.metrics_ratio     Fraction of jobs with metrics [0.95]
+ * benchmark.empty_ratio       Fraction of jobs without archives [0.05]
+ * benchmark.orphan_ratio      Orphaned job IDs per job [0.01]
+ * </pre>
+ * 
+ * Any <code>bundler.cleanup.*</code> system properties (e.g. the purge 
+ * threads or orphan detection mode) are passed to the cleanup service, so
+ * purge strategies can be compared on identical data.  For example:
+ * 
+ * <pre>
+ * mvn exec:java -Dexec.classpathScope=test 
+ *     -Dexec.mainClass=mil.nga.bundler.ejb.DatasourceCleanupBenchmark 
+ *     -Dbundler.cleanup.orphan_detection=merge
+ * </pre>
+ * 
+ * The database is the in-memory model, so only the database traffic is
+ * reported.  Elapsed time, throughput and heap usage would describe the 
+ * model rather than the cost of the statements in Oracle.
+ * 
+ * @author L. Craig Carpenter
+ */
+public class DatasourceCleanupBenchmark {
+
+    /**
+     * Set up the logging system for use throughout the class
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            DatasourceCleanupBenchmark.class);
+    
+    /**
+     * Populate the model and log the statistics of each cleanup phase.
+     * 
+     * @param args Not used (see the class description for the system 
+     * properties read).
+     */
+    public static void main(String[] args) {
+        
+        Properties config = new Properties();
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("bundler.cleanup.")) {
+                config.setProperty(key, System.getProperty(key));
+            }
+        }
+        
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness(
+                config);
+        harness.populate(
+                Integer.getInteger("benchmark.jobs", 100000),
+                Integer.getInteger("benchmark.archives_per_job", 10),
+                Integer.getInteger("benchmark.files_per_archive", 50),
+                Double.parseDouble(
+                        System.getProperty("benchmark.old_ratio", "0.5")),
+                Double.parseDouble(
+                        System.getProperty("benchmark.metrics_ratio", "0.95")),
+                Double.parseDouble(
+                        System.getProperty("benchmark.empty_ratio", "0.05")),
+                Double.parseDouble(
+                        System.getProperty("benchmark.orphan_ratio", "0.01")));
+        
+        LOGGER.info("Populated [ "
+                + harness.getModel().getJobCount()
+                + " ] jobs, [ "
+                + harness.getModel().getArchiveCount()
+                + " ] archives and [ "
+                + harness.getModel().getFileCount()
+                + " ] files.  Cleanup properties "
+                + config.toString()
+                + ".");
+        
+        for (DatasourceCleanupHarness.Phase phase : harness.measure()) {
+            LOGGER.info(phase.toString());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package mil.nga.bundler.ejb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+import javax.sql.DataSource;
+
+import mil.nga.PropertyLoader;
+import mil.nga.bundler.ejb.jdbc.JDBCArchiveService;
+import mil.nga.bundler.ejb.jdbc.JDBCFileService;
+import mil.nga.bundler.ejb.jdbc.JDBCJobMetricsService;
+import mil.nga.bundler.ejb.jdbc.JDBCJobService;
+import mil.nga.bundler.ejb.jdbc.JobTrackerModel;
+import mil.nga.bundler.ejb.jdbc.ScriptedDataSource;
+import mil.nga.bundler.exceptions.PropertiesNotLoadedException;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+/**
+ * Out-of-container harness for the datasource cleanup.  The harness wires
+ * the JDBC services and <code>DatasourceCleanupService</code> together 
+ * through their non-container constructors on top of a scripted, 
+ * in-memory JobTracker datasource (see <code>JobTrackerModel</code>), 
+ * applies the supplied cleanup properties and calls <code>init()</code>.
+ * Tests populate the model, run the cleanup phases and inspect both the 
+ * model and the database traffic counted by the datasource.
+ * <code>measure()</code> runs the phases individually and reports the 
+ * database traffic of each (see <code>DatasourceCleanupBenchmark</code>).
+ * The database is the in-memory model, so timings and heap usage taken
+ * here would describe the model rather than Oracle and are not reported.
+ * 
+ * The cleanup properties are held by <code>PropertyLoader</code> for the 
+ * whole JVM, so harness instances must not be used concurrently.
+ * 
+ * @author L. Craig Carpenter
+ */
+public class DatasourceCleanupHarness implements BundlerConstantsI {
+
+    /**
+     * Milliseconds per day.
+     */
+    public static final long DAY = 24L * 60L * 60L * 1000L;
+    
+    /**
+     * Start time (relative to now) of the jobs generated as old jobs.
+     */
+    public static final long OLD_JOB_AGE = 
+            (DatasourceCleanupService.DELETE_JOBS_OLDER_THAN + 1) * DAY;
+    
+    private final ScriptedDataSource       ds    = new ScriptedDataSource();
+    private final JobTrackerModel          model = new JobTrackerModel();
+    private final DatasourceCleanupService service;
+    
+    /**
+     * Build the service graph using the default cleanup properties.
+     */
+    public DatasourceCleanupHarness() {
+        this(new Properties());
+    }
+    
+    /**
+     * Build the service graph.
+     * 
+     * @param config Cleanup properties (e.g. 
+     * <code>PURGE_PAGE_SIZE_PROPERTY</code>) overriding the defaults.  
+     * The pause between delete chunks defaults to zero.
+     */
+    public DatasourceCleanupHarness(Properties config) {
+        
+        configure(config);
+        model.register(ds);
+        
+        DataSource         datasource     = ds.getDataSource();
+        JDBCFileService    fileService    = new JDBCFileService(datasource);
+        JDBCArchiveService archiveService = new JDBCArchiveService(
+                datasource, 
+                fileService);
+        
+        service = new DatasourceCleanupService(
+                new JDBCJobService(datasource, archiveService),
+                archiveService,
+                fileService,
+                new JDBCJobMetricsService(datasource));
+        service.init();
+    }
+    
+    /**
+     * Replace the cleanup properties held by the property loader with the
+     * input properties.
+     */
+    private static void configure(Properties config) {
+        try {
+            Properties properties = new PropertyLoader(PROPERTY_FILE_NAME)
+                    .getProperties();
+            Iterator<Object> keys = properties.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().toString().startsWith("bundler.cleanup.")) {
+                    keys.remove();
+                }
+            }
+            properties.setProperty(DELETE_CHUNK_PAUSE_PROPERTY, "0");
+            for (Map.Entry<Object, Object> entry : config.entrySet()) {
+                properties.setProperty(
+                        entry.getKey().toString(), 
+                        entry.getValue().toString());
+            }
+        }
+        catch (PropertiesNotLoadedException pnle) {
+            throw new IllegalStateException("Test property file [ "
+                    + PROPERTY_FILE_NAME
+                    + " ] is not on the classpath.", pnle);
+        }
+    }
+    
+    /**
+     * Populate the model with synthetic jobs.  Each job is old (eligible 
+     * for purge) with probability <code>oldRatio</code>, has a metrics 
+     * record with probability <code>metricsRatio</code> and is empty (no 
+     * archives or files) with probability <code>emptyRatio</code>.  In 
+     * addition, orphaned ARCHIVE_JOBS and FILE_ENTRY rows are generated 
+     * for <code>orphanRatio</code> times as many job IDs that do not exist
+     * in JOBS.  The generator is seeded so runs are repeatable.
+     * 
+     * @param jobs Number of jobs.
+     * @param archivesPerJob ARCHIVE_JOBS rows per non-empty job.
+     * @param filesPerArchive FILE_ENTRY rows per archive.
+     * @param oldRatio Fraction of jobs older than the purge cutoff.
+     * @param metricsRatio Fraction of jobs with a metrics record.
+     * @param emptyRatio Fraction of jobs without archives.
+     * @param orphanRatio Orphaned job IDs per job.
+     */
+    public void populate(
+            int    jobs, 
+            int    archivesPerJob,
+            int    filesPerArchive,
+            double oldRatio,
+            double metricsRatio,
+            double emptyRatio,
+            double orphanRatio) {
+        
+        Random random = new Random(jobs);
+        long   now    = System.currentTimeMillis();
+        
+        for (int i = 0; i < jobs; i++) {
+            boolean empty = random.nextDouble() < emptyRatio;
+            model.addJob(
+                    String.format("J%09d", i), 
+                    (random.nextDouble() < oldRatio) ? 
+                            now - OLD_JOB_AGE - i : now - i,
+                    empty ? 0 : archivesPerJob,
+                    empty ? 0 : archivesPerJob * filesPerArchive,
+                    random.nextDouble() < metricsRatio);
+        }
+        for (int i = 0; i < (int)(jobs * orphanRatio); i++) {
+            model.addChildren(
+                    String.format("O%09d", i), 
+                    archivesPerJob, 
+                    archivesPerJob * filesPerArchive);
+        }
+    }
+    
+    /**
+     * Run the cleanup phases in the order used by 
+     * <code>DatasourceCleanupService.cleanup()</code>, counting the 
+     * database traffic of each.
+     * 
+     * @return The statistics of each phase.
+     */
+    public List<Phase> measure() {
+        List<Phase> phases = new ArrayList<Phase>();
+        phases.add(measure("purgeOldJobRecords", new IntSupplier() {
+            @Override
+            public int getAsInt() {
+                return service.purgeOldJobRecords();
+            }
+        }));
+        phases.add(measure("rollupJobMetrics", new IntSupplier() {
+            @Override
+            public int getAsInt() {
+                return service.rollupJobMetrics();
+            }
+        }));
+        phases.add(measure("cleanOrphanedArchiveRecords", new IntSupplier() {
+            @Override
+            public int getAsInt() {
+                return service.cleanOrphanedArchiveRecords();
+            }
+        }));
+        phases.add(measure("cleanOrphanedFileRecords", new IntSupplier() {
+            @Override
+            public int getAsInt() {
+                return service.cleanOrphanedFileRecords();
+            }
+        }));
+        return phases;
+    }
+    
+    /**
+     * Measure a single phase.
+     */
+    private Phase measure(String name, IntSupplier phase) {
+        ds.reset();
+        int records = phase.getAsInt();
+        return new Phase(name, records, ds);
+    }
+    
+    /**
+     * @return The scripted datasource (and its counters).
+     */
+    public ScriptedDataSource getDataSource() {
+        return ds;
+    }
+    
+    /**
+     * @return The in-memory JobTracker model.
+     */
+    public JobTrackerModel getModel() {
+        return model;
+    }
+    
+    /**
+     * @return The initialized cleanup service.
+     */
+    public DatasourceCleanupService getService() {
+        return service;
+    }
+    
+    /**
+     * Statistics of a single cleanup phase.
+     */
+    public static class Phase {
+        
+        private final String name;
+        private final int    records;
+        private final int    connections;
+        private final int    prepared;
+        private final int    executions;
+        private final int    batched;
+        private final int    commits;
+        
+        Phase(
+                String             name, 
+                int                records, 
+                ScriptedDataSource ds) {
+            this.name        = name;
+            this.records     = records;
+            this.connections = ds.getConnections();
+            this.prepared    = ds.getPrepared();
+            this.executions  = ds.getExecutions();
+            this.batched     = ds.getBatched();
+            this.commits     = ds.getCommits();
+        }
+        
+        /** @return The phase (i.e. service method) name. */
+        public String getName() { return name; }
+        
+        /** @return Records (or jobs) processed, as returned by the phase. */
+        public int getRecords() { return records; }
+        
+        /** @return Connections obtained. */
+        public int getConnections() { return connections; }
+        
+        /** @return Statements prepared. */
+        public int getPrepared() { return prepared; }
+        
+        /** @return Statement executions (i.e. round trips). */
+        public int getExecutions() { return executions; }
+        
+        /** @return Statements sent as part of a batch. */
+        public int getBatched() { return batched; }
+        
+        /** @return Commits. */
+        public int getCommits() { return commits; }
+        
+        /**
+         * Convert the object to string representation for logging purposes.
+         */
+        @Override
+        public String toString() {
+            return "Phase => [ name => "
+                    + name
+                    + ", records => "
+                    + records
+                    + ", connections => "
+                    + connections
+                    + ", prepared => "
+                    + prepared
+                    + ", round_trips => "
+                    + executions
+                    + ", batched => "
+                    + batched
+                    + ", commits => "
+                    + commits
+                    + " ]";
+        }
+    }
+}
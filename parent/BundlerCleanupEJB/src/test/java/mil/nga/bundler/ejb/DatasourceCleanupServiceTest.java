@@ -0,0 +1,223 @@
+package mil.nga.bundler.ejb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import mil.nga.bundler.ejb.jdbc.JobTrackerModel;
+import mil.nga.bundler.ejb.jdbc.ScriptedDataSource;
+import mil.nga.bundler.interfaces.BundlerConstantsI;
+
+/**
+ * Unit tests for <code>DatasourceCleanupService</code> driven outside of 
+ * the container by <code>DatasourceCleanupHarness</code>.
+ *
+ * @author L. Craig Carpenter
+ */
+public class DatasourceCleanupServiceTest implements BundlerConstantsI {
+
+    /**
+     * Build the cleanup properties passed to the harness.
+     * 
+     * @param keyValues Alternating property names and values.
+     * @return The properties.
+     */
+    private static Properties config(String... keyValues) {
+        Properties config = new Properties();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            config.setProperty(keyValues[i], keyValues[i + 1]);
+        }
+        return config;
+    }
+    
+    /**
+     * Jobs A (purgeable), B (no metrics), C (empty) are old; D is recent.
+     */
+    private static void addJobs(JobTrackerModel model) {
+        long old = System.currentTimeMillis() 
+                - DatasourceCleanupHarness.OLD_JOB_AGE;
+        model.addJob("A", old,     2, 10, true);
+        model.addJob("B", old,     1,  5, false);
+        model.addJob("C", old + 1, 0,  0, false);
+        model.addJob("D", System.currentTimeMillis(), 1, 5, true);
+    }
+    
+    /**
+     * Orphans: O1 has archives and files, O2 has files only.
+     */
+    private static void addOrphans(JobTrackerModel model) {
+        model.addChildren("O1", 2, 30);
+        model.addChildren("O2", 0, 5);
+    }
+
+    @Test
+    public void testPurgeOldJobRecords() {
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness(
+                config(PURGE_PAGE_SIZE_PROPERTY, "2"));
+        JobTrackerModel    model = harness.getModel();
+        ScriptedDataSource ds    = harness.getDataSource();
+        addJobs(model);
+        
+        assertEquals(2, harness.getService().purgeOldJobRecords());
+        assertFalse(model.hasJob("A"));
+        assertEquals(0, model.getArchiveCount("A"));
+        assertEquals(0, model.getFileCount("A"));
+        assertTrue(model.hasJob("B"));
+        assertEquals(5, model.getFileCount("B"));
+        assertFalse(model.hasJob("C"));
+        assertTrue(model.hasJob("D"));
+        
+        // Two candidate pages, each followed by one batch per purge table.
+        assertEquals(2 + 2 * 3, ds.getExecutions());
+        assertEquals(2, ds.getCommits());
+        assertEquals(0, ds.getOpenConnections());
+    }
+
+    @Test
+    public void testPurgeRollsBackFailedTransaction() {
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness();
+        JobTrackerModel          model   = harness.getModel();
+        ScriptedDataSource       ds      = harness.getDataSource();
+        harness.populate(150, 2, 3, 1.0, 1.0, 0.0, 0.0);
+        
+        // Candidates are ordered oldest first, so the second transaction 
+        // holds J000000099 through J000000050.  Its FILE_ENTRY and 
+        // ARCHIVE_JOBS deletes succeed and its JOBS delete fails partway.
+        model.failDelete("J000000075");
+        
+        assertEquals(100, harness.getService().purgeOldJobRecords());
+        assertEquals(3, Collections.frequency(ds.getExecuted(), 
+                "delete from FILE_ENTRY where JOB_ID = ?"));
+        assertEquals(50, model.getJobCount());
+        for (int i = 50; i < 100; i++) {
+            String jobID = String.format("J%09d", i);
+            assertTrue(model.hasJob(jobID));
+            assertEquals(2, model.getArchiveCount(jobID));
+            assertEquals(6, model.getFileCount(jobID));
+        }
+        assertFalse(model.hasJob("J000000049"));
+        assertFalse(model.hasJob("J000000100"));
+        assertEquals(100, model.getArchiveCount());
+        assertEquals(300, model.getFileCount());
+        assertEquals(0, ds.getOpenConnections());
+    }
+
+    @Test
+    public void testPurgeReusesStatements() {
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness();
+        ScriptedDataSource       ds      = harness.getDataSource();
+        harness.populate(500, 1, 1, 1.0, 1.0, 0.0, 0.0);
+        
+        assertEquals(500, harness.getService().purgeOldJobRecords());
+        assertEquals(0, harness.getModel().getJobCount());
+        
+        // One candidate page and one unit of work whose three deletes are
+        // prepared once and executed as one batch per transaction.
+        int transactions = 500 / DatasourceCleanupService
+                .PURGE_JOBS_PER_TRANSACTION;
+        assertEquals(2, ds.getConnections());
+        assertEquals(1 + 3, ds.getPrepared());
+        assertEquals(1 + 3 * transactions, ds.getExecutions());
+        assertEquals(3 * 500, ds.getBatched());
+        assertEquals(transactions, ds.getCommits());
+    }
+
+    @Test
+    public void testParallelPurge() {
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness(
+                config(PURGE_THREADS_PROPERTY, "4"));
+        harness.populate(1000, 2, 3, 0.5, 0.8, 0.1, 0.0);
+        JobTrackerModel model = harness.getModel();
+        int             jobs  = model.getJobCount();
+        
+        int purged = harness.getService().purgeOldJobRecords();
+        assertTrue(purged > 0);
+        assertEquals(jobs - purged, model.getJobCount());
+        
+        // One candidate page, then one connection per purge worker.
+        assertEquals(1 + 4, harness.getDataSource().getConnections());
+        assertEquals(0, harness.getDataSource().getOpenConnections());
+    }
+
+    @Test
+    public void testCleanOrphansAntiJoin() {
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness(
+                config(ORPHAN_CHUNK_SIZE_PROPERTY, "10"));
+        JobTrackerModel          model   = harness.getModel();
+        DatasourceCleanupService service = harness.getService();
+        addJobs(model);
+        addOrphans(model);
+        
+        assertEquals(2, service.cleanOrphanedArchiveRecords());
+        assertEquals(0, model.getArchiveCount("O1"));
+        assertEquals(0, model.getFileCount("O1"));
+        assertEquals(0, model.getFileCount("O2"));
+        assertEquals(0, service.cleanOrphanedFileRecords());
+        
+        assertEquals(4,  model.getArchiveCount());
+        assertEquals(20, model.getFileCount());
+        assertEquals(0,  harness.getDataSource().getOpenConnections());
+    }
+
+    @Test
+    public void testCleanOrphansMerge() {
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness(
+                config(ORPHAN_DETECTION_PROPERTY, ORPHAN_DETECTION_MERGE));
+        JobTrackerModel          model   = harness.getModel();
+        DatasourceCleanupService service = harness.getService();
+        addJobs(model);
+        addOrphans(model);
+        
+        assertEquals(1, service.cleanOrphanedArchiveRecords());
+        assertEquals(0, model.getArchiveCount("O1"));
+        assertEquals(0, model.getFileCount("O1"));
+        assertEquals(5, model.getFileCount("O2"));
+        assertEquals(1, service.cleanOrphanedFileRecords());
+        assertEquals(0, model.getFileCount("O2"));
+        
+        assertEquals(4,  model.getArchiveCount());
+        assertEquals(20, model.getFileCount());
+        assertEquals(0,  harness.getDataSource().getOpenConnections());
+    }
+
+    @Test
+    public void testCleanup() {
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness();
+        JobTrackerModel          model   = harness.getModel();
+        addJobs(model);
+        addOrphans(model);
+        
+        harness.getService().cleanup();
+        assertEquals(2, model.getJobCount());
+        assertEquals(2, model.getArchiveCount());
+        assertEquals(10, model.getFileCount());
+        assertEquals(0,  harness.getDataSource().getOpenConnections());
+    }
+
+    @Test
+    public void testMeasure() {
+        DatasourceCleanupHarness harness = new DatasourceCleanupHarness();
+        JobTrackerModel          model   = harness.getModel();
+        addJobs(model);
+        addOrphans(model);
+        
+        List<DatasourceCleanupHarness.Phase> phases = harness.measure();
+        assertEquals(4, phases.size());
+        assertEquals("purgeOldJobRecords", phases.get(0).getName());
+        assertEquals(2, phases.get(0).getRecords());
+        assertEquals(1 + 3, phases.get(0).getExecutions());
+        assertEquals(0, phases.get(1).getRecords());
+        assertEquals(0, phases.get(1).getExecutions());
+        assertEquals(2, phases.get(2).getRecords());
+        assertEquals(0, phases.get(3).getRecords());
+        assertTrue(phases.get(0).getConnections() > 0);
+        assertTrue(phases.get(0).getCommits() > 0);
+        assertEquals(2, model.getJobCount());
+    }
+}
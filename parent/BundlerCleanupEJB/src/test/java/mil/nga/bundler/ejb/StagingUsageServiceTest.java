@@ -0,0 +1,170 @@
+package mil.nga.bundler.ejb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import mil.nga.bundler.ejb.jdbc.JDBCArchiveService;
+import mil.nga.bundler.ejb.jdbc.ScriptedDataSource;
+import mil.nga.bundler.model.UserUsage;
+import mil.nga.bundler.types.JobStateType;
+
+/**
+ * Unit tests for the <code>StagingUsageService</code> class.  The
+ * ARCHIVE_JOBS table is scripted so the tests can change the size and
+ * state of an archive between refreshes.
+ *
+ * @author L. Craig Carpenter
+ */
+public class StagingUsageServiceTest {
+
+    /**
+     * Scripted ARCHIVE_JOBS rows joined with JOBS.USER_NAME, keyed by
+     * primary key.
+     */
+    private final Map<Long, Object[]> rows = new TreeMap<Long, Object[]>();
+
+    /**
+     * The lower primary key bound of each refresh.
+     */
+    private final List<Long> afterIDs = new ArrayList<Long>();
+
+    /**
+     * Start time of every scripted archive.
+     */
+    private final long now = System.currentTimeMillis();
+
+    /**
+     * The service under test.
+     */
+    private StagingUsageService service;
+
+    @Before
+    public void setUp() {
+        ScriptedDataSource ds = new ScriptedDataSource().on("HAS_FILE",
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                long afterID      = (Long)params.get(0);
+                long startedAfter = (Long)params.get(1);
+                afterIDs.add(afterID);
+                ScriptedDataSource.Rows result = new ScriptedDataSource.Rows(
+                        "ID", "JOB_ID", "ARCHIVE_SIZE", "START_TIME",
+                        "ARCHIVE_STATE", "HAS_FILE", "USER_NAME");
+                for (Object[] row : rows.values()) {
+                    if (((Long)row[0] > afterID)
+                            && ((Long)row[3] > startedAfter)) {
+                        result.add(row);
+                    }
+                }
+                return result;
+            }
+        });
+        service = new StagingUsageService();
+        service.archiveService = new JDBCArchiveService(
+                ds.getDataSource(), null);
+        service.init();
+    }
+
+    /**
+     * Create or replace an ARCHIVE_JOBS row owned by user "alice".
+     */
+    private void archive(
+            long         ID,
+            long         size,
+            JobStateType state,
+            boolean      hasFile) {
+        rows.put(ID, new Object[] {
+                ID, "JOB" + ID, size, now, state.name(),
+                hasFile ? 1 : 0, "alice" });
+    }
+
+    /**
+     * Add completed archives with primary keys in the input range so the
+     * watermark moves past the overlap window.
+     */
+    private void fill(long fromID, long toID) {
+        for (long ID = fromID; ID <= toID; ID++) {
+            archive(ID, 1L, JobStateType.COMPLETE, true);
+        }
+    }
+
+    /**
+     * Refresh and return the bytes attributed to "alice" (zero if none).
+     */
+    private long usage() {
+        for (UserUsage usage : service.getUsage()) {
+            if (usage.getUserName().equals("alice")) {
+                return usage.getTotalSize();
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * @return The lower primary key bound of the most recent refresh.
+     */
+    private long lastAfterID() {
+        return afterIDs.get(afterIDs.size() - 1);
+    }
+
+    @Test
+    public void testRereadReplacesSize() {
+        archive(1L, 100L, JobStateType.COMPLETE, true);
+        assertEquals(100L, usage());
+
+        archive(1L, 250L, JobStateType.COMPLETE, true);
+        assertEquals(250L, usage());
+        assertEquals(1, service.getUsage().get(0).getNumArchives());
+
+        // Removing the archive subtracts the size most recently counted.
+        archive(1L, 250L, JobStateType.COMPLETE, false);
+        assertEquals(0L, usage());
+        assertTrue(service.getUsage().isEmpty());
+    }
+
+    @Test
+    public void testPendingArchiveCountedOnCompletion() {
+        archive(1L, 0L, JobStateType.IN_PROGRESS, false);
+        fill(2L, 1501L);
+        assertEquals(1500L, usage());
+
+        // The pending archive is below the overlap window but is re-read.
+        assertEquals(1500L, usage());
+        assertEquals(0L, lastAfterID());
+
+        archive(1L, 500L, JobStateType.COMPLETE, true);
+        assertEquals(2000L, usage());
+
+        // Once complete, it no longer holds the window open.
+        assertEquals(2000L, usage());
+        assertEquals(501L, lastAfterID());
+    }
+
+    @Test
+    public void testCompleteWithoutFileNotCounted() {
+        archive(1L, 100L, JobStateType.COMPLETE, false);
+        archive(2L, 200L, JobStateType.COMPLETE, true);
+        assertEquals(200L, usage());
+
+        // Location cleared after the archive was counted.
+        archive(2L, 200L, JobStateType.COMPLETE, false);
+        assertEquals(0L, usage());
+    }
+
+    @Test
+    public void testFailedArchiveNotPending() {
+        archive(1L, 100L, JobStateType.ERROR, true);
+        fill(2L, 1501L);
+        assertEquals(1500L, usage());
+        assertEquals(1500L, usage());
+        assertEquals(501L, lastAfterID());
+    }
+}
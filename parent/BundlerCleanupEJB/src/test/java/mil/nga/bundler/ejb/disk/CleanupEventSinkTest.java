@@ -0,0 +1,164 @@
+package mil.nga.bundler.ejb.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Unit tests for the aggregation performed by <code>CleanupEventSink</code>.
+ *
+ * @author L. Craig Carpenter
+ */
+public class CleanupEventSinkTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private Logger                      logger;
+    private Level                       level;
+    private ListAppender<ILoggingEvent> appender;
+
+    @Before
+    public void setUp() {
+        logger   = (Logger)LoggerFactory.getLogger(CleanupEventSink.class);
+        level    = logger.getLevel();
+        appender = new ListAppender<ILoggingEvent>();
+        appender.start();
+        logger.addAppender(appender);
+        logger.setLevel(Level.INFO);
+    }
+
+    @After
+    public void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(level);
+    }
+
+    /**
+     * @return The messages logged by the sink, in order.
+     */
+    private List<String> getMessages() {
+        List<String> messages = new ArrayList<String>();
+        for (ILoggingEvent event : appender.list) {
+            messages.add(event.getFormattedMessage());
+        }
+        return messages;
+    }
+
+    /**
+     * @return The path of the i-th bundle.
+     */
+    private Path path(int i) {
+        return Paths.get("/staging/bundle_" + i);
+    }
+
+    @Test
+    public void testTotals() {
+        CleanupEventSink sink = new CleanupEventSink("test", false, NEVER);
+        for (int i = 0; i < 10; i++) {
+            sink.record(path(i), 100L, i);
+        }
+        assertEquals(10, sink.getTotalEntries());
+        assertEquals(1000L, sink.getTotalBytes());
+    }
+
+    @Test
+    public void testNoPerEntryLoggingUnlessVerbose() {
+        CleanupEventSink sink = new CleanupEventSink("test", false, NEVER);
+        sink.record(path(1), 1L, 1L);
+        assertEquals(0, appender.list.size());
+
+        CleanupEventSink verbose = new CleanupEventSink("test", true, NEVER);
+        verbose.record(path(1), 1L, 1L);
+        assertEquals(1, appender.list.size());
+        assertTrue(getMessages().get(0).startsWith("Deleted ["));
+    }
+
+    @Test
+    public void testCloseReportsSlowestFirst() {
+        CleanupEventSink sink = new CleanupEventSink("test", false, NEVER);
+        for (int i = 0; i < 20; i++) {
+            sink.record(path(i), 1L, i);
+        }
+        sink.close();
+
+        List<String> messages = getMessages();
+        assertEquals(2, messages.size());
+        String summary = messages.get(0);
+        assertTrue(summary.contains("removed [ 20 ] entries"));
+        int previous = -1;
+        for (int i = 19; i > 19 - CleanupEventSink.NUM_SLOWEST; i--) {
+            int index = summary.indexOf(path(i).toString() + " (" + i);
+            assertTrue("Missing " + i, index > previous);
+            previous = index;
+        }
+        assertFalse(summary.contains(path(19 - CleanupEventSink.NUM_SLOWEST)
+                .toString() + " ("));
+        assertTrue(messages.get(1).contains("a total of [ 20 ] entries"));
+    }
+
+    @Test
+    public void testIntervalSummary() {
+        CleanupEventSink sink = new CleanupEventSink("test", false, 0L);
+        sink.record(path(1), 1L, 1L);
+        sink.record(path(2), 1L, 1L);
+        assertEquals(2, appender.list.size());
+        for (String message : getMessages()) {
+            assertTrue(message.contains("removed [ 1 ] entries"));
+        }
+        // Nothing left to summarize at close, only the totals.
+        sink.close();
+        assertEquals(3, appender.list.size());
+        assertTrue(getMessages().get(2).contains("a total of [ 2 ] entries"));
+    }
+
+    @Test
+    public void testConcurrentRecords() throws InterruptedException {
+        final CleanupEventSink sink    = 
+                new CleanupEventSink("test", false, NEVER);
+        final int              threads = 8;
+        final int              records = 5000;
+        final CountDownLatch   start   = new CountDownLatch(1);
+        List<Thread>           workers = new ArrayList<Thread>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException ie) {
+                        return;
+                    }
+                    for (int i = 0; i < records; i++) {
+                        sink.record(path(i), 2L, i % 7);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * records, sink.getTotalEntries());
+        assertEquals(2L * threads * records, sink.getTotalBytes());
+    }
+}
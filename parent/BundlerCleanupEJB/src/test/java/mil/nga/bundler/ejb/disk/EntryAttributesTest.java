@@ -0,0 +1,92 @@
+package mil.nga.bundler.ejb.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the <code>EntryAttributes</code> class.
+ *
+ * @author L. Craig Carpenter
+ */
+public class EntryAttributesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Create a regular file holding the input number of bytes.
+     */
+    private Path file(String name, int size) throws IOException {
+        return Files.write(folder.getRoot().toPath().resolve(name),
+                new byte[size]);
+    }
+
+    @Test
+    public void testRegularFile() throws IOException {
+        EntryAttributes attrs = EntryAttributes.read(file("a.zip", 1234));
+        assertEquals(1234L, attrs.size());
+        assertEquals(1, attrs.getLinkCount());
+        assertTrue(attrs.isRegularFile());
+        assertFalse(attrs.isDirectory());
+        assertFalse(attrs.isSymbolicLink());
+    }
+
+    @Test
+    public void testHardLinkCount() throws IOException {
+        Path file = file("a.zip", 10);
+        Path link;
+        try {
+            link = Files.createLink(file.resolveSibling("b.zip"), file);
+        }
+        catch (UnsupportedOperationException uoe) {
+            assumeTrue(false);
+            return;
+        }
+        EntryAttributes attrs = EntryAttributes.read(link);
+        assumeTrue(attrs.getLinkCount() != 1);
+        assertEquals(2, attrs.getLinkCount());
+        assertEquals(10L, attrs.size());
+        assertEquals(EntryAttributes.read(file).fileKey(), attrs.fileKey());
+    }
+
+    @Test
+    public void testSymbolicLinkNotFollowed() throws IOException {
+        Path file = file("a.zip", 10);
+        Path link;
+        try {
+            link = Files.createSymbolicLink(
+                    file.resolveSibling("b.zip"), file);
+        }
+        catch (UnsupportedOperationException uoe) {
+            assumeTrue(false);
+            return;
+        }
+        EntryAttributes attrs = EntryAttributes.read(link);
+        assertTrue(attrs.isSymbolicLink());
+        assertFalse(attrs.isRegularFile());
+    }
+
+    @Test
+    public void testDirectory() throws IOException {
+        EntryAttributes attrs = EntryAttributes.read(
+                folder.newFolder("d").toPath());
+        assertTrue(attrs.isDirectory());
+        assertFalse(attrs.isRegularFile());
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void testMissingEntry() throws IOException {
+        EntryAttributes.read(folder.getRoot().toPath().resolve("missing"));
+    }
+}
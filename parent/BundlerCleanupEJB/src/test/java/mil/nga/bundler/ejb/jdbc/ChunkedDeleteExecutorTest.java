@@ -0,0 +1,179 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>ChunkedDeleteExecutor</code> class.
+ *
+ * @author L. Craig Carpenter
+ */
+public class ChunkedDeleteExecutorTest {
+
+    private static final String SQL = 
+            "delete from FILE_ENTRY where rownum <= ?";
+
+    /**
+     * Scripted delete of a fixed backlog of rows.  Each execution deletes
+     * up to the bound row limit, records the limit, and optionally sleeps
+     * to simulate statement latency.
+     */
+    private static class Backlog implements ScriptedDataSource.Handler {
+
+        final List<Integer> limits = new ArrayList<Integer>();
+        int  remaining;
+        long latency;
+        int  failAt = -1;
+
+        Backlog(int remaining, long latency) {
+            this.remaining = remaining;
+            this.latency   = latency;
+        }
+
+        @Override
+        public Object execute(String sql, List<Object> params) 
+                throws SQLException {
+            if (limits.size() == failAt) {
+                throw new SQLException("Simulated failure.");
+            }
+            int limit = (Integer)params.get(0);
+            limits.add(limit);
+            if (latency > 0) {
+                try {
+                    Thread.sleep(latency);
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int deleted = Math.min(limit, remaining);
+            remaining -= deleted;
+            return deleted;
+        }
+    }
+
+    /**
+     * Run the executor on a new connection from the input datasource.
+     * 
+     * @return The number of rows deleted.
+     */
+    private static int run(
+            ScriptedDataSource    ds, 
+            ChunkedDeleteExecutor executor) throws SQLException {
+        Connection conn = ds.getDataSource().getConnection();
+        try {
+            PreparedStatement stmt = conn.prepareStatement(SQL);
+            return executor.execute(conn, stmt, 1);
+        }
+        finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    public void testStopsOnShortChunk() throws SQLException {
+        Backlog            backlog  = new Backlog(2500, 0L);
+        ScriptedDataSource ds       = new ScriptedDataSource()
+                .on("delete from FILE_ENTRY", backlog);
+        ChunkedDeleteExecutor executor = 
+                new ChunkedDeleteExecutor(1000, 0L, 60000L);
+
+        assertEquals(2500, run(ds, executor));
+        assertEquals(Arrays.asList(1000, 1000, 1000), backlog.limits);
+        assertEquals(3, ds.getExecutions());
+        assertEquals(3, ds.getCommits());
+        assertEquals(1000, executor.getChunkSize());
+    }
+
+    @Test
+    public void testExactMultipleIssuesEmptyChunk() throws SQLException {
+        Backlog            backlog  = new Backlog(2000, 0L);
+        ScriptedDataSource ds       = new ScriptedDataSource()
+                .on("delete from FILE_ENTRY", backlog);
+
+        assertEquals(2000, run(ds, 
+                new ChunkedDeleteExecutor(1000, 0L, 60000L)));
+        assertEquals(3, ds.getExecutions());
+        assertEquals(3, ds.getCommits());
+    }
+
+    @Test
+    public void testSlowChunksHalveToFloor() throws SQLException {
+        Backlog            backlog  = new Backlog(2000, 40L);
+        ScriptedDataSource ds       = new ScriptedDataSource()
+                .on("delete from FILE_ENTRY", backlog);
+        ChunkedDeleteExecutor executor = 
+                new ChunkedDeleteExecutor(1000, 0L, 20L);
+
+        assertEquals(2000, run(ds, executor));
+        assertEquals(
+                Arrays.asList(1000, 500, 250, 125, 100, 100), 
+                backlog.limits);
+        assertEquals(ChunkedDeleteExecutor.MIN_CHUNK_SIZE, 
+                executor.getChunkSize());
+        assertEquals(6, ds.getCommits());
+    }
+
+    @Test
+    public void testFloorBoundedByMaximum() throws SQLException {
+        Backlog            backlog  = new Backlog(200, 40L);
+        ScriptedDataSource ds       = new ScriptedDataSource()
+                .on("delete from FILE_ENTRY", backlog);
+        ChunkedDeleteExecutor executor = 
+                new ChunkedDeleteExecutor(50, 0L, 20L);
+
+        assertEquals(200, run(ds, executor));
+        assertEquals(Arrays.asList(50, 50, 50, 50, 50), backlog.limits);
+        assertEquals(50, executor.getChunkSize());
+    }
+
+    @Test
+    public void testFastChunksGrowToMaximum() throws SQLException {
+        Backlog            backlog  = new Backlog(2000, 40L);
+        ScriptedDataSource ds       = new ScriptedDataSource()
+                .on("delete from FILE_ENTRY", backlog);
+        ChunkedDeleteExecutor executor = 
+                new ChunkedDeleteExecutor(1000, 0L, 20L);
+
+        // Drive the chunk size down to the floor with slow chunks.
+        run(ds, executor);
+        assertEquals(ChunkedDeleteExecutor.MIN_CHUNK_SIZE, 
+                executor.getChunkSize());
+
+        // The adapted size is retained across calls and grows by 50% per
+        // fast chunk until capped at the maximum.
+        backlog.limits.clear();
+        backlog.latency   = 0L;
+        backlog.remaining = 5000;
+        assertEquals(5000, run(ds, executor));
+        assertEquals(
+                Arrays.asList(100, 150, 225, 337, 505, 757, 1000, 1000, 1000),
+                backlog.limits);
+        assertEquals(1000, executor.getChunkSize());
+    }
+
+    @Test
+    public void testFailureKeepsCompletedChunks() {
+        Backlog            backlog  = new Backlog(5000, 0L);
+        ScriptedDataSource ds       = new ScriptedDataSource()
+                .on("delete from FILE_ENTRY", backlog);
+        backlog.failAt = 2;
+        try {
+            run(ds, new ChunkedDeleteExecutor(1000, 0L, 60000L));
+            fail("Expected an SQLException.");
+        }
+        catch (SQLException se) { }
+        assertEquals(3000, backlog.remaining);
+        assertEquals(2, ds.getCommits());
+        assertEquals(0, ds.getOpenConnections());
+    }
+}
@@ -0,0 +1,206 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the daily roll up performed by
+ * <code>JDBCJobMetricsService</code>.  The detail records are scripted
+ * and the summary records are captured from the parameters of the merge.
+ *
+ * @author L. Craig Carpenter
+ */
+public class JDBCJobMetricsServiceTest {
+
+    private static final long DAY = JDBCJobMetricsService.MS_PER_DAY;
+
+    /**
+     * Scripted detail records (JOB_ID, ARCHIVE_TYPE, JOB_STATE, USER_NAME,
+     * NUM_ARCHIVES, NUM_FILES, TOTAL_SIZE, TOTAL_COMPRESSED_SIZE,
+     * ELAPSED_TIME) keyed by the start of their day.
+     */
+    private final Map<Long, List<Object[]>> details =
+            new HashMap<Long, List<Object[]>>();
+
+    /**
+     * The cutoff bound to the query selecting the days to roll up.
+     */
+    private final List<Object> cutoffs = new ArrayList<Object>();
+
+    /**
+     * Parameters of each merged summary record, keyed by summary key
+     * (ARCHIVE_TYPE|JOB_STATE|USER_NAME).
+     */
+    private final Map<String, List<Object>> merged =
+            new HashMap<String, List<Object>>();
+
+    /**
+     * JOB_IDs of the deleted detail records.
+     */
+    private final List<Object> deleted = new ArrayList<Object>();
+
+    /**
+     * The service under test.
+     */
+    private JDBCJobMetricsService service;
+
+    @Before
+    public void setUp() {
+        ScriptedDataSource ds = new ScriptedDataSource();
+        ds.on("select distinct", new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                cutoffs.add(params.get(0));
+                ScriptedDataSource.Rows rows =
+                        new ScriptedDataSource.Rows("DAY_START");
+                for (Long day : details.keySet()) {
+                    if (day < (Long)params.get(0)) {
+                        rows.add(day);
+                    }
+                }
+                return rows;
+            }
+        });
+        ds.on("m.START_TIME >= ?", new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                assertEquals((Long)params.get(0) + DAY, params.get(1));
+                ScriptedDataSource.Rows rows = new ScriptedDataSource.Rows(
+                        "JOB_ID", "ARCHIVE_TYPE", "JOB_STATE", "USER_NAME",
+                        "NUM_ARCHIVES", "NUM_FILES", "TOTAL_SIZE",
+                        "TOTAL_COMPRESSED_SIZE", "ELAPSED_TIME");
+                List<Object[]> day = details.get(params.get(0));
+                if (day != null) {
+                    for (Object[] row : day) {
+                        rows.add(row);
+                    }
+                }
+                return rows;
+            }
+        });
+        ds.on("merge into", new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                merged.put(params.get(1)
+                        + "|" + params.get(2)
+                        + "|" + params.get(3), params);
+                return 1;
+            }
+        });
+        ds.on("delete from", new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                deleted.add(params.get(0));
+                return 1;
+            }
+        });
+        service = new JDBCJobMetricsService(ds.getDataSource());
+    }
+
+    /**
+     * Add a detail record to the input day.
+     */
+    private void detail(
+            long   day,
+            String jobID,
+            String archiveType,
+            String jobState,
+            String userName,
+            long   elapsedTime) {
+        List<Object[]> rows = details.get(day);
+        if (rows == null) {
+            rows = new ArrayList<Object[]>();
+            details.put(day, rows);
+        }
+        rows.add(new Object[] { jobID, archiveType, jobState, userName,
+                2, 10L, 1000L, 400L, elapsedTime });
+    }
+
+    /**
+     * @return The summary record merged for the input key.
+     */
+    private List<Object> summary(String key) {
+        List<Object> params = merged.get(key);
+        assertTrue("No summary for [ " + key + " ].", params != null);
+        return params;
+    }
+
+    @Test
+    public void testRollupRoundsToStartOfDay() {
+        detail(DAY * 2, "A", "ZIP", "COMPLETE", "alice", 100L);
+        detail(DAY * 3, "B", "ZIP", "COMPLETE", "alice", 100L);
+
+        // Only the whole days before the cutoff are rolled up.
+        assertEquals(1, service.rollup(DAY * 3 + 5L * 60L * 60L * 1000L));
+        assertEquals(Arrays.<Object>asList(DAY * 3), cutoffs);
+        assertEquals(DAY * 2, summary("ZIP|COMPLETE|alice").get(0));
+        assertEquals(Arrays.<Object>asList("A"), deleted);
+
+        // A cutoff on a day boundary is not rounded.
+        details.remove(DAY * 2);
+        assertEquals(1, service.rollup(DAY * 4));
+        assertEquals(DAY * 4, cutoffs.get(1));
+    }
+
+    @Test
+    public void testNullKeysNormalized() {
+        detail(DAY, "A", null, "", "   ", 100L);
+        detail(DAY, "B", null, null, null, 100L);
+
+        assertEquals(2, service.rollup(DAY * 2));
+        String unknown = JDBCJobMetricsService.UNKNOWN;
+        List<Object> params = summary(unknown + "|" + unknown + "|" + unknown);
+        assertEquals(1, merged.size());
+        assertEquals(2L, params.get(4));
+    }
+
+    @Test
+    public void testSummaryKeys() {
+        detail(DAY, "A", "ZIP", "COMPLETE", "alice", 100L);
+        detail(DAY, "B", "ZIP", "COMPLETE", "alice", 100L);
+        detail(DAY, "C", "ZIP", "ERROR",    "alice", 100L);
+        detail(DAY, "D", "TAR", "COMPLETE", "alice", 100L);
+        detail(DAY, "E", "ZIP", "COMPLETE", "bob",   100L);
+
+        assertEquals(5, service.rollup(DAY * 2));
+        assertEquals(4, merged.size());
+        List<Object> params = summary("ZIP|COMPLETE|alice");
+        assertEquals(2L,    params.get(4));
+        assertEquals(4L,    params.get(5));
+        assertEquals(20L,   params.get(6));
+        assertEquals(2000L, params.get(7));
+        assertEquals(800L,  params.get(8));
+        assertEquals(1L, summary("ZIP|ERROR|alice").get(4));
+        assertEquals(1L, summary("TAR|COMPLETE|alice").get(4));
+        assertEquals(1L, summary("ZIP|COMPLETE|bob").get(4));
+        assertEquals(5, deleted.size());
+    }
+
+    @Test
+    public void testElapsedTimeRange() {
+        detail(DAY, "A", "ZIP", "COMPLETE", "alice", 100L);
+        detail(DAY, "B", "ZIP", "COMPLETE", "alice", 40L);
+        detail(DAY, "C", "ZIP", "COMPLETE", "alice", 250L);
+        detail(DAY, "D", "TAR", "COMPLETE", "alice", 70L);
+
+        assertEquals(4, service.rollup(DAY * 2));
+        List<Object> params = summary("ZIP|COMPLETE|alice");
+        assertEquals(390L, params.get(9));
+        assertEquals(40L,  params.get(10));
+        assertEquals(250L, params.get(11));
+
+        // A single job is both the minimum and the maximum.
+        params = summary("TAR|COMPLETE|alice");
+        assertEquals(70L, params.get(10));
+        assertEquals(70L, params.get(11));
+    }
+}
@@ -0,0 +1,121 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the <code>JobIDCursor</code> class.
+ *
+ * @author L. Craig Carpenter
+ */
+public class JobIDCursorTest {
+
+    /**
+     * Script a datasource returning the input JOB_ID values, in the order
+     * supplied, for each of the named tables.
+     */
+    private static ScriptedDataSource script(
+            final String   table, 
+            final String[] jobIDs) {
+        return new ScriptedDataSource().on("from " + table, 
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                ScriptedDataSource.Rows rows = 
+                        new ScriptedDataSource.Rows("JOB_ID");
+                for (String jobID : jobIDs) {
+                    rows.add(jobID);
+                }
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Open a cursor over a scripted table returning the input JOB_IDs.
+     */
+    private static JobIDCursor cursor(String table, String... jobIDs) 
+            throws SQLException {
+        return new JobIDCursor(
+                script(table, jobIDs).getDataSource(), table);
+    }
+
+    @Test
+    public void testNextSkipsNullsAndDuplicates() throws SQLException {
+        try (JobIDCursor cursor = cursor(
+                "FILE_ENTRY", "A", "A", null, "B", "B", "B", "C")) {
+            assertEquals("A", cursor.next());
+            assertEquals("B", cursor.next());
+            assertEquals("C", cursor.next());
+            assertNull(cursor.next());
+            assertNull(cursor.next());
+            assertEquals(3L, cursor.getCount());
+        }
+    }
+
+    @Test
+    public void testNextRejectsUnorderedRows() throws SQLException {
+        try (JobIDCursor cursor = cursor("JOBS", "A", "C", "B")) {
+            assertEquals("A", cursor.next());
+            assertEquals("C", cursor.next());
+            try {
+                cursor.next();
+                fail("Expected an IllegalStateException.");
+            }
+            catch (IllegalStateException ise) { }
+        }
+    }
+
+    @Test
+    public void testGetOrphans() throws SQLException {
+        try (JobIDCursor child  = cursor(
+                    "FILE_ENTRY", "A", "B", "B", "D", "E", "G", "H", "H");
+             JobIDCursor parent = cursor(
+                    "JOBS", "B", "C", "E", "F", "G")) {
+            assertEquals(
+                    Arrays.asList("A", "D", "H"), 
+                    JobIDCursor.getOrphans(child, parent));
+            assertEquals(6L, child.getCount());
+        }
+    }
+
+    @Test
+    public void testGetOrphansEmptyParent() throws SQLException {
+        try (JobIDCursor child  = cursor("ARCHIVE_JOBS", "A", "B");
+             JobIDCursor parent = cursor("JOBS")) {
+            assertEquals(
+                    Arrays.asList("A", "B"), 
+                    JobIDCursor.getOrphans(child, parent));
+        }
+    }
+
+    @Test
+    public void testGetOrphansNone() throws SQLException {
+        try (JobIDCursor child  = cursor("FILE_ENTRY", "B", "C");
+             JobIDCursor parent = cursor("JOBS", "A", "B", "C", "D")) {
+            assertEquals(0, JobIDCursor.getOrphans(child, parent).size());
+        }
+    }
+
+    @Test
+    public void testSingleRoundTripAndClose() throws SQLException {
+        ScriptedDataSource ds = script("JOBS", new String[] { "A", "B" });
+        JobIDCursor cursor = new JobIDCursor(ds.getDataSource(), "JOBS");
+        while (cursor.next() != null) { }
+        cursor.close();
+        assertEquals(1, ds.getConnections());
+        assertEquals(1, ds.getExecutions());
+        assertEquals(0, ds.getOpenConnections());
+        assertEquals(
+                "select JOB_ID from JOBS where JOB_ID is not null "
+                + "order by JOB_ID", 
+                ds.getExecuted().get(0));
+    }
+}
@@ -0,0 +1,427 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory model of the JobTracker schema (JOBS, ARCHIVE_JOBS, FILE_ENTRY
+ * and BUNDLER_JOB_METRICS) answering the statements issued by the
+ * datasource cleanup.  The model registers its handlers on a
+ * <code>ScriptedDataSource</code> so the JDBC services can be driven
+ * outside of the container without an embedded database.
+ *
+ * Only the facts the cleanup depends on are modeled.  A job is its
+ * JOB_ID and START_TIME, and the ARCHIVE_JOBS and FILE_ENTRY tables are
+ * held as row counts per JOB_ID, so tens of millions of FILE_ENTRY rows
+ * cost one map entry per job.  Statements take effect immediately and 
+ * each delete registers its reversal with the datasource, so a rollback
+ * restores the rows deleted since the last commit.  A JOBS delete can be
+ * made to fail (see <code>failDelete()</code>) to exercise the rollback
+ * paths.  The job metrics rollup is not modeled.
+ *
+ * All methods are synchronized so that parallel purge workers may share
+ * the model.
+ *
+ * @author L. Craig Carpenter
+ */
+public class JobTrackerModel {
+
+    /**
+     * JOBS rows keyed by START_TIME then JOB_ID (the purge candidate key).
+     */
+    private final NavigableMap<Long, NavigableSet<String>> jobsByTime =
+            new TreeMap<Long, NavigableSet<String>>();
+
+    /**
+     * JOBS rows (JOB_ID to START_TIME).
+     */
+    private final NavigableMap<String, Long> jobs =
+            new TreeMap<String, Long>();
+
+    /**
+     * Number of ARCHIVE_JOBS rows per JOB_ID.
+     */
+    private final NavigableMap<String, Integer> archives =
+            new TreeMap<String, Integer>();
+
+    /**
+     * Number of FILE_ENTRY rows per JOB_ID.
+     */
+    private final NavigableMap<String, Integer> files =
+            new TreeMap<String, Integer>();
+
+    /**
+     * JOB_IDs with a BUNDLER_JOB_METRICS row.
+     */
+    private final Set<String> metrics = new HashSet<String>();
+
+    /**
+     * JOB_IDs whose JOBS delete fails.
+     */
+    private final Set<String> failures = new HashSet<String>();
+
+    /**
+     * Total number of ARCHIVE_JOBS rows.
+     */
+    private long archiveCount = 0L;
+
+    /**
+     * Total number of FILE_ENTRY rows.
+     */
+    private long fileCount    = 0L;
+
+    /**
+     * Add a job.
+     *
+     * @param jobID The job ID.
+     * @param startTime The job start time.
+     * @param archiveCount Number of ARCHIVE_JOBS rows.
+     * @param fileCount Number of FILE_ENTRY rows.
+     * @param hasMetrics True if the job has a metrics record.
+     */
+    public synchronized void addJob(
+            String  jobID,
+            long    startTime,
+            int     archiveCount,
+            int     fileCount,
+            boolean hasMetrics) {
+        jobs.put(jobID, startTime);
+        NavigableSet<String> ids = jobsByTime.get(startTime);
+        if (ids == null) {
+            ids = new TreeSet<String>();
+            jobsByTime.put(startTime, ids);
+        }
+        ids.add(jobID);
+        addChildren(jobID, archiveCount, fileCount);
+        if (hasMetrics) {
+            metrics.add(jobID);
+        }
+    }
+
+    /**
+     * Add ARCHIVE_JOBS and FILE_ENTRY rows for a job ID.  If the job does
+     * not exist the rows are orphans.
+     *
+     * @param jobID The job ID.
+     * @param archiveCount Number of ARCHIVE_JOBS rows.
+     * @param fileCount Number of FILE_ENTRY rows.
+     */
+    public synchronized void addChildren(
+            String jobID,
+            int    archiveCount,
+            int    fileCount) {
+        if (archiveCount > 0) {
+            archives.put(jobID, getArchiveCount(jobID) + archiveCount);
+            this.archiveCount += archiveCount;
+        }
+        if (fileCount > 0) {
+            files.put(jobID, getFileCount(jobID) + fileCount);
+            this.fileCount += fileCount;
+        }
+    }
+
+    /**
+     * Cause the JOBS delete of the input job to raise an 
+     * <code>SQLException</code> (e.g. to simulate a constraint violation 
+     * or lost connection partway through a purge).
+     *
+     * @param jobID The job ID.
+     */
+    public synchronized void failDelete(String jobID) {
+        failures.add(jobID);
+    }
+
+    /** @return Number of JOBS rows. */
+    public synchronized int getJobCount() { return jobs.size(); }
+
+    /** @return Number of ARCHIVE_JOBS rows. */
+    public synchronized long getArchiveCount() { return archiveCount; }
+
+    /** @return Number of FILE_ENTRY rows. */
+    public synchronized long getFileCount() { return fileCount; }
+
+    /** @return True if the job exists. */
+    public synchronized boolean hasJob(String jobID) {
+        return jobs.containsKey(jobID);
+    }
+
+    /** @return Number of ARCHIVE_JOBS rows for the job ID. */
+    public synchronized int getArchiveCount(String jobID) {
+        Integer count = archives.get(jobID);
+        return (count == null) ? 0 : count;
+    }
+
+    /** @return Number of FILE_ENTRY rows for the job ID. */
+    public synchronized int getFileCount(String jobID) {
+        Integer count = files.get(jobID);
+        return (count == null) ? 0 : count;
+    }
+
+    /**
+     * Register the handlers for the statements issued by the datasource
+     * cleanup.
+     *
+     * @param ds The datasource.
+     * @return The datasource.
+     */
+    public ScriptedDataSource register(final ScriptedDataSource ds) {
+        ds.on("HAS_ARCHIVES", new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                return getPurgeCandidates(
+                        (Long)params.get(0),
+                        (Long)params.get(1),
+                        (String)params.get(3),
+                        (Integer)params.get(4));
+            }
+        });
+        ds.on("delete from FILE_ENTRY where JOB_ID = ?",
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                return deleteChildren(ds, files, (String)params.get(0));
+            }
+        });
+        ds.on("delete from ARCHIVE_JOBS where JOB_ID = ?",
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                return deleteChildren(ds, archives, (String)params.get(0));
+            }
+        });
+        ds.on("delete from JOBS where JOB_ID = ?",
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) 
+                    throws SQLException {
+                return deleteJob(ds, (String)params.get(0));
+            }
+        });
+        ds.on("delete from FILE_ENTRY t where",
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                return deleteOrphans(ds, files, (Integer)params.get(0));
+            }
+        });
+        ds.on("delete from ARCHIVE_JOBS t where",
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                return deleteOrphans(ds, archives, (Integer)params.get(0));
+            }
+        });
+        ds.on("select JOB_ID from JOBS ", new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                return new ScriptedDataSource.Rows(
+                        expand(jobs.navigableKeySet(), null), "JOB_ID");
+            }
+        });
+        ds.on("select JOB_ID from ARCHIVE_JOBS ",
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                return new ScriptedDataSource.Rows(
+                        expand(archives.navigableKeySet(), archives),
+                        "JOB_ID");
+            }
+        });
+        ds.on("select JOB_ID from FILE_ENTRY ",
+                new ScriptedDataSource.Handler() {
+            @Override
+            public Object execute(String sql, List<Object> params) {
+                return new ScriptedDataSource.Rows(
+                        expand(files.navigableKeySet(), files), "JOB_ID");
+            }
+        });
+        return ds;
+    }
+
+    /**
+     * Page of jobs started before the cutoff, ordered by START_TIME and
+     * JOB_ID, following the input key.
+     */
+    private synchronized ScriptedDataSource.Rows getPurgeCandidates(
+            long   time,
+            long   afterTime,
+            String afterJobID,
+            int    limit) {
+        ScriptedDataSource.Rows rows = new ScriptedDataSource.Rows(
+                "JOB_ID", "START_TIME", "HAS_ARCHIVES", "HAS_METRICS");
+        int count = 0;
+        for (Map.Entry<Long, NavigableSet<String>> entry :
+                jobsByTime.subMap(afterTime, true, time, false).entrySet()) {
+            Set<String> ids = (entry.getKey() == afterTime) ?
+                    entry.getValue().tailSet(afterJobID, false) :
+                    entry.getValue();
+            for (String jobID : ids) {
+                if (count++ >= limit) {
+                    return rows;
+                }
+                rows.add(jobID,
+                        entry.getKey(),
+                        archives.containsKey(jobID) ? 1 : 0,
+                        metrics.contains(jobID) ? 1 : 0);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Delete a JOBS row.  A rollback restores the row.
+     */
+    private synchronized int deleteJob(
+            ScriptedDataSource ds, 
+            final String       jobID) throws SQLException {
+        if (failures.contains(jobID)) {
+            throw new SQLException("Simulated failure deleting job [ "
+                    + jobID
+                    + " ].");
+        }
+        final Long startTime = jobs.remove(jobID);
+        if (startTime == null) {
+            return 0;
+        }
+        NavigableSet<String> ids = jobsByTime.get(startTime);
+        ids.remove(jobID);
+        if (ids.isEmpty()) {
+            jobsByTime.remove(startTime);
+        }
+        ds.onRollback(new Runnable() {
+            @Override
+            public void run() {
+                addJob(jobID, startTime, 0, 0, false);
+            }
+        });
+        return 1;
+    }
+
+    /**
+     * Delete the ARCHIVE_JOBS or FILE_ENTRY rows of a job.  A rollback 
+     * restores the rows.
+     */
+    private synchronized int deleteChildren(
+            ScriptedDataSource   ds, 
+            Map<String, Integer> table,
+            String               jobID) {
+        Integer count = table.remove(jobID);
+        if (count == null) {
+            return 0;
+        }
+        adjust(table, -count);
+        restore(ds, table, jobID, count);
+        return count;
+    }
+
+    /**
+     * Register the re-insertion of deleted ARCHIVE_JOBS or FILE_ENTRY rows
+     * with the executing connection.
+     */
+    private void restore(
+            ScriptedDataSource         ds, 
+            final Map<String, Integer> table,
+            final String               jobID, 
+            final int                  count) {
+        ds.onRollback(new Runnable() {
+            @Override
+            public void run() {
+                if (table == files) {
+                    addChildren(jobID, 0, count);
+                }
+                else {
+                    addChildren(jobID, count, 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete up to <code>limit</code> rows whose JOB_ID does not exist in
+     * JOBS.
+     */
+    private synchronized int deleteOrphans(
+            ScriptedDataSource            ds, 
+            NavigableMap<String, Integer> table,
+            int                           limit) {
+        int                  deleted = 0;
+        Map<String, Integer> removed = new TreeMap<String, Integer>();
+        for (Map.Entry<String, Integer> entry : table.entrySet()) {
+            if (deleted >= limit) {
+                break;
+            }
+            if (!jobs.containsKey(entry.getKey())) {
+                int count = Math.min(entry.getValue(), limit - deleted);
+                deleted += count;
+                removed.put(entry.getKey(), count);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : removed.entrySet()) {
+            int remaining = table.get(entry.getKey()) - entry.getValue();
+            if (remaining == 0) {
+                table.remove(entry.getKey());
+            }
+            else {
+                table.put(entry.getKey(), remaining);
+            }
+            restore(ds, table, entry.getKey(), entry.getValue());
+        }
+        adjust(table, -deleted);
+        return deleted;
+    }
+
+    /**
+     * Adjust the row total of the input table.
+     */
+    private void adjust(Map<String, Integer> table, long delta) {
+        if (table == files) {
+            fileCount += delta;
+        }
+        else {
+            archiveCount += delta;
+        }
+    }
+
+    /**
+     * Stream the JOB_ID column of a table in order, repeating each job ID
+     * once per row.  The rows are produced on demand so a cursor over a
+     * large table does not materialize it.  The table must not be
+     * modified while the cursor is open.
+     */
+    private static Iterator<Object[]> expand(
+            final Iterable<String>     keys,
+            final Map<String, Integer> counts) {
+        return new Iterator<Object[]>() {
+            private final Iterator<String> it = keys.iterator();
+            private String jobID     = null;
+            private int    remaining = 0;
+
+            @Override
+            public boolean hasNext() {
+                return (remaining > 0) || it.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                if (remaining == 0) {
+                    if (!it.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    jobID     = it.next();
+                    remaining = (counts == null) ? 1 : counts.get(jobID);
+                }
+                remaining--;
+                return new Object[] { jobID };
+            }
+        };
+    }
+}
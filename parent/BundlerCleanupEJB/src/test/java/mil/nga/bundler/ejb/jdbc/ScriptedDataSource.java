@@ -0,0 +1,493 @@
+package mil.nga.bundler.ejb.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * Scripted, in-memory stand-in for the JobTracker datasource used to drive
+ * the JDBC services outside of the container.  No SQL is parsed.  Each 
+ * statement is routed to the first registered <code>Handler</code> whose
+ * fragment appears in the SQL text, and the handler supplies the update 
+ * count or result rows.  Unscripted SQL raises an 
+ * <code>SQLException</code>.
+ * 
+ * The JDBC interfaces are implemented with dynamic proxies and only the 
+ * methods used by the services are supported.  Every connection checkout,
+ * statement preparation, execution (i.e. server round trip), batched 
+ * statement, commit and rollback is counted so tests and benchmarks can 
+ * assert on the database traffic generated by the code under test.
+ * 
+ * Connections are transactional.  A handler that changes scripted state 
+ * registers the action reversing the change with 
+ * <code>onRollback()</code>.  The actions are held by the connection 
+ * executing the statement until it commits, and are run (most recent 
+ * first) if it rolls back or is closed with work outstanding, so callers'
+ * rollback paths are exercised against the scripted state.  Changes are 
+ * visible to other connections before they commit (i.e. there is no 
+ * isolation).
+ *
+ * @author L. Craig Carpenter
+ */
+public class ScriptedDataSource {
+
+    /**
+     * Callback supplying the outcome of a single statement execution.
+     */
+    public interface Handler {
+
+        /**
+         * Execute a statement.
+         * 
+         * @param sql The SQL text.
+         * @param params The bound parameters (index 0 is parameter 1).
+         * @return A <code>Rows</code> object for queries, or an 
+         * <code>Integer</code> update count.
+         * @throws SQLException To simulate a database error.
+         */
+        Object execute(String sql, List<Object> params) throws SQLException;
+    }
+
+    /**
+     * Result rows returned by a query handler.  Rows are either added up
+     * front or streamed from an iterator, so that a large scripted result
+     * (e.g. a job ID cursor over millions of rows) is never materialized.
+     */
+    public static class Rows implements Iterable<Object[]> {
+
+        private final Map<String, Integer> columns = 
+                new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+        private final List<Object[]>       rows    = 
+                new ArrayList<Object[]>();
+        private final Iterator<Object[]>   source;
+
+        /**
+         * Constructor.
+         * @param columns The column labels, in order.
+         */
+        public Rows(String... columns) {
+            this(null, columns);
+        }
+
+        /**
+         * Constructor for streamed rows.
+         * @param source Iterator supplying the rows.
+         * @param columns The column labels, in order.
+         */
+        public Rows(Iterator<Object[]> source, String... columns) {
+            this.source = source;
+            for (int i = 0; i < columns.length; i++) {
+                this.columns.put(columns[i], i);
+            }
+        }
+
+        /**
+         * Add a row.
+         * @param values The column values, in order.
+         * @return Reference to this object.
+         */
+        public Rows add(Object... values) {
+            rows.add(values);
+            return this;
+        }
+
+        /**
+         * @return The rows.
+         */
+        @Override
+        public Iterator<Object[]> iterator() {
+            return (source != null) ? source : rows.iterator();
+        }
+    }
+
+    private final Map<String, Handler> handlers = 
+            new LinkedHashMap<String, Handler>();
+    private final List<String>         executed = 
+            Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * Undo log of the connection whose statement is being dispatched on
+     * the current thread.
+     */
+    private final ThreadLocal<List<Runnable>> transaction = 
+            new ThreadLocal<List<Runnable>>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger open        = new AtomicInteger();
+    private final AtomicInteger prepared    = new AtomicInteger();
+    private final AtomicInteger executions  = new AtomicInteger();
+    private final AtomicInteger batched     = new AtomicInteger();
+    private final AtomicInteger commits     = new AtomicInteger();
+    private final AtomicInteger rollbacks   = new AtomicInteger();
+
+    /**
+     * Register the handler for all SQL containing the input fragment.
+     * Handlers are consulted in registration order.
+     * 
+     * @param fragment Text identifying the statement.
+     * @param handler The handler.
+     * @return Reference to this object.
+     */
+    public ScriptedDataSource on(String fragment, Handler handler) {
+        handlers.put(fragment, handler);
+        return this;
+    }
+
+    /**
+     * Register the action reversing a change made by the statement being
+     * executed.  May only be called by a handler.
+     * 
+     * @param undo The action reversing the change.
+     */
+    public void onRollback(Runnable undo) {
+        List<Runnable> log = transaction.get();
+        if (log == null) {
+            throw new IllegalStateException(
+                    "No statement is being executed.");
+        }
+        log.add(undo);
+    }
+
+    /**
+     * @return A <code>DataSource</code> backed by the script.
+     */
+    public DataSource getDataSource() {
+        return proxy(DataSource.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object p, Method m, Object[] args) 
+                    throws Throwable {
+                if (m.getName().equals("getConnection")) {
+                    connections.incrementAndGet();
+                    open.incrementAndGet();
+                    return newConnection();
+                }
+                return unsupported(m);
+            }
+        });
+    }
+
+    /**
+     * Reset all of the counters.
+     */
+    public void reset() {
+        connections.set(0);
+        prepared.set(0);
+        executions.set(0);
+        batched.set(0);
+        commits.set(0);
+        rollbacks.set(0);
+        executed.clear();
+    }
+
+    /** @return Number of connections obtained. */
+    public int getConnections() { return connections.get(); }
+
+    /** @return Number of connections obtained but not yet closed. */
+    public int getOpenConnections() { return open.get(); }
+
+    /** @return Number of statements prepared. */
+    public int getPrepared() { return prepared.get(); }
+
+    /** @return Number of executions (i.e. server round trips). */
+    public int getExecutions() { return executions.get(); }
+
+    /** @return Number of statements sent as part of a batch. */
+    public int getBatched() { return batched.get(); }
+
+    /** @return Number of commits. */
+    public int getCommits() { return commits.get(); }
+
+    /** @return Number of rollbacks. */
+    public int getRollbacks() { return rollbacks.get(); }
+
+    /** @return The SQL text of every execution, in order. */
+    public List<String> getExecuted() {
+        synchronized (executed) {
+            return new ArrayList<String>(executed);
+        }
+    }
+
+    /**
+     * Route a single execution to its handler.  Changes registered by the
+     * handler are added to the undo log of the executing connection.
+     */
+    private Object dispatch(
+            String         sql, 
+            List<Object>   params, 
+            List<Runnable> undo) throws SQLException {
+        for (Map.Entry<String, Handler> entry : handlers.entrySet()) {
+            if (sql.contains(entry.getKey())) {
+                transaction.set(undo);
+                try {
+                    return entry.getValue().execute(sql, params);
+                }
+                finally {
+                    transaction.remove();
+                }
+            }
+        }
+        throw new SQLException("Unscripted SQL [ " + sql + " ].");
+    }
+
+    /**
+     * Reverse the changes in the input undo log, most recent first.
+     */
+    private static void undo(List<Runnable> undo) {
+        for (int i = undo.size() - 1; i >= 0; i--) {
+            undo.get(i).run();
+        }
+        undo.clear();
+    }
+
+    /**
+     * Create a connection.  Each connection holds the undo log of its 
+     * current transaction.
+     */
+    private Connection newConnection() {
+        final boolean[]      closed = new boolean[1];
+        final List<Runnable> undo   = new ArrayList<Runnable>();
+        return proxy(Connection.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object p, Method m, Object[] args) 
+                    throws Throwable {
+                switch (m.getName()) {
+                    case "prepareStatement":
+                        prepared.incrementAndGet();
+                        return newStatement(
+                                (Connection)p, (String)args[0], undo);
+                    case "setAutoCommit":
+                    case "setTransactionIsolation":
+                        return null;
+                    case "getAutoCommit":
+                        return false;
+                    case "commit":
+                        commits.incrementAndGet();
+                        undo.clear();
+                        return null;
+                    case "rollback":
+                        rollbacks.incrementAndGet();
+                        undo(undo);
+                        return null;
+                    case "close":
+                        if (!closed[0]) {
+                            closed[0] = true;
+                            undo(undo);
+                            open.decrementAndGet();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed[0];
+                    default:
+                        return unsupported(m);
+                }
+            }
+        });
+    }
+
+    /**
+     * Create a statement for the input SQL.  Parameters are bound by index
+     * and each execution is routed to the matching handler.
+     */
+    private PreparedStatement newStatement(
+            final Connection     conn, 
+            final String         sql, 
+            final List<Runnable> undo) {
+        final List<Object>       params  = new ArrayList<Object>();
+        final List<List<Object>> batches = new ArrayList<List<Object>>();
+        return proxy(PreparedStatement.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object p, Method m, Object[] args) 
+                    throws Throwable {
+                String name = m.getName();
+                if (name.startsWith("set") && (args != null) 
+                        && (args.length >= 2) 
+                        && (args[0] instanceof Integer)) {
+                    int index = (Integer)args[0];
+                    while (params.size() < index) {
+                        params.add(null);
+                    }
+                    params.set(index - 1, 
+                            name.equals("setNull") ? null : args[1]);
+                    return null;
+                }
+                switch (name) {
+                    case "setFetchSize":
+                    case "setQueryTimeout":
+                    case "close":
+                        return null;
+                    case "clearParameters":
+                        params.clear();
+                        return null;
+                    case "getConnection":
+                        return conn;
+                    case "addBatch":
+                        batches.add(new ArrayList<Object>(params));
+                        return null;
+                    case "clearBatch":
+                        batches.clear();
+                        return null;
+                    case "executeBatch": {
+                        executions.incrementAndGet();
+                        executed.add(sql);
+                        int[] counts = new int[batches.size()];
+                        try {
+                            for (int i = 0; i < batches.size(); i++) {
+                                batched.incrementAndGet();
+                                Object result = dispatch(
+                                        sql, batches.get(i), undo);
+                                counts[i] = (result instanceof Integer) ? 
+                                        (Integer)result : 0;
+                            }
+                        }
+                        finally {
+                            // The batch is reset even if it failed.
+                            batches.clear();
+                        }
+                        return counts;
+                    }
+                    case "executeUpdate": {
+                        executions.incrementAndGet();
+                        executed.add(sql);
+                        Object result = dispatch(
+                                sql, new ArrayList<Object>(params), undo);
+                        return (result instanceof Integer) ? 
+                                (Integer)result : 0;
+                    }
+                    case "executeQuery": {
+                        executions.incrementAndGet();
+                        executed.add(sql);
+                        Object result = dispatch(
+                                sql, new ArrayList<Object>(params), undo);
+                        if (!(result instanceof Rows)) {
+                            throw new SQLException("Handler for [ " 
+                                    + sql 
+                                    + " ] did not return rows.");
+                        }
+                        return newResultSet((Rows)result);
+                    }
+                    default:
+                        return unsupported(m);
+                }
+            }
+        });
+    }
+
+    /**
+     * Create a forward-only result set over the input rows.  Columns may
+     * be read by index or (case-insensitive) label.
+     */
+    private ResultSet newResultSet(final Rows rows) {
+        final Iterator<Object[]> cursor  = rows.iterator();
+        final Object[][]         current = new Object[1][];
+        final boolean[]          wasNull = new boolean[1];
+        return proxy(ResultSet.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object p, Method m, Object[] args) 
+                    throws Throwable {
+                String name = m.getName();
+                switch (name) {
+                    case "next":
+                        current[0] = cursor.hasNext() ? cursor.next() : null;
+                        return (current[0] != null);
+                    case "close":
+                    case "setFetchSize":
+                        return null;
+                    case "wasNull":
+                        return wasNull[0];
+                    default:
+                        break;
+                }
+                if (name.startsWith("get") && (args != null) 
+                        && (args.length == 1)) {
+                    int index;
+                    if (args[0] instanceof Integer) {
+                        index = (Integer)args[0] - 1;
+                    }
+                    else {
+                        Integer column = rows.columns.get((String)args[0]);
+                        if (column == null) {
+                            throw new SQLException("Unknown column [ " 
+                                    + args[0] 
+                                    + " ].");
+                        }
+                        index = column;
+                    }
+                    Object value = current[0][index];
+                    wasNull[0] = (value == null);
+                    return convert(value, m.getReturnType());
+                }
+                return unsupported(m);
+            }
+        });
+    }
+
+    /**
+     * Convert a scripted value to the type requested by a getter.
+     */
+    private static Object convert(Object value, Class<?> type) {
+        if (type == String.class) {
+            return (value == null) ? null : value.toString();
+        }
+        if ((type == long.class) || (type == int.class) 
+                || (type == double.class) || (type == short.class)) {
+            Number n = (value == null) ? 0 : (value instanceof Number) ? 
+                    (Number)value : Double.valueOf(value.toString());
+            if (type == long.class)  { return n.longValue(); }
+            if (type == int.class)   { return n.intValue(); }
+            if (type == short.class) { return n.shortValue(); }
+            return n.doubleValue();
+        }
+        if (type == boolean.class) {
+            return (value != null) && Boolean.valueOf(value.toString());
+        }
+        if ((type == Timestamp.class) && (value instanceof Number)) {
+            return new Timestamp(((Number)value).longValue());
+        }
+        return value;
+    }
+
+    /**
+     * Handle a method not supported by the proxies.  Only 
+     * <code>toString</code> and <code>hashCode</code> are answered.
+     */
+    private static Object unsupported(Method m) {
+        if (m.getName().equals("toString")) {
+            return "Scripted " + m.getDeclaringClass().getSimpleName();
+        }
+        if (m.getName().equals("hashCode")) {
+            return 0;
+        }
+        throw new UnsupportedOperationException(
+                m.getDeclaringClass().getSimpleName() 
+                + "." 
+                + m.getName() 
+                + Arrays.toString(m.getParameterTypes()));
+    }
+
+    /**
+     * Create a dynamic proxy implementing the input interface.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T)Proxy.newProxyInstance(
+                ScriptedDataSource.class.getClassLoader(), 
+                new Class<?>[] { type }, 
+                handler);
+    }
+}
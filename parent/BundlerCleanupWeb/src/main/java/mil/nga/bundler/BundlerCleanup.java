@@ -1,21 +1,34 @@
 package mil.nga.bundler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.ejb.EJB;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import mil.nga.bundler.ejb.EJBClientUtilities;
 import mil.nga.bundler.ejb.DatasourceCleanupService;
 import mil.nga.bundler.ejb.DiskCleanupService;
+import mil.nga.bundler.ejb.RetentionSimulationService;
+import mil.nga.bundler.ejb.StagingUsageService;
 import mil.nga.bundler.ejb.exceptions.EJBLookupException;
 import mil.nga.bundler.interfaces.BundlerConstantsI;
+import mil.nga.bundler.simulator.RetentionPolicy;
 import mil.nga.util.FileUtils;
 import mil.nga.util.HostNameUtils;
 
@@ -39,6 +52,12 @@ public class BundlerCleanup implements BundlerConstantsI {
      */
     public static final String APPLICATION_NAME = "BundlerCleanup";
     
+    /**
+     * Number of bytes in a megabyte (used to convert the simulator 
+     * parameters).
+     */
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+    
     /**
      * Container-injected EJB reference.
      */
@@ -51,6 +70,18 @@ public class BundlerCleanup implements BundlerConstantsI {
     @EJB
     DatasourceCleanupService datasourceCleanupService;
     
+    /**
+     * Container-injected EJB reference.
+     */
+    @EJB
+    StagingUsageService stagingUsageService;
+    
+    /**
+     * Container-injected EJB reference.
+     */
+    @EJB
+    RetentionSimulationService retentionSimulationService;
+    
     /**
      * Private method used to obtain a reference to the target EJB.  
      * @return Reference to the JobService EJB.
@@ -85,6 +116,40 @@ public class BundlerCleanup implements BundlerConstantsI {
         return datasourceCleanupService;
     }
     
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * @return Reference to the StagingUsageService EJB.
+     */
+    private StagingUsageService getStagingUsageService() 
+            throws EJBLookupException {
+        if (stagingUsageService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ StagingUsageService ].  Attempting to "
+                    + "look it up via JNDI.");
+            stagingUsageService = EJBClientUtilities
+                    .getInstance()
+                    .getStagingUsageService();
+        }
+        return stagingUsageService;
+    }
+    
+    /**
+     * Private method used to obtain a reference to the target EJB.  
+     * @return Reference to the RetentionSimulationService EJB.
+     */
+    private RetentionSimulationService getRetentionSimulationService() 
+            throws EJBLookupException {
+        if (retentionSimulationService == null) {
+            LOGGER.warn("Application container failed to inject the "
+                    + "reference to [ RetentionSimulationService ].  "
+                    + "Attempting to look it up via JNDI.");
+            retentionSimulationService = EJBClientUtilities
+                    .getInstance()
+                    .getRetentionSimulationService();
+        }
+        return retentionSimulationService;
+    }
+    
     /**
      * Simple method used to determine whether or not the 
      * application is responding to requests.
@@ -141,5 +206,140 @@ public class BundlerCleanup implements BundlerConstantsI {
         return Response.status(Status.OK).entity("Done!").build();
     }
     
+    /**
+     * REST endpoint returning the size of each cleanup root (request log, 
+     * staging, and cold staging directories) in JSON format.  Large roots 
+     * are sampled so the values may be estimates (see the 
+     * <code>exact</code> and <code>*_margin</code> fields).
+     * @return The capacity report.
+     */
+    @GET
+    @Path("/capacity")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCapacity() {
+        try {
+            String json = new ObjectMapper().writeValueAsString(
+                    getDiskCleanupService().getCapacityReport());
+            return Response.status(Status.OK).entity(json).build();
+        }
+        catch (EJBLookupException ele) {
+            LOGGER.error("Unexpected EJBLookupException raised while "
+                    + "attempting to look up EJB [ "
+                    + ele.getEJBName()
+                    + " ].");
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        catch (JsonProcessingException jpe) {
+            LOGGER.error("Unexpected JsonProcessingException raised while "
+                    + "serializing the capacity report.  Exception "
+                    + "message => [ "
+                    + jpe.getMessage()
+                    + " ].");
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * REST endpoint returning the staging area usage (and quota) of each 
+     * user, largest first, in JSON format.
+     * @return The per-user staging area usage.
+     */
+    @GET
+    @Path("/usage")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getUsage() {
+        try {
+            String json = new ObjectMapper().writeValueAsString(
+                    getStagingUsageService().getUsage());
+            return Response.status(Status.OK).entity(json).build();
+        }
+        catch (EJBLookupException ele) {
+            LOGGER.error("Unexpected EJBLookupException raised while "
+                    + "attempting to look up EJB [ "
+                    + ele.getEJBName()
+                    + " ].");
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        catch (JsonProcessingException jpe) {
+            LOGGER.error("Unexpected JsonProcessingException raised while "
+                    + "serializing the staging area usage.  Exception "
+                    + "message => [ "
+                    + jpe.getMessage()
+                    + " ].");
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * REST endpoint used to replay the job history through one or more 
+     * candidate retention policies.  One policy is simulated for each 
+     * entry in the comma-separated list of retention periods.  All sizes 
+     * are supplied in MB.  The simulation is read-only and does not 
+     * affect the staging area.
+     * 
+     * @param retentionDays Comma-separated list of retention periods (in 
+     * days).
+     * @param highWatermark Usage (MB) above which the oldest bundles are 
+     * evicted (zero to disable).
+     * @param lowWatermark Usage (MB) to which watermark eviction reduces 
+     * the staging area.
+     * @param capacity Capacity (MB) of the staging area.
+     * @return The simulation results in JSON format.
+     */
+    @GET
+    @Path("/simulate")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response simulate(
+            @DefaultValue("14") @QueryParam("retention_days") 
+                String retentionDays,
+            @DefaultValue("0") @QueryParam("high_watermark_mb") 
+                long highWatermark,
+            @DefaultValue("0") @QueryParam("low_watermark_mb") 
+                long lowWatermark,
+            @DefaultValue("0") @QueryParam("capacity_mb") 
+                long capacity) {
+        
+        List<RetentionPolicy> policies = new ArrayList<RetentionPolicy>();
+        
+        try {
+            for (String days : retentionDays.split(",")) {
+                policies.add(new RetentionPolicy.RetentionPolicyBuilder()
+                        .retentionDays(Double.parseDouble(days.trim()))
+                        .highWatermark(highWatermark * BYTES_PER_MB)
+                        .lowWatermark(lowWatermark * BYTES_PER_MB)
+                        .capacity(capacity * BYTES_PER_MB)
+                        .build());
+            }
+        }
+        catch (NumberFormatException | IllegalStateException e) {
+            LOGGER.warn("Invalid retention policy requested.  Exception "
+                    + "message => [ "
+                    + e.getMessage()
+                    + " ].");
+            return Response.status(Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        }
+        
+        try {
+            String json = new ObjectMapper().writeValueAsString(
+                    getRetentionSimulationService().simulate(policies));
+            return Response.status(Status.OK).entity(json).build();
+        }
+        catch (EJBLookupException ele) {
+            LOGGER.error("Unexpected EJBLookupException raised while "
+                    + "attempting to look up EJB [ "
+                    + ele.getEJBName()
+                    + " ].");
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        catch (JsonProcessingException jpe) {
+            LOGGER.error("Unexpected JsonProcessingException raised while "
+                    + "serializing the simulation results.  Exception "
+                    + "message => [ "
+                    + jpe.getMessage()
+                    + " ].");
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 }
-